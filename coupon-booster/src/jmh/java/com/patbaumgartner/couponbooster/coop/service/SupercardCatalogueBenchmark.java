@@ -0,0 +1,124 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import com.patbaumgartner.couponbooster.coop.properties.SupercardProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Parsing and selection of a Supercard digital-coupon catalogue.
+ * <p>
+ * The catalogue is synthetic: every coupon carries the fields the run reads plus the
+ * validity dates, image and legal text a real entry has, spread over the shops, statuses
+ * and product types the default filter distinguishes. {@link #readTree()} is the
+ * {@code JsonNode} baseline the streaming reader replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SupercardCatalogueBenchmark {
+
+	private static final String[] SHOPS = { "retail", "retail", "retail", "bauhobby", "interdiscount" };
+
+	private static final String[] STATUSES = { "OPEN", "OPEN", "ACTIVE", "REDEEMED" };
+
+	private static final String[] PRODUCT_TYPES = { "39", "01", "07", "09", "04", "03", "05", "14", "02", "08", "40",
+			"31", "11", "12", "99" };
+
+	private static final SupercardProperties.CouponFilter FILTER = new SupercardProperties.CouponFilter(20, "retail",
+			"5 Rappen", List.of("39", "01", "07", "09", "04", "03", "05", "14", "02", "08", "40", "31"),
+			Map.of("39", 2.0, "01", 1.5));
+
+	@Param({ "100", "1000", "5000", "20000" })
+	public int coupons;
+
+	private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+	private DigitalCouponReader reader;
+
+	private byte[] body;
+
+	private List<DigitalCoupon> parsed;
+
+	private CompiledCouponFilter compiledFilter;
+
+	@Setup
+	public void setUp() {
+		reader = new DigitalCouponReader(objectMapper);
+		body = catalogue(coupons).getBytes(UTF_8);
+		parsed = reader.read(new ByteArrayInputStream(body));
+		compiledFilter = CompiledCouponFilter.compile(FILTER);
+	}
+
+	@Benchmark
+	public List<DigitalCoupon> readCatalogue() {
+		return reader.read(new ByteArrayInputStream(body));
+	}
+
+	@Benchmark
+	public JsonNode readTree() {
+		return objectMapper.readTree(new ByteArrayInputStream(body));
+	}
+
+	@Benchmark
+	public List<DigitalCoupon> selectCouponsToActivate() {
+		return compiledFilter.select(parsed);
+	}
+
+	@Benchmark
+	public List<DigitalCoupon> compileAndSelect() {
+		return CompiledCouponFilter.compile(FILTER).select(parsed);
+	}
+
+	static String catalogue(int coupons) {
+		var json = new StringBuilder(coupons * 512).append("{\"totalCount\":").append(coupons).append(",\"dc\":[");
+		for (int i = 0; i < coupons; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			String discount = (i % 17 == 0) ? "5 Rappen" : (i % 9 + 1) + "x Superpunkte";
+			json.append("{\"code\":\"DC")
+				.append(1_000_000 + i)
+				.append("\",\"status\":\"")
+				.append(STATUSES[i % STATUSES.length])
+				.append("\",\"formatIdMain\":\"")
+				.append(SHOPS[i % SHOPS.length])
+				.append("\",\"productTypes\":[\"")
+				.append(PRODUCT_TYPES[i % PRODUCT_TYPES.length])
+				.append("\",\"")
+				.append(PRODUCT_TYPES[(i * 7) % PRODUCT_TYPES.length])
+				.append("\"],\"textDescription\":\"Auf das ganze Sortiment Artikel ")
+				.append(i)
+				.append("\",\"textDiscountAmount\":\"")
+				.append(discount)
+				.append("\",\"validFrom\":\"2026-01-01T00:00:00\",\"validTo\":\"2026-12-31T23:59:59\"")
+				.append(",\"imageUrl\":\"https://www.supercard.ch/content/dam/coupons/")
+				.append(i)
+				.append(".jpg\",\"legalText\":\"Einlösbar in allen Coop Supermärkten. Nicht kumulierbar.\"")
+				.append(",\"redemptionLimit\":1,\"online\":false}");
+		}
+		return json.append("]}").toString();
+	}
+
+}
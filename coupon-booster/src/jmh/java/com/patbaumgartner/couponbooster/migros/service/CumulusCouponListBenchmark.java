@@ -0,0 +1,99 @@
+package com.patbaumgartner.couponbooster.migros.service;
+
+import com.patbaumgartner.couponbooster.migros.model.CouponInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Parsing of a Cumulus coupon list.
+ * <p>
+ * A fifth of the synthetic coupons are available and a fifth activated; the rest fill the
+ * {@code redeemed}, {@code preview} and {@code partner} lists the reader skips, the way a
+ * long-lived account's redeemed history dominates the real response. {@link #readTree()}
+ * is the {@code JsonNode} baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CumulusCouponListBenchmark {
+
+	private static final String[] LISTS = { "available", "activated", "redeemed", "preview", "partner" };
+
+	@Param({ "100", "1000", "5000", "20000" })
+	public int coupons;
+
+	private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+	private CouponListReader reader;
+
+	private byte[] body;
+
+	@Setup
+	public void setUp() {
+		reader = new CouponListReader(objectMapper);
+		body = couponList(coupons).getBytes(UTF_8);
+	}
+
+	@Benchmark
+	public List<CouponInfo> readCouponList() {
+		return reader.read(new ByteArrayInputStream(body));
+	}
+
+	@Benchmark
+	public JsonNode readTree() {
+		return objectMapper.readTree(new ByteArrayInputStream(body));
+	}
+
+	static String couponList(int coupons) {
+		var json = new StringBuilder(coupons * 384).append('{');
+		for (int list = 0; list < LISTS.length; list++) {
+			if (list > 0) {
+				json.append(',');
+			}
+			json.append('"').append(LISTS[list]).append("\":[");
+			int first = coupons * list / LISTS.length;
+			int last = coupons * (list + 1) / LISTS.length;
+			for (int i = first; i < last; i++) {
+				if (i > first) {
+					json.append(',');
+				}
+				json.append("{\"id\":")
+					.append(4_000_000 + i)
+					.append(",\"name\":\"20% auf Artikel ")
+					.append(i)
+					.append("\",\"subtitle\":\"Gültig in allen Migros Supermärkten\"")
+					.append(",\"disclaimer\":\"Nicht kumulierbar mit anderen Bons.\"")
+					.append(",\"validTo\":\"2026-12-31T23:59:59\",\"status\":\"")
+					.append(LISTS[list].toUpperCase(Locale.ROOT))
+					.append("\",\"imageUrl\":\"https://image.migros.ch/coupons/")
+					.append(i)
+					.append(".png\",\"tags\":[\"food\",\"weekly\"]}");
+			}
+			json.append(']');
+		}
+		return json.append('}').toString();
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.model.CookieJar;
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cookie filtering and {@code Cookie} header building for one request.
+ * <p>
+ * The synthetic sidecar response mixes cookies of both retailers, their parent domains,
+ * host-only cookies and tracking cookies of unrelated domains, as a shared browser
+ * context returns them. {@link #buildCookieJar()} is the one-off cost of indexing them
+ * after a login; the other benchmarks measure a request against the built jar.
+ * {@link #scanAndJoin()} is the per-request list scan the jar replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CookieBenchmark {
+
+	private static final String TARGET_HOST = "www.supercard.ch";
+
+	private static final String[] DOMAINS = { ".supercard.ch", "www.supercard.ch", ".coop.ch", ".migros.ch",
+			"login.migros.ch", ".google.com", ".doubleclick.net", "" };
+
+	@Param({ "10", "50", "200" })
+	public int cookies;
+
+	private final AbstractCouponService service = new AbstractCouponService() {
+
+		@Override
+		public CouponActivationResult activateAllAvailableCoupons(List<SessionCookie> sessionCookies, String userAgent,
+				String language) {
+			throw new UnsupportedOperationException();
+		}
+
+	};
+
+	private List<SessionCookie> sessionCookies;
+
+	private CookieJar cookieJar;
+
+	private CookieJar supercardCookies;
+
+	@Setup
+	public void setUp() {
+		sessionCookies = new ArrayList<>(cookies);
+		for (int i = 0; i < cookies; i++) {
+			sessionCookies.add(new SessionCookie("cookie" + i, Integer.toHexString(i) + "x".repeat(40),
+					DOMAINS[i % DOMAINS.length]));
+		}
+		cookieJar = CookieJar.of(sessionCookies);
+		supercardCookies = service.filterDomainSpecificCookies(cookieJar, TARGET_HOST);
+	}
+
+	@Benchmark
+	public String buildCookieJar() {
+		return CookieJar.of(sessionCookies).forHost(TARGET_HOST).header();
+	}
+
+	@Benchmark
+	public String scanAndJoin() {
+		return sessionCookies.stream()
+			.filter(cookie -> cookie.matchesHost(TARGET_HOST))
+			.map(cookie -> cookie.name() + "=" + cookie.value())
+			.collect(Collectors.joining("; "));
+	}
+
+	@Benchmark
+	public List<SessionCookie> filterDomainSpecificCookies() {
+		return service.filterDomainSpecificCookies(cookieJar, TARGET_HOST);
+	}
+
+	@Benchmark
+	public String buildCookieHeader() {
+		return service.buildCookieHeader(supercardCookies);
+	}
+
+	@Benchmark
+	public String filterAndBuildCookieHeader() {
+		return service.buildCookieHeader(service.filterDomainSpecificCookies(cookieJar, TARGET_HOST));
+	}
+
+	@Benchmark
+	public void matchesHost(Blackhole blackhole) {
+		for (SessionCookie cookie : sessionCookies) {
+			blackhole.consume(cookie.matchesHost(TARGET_HOST));
+		}
+	}
+
+}
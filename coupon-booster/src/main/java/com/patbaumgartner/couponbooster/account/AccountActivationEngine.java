@@ -0,0 +1,228 @@
+package com.patbaumgartner.couponbooster.account;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.scheduler.ActivationOutcome;
+import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.Bulkhead;
+import com.patbaumgartner.couponbooster.service.CouponActivationFlow;
+import com.patbaumgartner.couponbooster.service.CouponService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the activation flow for every account of a provider at once.
+ * <p>
+ * Each account gets its own virtual thread, so a slow login or a long coupon batch only
+ * holds up that account. Two shared bulkheads bound the load the engine generates:
+ * authentications per sidecar and provider (the sidecar runs one browser login per
+ * provider at a time and answers a second one with {@code 409 Conflict}, while logins for
+ * different providers proceed side by side) and activations per retailer API host. A
+ * provider with a pool of sidecars gets as many logins at once as per sidecar times the
+ * size of the pool.
+ * <p>
+ * A failure in one account never aborts the others; it is reported in that account's
+ * {@link ActivationOutcome}.
+ */
+public final class AccountActivationEngine {
+
+	private static final Logger log = LoggerFactory.getLogger(AccountActivationEngine.class);
+
+	private final AccountRegistry accountRegistry;
+
+	private final Map<String, Provider> providers;
+
+	private final int loginsPerSidecar;
+
+	private final int activationsPerRetailerHost;
+
+	private final Map<String, Bulkhead> sidecarBulkheads = new ConcurrentHashMap<>();
+
+	private final Map<String, Bulkhead> retailerHostBulkheads = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates the engine.
+	 * @param accountRegistry supplies the accounts of each provider
+	 * @param providers the providers the engine can run, keyed by {@link Provider#key()}
+	 * @param loginsPerSidecar concurrent authentications per sidecar and provider
+	 * @param activationsPerRetailerHost concurrent activations per retailer API host
+	 */
+	public AccountActivationEngine(AccountRegistry accountRegistry, List<Provider> providers, int loginsPerSidecar,
+			int activationsPerRetailerHost) {
+		this.accountRegistry = Objects.requireNonNull(accountRegistry, "AccountRegistry cannot be null");
+		this.providers = Objects.requireNonNull(providers, "providers cannot be null")
+			.stream()
+			.collect(Collectors.toUnmodifiableMap(Provider::key, Function.identity()));
+		this.loginsPerSidecar = loginsPerSidecar;
+		this.activationsPerRetailerHost = activationsPerRetailerHost;
+	}
+
+	/**
+	 * Runs the activation flow for every account of the provider and waits for all of
+	 * them.
+	 * @param providerKey the provider key, e.g. {@link AccountRegistry#COOP}
+	 * @return one outcome per account, in registry order
+	 * @throws CouponBoosterException if the provider is unknown or the calling thread is
+	 * interrupted
+	 */
+	public List<ActivationOutcome> activate(String providerKey) {
+		var provider = provider(providerKey);
+		var accounts = accountRegistry.accounts(providerKey);
+		var authenticationBulkhead = authenticationBulkhead(provider);
+		var activationBulkhead = retailerHostBulkheads.computeIfAbsent(provider.retailerHost(),
+				host -> new Bulkhead(activationsPerRetailerHost));
+
+		if (log.isInfoEnabled()) {
+			log.info("Starting {} coupon activation for {} account(s)", provider.name(), accounts.size());
+		}
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<ActivationOutcome>> runs = accounts.stream()
+				.map(account -> executor
+					.submit(() -> activate(provider, account, authenticationBulkhead, activationBulkhead)))
+				.toList();
+			return runs.stream().map(AccountActivationEngine::await).toList();
+		}
+	}
+
+	/**
+	 * Logs every account of the provider in ahead of its next run, so that run can skip
+	 * the login, and waits for all of them. The logins share the bulkhead of the
+	 * activation runs.
+	 * @param providerKey the provider key, e.g. {@link AccountRegistry#COOP}
+	 * @param freshness how long a pre-warmed session may be used
+	 * @return the number of accounts whose login succeeded
+	 * @throws CouponBoosterException if the provider is unknown or the calling thread is
+	 * interrupted
+	 * @see CouponActivationFlow#prewarm(Account, Bulkhead, Duration)
+	 */
+	public int prewarm(String providerKey, Duration freshness) {
+		var provider = provider(providerKey);
+		var accounts = accountRegistry.accounts(providerKey);
+		var authenticationBulkhead = authenticationBulkhead(provider);
+
+		if (log.isInfoEnabled()) {
+			log.info("Pre-warming {} session(s) of {}", accounts.size(), provider.name());
+		}
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Boolean>> logins = accounts.stream()
+				.map(account -> executor.submit(() -> prewarm(provider, account, authenticationBulkhead, freshness)))
+				.toList();
+			return (int) logins.stream().map(AccountActivationEngine::await).filter(Boolean::booleanValue).count();
+		}
+	}
+
+	private Provider provider(String providerKey) {
+		var provider = providers.get(providerKey);
+		if (provider == null) {
+			throw new CouponBoosterException("No activation flow registered for provider '%s'".formatted(providerKey));
+		}
+		return provider;
+	}
+
+	private Bulkhead authenticationBulkhead(Provider provider) {
+		return sidecarBulkheads.computeIfAbsent(String.join(",", provider.sidecarUrls()) + '#' + provider.key(),
+				sidecarLogin -> new Bulkhead(loginsPerSidecar * Math.max(1, provider.sidecarUrls().size())));
+	}
+
+	private static boolean prewarm(Provider provider, Account account, Bulkhead authenticationBulkhead,
+			Duration freshness) {
+		try {
+			var authenticationResult = provider.flow().prewarm(account, authenticationBulkhead, freshness);
+			if (!authenticationResult.isSuccessful()) {
+				log.warn("{} account {} could not be pre-warmed: {}", provider.name(), account.label(),
+						authenticationResult.statusMessage());
+			}
+			return authenticationResult.isSuccessful();
+		}
+		catch (RuntimeException ex) {
+			log.error("{} account {} could not be pre-warmed: {}", provider.name(), account.label(), ex.getMessage(),
+					ex);
+			return false;
+		}
+	}
+
+	private static ActivationOutcome activate(Provider provider, Account account, Bulkhead authenticationBulkhead,
+			Bulkhead activationBulkhead) {
+		var label = account.label();
+		try {
+			var outcome = ActivationOutcome.of(provider.name(), label,
+					provider.flow().execute(account, authenticationBulkhead, activationBulkhead));
+			if (log.isInfoEnabled()) {
+				log.info("{} account {}: {} activated, {} failed ({})", provider.name(), label, outcome.activated(),
+						outcome.failed(), outcome.message());
+			}
+			return outcome;
+		}
+		catch (RuntimeException ex) {
+			log.error("{} account {} failed unexpectedly: {}", provider.name(), label, ex.getMessage(), ex);
+			return new ActivationOutcome(provider.name(), false, 0, 0, 0L, "Activation failed: " + ex.getMessage(),
+					label);
+		}
+	}
+
+	private static <T> T await(Future<T> run) {
+		try {
+			return run.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new CouponBoosterException("Interrupted while waiting for the accounts", ex);
+		}
+		catch (ExecutionException ex) {
+			// activate(...) and prewarm(...) report their own failures, so this is a
+			// programming error.
+			throw new CouponBoosterException("Account run failed", ex.getCause());
+		}
+	}
+
+	/**
+	 * A provider the engine can run.
+	 *
+	 * @param key provider key used by the {@link AccountRegistry}, e.g. {@code coop}
+	 * @param name human-readable provider label used in outcomes and log messages
+	 * @param flow the provider's activation flow
+	 * @param sidecarUrls base URLs of the sidecars the provider logs in through
+	 * @param retailerHost host of the retailer API the provider's coupon requests go to
+	 */
+	public record Provider(String key, String name, CouponActivationFlow flow, List<String> sidecarUrls,
+			String retailerHost) {
+
+		/**
+		 * Compact constructor that creates a defensive copy of the sidecar URLs.
+		 */
+		public Provider {
+			sidecarUrls = List.copyOf(sidecarUrls);
+		}
+
+		/**
+		 * Creates a provider from its authentication and coupon services.
+		 * @param key provider key used by the {@link AccountRegistry}
+		 * @param name human-readable provider label
+		 * @param authenticationService the provider's authentication service
+		 * @param couponService the provider's coupon service
+		 * @param sidecarUrls base URLs of the sidecars the provider logs in through
+		 * @param retailerHost host of the retailer API
+		 * @return the provider
+		 */
+		public static Provider of(String key, String name, AuthenticationService authenticationService,
+				CouponService couponService, List<String> sidecarUrls, String retailerHost) {
+			return new Provider(key, name, new CouponActivationFlow(authenticationService, couponService, name),
+					sidecarUrls, retailerHost);
+		}
+
+	}
+
+}
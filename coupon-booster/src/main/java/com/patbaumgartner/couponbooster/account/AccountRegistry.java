@@ -0,0 +1,85 @@
+package com.patbaumgartner.couponbooster.account;
+
+import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The retailer accounts coupons are activated for, grouped by provider.
+ * <p>
+ * A provider's accounts are the one configured under {@code coop.user} /
+ * {@code migros.user} followed by those listed under {@code couponbooster.accounts}, in
+ * configuration order. An address listed twice is kept once. When a provider has no
+ * account with an e-mail address at all, it still gets one unconfigured account, so its
+ * run reports the missing credentials exactly as a single-account setup does.
+ */
+@Component
+public final class AccountRegistry {
+
+	/**
+	 * Provider key of Coop Supercard accounts.
+	 */
+	public static final String COOP = "coop";
+
+	/**
+	 * Provider key of Migros Cumulus accounts.
+	 */
+	public static final String MIGROS = "migros";
+
+	private final Map<String, List<Account>> accountsByProvider;
+
+	/**
+	 * Builds the registry from the configured accounts.
+	 * @param coopUser the primary Coop account
+	 * @param migrosUser the primary Migros account
+	 * @param accountsProperties the additional accounts
+	 */
+	public AccountRegistry(CoopUserProperties coopUser, MigrosUserProperties migrosUser,
+			AccountsProperties accountsProperties) {
+		Objects.requireNonNull(coopUser, "Coop user properties cannot be null");
+		Objects.requireNonNull(migrosUser, "Migros user properties cannot be null");
+		Objects.requireNonNull(accountsProperties, "Accounts properties cannot be null");
+		this.accountsByProvider = Map.of(COOP,
+				collect(COOP, coopUser.email(), coopUser.password(), accountsProperties.coop()), MIGROS,
+				collect(MIGROS, migrosUser.email(), migrosUser.password(), accountsProperties.migros()));
+	}
+
+	/**
+	 * Returns the accounts of a provider.
+	 * @param provider the provider key, e.g. {@link #COOP}
+	 * @return the provider's accounts in configuration order, never empty for a known
+	 * provider
+	 */
+	public List<Account> accounts(String provider) {
+		return accountsByProvider.getOrDefault(provider, List.of());
+	}
+
+	private static List<Account> collect(String provider, String primaryEmail, String primaryPassword,
+			List<AccountsProperties.Credentials> additional) {
+		var byEmail = new LinkedHashMap<String, Account>();
+		var candidates = new ArrayList<Account>();
+		candidates.add(new Account(provider, primaryEmail, primaryPassword));
+		additional
+			.forEach(credentials -> candidates.add(new Account(provider, credentials.email(), credentials.password())));
+
+		for (Account candidate : candidates) {
+			if (!candidate.email().isBlank()) {
+				byEmail.putIfAbsent(candidate.email().toLowerCase(Locale.ROOT), candidate);
+			}
+		}
+		if (byEmail.isEmpty()) {
+			return List.of(new Account(provider, "", ""));
+		}
+		return List.copyOf(byEmail.values());
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
+import com.patbaumgartner.couponbooster.coop.properties.CoopPatchrightProperties;
+import com.patbaumgartner.couponbooster.coop.properties.SupercardProperties;
+import com.patbaumgartner.couponbooster.coop.service.SupercardCouponService;
+import com.patbaumgartner.couponbooster.migros.properties.CumulusProperties;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosPatchrightProperties;
+import com.patbaumgartner.couponbooster.migros.service.CumulusCouponService;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
+import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Wires the {@link AccountActivationEngine} that the runners and schedulers use to
+ * activate coupons for every configured account.
+ * <p>
+ * The retailer host each provider is throttled on is the host of its coupon endpoint,
+ * which is where the bulk of a run's requests go.
+ */
+@Configuration(proxyBeanMethods = false)
+public class AccountActivationConfiguration {
+
+	@Bean
+	AccountActivationEngine accountActivationEngine(AccountRegistry accountRegistry,
+			AccountsProperties accountsProperties, @Qualifier("coopAuth") AuthenticationService coopAuthentication,
+			SupercardCouponService supercardCouponService, CoopPatchrightProperties coopPatchright,
+			SupercardProperties supercardProperties,
+			@Qualifier("migrosAuth") AuthenticationService migrosAuthentication,
+			CumulusCouponService cumulusCouponService, MigrosPatchrightProperties migrosPatchright,
+			CumulusProperties cumulusProperties) {
+		var concurrency = accountsProperties.concurrency();
+		return new AccountActivationEngine(accountRegistry,
+				List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Coop", coopAuthentication,
+						supercardCouponService, coopPatchright.urls(),
+						URI.create(supercardProperties.urls().couponsUrl()).getHost()),
+						AccountActivationEngine.Provider.of(AccountRegistry.MIGROS, "Migros", migrosAuthentication,
+								cumulusCouponService, migrosPatchright.urls(),
+								URI.create(cumulusProperties.urls().couponsEndpoint()).getHost())),
+				concurrency.loginsPerSidecar(), concurrency.activationsPerRetailerHost());
+	}
+
+}
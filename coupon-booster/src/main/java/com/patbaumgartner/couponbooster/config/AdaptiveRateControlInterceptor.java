@@ -0,0 +1,215 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.properties.RateControlProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+
+/**
+ * Paces requests to the retailer APIs per host and retries throttled requests, adjusting
+ * the rate additive-increase/multiplicative-decrease (AIMD) style.
+ * <p>
+ * Requests to one host are spaced by the host's current rate. A {@code 429} or
+ * {@code 503} cuts the rate by the configured factor, pauses the whole host for the
+ * {@code Retry-After} period and retries the request, so a throttled coupon is not lost.
+ * A run of successful responses raises the rate by a fixed step again. The rate thus
+ * settles just below what the retailer tolerates, without a hand-tuned delay.
+ * <p>
+ * Only the configured retailer hosts are controlled. The Patchright sidecar also answers
+ * {@code 503}, for a failed login, which must not be retried.
+ */
+public final class AdaptiveRateControlInterceptor implements ClientHttpRequestInterceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(AdaptiveRateControlInterceptor.class);
+
+	private final RateControlProperties settings;
+
+	private final Set<String> controlledHosts;
+
+	private final Clock clock;
+
+	private final Map<String, HostRate> hostRates = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates the interceptor.
+	 * @param settings rate limits and retry policy
+	 * @param controlledHosts hosts whose requests are paced and retried
+	 * @param clock wall clock used to resolve {@code Retry-After} dates
+	 */
+	public AdaptiveRateControlInterceptor(RateControlProperties settings, Set<String> controlledHosts, Clock clock) {
+		this.settings = settings;
+		this.controlledHosts = controlledHosts.stream()
+			.map(host -> host.toLowerCase(Locale.ROOT))
+			.collect(Collectors.toUnmodifiableSet());
+		this.clock = clock;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		var host = request.getURI().getHost();
+		if (host == null || !controlledHosts.contains(host.toLowerCase(Locale.ROOT))) {
+			return execution.execute(request, body);
+		}
+
+		var hostRate = hostRates.computeIfAbsent(host, ignored -> new HostRate(settings));
+		for (int attempt = 0;; attempt++) {
+			pause(hostRate.reserve(System.nanoTime()));
+			var response = execution.execute(request, body);
+
+			int status = response.getStatusCode().value();
+			if (!isThrottled(status)) {
+				if (response.getStatusCode().is2xxSuccessful() || response.getStatusCode().is3xxRedirection()) {
+					hostRate.onSuccess(host);
+				}
+				return response;
+			}
+
+			var backoff = retryAfter(response)
+				.orElse(settings.initialBackoff().multipliedBy(1L << Math.min(attempt, 16)));
+			boolean tooLong = backoff.compareTo(settings.maxRetryAfter()) > 0;
+			double rate = hostRate.onThrottled(System.nanoTime(), tooLong ? settings.maxRetryAfter() : backoff);
+			if (attempt >= settings.maxRetries() || tooLong) {
+				log.warn("{} {} throttled with HTTP {}; giving up after {} retries (rate now {} req/s)",
+						request.getMethod(), host, status, attempt, formatRate(rate));
+				return response;
+			}
+
+			log.info("{} {} throttled with HTTP {}; retrying in {}ms at {} req/s", request.getMethod(), host, status,
+					backoff.toMillis(), formatRate(rate));
+			response.close();
+		}
+	}
+
+	private static boolean isThrottled(int status) {
+		return status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value();
+	}
+
+	/**
+	 * Reads {@code Retry-After} as either delta-seconds or an HTTP date.
+	 */
+	private Optional<Duration> retryAfter(ClientHttpResponse response) {
+		var value = response.getHeaders().getFirst(RETRY_AFTER);
+		if (value == null || value.isBlank()) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim()))));
+		}
+		catch (NumberFormatException notSeconds) {
+			try {
+				var retryAt = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+				var delay = Duration.between(clock.instant(), retryAt.toInstant());
+				return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+			}
+			catch (DateTimeParseException notADate) {
+				log.debug("Ignoring unparseable Retry-After header: {}", value);
+				return Optional.empty();
+			}
+		}
+	}
+
+	private static void pause(long nanos) throws InterruptedIOException {
+		if (nanos <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			var interrupted = new InterruptedIOException("Interrupted while waiting for the retailer rate limit");
+			interrupted.initCause(ex);
+			throw interrupted;
+		}
+	}
+
+	private static String formatRate(double rate) {
+		return "%.2f".formatted(rate);
+	}
+
+	/**
+	 * Current rate of one host and the earliest time its next request may go out.
+	 * Comparing {@link System#nanoTime()} values only works relative to a first reading,
+	 * hence the lazy initialisation of the slot.
+	 */
+	private static final class HostRate {
+
+		private final RateControlProperties settings;
+
+		private double requestsPerSecond;
+
+		private int consecutiveSuccesses;
+
+		private long nextSlotNanos;
+
+		private boolean initialised;
+
+		HostRate(RateControlProperties settings) {
+			this.settings = settings;
+			this.requestsPerSecond = Math.clamp(settings.initialRequestsPerSecond(), settings.minRequestsPerSecond(),
+					settings.maxRequestsPerSecond());
+		}
+
+		/**
+		 * Books the next slot for a request and returns how long the caller waits for it.
+		 */
+		synchronized long reserve(long now) {
+			if (!initialised) {
+				nextSlotNanos = now;
+				initialised = true;
+			}
+			long slot = (nextSlotNanos - now > 0) ? nextSlotNanos : now;
+			nextSlotNanos = slot + (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+			return slot - now;
+		}
+
+		synchronized void onSuccess(String host) {
+			if (++consecutiveSuccesses < settings.successesBeforeIncrease()) {
+				return;
+			}
+			consecutiveSuccesses = 0;
+			if (requestsPerSecond < settings.maxRequestsPerSecond()) {
+				requestsPerSecond = Math.min(settings.maxRequestsPerSecond(),
+						requestsPerSecond + settings.additiveIncrease());
+				log.debug("{} rate raised to {} req/s", host, formatRate(requestsPerSecond));
+			}
+		}
+
+		synchronized double onThrottled(long now, Duration backoff) {
+			consecutiveSuccesses = 0;
+			requestsPerSecond = Math.max(settings.minRequestsPerSecond(),
+					requestsPerSecond * settings.multiplicativeDecrease());
+			// The whole host pauses; requests booked meanwhile queue up behind the pause.
+			long resumeAt = now + backoff.toNanos();
+			if (!initialised || resumeAt - nextSlotNanos > 0) {
+				nextSlotNanos = resumeAt;
+				initialised = true;
+			}
+			return requestsPerSecond;
+		}
+
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.service.CatalogueCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes coupon catalogue requests conditional and counts how often the catalogue turned
+ * out unchanged.
+ * <p>
+ * A {@code GET} carrying {@link CatalogueCache.Validators#ATTRIBUTE} is a catalogue
+ * fetch. Its validators are sent as {@code If-None-Match} and {@code If-Modified-Since};
+ * a {@code 304 Not Modified} answer counts as a cache hit, any other answer as a miss.
+ * The response is passed on unchanged: the calling service holds the parsed catalogue and
+ * serves it on a {@code 304}.
+ */
+public final class ConditionalGetInterceptor implements ClientHttpRequestInterceptor {
+
+	private static final Logger log = LoggerFactory.getLogger(ConditionalGetInterceptor.class);
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		if (!HttpMethod.GET.equals(request.getMethod()) || !(request.getAttributes()
+			.get(CatalogueCache.Validators.ATTRIBUTE) instanceof CatalogueCache.Validators validators)) {
+			return execution.execute(request, body);
+		}
+
+		var headers = request.getHeaders();
+		if (validators.etag() != null && !headers.containsHeader(HttpHeaders.IF_NONE_MATCH)) {
+			headers.set(HttpHeaders.IF_NONE_MATCH, validators.etag());
+		}
+		if (validators.lastModified() != null && !headers.containsHeader(HttpHeaders.IF_MODIFIED_SINCE)) {
+			headers.set(HttpHeaders.IF_MODIFIED_SINCE, validators.lastModified());
+		}
+
+		var response = execution.execute(request, body);
+		if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Catalogue {} answered HTTP {}; cache hit ratio now {}", request.getURI(),
+					response.getStatusCode().value(), "%.2f".formatted(hitRatio()));
+		}
+		return response;
+	}
+
+	/**
+	 * Returns how many catalogue fetches were answered with {@code 304 Not Modified}.
+	 * @return the number of cache hits
+	 */
+	public long hits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns how many catalogue fetches downloaded the catalogue.
+	 * @return the number of cache misses
+	 */
+	public long misses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the share of catalogue fetches answered from the cache.
+	 * @return the hit ratio between 0 and 1; 0 before the first fetch
+	 */
+	public double hitRatio() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return (total == 0) ? 0 : (double) hitCount / total;
+	}
+
+}
@@ -26,8 +26,8 @@ public class ConfigurationPropertiesRuntimeHints implements RuntimeHintsRegistra
 
 	private static final Logger log = LoggerFactory.getLogger(ConfigurationPropertiesRuntimeHints.class);
 
-	private static final List<String> PROPERTIES_PACKAGES = List.of("com.patbaumgartner.couponbooster.coop.properties",
-			"com.patbaumgartner.couponbooster.migros.properties");
+	private static final List<String> PROPERTIES_PACKAGES = List.of("com.patbaumgartner.couponbooster.properties",
+			"com.patbaumgartner.couponbooster.coop.properties", "com.patbaumgartner.couponbooster.migros.properties");
 
 	@Override
 	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
@@ -0,0 +1,44 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.properties.CouponSnapshotProperties;
+import com.patbaumgartner.couponbooster.snapshot.BinaryFileCouponSnapshotStore;
+import com.patbaumgartner.couponbooster.snapshot.CatalogueStore;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshotStore;
+import com.patbaumgartner.couponbooster.snapshot.JsonFileCatalogueStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Provides the {@link CouponSnapshotStore} and the {@link CatalogueStore} used by the
+ * coupon services. Both keep their files in the snapshot directory.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CouponSnapshotConfiguration {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponSnapshotConfiguration.class);
+
+	@Bean
+	CouponSnapshotStore couponSnapshotStore(CouponSnapshotProperties properties) {
+		if (!properties.enabled()) {
+			log.info("Coupon snapshots disabled: runs do not report new and expired coupons");
+			return CouponSnapshotStore.DISABLED;
+		}
+		log.debug("Coupon snapshots kept in {}", properties.directory().toAbsolutePath());
+		return new BinaryFileCouponSnapshotStore(properties.directory());
+	}
+
+	@Bean
+	CatalogueStore catalogueStore(CouponSnapshotProperties properties, ObjectMapper objectMapper,
+			@Value("${couponbooster.catalogue-cache.enabled:true}") boolean catalogueCacheEnabled) {
+		if (!properties.enabled() || !catalogueCacheEnabled) {
+			log.debug("Catalogues are not kept between runs");
+			return CatalogueStore.DISABLED;
+		}
+		return new JsonFileCatalogueStore(properties.directory(), objectMapper);
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.properties.HttpClientProperties;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.boot.http.client.HttpClientSettings;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * {@link HttpClientProfiles} backed by one Apache HttpComponents request factory, and
+ * thus one connection pool, per profile.
+ * <p>
+ * The factories are built once at startup and shared by every client of their profile, so
+ * all accounts of a provider draw from the same pool. Network failures of idempotent
+ * requests are retried by HttpClient itself; throttled responses ({@code 429},
+ * {@code 503}) are deliberately left to the {@link AdaptiveRateControlInterceptor}, which
+ * also slows the host down.
+ */
+public final class HttpComponentsClientProfiles implements HttpClientProfiles, AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(HttpComponentsClientProfiles.class);
+
+	private final Map<Profile, HttpComponentsClientHttpRequestFactory> requestFactories = new EnumMap<>(Profile.class);
+
+	/**
+	 * Creates the request factories of all profiles.
+	 * @param properties the profile settings
+	 */
+	public HttpComponentsClientProfiles(HttpClientProperties properties) {
+		Objects.requireNonNull(properties, "properties cannot be null");
+		requestFactories.put(Profile.SIDECAR, createRequestFactory(Profile.SIDECAR, properties.sidecar()));
+		requestFactories.put(Profile.SIDECAR_HEALTH,
+				createRequestFactory(Profile.SIDECAR_HEALTH, properties.sidecarHealth()));
+		requestFactories.put(Profile.SUPERCARD, createRequestFactory(Profile.SUPERCARD, properties.supercard()));
+		requestFactories.put(Profile.CUMULUS, createRequestFactory(Profile.CUMULUS, properties.cumulus()));
+	}
+
+	@Override
+	public void apply(Profile profile, RestClient.Builder restClientBuilder) {
+		restClientBuilder.requestFactory(requestFactory(profile));
+	}
+
+	/**
+	 * Returns the request factory of a profile.
+	 * @param profile the profile
+	 * @return the profile's request factory
+	 */
+	public HttpComponentsClientHttpRequestFactory requestFactory(Profile profile) {
+		return requestFactories.get(Objects.requireNonNull(profile, "profile cannot be null"));
+	}
+
+	/**
+	 * Closes the connection pools of all profiles.
+	 */
+	@Override
+	public void close() {
+		requestFactories.forEach((profile, requestFactory) -> {
+			try {
+				requestFactory.destroy();
+			}
+			catch (Exception ex) {
+				log.debug("Could not close the {} HTTP client: {}", profile, ex.getMessage());
+			}
+		});
+	}
+
+	private static HttpComponentsClientHttpRequestFactory createRequestFactory(Profile profile,
+			HttpClientProperties.Profile settings) {
+		log.debug("Configuring {} HTTP client: {}", profile, settings);
+		return ClientHttpRequestFactoryBuilder.httpComponents()
+			.withConnectionManagerCustomizer(
+					connectionManager -> connectionManager.setMaxConnTotal(settings.maxConnections())
+						.setMaxConnPerRoute(settings.maxConnectionsPerRoute()))
+			.withConnectionConfigCustomizer(
+					connectionConfig -> connectionConfig.setTimeToLive(TimeValue.of(settings.keepAlive())))
+			.withDefaultRequestConfigCustomizer(
+					requestConfig -> requestConfig.setResponseTimeout(Timeout.of(settings.responseTimeout())))
+			.withHttpClientCustomizer(httpClient -> {
+				if (settings.maxRetries() > 0) {
+					httpClient.setRetryStrategy(new NetworkFailureRetryStrategy(settings.maxRetries(),
+							TimeValue.of(settings.retryInterval())));
+				}
+				else {
+					httpClient.disableAutomaticRetries();
+				}
+			})
+			.build(HttpClientSettings.defaults()
+				.withConnectTimeout(settings.connectTimeout())
+				.withReadTimeout(settings.readTimeout()));
+	}
+
+	/**
+	 * Retries idempotent requests that failed on the network, but no response status.
+	 */
+	private static final class NetworkFailureRetryStrategy extends DefaultHttpRequestRetryStrategy {
+
+		private NetworkFailureRetryStrategy(int maxRetries, TimeValue retryInterval) {
+			super(maxRetries, retryInterval, List.of(InterruptedIOException.class, UnknownHostException.class,
+					ConnectException.class, NoRouteToHostException.class, SSLException.class), List.of());
+		}
+
+	}
+
+}
@@ -24,12 +24,16 @@ public class JacksonBindingRuntimeHints implements RuntimeHintsRegistrar {
 	private static final List<String> BINDING_TYPE_NAMES = List.of(
 			// Manual REST trigger response (server profile)
 			"com.patbaumgartner.couponbooster.scheduler.ActivationOutcome",
-			// Migros Cumulus API response bodies (deserialised)
-			"com.patbaumgartner.couponbooster.migros.service.CumulusCouponService$CouponsResponse",
-			"com.patbaumgartner.couponbooster.migros.service.CumulusCouponService$RawCoupon",
 			// Coop Supercard API request bodies (serialised)
 			"com.patbaumgartner.couponbooster.coop.service.SupercardCouponService$DigitalCouponCollection",
-			"com.patbaumgartner.couponbooster.coop.service.SupercardCouponService$DigitalCoupon");
+			// Persisted login sessions (serialised and deserialised)
+			"com.patbaumgartner.couponbooster.session.EncryptedFileSessionStore$StoredSession",
+			// Run journal entries (serialised and deserialised)
+			"com.patbaumgartner.couponbooster.journal.FileRunJournal$Entry",
+			// Stored coupon catalogues (serialised and deserialised)
+			"com.patbaumgartner.couponbooster.snapshot.StoredCatalogue",
+			"com.patbaumgartner.couponbooster.coop.service.DigitalCoupon",
+			"com.patbaumgartner.couponbooster.migros.model.CouponInfo");
 
 	@Override
 	public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
@@ -0,0 +1,48 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
+import com.patbaumgartner.couponbooster.metrics.MicrometerCouponMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the {@link CouponMetrics} used by the services and binds the catalogue cache
+ * statistics of the {@link ConditionalGetInterceptor}.
+ * <p>
+ * The meters end up in whatever registry Spring Boot configures; the {@code server}
+ * profile exposes them at {@code /actuator/prometheus}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+	@Bean
+	CouponMetrics couponMetrics(MeterRegistry meterRegistry) {
+		return new MicrometerCouponMetrics(meterRegistry);
+	}
+
+	@Bean
+	MeterBinder catalogueCacheMetrics(ConditionalGetInterceptor conditionalGetInterceptor) {
+		return registry -> {
+			FunctionCounter
+				.builder("couponbooster.catalogue.cache.hits", conditionalGetInterceptor,
+						ConditionalGetInterceptor::hits)
+				.description("Catalogue requests answered 304 Not Modified")
+				.register(registry);
+			FunctionCounter
+				.builder("couponbooster.catalogue.cache.misses", conditionalGetInterceptor,
+						ConditionalGetInterceptor::misses)
+				.description("Catalogue requests answered with a full catalogue")
+				.register(registry);
+			Gauge
+				.builder("couponbooster.catalogue.cache.hit.ratio", conditionalGetInterceptor,
+						ConditionalGetInterceptor::hitRatio)
+				.description("Share of catalogue requests answered 304 Not Modified")
+				.register(registry);
+		};
+	}
+
+}
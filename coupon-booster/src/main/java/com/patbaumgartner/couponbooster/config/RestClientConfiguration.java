@@ -1,12 +1,20 @@
 package com.patbaumgartner.couponbooster.config;
 
-import java.time.Duration;
+import java.net.URI;
+import java.time.Clock;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import com.patbaumgartner.couponbooster.coop.properties.SupercardProperties;
+import com.patbaumgartner.couponbooster.migros.properties.CumulusProperties;
+import com.patbaumgartner.couponbooster.properties.HttpClientProperties;
+import com.patbaumgartner.couponbooster.properties.RateControlProperties;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
-import org.springframework.boot.http.client.HttpClientSettings;
 import org.springframework.boot.restclient.RestClientCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,14 +25,16 @@ import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
 import static org.springframework.http.HttpHeaders.CONNECTION;
 
 /**
- * Configures the default {@link RestClient} with compression headers, connect/read
- * timeouts, and a request logging interceptor.
+ * Configures the default {@link RestClient} with compression headers, the HTTP client
+ * profiles, and a request logging interceptor.
  * <p>
- * The read timeout must exceed the sidecar's worst-case login time. A cold Coop login can
- * take several minutes (slow SSO redirect plus a DataDome challenge, navigation retries
- * with backoff), so the default (~3 min) previously cut off logins that would otherwise
- * have succeeded. The read timeout is intentionally generous and tunable via
- * {@code couponbooster.sidecar.read-timeout}.
+ * Each service applies its own {@link HttpClientProfiles profile} (connection pool,
+ * timeouts, retries) from {@code couponbooster.http.*}; any other client gets the sidecar
+ * profile. The sidecar read timeout must exceed its worst-case login time. A cold Coop
+ * login can take several minutes (slow SSO redirect plus a DataDome challenge, navigation
+ * retries with backoff), so the default (~3 min) previously cut off logins that would
+ * otherwise have succeeded. The retailer APIs answer within seconds and get much shorter
+ * timeouts.
  * <p>
  * The Apache HttpComponents request factory is selected explicitly instead of
  * {@code ClientHttpRequestFactoryBuilder.detect()}: in the GraalVM native image the
@@ -33,35 +43,71 @@ import static org.springframework.http.HttpHeaders.CONNECTION;
  * client defaults to HTTP/2 and sends an {@code Upgrade: h2c} handshake on plain HTTP,
  * which the uvicorn sidecar answers without ever passing the request body to FastAPI —
  * every login failed with 422 "body Field required".
+ * <p>
+ * Requests to the Supercard and Cumulus hosts additionally pass through an
+ * {@link AdaptiveRateControlInterceptor}, which paces them per host and retries throttled
+ * ones. Coupon catalogue requests are made conditional by a
+ * {@link ConditionalGetInterceptor}, so an unchanged catalogue is not downloaded again. A
+ * {@link SetCookieInterceptor} keeps the cookies of a run current with the
+ * {@code Set-Cookie} headers the retailers answer with.
  */
 @Configuration
 public class RestClientConfiguration {
 
 	private static final Logger log = LoggerFactory.getLogger(RestClientConfiguration.class);
 
-	private final Duration connectTimeout;
+	private final boolean catalogueCacheEnabled;
+
+	RestClientConfiguration(@Value("${couponbooster.catalogue-cache.enabled:true}") boolean catalogueCacheEnabled) {
+		this.catalogueCacheEnabled = catalogueCacheEnabled;
+	}
 
-	private final Duration readTimeout;
+	@Bean
+	HttpComponentsClientProfiles httpClientProfiles(HttpClientProperties httpClientProperties) {
+		return new HttpComponentsClientProfiles(httpClientProperties);
+	}
 
-	RestClientConfiguration(@Value("${couponbooster.sidecar.connect-timeout:10s}") Duration connectTimeout,
-			@Value("${couponbooster.sidecar.read-timeout:300s}") Duration readTimeout) {
-		this.connectTimeout = connectTimeout;
-		this.readTimeout = readTimeout;
+	@Bean
+	ConditionalGetInterceptor conditionalGetInterceptor() {
+		return new ConditionalGetInterceptor();
 	}
 
 	@Bean
-	RestClientCustomizer restClientCustomizer() {
-		log.debug(
-				"Configuring REST client customizer (connect-timeout={}, read-timeout={}) with compression headers and request logging interceptor",
-				connectTimeout, readTimeout);
-		var requestFactorySettings = HttpClientSettings.defaults()
-			.withConnectTimeout(connectTimeout)
-			.withReadTimeout(readTimeout);
-		return restClientBuilder -> restClientBuilder
-			.requestFactory(ClientHttpRequestFactoryBuilder.httpComponents().build(requestFactorySettings))
-			.defaultHeader(ACCEPT_ENCODING, "gzip, deflate, br")
-			.defaultHeader(CONNECTION, "keep-alive")
-			.requestInterceptor(createRequestLoggingInterceptor());
+	RestClientCustomizer restClientCustomizer(RateControlProperties rateControl,
+			SupercardProperties supercardProperties, CumulusProperties cumulusProperties,
+			ConditionalGetInterceptor conditionalGetInterceptor, HttpComponentsClientProfiles httpClientProfiles) {
+		log.debug("Configuring REST client customizer with compression headers and request logging interceptor");
+		var defaultRequestFactory = httpClientProfiles.requestFactory(HttpClientProfiles.Profile.SIDECAR);
+		var setCookieInterceptor = new SetCookieInterceptor();
+		// One interceptor for all clients: the per-host rates are shared across accounts.
+		var rateControlInterceptor = rateControl.enabled() ? new AdaptiveRateControlInterceptor(rateControl,
+				retailerHosts(supercardProperties, cumulusProperties), Clock.systemUTC()) : null;
+		return restClientBuilder -> {
+			restClientBuilder.requestFactory(defaultRequestFactory)
+				.defaultHeader(ACCEPT_ENCODING, "gzip, deflate, br")
+				.defaultHeader(CONNECTION, "keep-alive")
+				.requestInterceptor(createRequestLoggingInterceptor());
+			if (catalogueCacheEnabled) {
+				restClientBuilder.requestInterceptor(conditionalGetInterceptor);
+			}
+			restClientBuilder.requestInterceptor(setCookieInterceptor);
+			if (rateControlInterceptor != null) {
+				// Innermost, so every retry re-executes the actual request.
+				restClientBuilder.requestInterceptor(rateControlInterceptor);
+			}
+		};
+	}
+
+	private static Set<String> retailerHosts(SupercardProperties supercardProperties,
+			CumulusProperties cumulusProperties) {
+		var supercard = supercardProperties.urls();
+		var cumulus = cumulusProperties.urls();
+		return Stream
+			.of(supercard.configUrl(), supercard.couponsUrl(), supercard.couponsActivationUrl(),
+					supercard.couponsDeactivationUrl(), cumulus.couponsEndpoint(), cumulus.activationEndpoint())
+			.map(url -> URI.create(url).getHost())
+			.filter(Objects::nonNull)
+			.collect(Collectors.toUnmodifiableSet());
 	}
 
 	private ClientHttpRequestInterceptor createRequestLoggingInterceptor() {
@@ -0,0 +1,33 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.journal.FileRunJournal;
+import com.patbaumgartner.couponbooster.journal.RunJournal;
+import com.patbaumgartner.couponbooster.properties.RunJournalProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Clock;
+
+/**
+ * Provides the {@link RunJournal} used by the coupon services.
+ */
+@Configuration(proxyBeanMethods = false)
+public class RunJournalConfiguration {
+
+	private static final Logger log = LoggerFactory.getLogger(RunJournalConfiguration.class);
+
+	@Bean
+	RunJournal runJournal(RunJournalProperties properties, ObjectMapper objectMapper) {
+		if (!properties.enabled()) {
+			log.info("Run journal disabled: an interrupted run starts from scratch");
+			return RunJournal.DISABLED;
+		}
+		log.debug("Run journal kept in {} (resume window {})", properties.directory().toAbsolutePath(),
+				properties.resumeWindow());
+		return new FileRunJournal(properties.directory(), properties.resumeWindow(), objectMapper, Clock.systemUTC());
+	}
+
+}
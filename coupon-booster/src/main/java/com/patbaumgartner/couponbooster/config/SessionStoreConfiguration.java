@@ -0,0 +1,37 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.properties.SessionStoreProperties;
+import com.patbaumgartner.couponbooster.session.EncryptedFileSessionStore;
+import com.patbaumgartner.couponbooster.session.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Clock;
+
+/**
+ * Provides the {@link SessionStore} used by the sidecar authentication services.
+ * <p>
+ * Without a configured secret the store is {@link SessionStore#DISABLED disabled}, which
+ * keeps the previous behaviour of logging in through the sidecar on every run.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SessionStoreConfiguration {
+
+	private static final Logger log = LoggerFactory.getLogger(SessionStoreConfiguration.class);
+
+	@Bean
+	SessionStore sessionStore(SessionStoreProperties properties, ObjectMapper objectMapper) {
+		if (!properties.enabled()) {
+			log.info("Session store disabled: no secret configured, every run logs in through the sidecar");
+			return SessionStore.DISABLED;
+		}
+		log.info("Session store enabled in {} (max age {})", properties.directory().toAbsolutePath(),
+				properties.maxAge());
+		return new EncryptedFileSessionStore(properties.directory(), properties.secret(), properties.maxAge(),
+				objectMapper, Clock.systemUTC());
+	}
+
+}
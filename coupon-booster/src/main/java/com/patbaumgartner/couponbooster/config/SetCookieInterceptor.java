@@ -0,0 +1,32 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.service.LiveCookies;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Merges the {@code Set-Cookie} headers of retailer responses into the session's
+ * {@link LiveCookies}.
+ * <p>
+ * Only requests carrying {@link LiveCookies#ATTRIBUTE} are inspected; the response is
+ * passed on unchanged, whatever its status, since the retailer rotates cookies on error
+ * responses too.
+ */
+public final class SetCookieInterceptor implements ClientHttpRequestInterceptor {
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+			throws IOException {
+		var response = execution.execute(request, body);
+		if (request.getAttributes().get(LiveCookies.ATTRIBUTE) instanceof LiveCookies liveCookies) {
+			liveCookies.receive(request.getURI(), response.getHeaders().get(HttpHeaders.SET_COOKIE));
+		}
+		return response;
+	}
+
+}
@@ -5,11 +5,14 @@ import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 import org.hibernate.validator.constraints.URL;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration properties for Coop SuperCard API integration including endpoint URLs and
@@ -17,7 +20,8 @@ import java.util.List;
  */
 @ConfigurationProperties(prefix = "supercard")
 @Validated
-public record SupercardProperties(@Valid @NotNull Urls urls, @Valid @NotNull CouponFilter couponFilter) {
+public record SupercardProperties(@Valid @NotNull Urls urls, @Valid @NotNull CouponFilter couponFilter,
+		@Valid @NotNull Catalogue catalogue, @Valid @NotNull Jwt jwt) {
 
 	/**
 	 * API endpoint URLs for SuperCard coupon management operations.
@@ -92,6 +96,9 @@ public record SupercardProperties(@Valid @NotNull Urls urls, @Valid @NotNull Cou
 	 * <li>"31" - Treibstoff, Fahrzeugbedarf</li>
 	 * <li>"36" - Vorräte</li>
 	 * </ul>
+	 * @param productTypeWeights factor a coupon's discount value is multiplied with when
+	 * the active-coupon slots are ranked, by product type; a coupon with several types
+	 * uses the highest, and unlisted types weigh 1
 	 */
 	public record CouponFilter(
 
@@ -102,16 +109,44 @@ public record SupercardProperties(@Valid @NotNull Urls urls, @Valid @NotNull Cou
 
 			String alwaysIncludeDiscountMarker,
 
-			List<String> includeProductTypes) {
+			List<String> includeProductTypes,
+
+			Map<String, @PositiveOrZero(
+					message = "Product type weights cannot be negative") Double> productTypeWeights) {
 
 		/**
-		 * Compact constructor that creates a defensive copy of the includeProductTypes
-		 * list.
+		 * Compact constructor that creates defensive copies of the includeProductTypes
+		 * list and the productTypeWeights map.
 		 */
 		public CouponFilter {
 			includeProductTypes = includeProductTypes == null ? List.of() : List.copyOf(includeProductTypes);
+			productTypeWeights = productTypeWeights == null ? Map.of() : Map.copyOf(productTypeWeights);
 			alwaysIncludeDiscountMarker = alwaysIncludeDiscountMarker == null ? "" : alwaysIncludeDiscountMarker;
 		}
 
 	}
+
+	/**
+	 * Controls how often a run downloads the full coupon catalogue.
+	 *
+	 * @param rebuildAfterDeactivation derive the catalogue after a successful
+	 * deactivation from the one already downloaded instead of fetching it again
+	 * @param verifyFromActivationResponse confirm activations from the per-coupon status
+	 * in the activation response; a final catalogue fetch is only made when the response
+	 * does not report every activated coupon
+	 */
+	public record Catalogue(boolean rebuildAfterDeactivation, boolean verifyFromActivationResponse) {
+	}
+
+	/**
+	 * Reuse of the web API bearer token across runs of the same account.
+	 *
+	 * @param cacheEnabled keep the token per account instead of requesting it from the
+	 * config endpoint on every run
+	 * @param expiryMargin a cached token is no longer used once it expires within this
+	 * margin
+	 */
+	public record Jwt(boolean cacheEnabled, @NotNull(message = "JWT expiry margin is required") Duration expiryMargin) {
+	}
+
 }
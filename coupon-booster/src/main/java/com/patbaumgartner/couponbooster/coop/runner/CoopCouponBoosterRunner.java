@@ -1,10 +1,9 @@
 package com.patbaumgartner.couponbooster.coop.runner;
 
-import com.patbaumgartner.couponbooster.coop.service.SupercardCouponService;
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
 import com.patbaumgartner.couponbooster.runner.AbstractCouponBoosterRunner;
 import com.patbaumgartner.couponbooster.runner.ActivationExitCode;
-import com.patbaumgartner.couponbooster.service.AuthenticationService;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
@@ -13,8 +12,9 @@ import org.springframework.stereotype.Component;
  * {@link ApplicationRunner} for Coop Supercard coupon activation.
  * <p>
  * Conditionally enabled based on the {@code coop.startup-run.enabled} property.
- * Authentication is delegated to the {@link AuthenticationService} qualified as
- * {@code coopAuth}.
+ * Authentication is delegated to the
+ * {@link com.patbaumgartner.couponbooster.service.AuthenticationService} qualified as
+ * {@code coopAuth}, once per configured Coop account.
  *
  * @see com.patbaumgartner.couponbooster.coop.service.CoopSidecarAuthenticationService
  * @see com.patbaumgartner.couponbooster.coop.service.SupercardCouponService
@@ -25,13 +25,11 @@ public class CoopCouponBoosterRunner extends AbstractCouponBoosterRunner {
 
 	/**
 	 * Constructs a new {@code CoopCouponBoosterRunner}.
-	 * @param coopAuthenticationService the authentication service to use
-	 * @param supercardCouponService the coupon activation service
+	 * @param activationEngine runs the activation flow for every Coop account
 	 * @param exitCode collects run outcomes for the process exit code
 	 */
-	public CoopCouponBoosterRunner(@Qualifier("coopAuth") AuthenticationService coopAuthenticationService,
-			SupercardCouponService supercardCouponService, ActivationExitCode exitCode) {
-		super(coopAuthenticationService, supercardCouponService, "Coop", exitCode);
+	public CoopCouponBoosterRunner(AccountActivationEngine activationEngine, ActivationExitCode exitCode) {
+		super(activationEngine, AccountRegistry.COOP, "Coop", exitCode);
 	}
 
 }
@@ -0,0 +1,209 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import com.patbaumgartner.couponbooster.coop.properties.SupercardProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A {@link SupercardProperties.CouponFilter} compiled into a form that selects coupons in
+ * one pass.
+ * <p>
+ * Supercard product types are two-digit codes ({@code "01"} to {@code "41"}), so the
+ * permitted types fit into the bits of a {@code long}; a coupon's types are checked by
+ * testing one bit each instead of searching the configured list. Any other code that is
+ * configured, should Supercard ever introduce one, falls back to a set lookup. The shop
+ * channel and the discount marker are resolved once, a blank marker to {@code null}, and
+ * the product-type weights are laid out by the same bits.
+ */
+final class CompiledCouponFilter {
+
+	private static final String ACTIVE = "ACTIVE";
+
+	private static final String OPEN = "OPEN";
+
+	private static final Comparator<Candidate> BEST_FIRST = Comparator
+		.comparing(Candidate::marked, Comparator.reverseOrder())
+		.thenComparing(Candidate::score, Comparator.reverseOrder())
+		.thenComparing(candidate -> candidate.coupon().code());
+
+	private final SupercardProperties.CouponFilter source;
+
+	private final int maxActiveCoupons;
+
+	private final String includeShop;
+
+	private final String alwaysIncludeDiscountMarker;
+
+	private final long permittedProductTypes;
+
+	private final Set<String> otherPermittedProductTypes;
+
+	private final double[] productTypeWeights = new double[Long.SIZE];
+
+	private final Map<String, Double> otherProductTypeWeights;
+
+	private CompiledCouponFilter(SupercardProperties.CouponFilter source) {
+		this.source = source;
+		this.maxActiveCoupons = source.maxActiveCoupons();
+		this.includeShop = source.includeShop();
+		this.alwaysIncludeDiscountMarker = source.alwaysIncludeDiscountMarker().isBlank() ? null
+				: source.alwaysIncludeDiscountMarker();
+
+		long mask = 0;
+		Set<String> others = new HashSet<>();
+		for (String productType : source.includeProductTypes()) {
+			int bit = bitOf(productType);
+			if (bit < 0) {
+				others.add(productType);
+			}
+			else {
+				mask |= 1L << bit;
+			}
+		}
+		this.permittedProductTypes = mask;
+		this.otherPermittedProductTypes = Set.copyOf(others);
+
+		Arrays.fill(productTypeWeights, 1.0);
+		Map<String, Double> otherWeights = new HashMap<>();
+		source.productTypeWeights().forEach((productType, weight) -> {
+			int bit = bitOf(productType);
+			if (bit < 0) {
+				otherWeights.put(productType, weight);
+			}
+			else {
+				productTypeWeights[bit] = weight;
+			}
+		});
+		this.otherProductTypeWeights = Map.copyOf(otherWeights);
+	}
+
+	/**
+	 * Compiles a coupon filter.
+	 * @param filter the configured filter
+	 * @return the compiled filter
+	 */
+	static CompiledCouponFilter compile(SupercardProperties.CouponFilter filter) {
+		return new CompiledCouponFilter(filter);
+	}
+
+	/**
+	 * Tells whether this filter was compiled from the given configuration.
+	 * @param filter the configured filter
+	 * @return {@code true} if it is the very instance this filter was compiled from
+	 */
+	boolean isCompiledFrom(SupercardProperties.CouponFilter filter) {
+		return source == filter;
+	}
+
+	/**
+	 * Chooses the most valuable coupons, capped at the active-coupon limit.
+	 * <p>
+	 * Candidates are the coupons carrying the discount marker, and the open or active
+	 * coupons of the configured shop channel whose product types are all permitted.
+	 * Marked coupons rank first; within each group a higher weighted
+	 * {@link DiscountScore} ranks first, and equal scores are ordered by code so the
+	 * selection does not depend on the catalogue order. Only the best
+	 * {@code maxActiveCoupons} candidates are kept on a bounded heap while the catalogue
+	 * is scanned. A code is selected at most once.
+	 * @param digitalCoupons every coupon currently offered
+	 * @return the coupons that should be active, best first, at most
+	 * {@code maxActiveCoupons}
+	 */
+	List<DigitalCoupon> select(List<DigitalCoupon> digitalCoupons) {
+		// Worst candidate at the head, so it is the one displaced by a better one.
+		PriorityQueue<Candidate> best = new PriorityQueue<>(maxActiveCoupons + 1, BEST_FIRST.reversed());
+		Set<String> seenCodes = new HashSet<>();
+		for (DigitalCoupon coupon : digitalCoupons) {
+			boolean marked = matchesMarker(coupon);
+			if ((!marked && !isEligible(coupon)) || !seenCodes.add(coupon.code())) {
+				continue;
+			}
+			var candidate = new Candidate(coupon, marked,
+					DiscountScore.of(coupon.textDiscountAmount()) * weightOf(coupon));
+			if (best.size() < maxActiveCoupons) {
+				best.add(candidate);
+			}
+			else if (BEST_FIRST.compare(candidate, best.peek()) < 0) {
+				best.poll();
+				best.add(candidate);
+			}
+		}
+
+		List<Candidate> ranked = new ArrayList<>(best);
+		ranked.sort(BEST_FIRST);
+		return ranked.stream().map(Candidate::coupon).toList();
+	}
+
+	/**
+	 * Returns the highest weight among a coupon's product types; unweighted types and
+	 * coupons without a type weigh 1.
+	 */
+	double weightOf(DigitalCoupon coupon) {
+		double weight = coupon.productTypes().isEmpty() ? 1 : 0;
+		for (String productType : coupon.productTypes()) {
+			int bit = bitOf(productType);
+			double typeWeight = bit < 0 ? otherProductTypeWeights.getOrDefault(productType, 1.0)
+					: productTypeWeights[bit];
+			weight = Math.max(weight, typeWeight);
+		}
+		return weight;
+	}
+
+	/**
+	 * Tells whether every product type of the coupon is permitted.
+	 * @param coupon the coupon to check
+	 * @return {@code true} if the coupon has no product type outside the filter
+	 */
+	boolean hasOnlyPermittedProductTypes(DigitalCoupon coupon) {
+		for (String productType : coupon.productTypes()) {
+			int bit = bitOf(productType);
+			boolean permitted = bit < 0 ? otherPermittedProductTypes.contains(productType)
+					: (permittedProductTypes & (1L << bit)) != 0;
+			if (!permitted) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean matchesMarker(DigitalCoupon coupon) {
+		return alwaysIncludeDiscountMarker != null && coupon.textDiscountAmount().contains(alwaysIncludeDiscountMarker);
+	}
+
+	private boolean isEligible(DigitalCoupon coupon) {
+		String status = coupon.status();
+		return (OPEN.equals(status) || ACTIVE.equals(status)) && includeShop.equals(coupon.shop())
+				&& hasOnlyPermittedProductTypes(coupon);
+	}
+
+	/**
+	 * A selectable coupon with what it is ranked by.
+	 */
+	private record Candidate(DigitalCoupon coupon, boolean marked, double score) {
+	}
+
+	/**
+	 * Maps a two-digit product type code to its bit, or {@code -1} if it is not one.
+	 */
+	private static int bitOf(String productType) {
+		if (productType.length() != 2) {
+			return -1;
+		}
+		int tens = productType.charAt(0) - '0';
+		int ones = productType.charAt(1) - '0';
+		if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+			return -1;
+		}
+		int code = tens * 10 + ones;
+		return code < Long.SIZE ? code : -1;
+	}
+
+}
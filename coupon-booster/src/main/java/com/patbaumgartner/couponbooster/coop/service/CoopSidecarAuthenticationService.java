@@ -2,8 +2,11 @@ package com.patbaumgartner.couponbooster.coop.service;
 
 import com.patbaumgartner.couponbooster.coop.properties.CoopPatchrightProperties;
 import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.service.AbstractSidecarAuthenticationService;
 import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.session.SessionStore;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
@@ -29,18 +32,23 @@ public class CoopSidecarAuthenticationService extends AbstractSidecarAuthenticat
 	/**
 	 * Constructs a new {@code CoopSidecarAuthenticationService}.
 	 * @param userCredentials Coop account credentials
-	 * @param patchrightProperties configuration for the sidecar endpoint
+	 * @param patchrightProperties configuration for the sidecar endpoints
 	 * @param restClientBuilder Spring REST client builder
+	 * @param httpClientProfiles provides the sidecar HTTP client profile
 	 * @param objectMapper Jackson object mapper
+	 * @param sessionStore remembers successful logins between runs
+	 * @param sessionProbe checks whether a remembered session is still accepted
+	 * @param metrics records the login latency
 	 */
 	public CoopSidecarAuthenticationService(CoopUserProperties userCredentials,
 			CoopPatchrightProperties patchrightProperties, RestClient.Builder restClientBuilder,
-			ObjectMapper objectMapper) {
+			HttpClientProfiles httpClientProfiles, ObjectMapper objectMapper, SessionStore sessionStore,
+			SupercardCouponService sessionProbe, CouponMetrics metrics) {
 		super(Objects.requireNonNull(userCredentials, "User credentials cannot be null")::email,
 				userCredentials::password,
-				"Coop credentials missing. Configure COOP_USER_EMAIL and COOP_USER_PASSWORD.", "/login/coop",
-				Objects.requireNonNull(patchrightProperties, "Patchright properties cannot be null").url(),
-				restClientBuilder, objectMapper);
+				"Coop credentials missing. Configure COOP_USER_EMAIL and COOP_USER_PASSWORD.", "coop", "/login/coop",
+				Objects.requireNonNull(patchrightProperties, "Patchright properties cannot be null").urls(),
+				restClientBuilder, httpClientProfiles, objectMapper, sessionStore, sessionProbe, metrics);
 	}
 
 }
@@ -0,0 +1,32 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import java.util.List;
+
+/**
+ * Represents a single digital coupon (bon) from the Supercard API, reduced to the fields
+ * the activation run needs.
+ *
+ * @param code the coupon code used in activation requests
+ * @param status the coupon status, e.g. {@code OPEN} or {@code ACTIVE}
+ * @param shop the shop channel the coupon is redeemable in ({@code formatIdMain})
+ * @param productTypes the product types the coupon applies to
+ * @param textDescription the human-readable coupon description
+ * @param textDiscountAmount the human-readable discount, e.g. {@code 20%}
+ */
+record DigitalCoupon(String code, String status, String shop, List<String> productTypes, String textDescription,
+		String textDiscountAmount) {
+
+	DigitalCoupon {
+		productTypes = List.copyOf(productTypes);
+	}
+
+	/**
+	 * Returns a copy of this coupon with another status.
+	 * @param newStatus the status of the copy
+	 * @return the copy
+	 */
+	DigitalCoupon withStatus(String newStatus) {
+		return new DigitalCoupon(code, newStatus, shop, productTypes, textDescription, textDiscountAmount);
+	}
+
+}
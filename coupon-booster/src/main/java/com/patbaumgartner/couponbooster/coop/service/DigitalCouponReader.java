@@ -0,0 +1,141 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the {@code dc} list of a Supercard digital-coupon response into
+ * {@link DigitalCoupon}s.
+ * <p>
+ * The catalogue is requested with {@code pageSize=9999}, and each entry carries far more
+ * than the six fields the activation run reads (validity dates, images, legal texts). A
+ * {@code JsonNode} tree of the whole response, on top of the buffered body, is kept alive
+ * for every account running at the same time. This reader pulls tokens straight from the
+ * response stream instead, keeps only {@code code}, {@code status}, {@code formatIdMain},
+ * {@code textDescription}, {@code textDiscountAmount} and {@code productTypes}, and skips
+ * everything else without materialising it.
+ * <p>
+ * Missing or {@code null} fields read as {@code ""}, and numbers as their text, as
+ * {@code JsonNode.asString()} did before.
+ */
+final class DigitalCouponReader {
+
+	private static final Logger log = LoggerFactory.getLogger(DigitalCouponReader.class);
+
+	private final ObjectMapper objectMapper;
+
+	DigitalCouponReader(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Reads the coupons from a response stream; the stream is not closed.
+	 * @param body the JSON response body
+	 * @return the coupons in response order; empty when the body has no {@code dc} list
+	 */
+	List<DigitalCoupon> read(InputStream body) {
+		try (JsonParser parser = objectMapper.createParser(body)) {
+			return read(parser);
+		}
+	}
+
+	/**
+	 * Reads the coupons from a buffered response body.
+	 * @param body the JSON response body
+	 * @return the coupons in response order; empty when the body has no {@code dc} list
+	 */
+	List<DigitalCoupon> read(String body) {
+		try (JsonParser parser = objectMapper.createParser(body)) {
+			return read(parser);
+		}
+	}
+
+	private static List<DigitalCoupon> read(JsonParser parser) {
+		List<DigitalCoupon> digitalCoupons = new ArrayList<>();
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			return digitalCoupons;
+		}
+
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			JsonToken value = parser.nextToken();
+			if ("dc".equals(name) && value == JsonToken.START_ARRAY) {
+				readCoupons(parser, digitalCoupons);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		return digitalCoupons;
+	}
+
+	private static void readCoupons(JsonParser parser, List<DigitalCoupon> digitalCoupons) {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token == JsonToken.START_OBJECT) {
+				var coupon = readCoupon(parser);
+				digitalCoupons.add(coupon);
+				log.debug("Found digital coupon: {} - {}", coupon.code(), coupon.status());
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static DigitalCoupon readCoupon(JsonParser parser) {
+		String code = "";
+		String status = "";
+		String shop = "";
+		String textDescription = "";
+		String textDiscountAmount = "";
+		List<String> productTypes = new ArrayList<>();
+
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			JsonToken value = parser.nextToken();
+			switch (name) {
+				case "code" -> code = scalar(parser);
+				case "status" -> status = scalar(parser);
+				case "formatIdMain" -> shop = scalar(parser);
+				case "textDescription" -> textDescription = scalar(parser);
+				case "textDiscountAmount" -> textDiscountAmount = scalar(parser);
+				case "productTypes" -> {
+					if (value == JsonToken.START_ARRAY) {
+						readStrings(parser, productTypes);
+					}
+					else {
+						parser.skipChildren();
+					}
+				}
+				default -> parser.skipChildren();
+			}
+		}
+		return new DigitalCoupon(code, status, shop, productTypes, textDescription, textDiscountAmount);
+	}
+
+	private static void readStrings(JsonParser parser, List<String> values) {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			values.add(scalar(parser));
+		}
+	}
+
+	/**
+	 * Returns the current scalar as text, or {@code ""} for {@code null} and for a nested
+	 * structure, which is skipped.
+	 */
+	private static String scalar(JsonParser parser) {
+		String value = parser.getValueAsString("");
+		parser.skipChildren();
+		return value;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the free-text discount of a Supercard coupon into a comparable value.
+ * <p>
+ * The score is the discount as a percentage of a reference purchase, so the different
+ * kinds of discount Supercard offers can be ranked against each other:
+ * <ul>
+ * <li>{@code "20%"} scores 20</li>
+ * <li>{@code "3-fach Superpunkte"} scores 2: one Superpunkt per franc is worth 1%, so
+ * every multiple beyond the first adds one percent</li>
+ * <li>{@code "500 Superpunkte"} is worth 5 francs at 100 points per franc and then scores
+ * like a fixed amount</li>
+ * <li>{@code "3.-"} or {@code "CHF 3.50"} scores the amount relative to a
+ * {@value #REFERENCE_PURCHASE_FRANCS}-franc purchase</li>
+ * <li>{@code "5 Rappen"} (per litre of fuel) scores the amount relative to a litre at
+ * {@value #REFERENCE_LITRE_FRANCS} francs</li>
+ * </ul>
+ * Text that matches none of these scores 0.
+ */
+final class DiscountScore {
+
+	static final double REFERENCE_PURCHASE_FRANCS = 20.0;
+
+	static final double REFERENCE_LITRE_FRANCS = 2.0;
+
+	private static final double SUPERPUNKTE_PER_FRANC = 100.0;
+
+	private static final String NUMBER = "(\\d+(?:[.,]\\d+)?)";
+
+	private static final Pattern PERCENT = Pattern.compile(NUMBER + "\\s*%");
+
+	private static final Pattern MULTIPLIER = Pattern.compile("(\\d+)\\s*(?:-?\\s*fach|x)\\b.*superpunkt",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern SUPERPUNKTE = Pattern.compile("(\\d+)\\s*superpunkt", Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern RAPPEN = Pattern.compile(NUMBER + "\\s*(?:rappen|rp\\.?)(?!\\w)",
+			Pattern.CASE_INSENSITIVE);
+
+	private static final Pattern FRANCS = Pattern.compile(
+			"(?:(?:CHF|Fr\\.?)\\s*" + NUMBER + ")|(?:" + NUMBER + "\\s*(?:\\.-|CHF|Fr\\.?))", Pattern.CASE_INSENSITIVE);
+
+	private DiscountScore() {
+	}
+
+	/**
+	 * Scores a discount text.
+	 * @param textDiscountAmount the coupon's discount text, e.g. {@code "20%"}
+	 * @return the value as a percentage of a reference purchase; 0 if not understood
+	 */
+	static double of(String textDiscountAmount) {
+		if (textDiscountAmount == null || textDiscountAmount.isBlank()) {
+			return 0;
+		}
+
+		Matcher matcher = PERCENT.matcher(textDiscountAmount);
+		if (matcher.find()) {
+			return number(matcher.group(1));
+		}
+		matcher = MULTIPLIER.matcher(textDiscountAmount);
+		if (matcher.find()) {
+			return Math.max(0, number(matcher.group(1)) - 1);
+		}
+		matcher = SUPERPUNKTE.matcher(textDiscountAmount);
+		if (matcher.find()) {
+			return ofFrancs(number(matcher.group(1)) / SUPERPUNKTE_PER_FRANC);
+		}
+		matcher = RAPPEN.matcher(textDiscountAmount);
+		if (matcher.find()) {
+			return number(matcher.group(1)) / REFERENCE_LITRE_FRANCS;
+		}
+		matcher = FRANCS.matcher(textDiscountAmount);
+		if (matcher.find()) {
+			return ofFrancs(number(matcher.group(1) != null ? matcher.group(1) : matcher.group(2)));
+		}
+		return 0;
+	}
+
+	private static double ofFrancs(double francs) {
+		return francs / REFERENCE_PURCHASE_FRANCS * 100;
+	}
+
+	private static double number(String text) {
+		return Double.parseDouble(text.replace(',', '.'));
+	}
+
+}
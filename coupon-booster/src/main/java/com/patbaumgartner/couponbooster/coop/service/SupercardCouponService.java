@@ -1,25 +1,57 @@
 package com.patbaumgartner.couponbooster.coop.service;
 
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
 import com.patbaumgartner.couponbooster.coop.properties.SupercardProperties;
 import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.exception.SessionRejectedException;
+import com.patbaumgartner.couponbooster.journal.RunCheckpoint;
+import com.patbaumgartner.couponbooster.journal.RunJournal;
+import com.patbaumgartner.couponbooster.journal.RunStage;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
 import com.patbaumgartner.couponbooster.migros.model.CouponDetail;
+import com.patbaumgartner.couponbooster.migros.model.CouponSetDiff;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.model.CookieJar;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.model.SessionProbeResult;
 import com.patbaumgartner.couponbooster.service.AbstractCouponService;
+import com.patbaumgartner.couponbooster.service.CatalogueCache;
 import com.patbaumgartner.couponbooster.service.CouponService;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.service.JwtCache;
+import com.patbaumgartner.couponbooster.service.LiveCookies;
+import com.patbaumgartner.couponbooster.service.SessionProbe;
+import com.patbaumgartner.couponbooster.session.SessionStore;
+import com.patbaumgartner.couponbooster.snapshot.CatalogueStore;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshot;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshotStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
-import java.util.ArrayList;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.patbaumgartner.couponbooster.coop.config.CoopConstants.CookieNames.AUTHENTICATION_DOMAIN;
 import static com.patbaumgartner.couponbooster.coop.config.CoopConstants.HttpHeaders.X_CLIENT_ID;
@@ -32,39 +64,91 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
  * <p>
  * This service handles the entire lifecycle of coupon management, including:
  * <ul>
- * <li>Extracting a JWT token using browser session cookies.</li>
+ * <li>Extracting a JWT token using browser session cookies, cached per account with its
+ * stored session until shortly before it expires.</li>
  * <li>Fetching all available digital coupons.</li>
  * <li>Deactivating currently active coupons to free up slots.</li>
  * <li>Activating new, eligible coupons based on a predefined filter.</li>
  * </ul>
  * It interacts directly with the Coop Supercard web API using a {@link RestClient}.
+ * <p>
+ * As a {@link SessionProbe} it checks a remembered session against the JWT config
+ * endpoint, the cheapest call that requires an authenticated session.
  *
  * @see CouponService
  * @see SupercardProperties
  */
 @Service
-public class SupercardCouponService extends AbstractCouponService {
+public class SupercardCouponService extends AbstractCouponService implements SessionProbe {
 
 	private static final Logger log = LoggerFactory.getLogger(SupercardCouponService.class);
 
+	private static final String ACTIVE = "ACTIVE";
+
+	private static final String OPEN = "OPEN";
+
 	private final SupercardProperties supercardProperties;
 
 	private final ObjectMapper objectMapper;
 
 	private final RestClient apiClient;
 
+	private final JwtCache jwtCache;
+
+	private final DigitalCouponReader digitalCouponReader;
+
+	private final CatalogueCache<List<DigitalCoupon>> catalogueCache;
+
+	private final CouponSnapshotStore couponSnapshotStore;
+
+	private final RunJournal runJournal;
+
+	private final CouponMetrics metrics;
+
+	private volatile CompiledCouponFilter compiledCouponFilter;
+
 	/**
 	 * Creates a new SuperCard coupon service.
 	 * @param restClientBuilder Builder for creating the {@link RestClient} instance.
+	 * @param httpClientProfiles provides the Supercard HTTP client profile.
 	 * @param objectMapper Jackson object mapper for JSON serialization/deserialization.
 	 * @param supercardProperties Configuration properties for SuperCard API endpoints and
 	 * browser settings.
+	 * @param couponSnapshotStore remembers the coupon set of each account between runs
+	 * @param catalogueStore remembers the catalogue of each account between runs
+	 * @param sessionStore keeps each account's JWT with its stored session between runs
+	 * @param runJournal records the stages of each run so an interrupted run can resume
+	 * @param metrics records the latency of every request and the activation outcomes
 	 */
-	public SupercardCouponService(RestClient.Builder restClientBuilder, ObjectMapper objectMapper,
-			SupercardProperties supercardProperties) {
+	public SupercardCouponService(RestClient.Builder restClientBuilder, HttpClientProfiles httpClientProfiles,
+			ObjectMapper objectMapper, SupercardProperties supercardProperties, CouponSnapshotStore couponSnapshotStore,
+			CatalogueStore catalogueStore, SessionStore sessionStore, RunJournal runJournal, CouponMetrics metrics) {
+		httpClientProfiles.apply(HttpClientProfiles.Profile.SUPERCARD, restClientBuilder);
 		this.apiClient = restClientBuilder.build();
 		this.objectMapper = objectMapper;
 		this.supercardProperties = supercardProperties;
+		this.jwtCache = new JwtCache(objectMapper, Clock.systemUTC(), sessionStore, AccountRegistry.COOP);
+		this.digitalCouponReader = new DigitalCouponReader(objectMapper);
+		this.catalogueCache = new CatalogueCache<>(catalogueStore, AccountRegistry.COOP, objectMapper,
+				new TypeReference<List<DigitalCoupon>>() {
+				});
+		this.couponSnapshotStore = couponSnapshotStore;
+		this.runJournal = runJournal;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Activates all available Supercard digital coupons of the configured account.
+	 * @param sessionCookies authentication cookies from browser session
+	 * @param userAgent the user agent of the browser
+	 * @param language the language of the browser
+	 * @return result containing activation statistics and coupon details
+	 * @see #activateAllAvailableCoupons(Account, List, String, String)
+	 */
+	@Override
+	public CouponActivationResult activateAllAvailableCoupons(List<SessionCookie> sessionCookies, String userAgent,
+			String language) {
+		return activateAllAvailableCoupons(null, sessionCookies, userAgent, language);
 	}
 
 	/**
@@ -72,22 +156,33 @@ public class SupercardCouponService extends AbstractCouponService {
 	 * <p>
 	 * This method orchestrates the entire coupon activation process:
 	 * <ol>
-	 * <li>Extracts a JWT token using the provided session cookies.</li>
+	 * <li>Reuses the account's cached JWT, or extracts one using the provided session
+	 * cookies.</li>
 	 * <li>Fetches all available digital coupons.</li>
-	 * <li>Deactivates all currently active coupons to make space for new ones.</li>
-	 * <li>Fetches the updated list of coupons.</li>
-	 * <li>Filters for eligible, inactive coupons.</li>
-	 * <li>Activates the filtered coupons.</li>
-	 * <li>Fetches the final list of coupons to confirm activation.</li>
+	 * <li>Selects the coupons that should be active and compares them with the active
+	 * ones; when they match, the run ends here without any write.</li>
+	 * <li>Deactivates the active coupons that dropped out of the selection and updates
+	 * the list of coupons, locally or by fetching it again.</li>
+	 * <li>Activates the selected coupons that are not active yet.</li>
+	 * <li>Confirms the activation from the activation response, or fetches the final list
+	 * of coupons when the response does not report every coupon.</li>
 	 * </ol>
+	 * A cached JWT that the web API rejects with {@code 401} is dropped and the run is
+	 * repeated once with a freshly extracted one.
+	 * <p>
+	 * Each completed step is recorded in the {@link RunJournal}. A run interrupted after
+	 * its selection was made is resumed by the next run within the resume window, which
+	 * finishes it against the same selection.
+	 * @param account the account the session belongs to; {@code null} for the configured
+	 * account
 	 * @param sessionCookies authentication cookies from browser session
 	 * @param userAgent the user agent of the browser
 	 * @param language the language of the browser
 	 * @return result containing activation statistics and coupon details
 	 */
 	@Override
-	public CouponActivationResult activateAllAvailableCoupons(List<SessionCookie> sessionCookies, String userAgent,
-			String language) {
+	public CouponActivationResult activateAllAvailableCoupons(Account account, List<SessionCookie> sessionCookies,
+			String userAgent, String language) {
 
 		if (sessionCookies == null || sessionCookies.isEmpty()) {
 			log.warn("No session cookies provided for coupon activation");
@@ -98,56 +193,211 @@ public class SupercardCouponService extends AbstractCouponService {
 			log.info("Starting coupon activation process with {} session cookies", sessionCookies.size());
 		}
 
+		var liveCookies = new LiveCookies(sessionCookies);
+		return activateAllAvailableCoupons(account, liveCookies, userAgent, language)
+			.withRenewedCookies(liveCookies.renewed().orElse(null));
+	}
+
+	private CouponActivationResult activateAllAvailableCoupons(Account account, LiveCookies liveCookies,
+			String userAgent, String language) {
 		try {
-			var filteredCookies = filterDomainSpecificCookies(sessionCookies, AUTHENTICATION_DOMAIN);
-			if (filteredCookies.isEmpty()) {
+			if (configCookies(liveCookies).isEmpty()) {
 				log.warn("No domain-specific cookies found for authentication domain: {}", AUTHENTICATION_DOMAIN);
 				return new CouponActivationResult(0, 0, List.of());
 			}
 
-			String webapiBearerToken = extractJwtToken(filteredCookies, userAgent, language);
-			var digitalCoupons = fetchDigitalCoupons(webapiBearerToken, userAgent, language);
+			String accountKey = accountKey(account);
+			String tokenKey = tokenKey(account);
+			var cachedToken = cachedJwtToken(tokenKey);
+			String webapiBearerToken = cachedToken
+				.orElseGet(() -> extractAndCacheJwtToken(tokenKey, liveCookies, userAgent, language));
+			try {
+				return activateWithToken(accountKey, webapiBearerToken, userAgent, language);
+			}
+			catch (HttpClientErrorException.Unauthorized unauthorized) {
+				jwtCache.invalidate(tokenKey);
+				if (cachedToken.isEmpty()) {
+					throw unauthorized;
+				}
+				log.info("Cached JWT was rejected by the web API; extracting a fresh one");
+				return activateWithToken(accountKey,
+						extractAndCacheJwtToken(tokenKey, liveCookies, userAgent, language), userAgent, language);
+			}
+		}
+		catch (Exception exception) {
+			log.error("Coupon activation process failed unexpectedly: {}", exception.getMessage(), exception);
+			return new CouponActivationResult(0, 1, List
+				.of(new CouponDetail("System Error", "unknown", false, "Process failed: " + exception.getMessage())),
+					isSessionRejection(exception));
+		}
+
+	}
+
+	private CouponActivationResult activateWithToken(String accountKey, String webapiBearerToken, String userAgent,
+			String language) {
+		var run = runJournal.begin(AccountRegistry.COOP, accountKey);
+		run.record(RunStage.AUTHENTICATE);
+		var digitalCoupons = fetchDigitalCoupons(accountKey, webapiBearerToken, userAgent, language);
+		run.record(RunStage.FETCH);
+		var fetchedSnapshot = snapshotOf(digitalCoupons);
+		var previousSnapshot = couponSnapshotStore.load(AccountRegistry.COOP, accountKey);
+		var couponSetDiff = previousSnapshot.map(previous -> previous.diff(fetchedSnapshot)).orElse(CouponSetDiff.NONE);
+		// An interrupted run is finished against the selection it had already made.
+		var resumedSelection = run.completed(RunStage.PLAN);
+		var plan = planActivation(digitalCoupons, resumedSelection);
+		if (resumedSelection.isEmpty()) {
+			run.record(RunStage.PLAN, codesOf(plan.target()));
+		}
+
+		if (plan.isEmpty()) {
+			if (previousSnapshot.isPresent() && couponSetDiff.isEmpty()) {
+				log.info("Coupon set unchanged since the last run and the selection is active; nothing to do");
+			}
+			else {
+				log.info("Active coupons already match the selection; nothing to change");
+			}
+			return finish(run, accountKey, previousSnapshot, couponSetDiff, plan.target(), digitalCoupons);
+		}
+
+		var catalogue = supercardProperties.catalogue();
+		if (!plan.toDeactivate().isEmpty()) {
+			deactivateDigitalCoupons(plan.toDeactivate(), webapiBearerToken, userAgent, language);
+			run.record(RunStage.DEACTIVATE, codesOf(plan.toDeactivate()));
+
+			// Re-plan against the freed slots; the accepted deactivation tells us
+			// exactly which coupons went back to OPEN.
+			digitalCoupons = catalogue.rebuildAfterDeactivation()
+					? withStatus(digitalCoupons, statusOf(plan.toDeactivate(), OPEN))
+					: fetchDigitalCoupons(accountKey, webapiBearerToken, userAgent, language);
+			plan = planActivation(digitalCoupons, resumedSelection);
+		}
 
-			// Deactivate all ACTIVE digital coupons (best-effort; failure is logged but
-			// does not abort)
-			List<DigitalCoupon> activeCoupons = digitalCoupons.stream()
-				.filter(item -> "ACTIVE".equals(item.status()))
-				.toList();
-			deactivateDigitalCoupons(activeCoupons, webapiBearerToken, userAgent, language);
+		log.info("Attempting to activate {} eligible coupons", plan.toActivate().size());
+		var activationResponse = activateDigitalCoupons(accountKey, plan.toActivate(), webapiBearerToken, userAgent,
+				language);
+		run.record(RunStage.ACTIVATE, codesOf(plan.toActivate()));
+
+		// Verify: compare the final state against the selection
+		var reportedStatuses = catalogue.verifyFromActivationResponse()
+				? reportedStatuses(activationResponse, plan.toActivate()) : Optional.<Map<String, String>>empty();
+		if (reportedStatuses.isPresent()) {
+			log.debug("Activation response reports the status of every activated coupon; skipping verification");
+			digitalCoupons = withStatus(digitalCoupons, reportedStatuses.get());
+		}
+		else if (plan.toActivate().isEmpty() && catalogue.rebuildAfterDeactivation()) {
+			log.debug("Nothing was activated; the rebuilt catalogue is the final state");
+		}
+		else {
+			digitalCoupons = fetchDigitalCoupons(accountKey, webapiBearerToken, userAgent, language);
+		}
+		return finish(run, accountKey, previousSnapshot, couponSetDiff, plan.target(), digitalCoupons);
+	}
 
-			// Fetch updated list after deactivation
-			digitalCoupons = fetchDigitalCoupons(webapiBearerToken, userAgent, language);
-			List<DigitalCoupon> inactiveCoupons = selectCouponsToActivate(digitalCoupons);
+	/**
+	 * Closes the run's journal, summarises the run and remembers the final coupon set,
+	 * unless it is the one already stored.
+	 */
+	private CouponActivationResult finish(RunCheckpoint run, String accountKey,
+			Optional<CouponSnapshot> previousSnapshot, CouponSetDiff couponSetDiff, List<DigitalCoupon> target,
+			List<DigitalCoupon> digitalCoupons) {
+		run.record(RunStage.VERIFY);
+		run.complete();
+		var snapshot = snapshotOf(digitalCoupons);
+		if (previousSnapshot.filter(snapshot::equals).isEmpty()) {
+			couponSnapshotStore.save(AccountRegistry.COOP, accountKey, snapshot);
+		}
+		var result = summarize(target, digitalCoupons).withCouponSetDiff(couponSetDiff);
+		metrics.recordCoupons(AccountRegistry.COOP, accountKey, CouponMetrics.SUCCESS, result.successCount());
+		metrics.recordCoupons(AccountRegistry.COOP, accountKey, CouponMetrics.FAILURE, result.failureCount());
+		return result;
+	}
 
-			int intended = inactiveCoupons.size();
-			log.info("Attempting to activate {} eligible coupons", intended);
+	private static List<String> codesOf(List<DigitalCoupon> digitalCoupons) {
+		return digitalCoupons.stream().map(DigitalCoupon::code).toList();
+	}
 
-			activateDigitalCoupons(inactiveCoupons, webapiBearerToken, userAgent, language);
+	private static CouponSnapshot snapshotOf(List<DigitalCoupon> digitalCoupons) {
+		return CouponSnapshot.of(digitalCoupons.stream()
+			.collect(Collectors.toMap(DigitalCoupon::code, DigitalCoupon::status, (first, second) -> second)));
+	}
 
-			// Verify: fetch final state and compare against intended activations
-			digitalCoupons = fetchDigitalCoupons(webapiBearerToken, userAgent, language);
-			var intendedCodes = inactiveCoupons.stream().map(DigitalCoupon::code).toList();
-			List<CouponDetail> activationResults = digitalCoupons.stream()
-				.filter(item -> "ACTIVE".equals(item.status()) && intendedCodes.contains(item.code()))
-				.map(item -> new CouponDetail(item.textDescription(), item.code(), true, item.textDiscountAmount()))
-				.toList();
+	private static String accountKey(Account account) {
+		return (account == null) ? "" : account.email().toLowerCase(Locale.ROOT);
+	}
 
-			int successfulActivations = activationResults.size();
-			int failedActivations = intended - successfulActivations;
+	/**
+	 * The JWT is kept with the account's stored session, which the authentication service
+	 * files under the e-mail address as configured.
+	 */
+	private static String tokenKey(Account account) {
+		return (account == null) ? "" : account.email();
+	}
 
-			if (failedActivations > 0) {
-				log.warn("{} coupon(s) could not be confirmed as ACTIVE after activation attempt", failedActivations);
-			}
-			logActivationSummary(successfulActivations, failedActivations, intended);
+	private Optional<String> cachedJwtToken(String tokenKey) {
+		var jwt = supercardProperties.jwt();
+		if (!jwt.cacheEnabled()) {
+			return Optional.empty();
+		}
+		var cached = jwtCache.get(tokenKey, jwt.expiryMargin());
+		if (cached.isPresent()) {
+			log.debug("Reusing cached JWT");
+		}
+		return cached;
+	}
 
-			return new CouponActivationResult(successfulActivations, failedActivations, activationResults);
+	private String extractAndCacheJwtToken(String tokenKey, LiveCookies liveCookies, String userAgent,
+			String language) {
+		String token = extractJwtToken(liveCookies, userAgent, language);
+		if (supercardProperties.jwt().cacheEnabled()) {
+			jwtCache.put(tokenKey, token);
 		}
-		catch (Exception exception) {
-			log.error("Coupon activation process failed unexpectedly: {}", exception.getMessage(), exception);
-			return new CouponActivationResult(0, 1, List
-				.of(new CouponDetail("System Error", "unknown", false, "Process failed: " + exception.getMessage())));
+		return token;
+	}
+
+	/**
+	 * Reports every selected coupon that the given catalogue shows as ACTIVE as a
+	 * success, and every other selected coupon as a failure.
+	 */
+	private CouponActivationResult summarize(List<DigitalCoupon> target, List<DigitalCoupon> digitalCoupons) {
+		var intendedCodes = target.stream().map(DigitalCoupon::code).collect(Collectors.toSet());
+		List<CouponDetail> activationResults = digitalCoupons.stream()
+			.filter(item -> ACTIVE.equals(item.status()) && intendedCodes.contains(item.code()))
+			.map(item -> new CouponDetail(item.textDescription(), item.code(), true, item.textDiscountAmount()))
+			.toList();
+
+		int intended = target.size();
+		int successfulActivations = activationResults.size();
+		int failedActivations = intended - successfulActivations;
+
+		if (failedActivations > 0) {
+			log.warn("{} coupon(s) could not be confirmed as ACTIVE after activation attempt", failedActivations);
 		}
+		logActivationSummary(successfulActivations, failedActivations, intended);
 
+		return new CouponActivationResult(successfulActivations, failedActivations, activationResults);
+	}
+
+	/**
+	 * Returns the authentication domain, the host the session cookies are sent to.
+	 * @return {@code www.supercard.ch}
+	 */
+	@Override
+	public String sessionHost() {
+		return AUTHENTICATION_DOMAIN;
+	}
+
+	/**
+	 * Probes whether the Supercard API still accepts the given session by requesting a
+	 * JWT from the config endpoint.
+	 * @param sessionCookies cookies of the session to probe
+	 * @param userAgent the browser user-agent string
+	 * @param language the browser language string
+	 * @return the verdict together with the probe latency
+	 */
+	@Override
+	public SessionProbeResult probeSession(List<SessionCookie> sessionCookies, String userAgent, String language) {
+		return runSessionProbe(() -> extractJwtToken(filterDomainSpecificCookies(sessionCookies, AUTHENTICATION_DOMAIN),
+				userAgent, language));
 	}
 
 	/**
@@ -158,11 +408,24 @@ public class SupercardCouponService extends AbstractCouponService {
 	 * @param userAgent the browser user-agent string
 	 * @param language the browser language string
 	 * @return The extracted JWT token as a String.
-	 * @throws CouponBoosterException if the API call fails, returns HTML (DataDome
-	 * challenge still active), or the token is missing.
+	 * @throws CouponBoosterException if the API call fails or the token is missing; a
+	 * {@link SessionRejectedException} if it returns HTML (DataDome challenge still
+	 * active).
 	 */
 	public String extractJwtToken(List<SessionCookie> sessionCookies, String userAgent, String language) {
-		String cookieHeader = buildCookieHeader(sessionCookies);
+		return extractJwtToken(new LiveCookies(sessionCookies), userAgent, language);
+	}
+
+	/**
+	 * Extracts the JWT with the current cookies for the authentication domain; cookies
+	 * the config endpoint rotates are merged into {@code liveCookies}.
+	 */
+	private CookieJar configCookies(LiveCookies liveCookies) {
+		return liveCookies.forRequest(AUTHENTICATION_DOMAIN, URI.create(supercardProperties.urls().configUrl()));
+	}
+
+	private String extractJwtToken(LiveCookies liveCookies, String userAgent, String language) {
+		String cookieHeader = buildCookieHeader(configCookies(liveCookies));
 
 		ResponseEntity<String> configResponse = apiClient.get()
 			.uri(supercardProperties.urls().configUrl())
@@ -171,6 +434,7 @@ public class SupercardCouponService extends AbstractCouponService {
 			.header(ACCEPT_LANGUAGE, language)
 			.header(COOKIE, cookieHeader)
 			.header(REFERER, supercardProperties.urls().configUrlReferer())
+			.attribute(LiveCookies.ATTRIBUTE, liveCookies)
 			.retrieve()
 			.toEntity(String.class);
 
@@ -179,7 +443,7 @@ public class SupercardCouponService extends AbstractCouponService {
 		// a blocked session with a challenge page and an OK status.
 		MediaType contentType = configResponse.getHeaders().getContentType();
 		if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
-			throw new CouponBoosterException("JWT extraction failed: config endpoint returned HTML instead of JSON. "
+			throw new SessionRejectedException("JWT extraction failed: config endpoint returned HTML instead of JSON. "
 					+ "This usually means the session is not authenticated or DataDome is still active. "
 					+ "Check Patchright sidecar logs and screenshots in /data/screenshots.");
 		}
@@ -199,87 +463,154 @@ public class SupercardCouponService extends AbstractCouponService {
 
 	/**
 	 * Fetches the complete list of digital coupons from the Supercard API.
+	 * <p>
+	 * The request is conditional on the catalogue cached for the account; when the API
+	 * answers {@code 304 Not Modified} the cached catalogue is used as is.
 	 */
-	private List<DigitalCoupon> fetchDigitalCoupons(String webapiBearerToken, String userAgent, String language) {
+	private List<DigitalCoupon> fetchDigitalCoupons(String accountKey, String webapiBearerToken, String userAgent,
+			String language) {
+		String couponsUrl = supercardProperties.urls().couponsUrl();
+		var cached = catalogueCache.get(accountKey, couponsUrl);
+		long startNanos = System.nanoTime();
 
-		ResponseEntity<String> collectionResponse = apiClient.get()
-			.uri(supercardProperties.urls().couponsUrl())
+		List<DigitalCoupon> digitalCoupons = apiClient.get()
+			.uri(couponsUrl)
 			.header(HttpHeaders.USER_AGENT, userAgent)
 			.header(HttpHeaders.ACCEPT_LANGUAGE, language)
 			.accept(APPLICATION_JSON)
 			.header(AUTHORIZATION, "Bearer " + webapiBearerToken)
 			.header(X_CLIENT_ID, X_CLIENT_ID_VALUE)
-			.retrieve()
-			.toEntity(String.class);
+			.attribute(CatalogueCache.Validators.ATTRIBUTE,
+					cached.map(CatalogueCache.Entry::validators).orElse(CatalogueCache.Validators.NONE))
+			.exchange((request, response) -> {
+				if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+					log.info("Digital bons unchanged since the last fetch; using the cached catalogue");
+					return cached.map(CatalogueCache.Entry::catalogue)
+						.orElseThrow(() -> new CouponBoosterException(
+								"Digital bons reported unchanged, " + "but no catalogue is cached"));
+				}
+				if (response.getStatusCode().isError()) {
+					// Same exceptions as retrieve(), so a rejected token is still
+					// recognised.
+					new DefaultResponseErrorHandler().handleError(request.getURI(), request.getMethod(), response);
+				}
+				MediaType contentType = response.getHeaders().getContentType();
+				if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
+					throw new SessionRejectedException("Digital bons retrieval failed: received HTML instead of JSON. "
+							+ "Session may have expired or DataDome is still active.");
+				}
+				var catalogue = digitalCouponReader.read(response.getBody());
+				catalogueCache.put(accountKey, couponsUrl, response.getHeaders(), catalogue);
+				return catalogue;
+			});
+		metrics.recordCatalogueFetch(AccountRegistry.COOP, accountKey, Duration.ofNanos(System.nanoTime() - startNanos),
+				digitalCoupons.size());
+		return digitalCoupons;
+	}
 
-		MediaType contentType = collectionResponse.getHeaders().getContentType();
-		if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
-			throw new CouponBoosterException("Digital bons retrieval failed: received HTML instead of JSON. "
-					+ "Session may have expired or DataDome is still active.");
+	/**
+	 * Reads the per-coupon status from an activation response.
+	 * <p>
+	 * The response is only trusted as verification when it lists every activated code in
+	 * the catalogue's {@code dc} shape; anything less (an empty body, a bare
+	 * acknowledgement, a partial list) means the caller has to fetch the catalogue.
+	 * @param responseBody body of the activation PUT, {@code null} when none was sent
+	 * @param activated the coupons the PUT asked to activate
+	 * @return the reported status by code, if it covers every activated coupon
+	 */
+	private Optional<Map<String, String>> reportedStatuses(String responseBody, List<DigitalCoupon> activated) {
+		if (responseBody == null || responseBody.isBlank() || activated.isEmpty()) {
+			return Optional.empty();
 		}
+		try {
+			Map<String, String> statuses = digitalCouponReader.read(responseBody)
+				.stream()
+				.filter(item -> !item.code().isEmpty() && !item.status().isEmpty())
+				.collect(Collectors.toMap(DigitalCoupon::code, DigitalCoupon::status, (first, second) -> second));
+			boolean complete = activated.stream().allMatch(item -> statuses.containsKey(item.code()));
+			return complete ? Optional.of(statuses) : Optional.empty();
+		}
+		catch (JacksonException ex) {
+			log.debug("Activation response is not a coupon list: {}", ex.getMessage());
+			return Optional.empty();
+		}
+	}
 
-		List<DigitalCoupon> digitalCouponCollection = new ArrayList<>();
-
-		JsonNode rootNode = objectMapper.readTree(collectionResponse.getBody());
+	private static Map<String, String> statusOf(List<DigitalCoupon> coupons, String status) {
+		return coupons.stream()
+			.collect(Collectors.toMap(DigitalCoupon::code, item -> status, (first, second) -> first));
+	}
 
-		JsonNode digitalCoupons = rootNode.path("dc");
+	/**
+	 * Returns a copy of the catalogue with the given coupons' status replaced.
+	 */
+	private static List<DigitalCoupon> withStatus(List<DigitalCoupon> digitalCoupons, Map<String, String> statuses) {
+		return digitalCoupons.stream()
+			.map(item -> statuses.containsKey(item.code()) ? item.withStatus(statuses.get(item.code())) : item)
+			.toList();
+	}
 
-		if (digitalCoupons.isArray()) {
-			for (JsonNode coupon : digitalCoupons) {
-				String code = coupon.path("code").asString();
-				String status = coupon.path("status").asString();
-				String shop = coupon.path("formatIdMain").asString();
-				String textDescription = coupon.path("textDescription").asString();
-				String textDiscountAmount = coupon.path("textDiscountAmount").asString();
+	/**
+	 * Compares the coupons that should be active with the ones that are, so only the
+	 * difference is written back.
+	 * @param digitalCoupons every coupon currently offered
+	 * @param selection codes of a selection made earlier in the run, in order; empty to
+	 * select afresh
+	 * @return the selection and the changes needed to reach it
+	 */
+	private ActivationPlan planActivation(List<DigitalCoupon> digitalCoupons, Optional<List<String>> selection) {
+		var target = selection.map(codes -> selected(digitalCoupons, codes))
+			.orElseGet(() -> selectCouponsToActivate(digitalCoupons));
+		var targetCodes = target.stream().map(DigitalCoupon::code).collect(Collectors.toSet());
 
-				List<String> productTypes = new ArrayList<>();
-				JsonNode productTypeArray = coupon.path("productTypes");
-				if (productTypeArray.isArray()) {
-					for (JsonNode productType : productTypeArray) {
-						productTypes.add(productType.asString());
-					}
-				}
+		var toDeactivate = digitalCoupons.stream()
+			.filter(item -> ACTIVE.equals(item.status()) && !targetCodes.contains(item.code()))
+			.toList();
+		var toActivate = target.stream().filter(item -> !ACTIVE.equals(item.status())).toList();
 
-				digitalCouponCollection
-					.add(new DigitalCoupon(code, status, shop, productTypes, textDescription, textDiscountAmount));
-				log.debug("Found digital coupon: {} - {}", code, status);
-			}
-		}
+		log.info("Selected {} coupon(s): {} already active, {} to activate, {} to deactivate", target.size(),
+				target.size() - toActivate.size(), toActivate.size(), toDeactivate.size());
+		return new ActivationPlan(target, toDeactivate, toActivate);
+	}
 
-		return digitalCouponCollection;
+	/**
+	 * Looks up the coupons of an earlier selection in the current catalogue; coupons that
+	 * are no longer offered drop out.
+	 */
+	private static List<DigitalCoupon> selected(List<DigitalCoupon> digitalCoupons, List<String> codes) {
+		Map<String, DigitalCoupon> byCode = new HashMap<>();
+		digitalCoupons.forEach(coupon -> byCode.putIfAbsent(coupon.code(), coupon));
+		return codes.stream().distinct().map(byCode::get).filter(Objects::nonNull).toList();
 	}
 
 	/**
-	 * Chooses which coupons to activate, capped at the provider's active-coupon limit.
+	 * Chooses which coupons should be active, capped at the provider's active-coupon
+	 * limit.
 	 * <p>
 	 * Coupons carrying the configured discount marker are always eligible; everything
-	 * else must be open, redeemable in the configured shop channel, and limited to
-	 * permitted product types.
+	 * else must be open or already active, redeemable in the configured shop channel, and
+	 * limited to permitted product types. Active coupons compete for the slots as if they
+	 * had been deactivated, so the selection does not depend on what an earlier run
+	 * happened to activate.
 	 * @param digitalCoupons every coupon currently offered
-	 * @return the coupons to activate, at most {@code maxActiveCoupons}
+	 * @return the coupons that should be active, at most {@code maxActiveCoupons}
 	 */
 	private List<DigitalCoupon> selectCouponsToActivate(List<DigitalCoupon> digitalCoupons) {
-		var filter = supercardProperties.couponFilter();
-		return Stream
-			.concat(digitalCoupons.stream().filter(item -> matchesAlwaysIncludeMarker(item, filter)),
-					digitalCoupons.stream()
-						.filter(item -> "OPEN".equals(item.status()))
-						.filter(this::hasOnlyPermittedProductTypes)
-						.filter(item -> filter.includeShop().equals(item.shop())))
-			.distinct()
-			.limit(filter.maxActiveCoupons())
-			.toList();
+		return compiledCouponFilter().select(digitalCoupons);
 	}
 
-	private static boolean matchesAlwaysIncludeMarker(DigitalCoupon coupon, SupercardProperties.CouponFilter filter) {
-		String marker = filter.alwaysIncludeDiscountMarker();
-		return !marker.isBlank() && coupon.textDiscountAmount().contains(marker);
-	}
-
-	// Package-private to allow direct testing without exposing to the public API.
-	boolean hasOnlyPermittedProductTypes(DigitalCoupon coupon) {
-		List<String> includeList = supercardProperties.couponFilter().includeProductTypes();
-		return includeList.containsAll(coupon.productTypes());
+	/**
+	 * Returns the coupon filter compiled for selection, compiling it on first use and
+	 * again only when the configured filter is replaced.
+	 */
+	private CompiledCouponFilter compiledCouponFilter() {
+		var filter = supercardProperties.couponFilter();
+		var compiled = this.compiledCouponFilter;
+		if (compiled == null || !compiled.isCompiledFrom(filter)) {
+			compiled = CompiledCouponFilter.compile(filter);
+			this.compiledCouponFilter = compiled;
+		}
+		return compiled;
 	}
 
 	private void deactivateDigitalCoupons(List<DigitalCoupon> activeCoupons, String webapiBearerToken, String userAgent,
@@ -310,23 +641,53 @@ public class SupercardCouponService extends AbstractCouponService {
 		if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
 			log.error("Deactivation returned HTML (possible DataDome/session expiry). Body: {}",
 					deactivationResponse.getBody());
-			throw new CouponBoosterException("Digital coupon deactivation returned HTML – session may have expired.");
+			throw new SessionRejectedException("Digital coupon deactivation returned HTML – session may have expired.");
 		}
 		log.debug("Deactivation succeeded");
 	}
 
-	private void activateDigitalCoupons(List<DigitalCoupon> inactiveCoupons, String webapiBearerToken, String userAgent,
-			String language) {
+	/**
+	 * Activates the given coupons in one request.
+	 * @return the response body, or {@code null} when there was nothing to activate
+	 */
+	private String activateDigitalCoupons(String accountKey, List<DigitalCoupon> inactiveCoupons,
+			String webapiBearerToken, String userAgent, String language) {
 
 		List<String> couponCodes = inactiveCoupons.stream().map(DigitalCoupon::code).toList();
 
 		if (couponCodes.isEmpty()) {
 			log.info("No eligible coupons to activate.");
-			return;
+			return null;
 		}
 
 		log.info("Activating {} coupon(s)", couponCodes.size());
+		long startNanos = System.nanoTime();
+		String outcome = CouponMetrics.FAILURE;
+		try {
+			String responseBody = putActivation(couponCodes, webapiBearerToken, userAgent, language);
+			outcome = CouponMetrics.SUCCESS;
+			return responseBody;
+		}
+		catch (RestClientException ex) {
+			outcome = failureOutcome(ex);
+			throw ex;
+		}
+		catch (CouponBoosterException ex) {
+			outcome = failureOutcome(ex);
+			throw ex;
+		}
+		finally {
+			metrics.recordActivationRequest(AccountRegistry.COOP, accountKey, outcome,
+					Duration.ofNanos(System.nanoTime() - startNanos));
+		}
+	}
 
+	private static String failureOutcome(Exception failure) {
+		return isSessionRejection(failure) ? CouponMetrics.REJECTED : CouponMetrics.FAILURE;
+	}
+
+	private String putActivation(List<String> couponCodes, String webapiBearerToken, String userAgent,
+			String language) {
 		ResponseEntity<String> activationResponse = apiClient.put()
 			.uri(supercardProperties.urls().couponsActivationUrl())
 			.header(HttpHeaders.USER_AGENT, userAgent)
@@ -343,23 +704,29 @@ public class SupercardCouponService extends AbstractCouponService {
 		if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
 			log.error("Activation returned HTML (possible DataDome/session expiry). Body: {}",
 					activationResponse.getBody());
-			throw new CouponBoosterException("Digital coupon activation returned HTML – session may have expired.");
+			throw new SessionRejectedException("Digital coupon activation returned HTML – session may have expired.");
 		}
 		log.debug("Activation request succeeded");
+		return activationResponse.getBody();
 	}
 
 	/**
-	 * Represents the payload for activating or deactivating a collection of digital
-	 * coupons.
+	 * The coupons that should be active and the writes needed to get there.
 	 */
-	private record DigitalCouponCollection(List<String> codes) {
+	private record ActivationPlan(List<DigitalCoupon> target, List<DigitalCoupon> toDeactivate,
+			List<DigitalCoupon> toActivate) {
+
+		boolean isEmpty() {
+			return toDeactivate.isEmpty() && toActivate.isEmpty();
+		}
+
 	}
 
 	/**
-	 * Represents a single digital coupon (bon) from the Supercard API.
+	 * Represents the payload for activating or deactivating a collection of digital
+	 * coupons.
 	 */
-	private record DigitalCoupon(String code, String status, String shop, List<String> productTypes,
-			String textDescription, String textDiscountAmount) {
+	private record DigitalCouponCollection(List<String> codes) {
 	}
 
 }
@@ -0,0 +1,20 @@
+package com.patbaumgartner.couponbooster.exception;
+
+/**
+ * Thrown when a retailer API refuses the session as a whole, typically because the
+ * cookies have expired or DataDome answered with a challenge page instead of JSON.
+ * <p>
+ * Distinguishing this from other {@link CouponBoosterException}s lets the activation flow
+ * discard a stored session and log in again instead of failing the run.
+ */
+public class SessionRejectedException extends CouponBoosterException {
+
+	/**
+	 * Creates a new SessionRejectedException with a descriptive error message.
+	 * @param message detailed error message explaining why the session was rejected
+	 */
+	public SessionRejectedException(String message) {
+		super(message);
+	}
+
+}
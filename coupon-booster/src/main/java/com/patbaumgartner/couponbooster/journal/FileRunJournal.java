@@ -0,0 +1,207 @@
+package com.patbaumgartner.couponbooster.journal;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link RunJournal} that appends one JSON line per completed stage to a file per
+ * provider and account on local disk.
+ * <p>
+ * Each line is written with {@link StandardOpenOption#DSYNC}, so a stage is on disk
+ * before the run moves on. A completed run deletes its file. On the next run, a file
+ * whose last entry is younger than the resume window is picked up again under the same
+ * run id; an older or unreadable file is deleted and the run starts afresh. File names
+ * are a SHA-256 of provider and account, as for the session store.
+ * <p>
+ * The journal holds coupon codes only, never session cookies; a resumed run reuses its
+ * session through the session store.
+ */
+public final class FileRunJournal implements RunJournal {
+
+	private static final Logger log = LoggerFactory.getLogger(FileRunJournal.class);
+
+	private static final String FILE_SUFFIX = ".journal";
+
+	private final Path directory;
+
+	private final Duration resumeWindow;
+
+	private final ObjectMapper objectMapper;
+
+	private final Clock clock;
+
+	/**
+	 * Creates a new run journal.
+	 * @param directory directory holding the journal files; created on first write
+	 * @param resumeWindow how long after its last completed stage an interrupted run is
+	 * resumed
+	 * @param objectMapper Jackson object mapper the entries are written with
+	 * @param clock clock the entries are timestamped with
+	 */
+	public FileRunJournal(Path directory, Duration resumeWindow, ObjectMapper objectMapper, Clock clock) {
+		this.directory = Objects.requireNonNull(directory, "directory cannot be null");
+		this.resumeWindow = Objects.requireNonNull(resumeWindow, "resumeWindow cannot be null");
+		this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper cannot be null");
+		this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+	}
+
+	@Override
+	public RunCheckpoint begin(String provider, String account) {
+		Path file = fileFor(provider, account);
+		var entries = readEntries(provider, file);
+		if (!entries.isEmpty()) {
+			var last = entries.getLast();
+			if (Instant.ofEpochMilli(last.at()).plus(resumeWindow).isAfter(clock.instant())) {
+				log.info("Resuming interrupted {} run {} after stage {}", provider, last.runId(), last.stage());
+				return new FileCheckpoint(provider, file, last.runId(), entries);
+			}
+			log.info("Interrupted {} run {} is older than {}; starting afresh", provider, last.runId(), resumeWindow);
+			deleteQuietly(file);
+		}
+		return new FileCheckpoint(provider, file, UUID.randomUUID().toString(), List.of());
+	}
+
+	private List<Entry> readEntries(String provider, Path file) {
+		if (!Files.isRegularFile(file)) {
+			return List.of();
+		}
+		try {
+			var entries = new ArrayList<Entry>();
+			for (String line : Files.readAllLines(file, UTF_8)) {
+				if (line.isBlank()) {
+					continue;
+				}
+				var entry = objectMapper.readValue(line, Entry.class);
+				if (entry.runId() == null || entry.stage() == null) {
+					throw new CouponBoosterException("incomplete journal entry");
+				}
+				entries.add(entry);
+			}
+			return entries;
+		}
+		catch (IOException | RuntimeException ex) {
+			log.warn("{} run journal is unreadable and will be discarded: {}", provider, ex.getMessage());
+			deleteQuietly(file);
+			return List.of();
+		}
+	}
+
+	private Path fileFor(String provider, String account) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest((provider + '\n' + account).getBytes(UTF_8));
+			return directory.resolve(HexFormat.of().formatHex(digest) + FILE_SUFFIX);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new CouponBoosterException("SHA-256 is not available", ex);
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ex) {
+			log.debug("Could not delete run journal {}: {}", file, ex.getMessage());
+		}
+	}
+
+	private final class FileCheckpoint implements RunCheckpoint {
+
+		private final String provider;
+
+		private final Path file;
+
+		private final String runId;
+
+		private final boolean resumed;
+
+		private final Map<RunStage, List<String>> completed = new EnumMap<>(RunStage.class);
+
+		private FileCheckpoint(String provider, Path file, String runId, List<Entry> entries) {
+			this.provider = provider;
+			this.file = file;
+			this.runId = runId;
+			this.resumed = !entries.isEmpty();
+			entries.forEach(this::remember);
+		}
+
+		@Override
+		public String runId() {
+			return runId;
+		}
+
+		@Override
+		public boolean resumed() {
+			return resumed;
+		}
+
+		@Override
+		public synchronized Optional<List<String>> completed(RunStage stage) {
+			return Optional.ofNullable(completed.get(stage)).map(List::copyOf);
+		}
+
+		@Override
+		public synchronized void record(RunStage stage, List<String> codes) {
+			var entry = new Entry(runId, stage, clock.millis(), codes.stream().filter(Objects::nonNull).toList());
+			remember(entry);
+			try {
+				Files.createDirectories(directory);
+				Files.writeString(file, objectMapper.writeValueAsString(entry) + '\n', UTF_8, StandardOpenOption.CREATE,
+						StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+			}
+			catch (IOException | RuntimeException ex) {
+				// Losing the journal only costs a crashed run its resume point.
+				log.warn("Failed to journal stage {} of {} run {}: {}", stage, provider, runId, ex.getMessage());
+			}
+		}
+
+		@Override
+		public synchronized void complete() {
+			deleteQuietly(file);
+		}
+
+		private void remember(Entry entry) {
+			completed.computeIfAbsent(entry.stage(), stage -> new ArrayList<>()).addAll(entry.codes());
+		}
+
+	}
+
+	/**
+	 * One journal line.
+	 *
+	 * @param runId the run the stage belongs to
+	 * @param stage the completed stage
+	 * @param at when the stage completed, in epoch milliseconds
+	 * @param codes the coupon codes the stage concerned
+	 */
+	private record Entry(String runId, RunStage stage, long at, List<String> codes) {
+
+		Entry {
+			codes = (codes == null) ? List.of() : List.copyOf(codes);
+		}
+
+	}
+
+}
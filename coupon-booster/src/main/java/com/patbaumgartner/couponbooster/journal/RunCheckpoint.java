@@ -0,0 +1,91 @@
+package com.patbaumgartner.couponbooster.journal;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The journal of one activation run of one account.
+ * <p>
+ * A coupon service records each stage as it completes. When the process dies before
+ * {@link #complete()}, the next run of the same account within the resume window picks
+ * the checkpoint up again and can skip or reuse what was already done.
+ *
+ * @see RunJournal
+ */
+public interface RunCheckpoint {
+
+	/**
+	 * A checkpoint that records nothing and never resumes. Used when the journal is
+	 * disabled.
+	 */
+	RunCheckpoint UNTRACKED = new RunCheckpoint() {
+
+		@Override
+		public String runId() {
+			return "";
+		}
+
+		@Override
+		public boolean resumed() {
+			return false;
+		}
+
+		@Override
+		public Optional<List<String>> completed(RunStage stage) {
+			return Optional.empty();
+		}
+
+		@Override
+		public void record(RunStage stage, List<String> codes) {
+			// Nothing is journalled.
+		}
+
+		@Override
+		public void complete() {
+			// Nothing to clean up.
+		}
+
+	};
+
+	/**
+	 * Returns the identifier of the run, shared by every attempt that resumes it.
+	 * @return the run id
+	 */
+	String runId();
+
+	/**
+	 * Tells whether this checkpoint continues an interrupted run.
+	 * @return {@code true} if stages of an earlier attempt were found
+	 */
+	boolean resumed();
+
+	/**
+	 * Returns the coupon codes recorded for a completed stage. Stages recorded more than
+	 * once, like activations recorded coupon by coupon, return all codes in order.
+	 * @param stage the stage to look up
+	 * @return the recorded codes, or empty if the stage has not completed
+	 */
+	Optional<List<String>> completed(RunStage stage);
+
+	/**
+	 * Records that a stage completed, together with the coupons it concerned. The entry
+	 * is durable before this method returns.
+	 * @param stage the completed stage
+	 * @param codes the coupon codes the stage concerned; may be empty
+	 */
+	void record(RunStage stage, List<String> codes);
+
+	/**
+	 * Records that a stage completed without coupon codes.
+	 * @param stage the completed stage
+	 */
+	default void record(RunStage stage) {
+		record(stage, List.of());
+	}
+
+	/**
+	 * Marks the run finished; a later run starts afresh.
+	 */
+	void complete();
+
+}
@@ -0,0 +1,27 @@
+package com.patbaumgartner.couponbooster.journal;
+
+/**
+ * Write-ahead journal of activation runs, keyed by provider, account and run id.
+ * <p>
+ * Like the session store, a journal must never fail a run: an unreadable or unwritable
+ * journal degrades to a run that starts from scratch.
+ *
+ * @see FileRunJournal
+ */
+public interface RunJournal {
+
+	/**
+	 * A journal that never resumes a run.
+	 */
+	RunJournal DISABLED = (provider, account) -> RunCheckpoint.UNTRACKED;
+
+	/**
+	 * Starts a run, or resumes the account's last run if it was interrupted within the
+	 * resume window.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier; empty for the configured account
+	 * @return the checkpoint to record the run's stages in
+	 */
+	RunCheckpoint begin(String provider, String account);
+
+}
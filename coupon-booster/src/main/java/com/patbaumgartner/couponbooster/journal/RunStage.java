@@ -0,0 +1,39 @@
+package com.patbaumgartner.couponbooster.journal;
+
+/**
+ * The stages of an activation run, in the order they complete.
+ */
+public enum RunStage {
+
+	/**
+	 * The retailer accepted the session the run was handed.
+	 */
+	AUTHENTICATE,
+
+	/**
+	 * The coupon list was fetched.
+	 */
+	FETCH,
+
+	/**
+	 * The coupons to activate were chosen; recorded with their codes.
+	 */
+	PLAN,
+
+	/**
+	 * Coupons that dropped out of the selection were deactivated; recorded with their
+	 * codes.
+	 */
+	DEACTIVATE,
+
+	/**
+	 * Coupons were activated; recorded with their codes.
+	 */
+	ACTIVATE,
+
+	/**
+	 * The final coupon state was confirmed.
+	 */
+	VERIFY
+
+}
@@ -0,0 +1,112 @@
+package com.patbaumgartner.couponbooster.metrics;
+
+import java.time.Duration;
+
+/**
+ * Records the timings and counts of every run stage.
+ * <p>
+ * Every meter is tagged with the provider key and a short hash of the account, never the
+ * e-mail address itself, so the number of series stays bounded by the number of
+ * configured accounts. Outcomes are one of the constants below.
+ *
+ * @see MicrometerCouponMetrics
+ */
+public interface CouponMetrics {
+
+	/**
+	 * Outcome of a login that reused a stored session.
+	 */
+	String REUSED = "reused";
+
+	/**
+	 * Outcome of a successful login, activation request or coupon.
+	 */
+	String SUCCESS = "success";
+
+	/**
+	 * Outcome of a failed login, activation request or coupon.
+	 */
+	String FAILURE = "failure";
+
+	/**
+	 * Outcome of an activation request or coupon whose session the retailer rejected.
+	 */
+	String REJECTED = "rejected";
+
+	/**
+	 * Metrics that record nothing.
+	 */
+	CouponMetrics DISABLED = new CouponMetrics() {
+
+		@Override
+		public void recordLogin(String provider, String account, String outcome, Duration duration) {
+			// Nothing is recorded.
+		}
+
+		@Override
+		public void recordCatalogueFetch(String provider, String account, Duration duration, int couponCount) {
+			// Nothing is recorded.
+		}
+
+		@Override
+		public void recordActivationRequest(String provider, String account, String outcome, Duration duration) {
+			// Nothing is recorded.
+		}
+
+		@Override
+		public void recordCoupons(String provider, String account, String outcome, int count) {
+			// Nothing is recorded.
+		}
+
+		@Override
+		public void recordScheduledRunLatency(String provider, Duration latency) {
+			// Nothing is recorded.
+		}
+
+	};
+
+	/**
+	 * Records one authentication, either through the sidecar or with a stored session.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier; empty for the configured account
+	 * @param outcome {@link #REUSED}, {@link #SUCCESS} or {@link #FAILURE}
+	 * @param duration how long the authentication took
+	 */
+	void recordLogin(String provider, String account, String outcome, Duration duration);
+
+	/**
+	 * Records one fetch of the coupon catalogue.
+	 * @param provider provider key
+	 * @param account account identifier; empty for the configured account
+	 * @param duration how long the fetch took, including parsing
+	 * @param couponCount the number of coupons in the catalogue
+	 */
+	void recordCatalogueFetch(String provider, String account, Duration duration, int couponCount);
+
+	/**
+	 * Records one activation request; Cumulus activates one coupon per request, Supercard
+	 * all of them in one.
+	 * @param provider provider key
+	 * @param account account identifier; empty for the configured account
+	 * @param outcome {@link #SUCCESS}, {@link #FAILURE} or {@link #REJECTED}
+	 * @param duration how long the request took
+	 */
+	void recordActivationRequest(String provider, String account, String outcome, Duration duration);
+
+	/**
+	 * Counts coupons by the outcome of their activation.
+	 * @param provider provider key
+	 * @param account account identifier; empty for the configured account
+	 * @param outcome {@link #SUCCESS}, {@link #FAILURE} or {@link #REJECTED}
+	 * @param count the number of coupons
+	 */
+	void recordCoupons(String provider, String account, String outcome, int count);
+
+	/**
+	 * Records how long after its cron time a scheduled run finished.
+	 * @param provider provider key
+	 * @param latency the time from the cron time to the end of the run
+	 */
+	void recordScheduledRunLatency(String provider, Duration latency);
+
+}
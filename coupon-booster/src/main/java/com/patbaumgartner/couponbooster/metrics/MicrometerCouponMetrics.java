@@ -0,0 +1,134 @@
+package com.patbaumgartner.couponbooster.metrics;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link CouponMetrics} that records into a Micrometer {@link MeterRegistry}.
+ * <p>
+ * Meters, all tagged with {@code provider}:
+ * <ul>
+ * <li>{@code couponbooster.login} – timer, tagged {@code account} and
+ * {@code outcome}</li>
+ * <li>{@code couponbooster.catalogue.fetch} – timer, tagged {@code account}</li>
+ * <li>{@code couponbooster.catalogue.size} – distribution summary of the coupons per
+ * fetch, tagged {@code account}</li>
+ * <li>{@code couponbooster.activation.request} – timer, tagged {@code account} and
+ * {@code outcome}</li>
+ * <li>{@code couponbooster.coupons} – counter, tagged {@code account} and
+ * {@code outcome}</li>
+ * <li>{@code couponbooster.scheduler.latency} – timer from the cron time to the end of a
+ * scheduled run</li>
+ * </ul>
+ * The {@code account} tag is the first eight hex digits of a SHA-256 of the lower-cased
+ * e-mail address, or {@code default} for the configured account.
+ */
+public final class MicrometerCouponMetrics implements CouponMetrics {
+
+	private static final String DEFAULT_ACCOUNT = "default";
+
+	private final MeterRegistry registry;
+
+	private final Map<String, String> accountHashes = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates metrics that record into the given registry.
+	 * @param registry the registry the meters are registered with
+	 */
+	public MicrometerCouponMetrics(MeterRegistry registry) {
+		this.registry = Objects.requireNonNull(registry, "registry cannot be null");
+	}
+
+	@Override
+	public void recordLogin(String provider, String account, String outcome, Duration duration) {
+		Timer.builder("couponbooster.login")
+			.description("Authentication through the sidecar or with a stored session")
+			.tags(tags(provider, account).and("outcome", outcome))
+			.publishPercentileHistogram()
+			.register(registry)
+			.record(duration);
+	}
+
+	@Override
+	public void recordCatalogueFetch(String provider, String account, Duration duration, int couponCount) {
+		var tags = tags(provider, account);
+		Timer.builder("couponbooster.catalogue.fetch")
+			.description("Fetching and parsing the coupon catalogue")
+			.tags(tags)
+			.publishPercentileHistogram()
+			.register(registry)
+			.record(duration);
+		DistributionSummary.builder("couponbooster.catalogue.size")
+			.description("Coupons in a fetched catalogue")
+			.baseUnit("coupons")
+			.tags(tags)
+			.register(registry)
+			.record(couponCount);
+	}
+
+	@Override
+	public void recordActivationRequest(String provider, String account, String outcome, Duration duration) {
+		Timer.builder("couponbooster.activation.request")
+			.description("One coupon activation request")
+			.tags(tags(provider, account).and("outcome", outcome))
+			.publishPercentileHistogram()
+			.register(registry)
+			.record(duration);
+	}
+
+	@Override
+	public void recordCoupons(String provider, String account, String outcome, int count) {
+		Counter.builder("couponbooster.coupons")
+			.description("Coupons by activation outcome")
+			.baseUnit("coupons")
+			.tags(tags(provider, account).and("outcome", outcome))
+			.register(registry)
+			.increment(count);
+	}
+
+	@Override
+	public void recordScheduledRunLatency(String provider, Duration latency) {
+		Timer.builder("couponbooster.scheduler.latency")
+			.description("Time from the cron time to the end of a scheduled run")
+			.tags("provider", provider)
+			.register(registry)
+			.record(latency);
+	}
+
+	private Tags tags(String provider, String account) {
+		return Tags.of("provider", provider, "account", accountHash(account));
+	}
+
+	String accountHash(String account) {
+		if (account == null || account.isBlank()) {
+			return DEFAULT_ACCOUNT;
+		}
+		return accountHashes.computeIfAbsent(account.toLowerCase(Locale.ROOT), MicrometerCouponMetrics::sha256Prefix);
+	}
+
+	private static String sha256Prefix(String account) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(account.getBytes(UTF_8));
+			return HexFormat.of().formatHex(digest, 0, 4);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new CouponBoosterException("SHA-256 is not available", ex);
+		}
+	}
+
+}
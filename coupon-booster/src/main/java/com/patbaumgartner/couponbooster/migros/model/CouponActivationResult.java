@@ -1,16 +1,62 @@
 package com.patbaumgartner.couponbooster.migros.model;
 
+import com.patbaumgartner.couponbooster.model.CookieJar;
+
 import java.util.List;
 
 /**
  * Immutable summary of a coupon-activation batch.
+ * <p>
+ * {@code sessionRejected} is set when the retailer refused the session itself (HTTP
+ * 401/403 or a DataDome challenge page) rather than individual coupons, so the caller
+ * knows a fresh login may succeed where this run did not.
+ * <p>
+ * {@code couponSetDiff} tells which coupons appeared or expired since the account's
+ * previous run; it is {@link CouponSetDiff#NONE} when there is nothing to compare with.
+ * <p>
+ * {@code renewedCookies} are the session cookies after the retailer rotated some of them
+ * with {@code Set-Cookie} during the batch, to be remembered for the next run; it is
+ * {@code null} when the retailer changed none.
  */
-public record CouponActivationResult(int successCount, int failureCount, List<CouponDetail> details) {
+public record CouponActivationResult(int successCount, int failureCount, List<CouponDetail> details,
+		boolean sessionRejected, CouponSetDiff couponSetDiff, CookieJar renewedCookies) {
+
+	public CouponActivationResult {
+		details = details == null ? List.of() : List.copyOf(details);
+		couponSetDiff = couponSetDiff == null ? CouponSetDiff.NONE : couponSetDiff;
+	}
+
+	public CouponActivationResult(int successCount, int failureCount, List<CouponDetail> details,
+			boolean sessionRejected, CouponSetDiff couponSetDiff) {
+		this(successCount, failureCount, details, sessionRejected, couponSetDiff, null);
+	}
+
+	public CouponActivationResult(int successCount, int failureCount, List<CouponDetail> details,
+			boolean sessionRejected) {
+		this(successCount, failureCount, details, sessionRejected, CouponSetDiff.NONE);
+	}
 
 	public CouponActivationResult(int successCount, int failureCount, List<CouponDetail> details) {
-		this.successCount = successCount;
-		this.failureCount = failureCount;
-		this.details = details == null ? List.of() : List.copyOf(details);
+		this(successCount, failureCount, details, false);
+	}
+
+	/**
+	 * Returns a copy of this result that reports how the coupon set changed.
+	 * @param diff the change since the previous run
+	 * @return the copy
+	 */
+	public CouponActivationResult withCouponSetDiff(CouponSetDiff diff) {
+		return new CouponActivationResult(successCount, failureCount, details, sessionRejected, diff, renewedCookies);
+	}
+
+	/**
+	 * Returns a copy of this result that carries the session cookies the retailer
+	 * renewed.
+	 * @param cookies the renewed cookies, or {@code null} if none changed
+	 * @return the copy
+	 */
+	public CouponActivationResult withRenewedCookies(CookieJar cookies) {
+		return new CouponActivationResult(successCount, failureCount, details, sessionRejected, couponSetDiff, cookies);
 	}
 
 }
@@ -0,0 +1,33 @@
+package com.patbaumgartner.couponbooster.migros.model;
+
+import java.util.List;
+
+/**
+ * How the coupon set offered to an account changed since its previous run.
+ *
+ * @param added codes offered now but not before
+ * @param removed codes offered before but no longer, typically expired coupons
+ * @param statusChanged codes offered both times whose status changed
+ */
+public record CouponSetDiff(List<String> added, List<String> removed, List<String> statusChanged) {
+
+	/**
+	 * No change, or no previous run to compare with.
+	 */
+	public static final CouponSetDiff NONE = new CouponSetDiff(List.of(), List.of(), List.of());
+
+	public CouponSetDiff {
+		added = added == null ? List.of() : List.copyOf(added);
+		removed = removed == null ? List.of() : List.copyOf(removed);
+		statusChanged = statusChanged == null ? List.of() : List.copyOf(statusChanged);
+	}
+
+	/**
+	 * Tells whether the coupon set is exactly as it was.
+	 * @return {@code true} if no coupon was added, removed or changed its status
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && statusChanged.isEmpty();
+	}
+
+}
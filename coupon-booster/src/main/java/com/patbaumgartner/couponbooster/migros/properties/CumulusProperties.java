@@ -1,20 +1,20 @@
 package com.patbaumgartner.couponbooster.migros.properties;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 import org.hibernate.validator.constraints.URL;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
-import java.time.Duration;
-
 /**
  * Configuration properties for Cumulus coupon service integration. Contains all necessary
- * settings for API endpoints, timing, and browser simulation.
+ * settings for API endpoints, rate limiting, and browser simulation.
  *
  * @param urls URL configuration for various Cumulus service endpoints
- * @param api API timing and retry configuration settings
+ * @param api API rate-limit configuration settings
  */
 @ConfigurationProperties(prefix = "cumulus")
 @Validated
@@ -42,10 +42,24 @@ public record CumulusProperties(@Valid @NotNull Urls urls, @Valid @NotNull Api a
 	}
 
 	/**
-	 * API timing configuration.
+	 * API rate-limit configuration.
+	 * <p>
+	 * Coupon activations are paced by the adaptive rate control of the Cumulus host,
+	 * which follows what Migros tolerates. A positive {@code requestsPerSecond} adds a
+	 * token bucket shared by every account as a hard ceiling on top of it, so the request
+	 * rate toward Migros never exceeds that rate however many activations run at once.
 	 *
-	 * @param requestDelay delay between consecutive API requests to avoid rate limiting
+	 * @param requestsPerSecond ceiling on the activation requests per second; {@code 0}
+	 * leaves the pace to the adaptive rate control alone
+	 * @param burst how many activation requests may go out back to back after an idle
+	 * period when a ceiling is set
+	 * @param maxConcurrentActivations how many activation requests of one account may be
+	 * in flight at the same time
 	 */
-	public record Api(@NotNull(message = "Request delay is required") Duration requestDelay) {
+	public record Api(@PositiveOrZero(message = "Requests per second cannot be negative") double requestsPerSecond,
+
+			@Min(value = 1, message = "Burst must be at least 1") int burst,
+
+			@Min(value = 1, message = "Max concurrent activations must be at least 1") int maxConcurrentActivations) {
 	}
 }
@@ -1,19 +1,31 @@
 package com.patbaumgartner.couponbooster.migros.properties;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import org.hibernate.validator.constraints.URL;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.List;
+
 /**
- * Configuration properties for the Patchright login sidecar (Migros).
+ * Configuration properties for the Patchright login sidecars (Migros).
+ * <p>
+ * Each sidecar runs one Migros login at a time; listing several spreads the logins of
+ * many accounts over them.
  *
- * @param url base URL of the Patchright sidecar (e.g. {@code http://patchright:8000})
+ * @param urls base URLs of the Patchright sidecars (e.g. {@code http://patchright:8000})
  */
 @ConfigurationProperties(prefix = "migros.patchright")
 @Validated
 public record MigrosPatchrightProperties(
 
-		@NotBlank(message = "Patchright sidecar URL is required") @URL(
-				message = "Patchright sidecar URL must be a valid URL") String url) {
+		@NotEmpty(message = "At least one Patchright sidecar URL is required") List<@NotBlank(
+				message = "Patchright sidecar URL is required") @URL(
+						message = "Patchright sidecar URL must be a valid URL") String> urls) {
+
+	public MigrosPatchrightProperties {
+		urls = (urls == null) ? List.of() : List.copyOf(urls);
+	}
+
 }
@@ -1,10 +1,9 @@
 package com.patbaumgartner.couponbooster.migros.runner;
 
-import com.patbaumgartner.couponbooster.migros.service.CumulusCouponService;
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
 import com.patbaumgartner.couponbooster.runner.AbstractCouponBoosterRunner;
 import com.patbaumgartner.couponbooster.runner.ActivationExitCode;
-import com.patbaumgartner.couponbooster.service.AuthenticationService;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
@@ -23,13 +22,11 @@ public class MigrosCouponBoosterRunner extends AbstractCouponBoosterRunner {
 
 	/**
 	 * Constructs a new {@code MigrosCouponBoosterRunner}.
-	 * @param migrosAuthenticationService the authentication service to use
-	 * @param cumulusCouponService the coupon activation service
+	 * @param activationEngine runs the activation flow for every Migros account
 	 * @param exitCode collects run outcomes for the process exit code
 	 */
-	public MigrosCouponBoosterRunner(@Qualifier("migrosAuth") AuthenticationService migrosAuthenticationService,
-			CumulusCouponService cumulusCouponService, ActivationExitCode exitCode) {
-		super(migrosAuthenticationService, cumulusCouponService, "Migros", exitCode);
+	public MigrosCouponBoosterRunner(AccountActivationEngine activationEngine, ActivationExitCode exitCode) {
+		super(activationEngine, AccountRegistry.MIGROS, "Migros", exitCode);
 	}
 
 }
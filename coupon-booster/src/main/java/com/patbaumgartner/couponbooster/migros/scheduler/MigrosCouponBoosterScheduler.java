@@ -1,16 +1,22 @@
 package com.patbaumgartner.couponbooster.migros.scheduler;
 
-import com.patbaumgartner.couponbooster.migros.service.CumulusCouponService;
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
+import com.patbaumgartner.couponbooster.properties.SessionPrewarmProperties;
 import com.patbaumgartner.couponbooster.scheduler.AbstractCouponBoosterScheduler;
-import com.patbaumgartner.couponbooster.service.AuthenticationService;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.ZoneId;
+
 /**
- * Daily Migros coupon activation for the long-running server profile.
+ * Daily Migros coupon activation for the long-running server profile, optionally with the
+ * accounts logged in ahead of each run.
  */
 @Component
 @Profile("server")
@@ -18,13 +24,19 @@ import org.springframework.stereotype.Component;
 public class MigrosCouponBoosterScheduler extends AbstractCouponBoosterScheduler {
 
 	/**
-	 * Constructs a new {@code MigrosCouponBoosterScheduler} with the specified services.
-	 * @param migrosAuthenticationService the authentication service to use
-	 * @param cumulusCouponService the service to use for coupon activation
+	 * Constructs a new {@code MigrosCouponBoosterScheduler}.
+	 * @param activationEngine runs the activation flow for every Migros account
+	 * @param cron the cron expression of the daily run
+	 * @param zone the time zone of the cron expression
+	 * @param metrics records how long after their cron time the daily runs finish
+	 * @param sessionPrewarm whether, how early and for how long sessions are pre-warmed
+	 * @param taskScheduler runs the pre-warms
 	 */
-	public MigrosCouponBoosterScheduler(@Qualifier("migrosAuth") AuthenticationService migrosAuthenticationService,
-			CumulusCouponService cumulusCouponService) {
-		super(migrosAuthenticationService, cumulusCouponService, "Migros");
+	public MigrosCouponBoosterScheduler(AccountActivationEngine activationEngine,
+			@Value("${migros.scheduler.cron}") String cron,
+			@Value("${couponbooster.scheduler.zone:Europe/Zurich}") ZoneId zone, CouponMetrics metrics,
+			SessionPrewarmProperties sessionPrewarm, TaskScheduler taskScheduler) {
+		super(activationEngine, AccountRegistry.MIGROS, "Migros", cron, zone, metrics, sessionPrewarm, taskScheduler);
 	}
 
 	/**
@@ -34,7 +46,7 @@ public class MigrosCouponBoosterScheduler extends AbstractCouponBoosterScheduler
 	 */
 	@Scheduled(cron = "${migros.scheduler.cron}", zone = "${couponbooster.scheduler.zone:Europe/Zurich}")
 	public void runDailyActivation() {
-		runActivation();
+		runScheduledActivation();
 	}
 
 }
@@ -0,0 +1,131 @@
+package com.patbaumgartner.couponbooster.migros.service;
+
+import com.patbaumgartner.couponbooster.migros.model.CouponInfo;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the {@code available} and {@code activated} lists of a Cumulus coupon response
+ * into {@link CouponInfo}s.
+ * <p>
+ * The response also carries {@code preview}, {@code redeemed} and {@code partner} lists,
+ * and the redeemed history keeps growing for as long as an account exists. The activation
+ * run never reads them, so this reader skips them at token level with
+ * {@link JsonParser#skipChildren()} instead of binding every entry; parse time and heap
+ * use depend only on the coupons that can still be activated.
+ * <p>
+ * Available coupons come first, then the activated ones, whatever their order in the
+ * response. Missing or {@code null} fields read as {@code null}; the description is the
+ * {@code subtitle}, or the {@code disclaimer} when there is no subtitle.
+ */
+final class CouponListReader {
+
+	private static final String ACTIVATED = "ACTIVATED";
+
+	private final ObjectMapper objectMapper;
+
+	CouponListReader(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Reads the coupons from a response stream; the stream is not closed.
+	 * @param body the JSON response body
+	 * @return the available, then the activated coupons; empty when the body has neither
+	 * list
+	 */
+	List<CouponInfo> read(InputStream body) {
+		try (JsonParser parser = objectMapper.createParser(body)) {
+			return read(parser);
+		}
+	}
+
+	/**
+	 * Reads the coupons from a buffered response body.
+	 * @param body the JSON response body
+	 * @return the available, then the activated coupons; empty when the body has neither
+	 * list
+	 */
+	List<CouponInfo> read(String body) {
+		try (JsonParser parser = objectMapper.createParser(body)) {
+			return read(parser);
+		}
+	}
+
+	private static List<CouponInfo> read(JsonParser parser) {
+		List<CouponInfo> available = new ArrayList<>();
+		List<CouponInfo> activated = new ArrayList<>();
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			return available;
+		}
+
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String name = parser.currentName();
+			JsonToken value = parser.nextToken();
+			if ("available".equals(name) && value == JsonToken.START_ARRAY) {
+				readCoupons(parser, available);
+			}
+			else if ("activated".equals(name) && value == JsonToken.START_ARRAY) {
+				readCoupons(parser, activated);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		available.addAll(activated);
+		return available;
+	}
+
+	private static void readCoupons(JsonParser parser, List<CouponInfo> coupons) {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token == JsonToken.START_OBJECT) {
+				coupons.add(readCoupon(parser));
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static CouponInfo readCoupon(JsonParser parser) {
+		String id = null;
+		String name = null;
+		String subtitle = null;
+		String disclaimer = null;
+		String validTo = null;
+		String status = null;
+
+		while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+			String field = parser.currentName();
+			parser.nextToken();
+			switch (field) {
+				case "id" -> id = scalar(parser);
+				case "name" -> name = scalar(parser);
+				case "subtitle" -> subtitle = scalar(parser);
+				case "disclaimer" -> disclaimer = scalar(parser);
+				case "validTo" -> validTo = scalar(parser);
+				case "status" -> status = scalar(parser);
+				default -> parser.skipChildren();
+			}
+		}
+		return new CouponInfo(id, name, (subtitle != null) ? subtitle : disclaimer, validTo,
+				ACTIVATED.equalsIgnoreCase(status));
+	}
+
+	/**
+	 * Returns the current scalar as text, or {@code null} for {@code null} and for a
+	 * nested structure, which is skipped.
+	 */
+	private static String scalar(JsonParser parser) {
+		String value = parser.getValueAsString(null);
+		parser.skipChildren();
+		return value;
+	}
+
+}
@@ -1,29 +1,65 @@
 package com.patbaumgartner.couponbooster.migros.service;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
 import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.journal.RunCheckpoint;
+import com.patbaumgartner.couponbooster.journal.RunJournal;
+import com.patbaumgartner.couponbooster.journal.RunStage;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.migros.config.MigrosConstants;
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
 import com.patbaumgartner.couponbooster.migros.model.CouponDetail;
 import com.patbaumgartner.couponbooster.migros.model.CouponInfo;
+import com.patbaumgartner.couponbooster.migros.model.CouponSetDiff;
 import com.patbaumgartner.couponbooster.migros.properties.CumulusProperties;
+import com.patbaumgartner.couponbooster.exception.SessionRejectedException;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.model.CookieJar;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.model.SessionProbeResult;
+import com.patbaumgartner.couponbooster.model.SessionValidity;
 import com.patbaumgartner.couponbooster.service.AbstractCouponService;
+import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.Bulkhead;
+import com.patbaumgartner.couponbooster.service.CatalogueCache;
 import com.patbaumgartner.couponbooster.service.CouponService;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.service.LiveCookies;
+import com.patbaumgartner.couponbooster.service.SessionProbe;
+import com.patbaumgartner.couponbooster.service.SessionRecovery;
+import com.patbaumgartner.couponbooster.service.TokenBucket;
+import com.patbaumgartner.couponbooster.snapshot.CatalogueStore;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshot;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshotStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Stream;
-import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.patbaumgartner.couponbooster.migros.config.MigrosConstants.Cookies.AUTHENTICATION_DOMAIN;
 import static com.patbaumgartner.couponbooster.migros.config.MigrosConstants.Cookies.CSRF_COOKIE_NAME;
@@ -41,27 +77,87 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
  * <li>Activating all available, inactive coupons.</li>
  * </ul>
  * It interacts directly with the Migros Cumulus web API using a {@link RestClient}.
+ * <p>
+ * If the session expires or is challenged while a batch is being activated (a
+ * {@code 401}/{@code 403} or an HTML page instead of JSON), no further activations are
+ * sent. The service logs in again once through the Migros {@link AuthenticationService}
+ * and resumes with the coupons that were not activated yet.
+ * <p>
+ * Each run is recorded in the {@link RunJournal}, every confirmed activation as it
+ * happens. A run that dies halfway is resumed by the next run within the resume window,
+ * which does not send the recorded activations again.
+ * <p>
+ * As a {@link SessionProbe} it checks a remembered session against the coupons endpoint,
+ * which requires both the session cookies and the CSRF header.
  *
  * @see CouponService
  * @see CumulusProperties
  */
 @Service
-public final class CumulusCouponService extends AbstractCouponService {
+public final class CumulusCouponService extends AbstractCouponService implements SessionProbe {
 
 	private static final Logger log = LoggerFactory.getLogger(CumulusCouponService.class);
 
+	private static final String ACTIVATED = "ACTIVATED";
+
+	private static final String AVAILABLE = "AVAILABLE";
+
 	private final RestClient apiClient;
 
 	private final CumulusProperties configuration;
 
+	/**
+	 * Optional hard ceiling on top of the adaptive rate control of the Cumulus host,
+	 * shared by all accounts so parallel runs together never exceed it. Created on first
+	 * use from {@link CumulusProperties.Api}; unlimited unless a rate is configured.
+	 */
+	private volatile TokenBucket rateLimiter;
+
+	private final CatalogueCache<List<CouponInfo>> catalogueCache;
+
+	private final CouponSnapshotStore couponSnapshotStore;
+
+	private final CouponListReader couponListReader;
+
+	private final RunJournal runJournal;
+
+	private final CouponMetrics metrics;
+
+	/**
+	 * Logs in again when the session is rejected mid-batch. Looked up lazily: the Migros
+	 * authentication service itself uses this service as its session probe.
+	 */
+	private final ObjectProvider<AuthenticationService> authenticationService;
+
 	/**
 	 * Constructs a new {@code CumulusCouponService} with the specified dependencies.
 	 * @param restClientBuilder the builder for creating the {@link RestClient} instance
+	 * @param httpClientProfiles provides the Cumulus HTTP client profile
+	 * @param objectMapper Jackson object mapper the coupon list is streamed with
 	 * @param configuration the configuration properties for the Cumulus API
+	 * @param couponSnapshotStore remembers the coupon set of each account between runs
+	 * @param catalogueStore remembers the coupon list of each account between runs
+	 * @param runJournal records the stages of each run so an interrupted run can resume
+	 * @param metrics records the latency of every request and the activation outcomes
+	 * @param authenticationService the Migros authentication service, used to recover a
+	 * session rejected mid-batch
 	 */
-	public CumulusCouponService(final RestClient.Builder restClientBuilder, final CumulusProperties configuration) {
+	public CumulusCouponService(final RestClient.Builder restClientBuilder, final HttpClientProfiles httpClientProfiles,
+			final ObjectMapper objectMapper, final CumulusProperties configuration,
+			final CouponSnapshotStore couponSnapshotStore, final CatalogueStore catalogueStore,
+			final RunJournal runJournal, final CouponMetrics metrics,
+			@Qualifier("migrosAuth") final ObjectProvider<AuthenticationService> authenticationService) {
 		this.configuration = configuration;
+		this.couponSnapshotStore = couponSnapshotStore;
+		this.catalogueCache = new CatalogueCache<>(catalogueStore, AccountRegistry.MIGROS, objectMapper,
+				new TypeReference<List<CouponInfo>>() {
+				});
+		this.runJournal = runJournal;
+		this.metrics = metrics;
+		this.authenticationService = authenticationService;
+		this.couponListReader = new CouponListReader(objectMapper);
 		// No base URL: every Cumulus endpoint is configured as an absolute URL.
+		httpClientProfiles.apply(HttpClientProfiles.Profile.CUMULUS, restClientBuilder);
 		this.apiClient = restClientBuilder.build();
 	}
 
@@ -72,7 +168,8 @@ public final class CumulusCouponService extends AbstractCouponService {
 	 * <ol>
 	 * <li>Fetches all available and activated digital coupons.</li>
 	 * <li>Filters for inactive coupons.</li>
-	 * <li>Activates each inactive coupon individually.</li>
+	 * <li>Activates the inactive coupons concurrently, paced by the rate control of the
+	 * Cumulus host.</li>
 	 * </ol>
 	 * @param sessionCookies authentication cookies from browser session
 	 * @param userAgent the user agent of the browser
@@ -83,6 +180,44 @@ public final class CumulusCouponService extends AbstractCouponService {
 	@Override
 	public CouponActivationResult activateAllAvailableCoupons(final List<SessionCookie> sessionCookies,
 			String userAgent, String language) {
+		return activateAllAvailableCoupons(null, sessionCookies, userAgent, language);
+	}
+
+	/**
+	 * Activates all available Cumulus digital coupons of an account, logging in again
+	 * directly through the Migros authentication service if the session is rejected
+	 * mid-batch.
+	 * @param account the account the session belongs to; {@code null} for the configured
+	 * account
+	 * @param sessionCookies authentication cookies from browser session
+	 * @param userAgent the user agent of the browser
+	 * @param language the language of the browser
+	 * @return a {@link CouponActivationResult} containing activation statistics and
+	 * coupon details
+	 */
+	@Override
+	public CouponActivationResult activateAllAvailableCoupons(final Account account,
+			final List<SessionCookie> sessionCookies, String userAgent, String language) {
+		return activateAllAvailableCoupons(account, sessionCookies, userAgent, language, () -> loginAgain(account));
+	}
+
+	/**
+	 * Activates all available Cumulus digital coupons of an account, downloading the
+	 * coupon list only when it changed since the account's last run.
+	 * @param account the account the session belongs to; {@code null} for the configured
+	 * account
+	 * @param sessionCookies authentication cookies from browser session
+	 * @param userAgent the user agent of the browser
+	 * @param language the language of the browser
+	 * @param sessionRecovery logs the account in again if the session is rejected
+	 * mid-batch
+	 * @return a {@link CouponActivationResult} containing activation statistics and
+	 * coupon details
+	 */
+	@Override
+	public CouponActivationResult activateAllAvailableCoupons(final Account account,
+			final List<SessionCookie> sessionCookies, String userAgent, String language,
+			final SessionRecovery sessionRecovery) {
 		if (sessionCookies == null || sessionCookies.isEmpty()) {
 			log.warn("No session cookies provided for coupon activation");
 			return new CouponActivationResult(0, 0, List.of());
@@ -92,51 +227,164 @@ public final class CumulusCouponService extends AbstractCouponService {
 			log.info("Starting coupon activation process with {} session cookies", sessionCookies.size());
 		}
 
+		var liveCookies = new LiveCookies(sessionCookies);
+		return activateAllAvailableCoupons(account, liveCookies, userAgent, language, sessionRecovery)
+			.withRenewedCookies(liveCookies.renewed().orElse(null));
+	}
+
+	private CouponActivationResult activateAllAvailableCoupons(final Account account, final LiveCookies liveCookies,
+			String userAgent, String language, final SessionRecovery sessionRecovery) {
 		try {
-			var filteredCookies = filterDomainSpecificCookies(sessionCookies, AUTHENTICATION_DOMAIN);
-			if (filteredCookies.isEmpty()) {
+			if (liveCookies.forRequest(AUTHENTICATION_DOMAIN, URI.create(configuration.urls().couponsEndpoint()))
+				.isEmpty()) {
 				log.warn("No domain-specific cookies found for authentication domain: {}", AUTHENTICATION_DOMAIN);
 				return new CouponActivationResult(0, 0, List.of());
 			}
 
-			var availableCoupons = fetchAvailableCoupons(filteredCookies, userAgent, language);
-			return processCouponActivations(availableCoupons, filteredCookies, userAgent, language);
+			String accountKey = accountKey(account);
+			var run = runJournal.begin(AccountRegistry.MIGROS, accountKey);
+			run.record(RunStage.AUTHENTICATE);
+			var availableCoupons = fetchAvailableCoupons(accountKey, liveCookies, userAgent, language);
+			run.record(RunStage.FETCH);
+			// Skip coupons an interrupted run already activated, even if the list
+			// does not show them as activated yet.
+			var resumedActivations = run.completed(RunStage.ACTIVATE);
+			if (resumedActivations.isPresent()) {
+				availableCoupons = withActivated(availableCoupons, resumedActivations.get());
+			}
+			var snapshot = snapshotOf(availableCoupons);
+			var previousSnapshot = couponSnapshotStore.load(AccountRegistry.MIGROS, accountKey);
+			var couponSetDiff = previousSnapshot.map(previous -> previous.diff(snapshot)).orElse(CouponSetDiff.NONE);
+			if (previousSnapshot.isPresent() && couponSetDiff.isEmpty()
+					&& availableCoupons.stream().allMatch(CouponInfo::activated)) {
+				log.info("Coupon set unchanged since the last run and every coupon is activated; nothing to do");
+				run.record(RunStage.VERIFY);
+				run.complete();
+				return new CouponActivationResult(0, 0, List.of());
+			}
+
+			var result = processCouponActivations(run, account, availableCoupons, liveCookies, userAgent, language,
+					sessionRecovery);
+			run.record(RunStage.VERIFY);
+			run.complete();
+			var activatedIds = result.details()
+				.stream()
+				.filter(CouponDetail::success)
+				.map(CouponDetail::couponId)
+				.toList();
+			var finalSnapshot = snapshot.withStatus(activatedIds, ACTIVATED);
+			if (previousSnapshot.filter(finalSnapshot::equals).isEmpty()) {
+				couponSnapshotStore.save(AccountRegistry.MIGROS, accountKey, finalSnapshot);
+			}
+			return result.withCouponSetDiff(couponSetDiff);
 		}
 		catch (Exception exception) {
 			log.error("Coupon activation process failed unexpectedly: {}", exception.getMessage(), exception);
 			return new CouponActivationResult(0, 1, List
-				.of(new CouponDetail("System Error", "unknown", false, "Process failed: " + exception.getMessage())));
+				.of(new CouponDetail("System Error", "unknown", false, "Process failed: " + exception.getMessage())),
+					isSessionRejection(exception));
 		}
 	}
 
-	private List<CouponInfo> fetchAvailableCoupons(final List<SessionCookie> sessionCookies, String userAgent,
+	/**
+	 * Returns the authentication domain, the host the session cookies are sent to.
+	 * @return {@code account.migros.ch}
+	 */
+	@Override
+	public String sessionHost() {
+		return AUTHENTICATION_DOMAIN;
+	}
+
+	/**
+	 * Probes whether the Cumulus API still accepts the given session. The response body
+	 * is discarded; only the status and content type are inspected.
+	 * @param sessionCookies cookies of the session to probe
+	 * @param userAgent the user agent of the browser
+	 * @param language the language of the browser
+	 * @return the verdict together with the probe latency
+	 */
+	@Override
+	public SessionProbeResult probeSession(final List<SessionCookie> sessionCookies, String userAgent,
 			String language) {
+		var filteredCookies = filterRequestCookies(sessionCookies, AUTHENTICATION_DOMAIN,
+				configuration.urls().couponsEndpoint());
+		if (filteredCookies.value(CSRF_COOKIE_NAME).isEmpty()) {
+			return new SessionProbeResult(SessionValidity.EXPIRED,
+					"CSRF token '%s' not found in session cookies".formatted(CSRF_COOKIE_NAME), 0L);
+		}
+
+		return runSessionProbe(() -> {
+			var response = this.apiClient.get()
+				.uri(configuration.urls().couponsEndpoint())
+				.accept(APPLICATION_JSON)
+				.header(HttpHeaders.USER_AGENT, userAgent)
+				.header(HttpHeaders.ACCEPT_LANGUAGE, language)
+				.header(COOKIE, buildCookieHeader(filteredCookies))
+				.header(REFERER, this.configuration.urls().couponsReferer())
+				.header(CSRF_TOKEN_HEADER, extractCsrfToken(filteredCookies))
+				.retrieve()
+				.toBodilessEntity();
+
+			MediaType contentType = response.getHeaders().getContentType();
+			if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
+				throw new SessionRejectedException("Coupons endpoint returned HTML instead of JSON");
+			}
+		});
+	}
+
+	private static String accountKey(Account account) {
+		return (account == null) ? "" : account.email().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Fetches the coupon list, conditional on the one cached for the account; on
+	 * {@code 304 Not Modified} the cached list is used as is.
+	 */
+	private List<CouponInfo> fetchAvailableCoupons(final String accountKey, final LiveCookies liveCookies,
+			String userAgent, String language) {
+		String couponsEndpoint = configuration.urls().couponsEndpoint();
+		var sessionCookies = liveCookies.forRequest(AUTHENTICATION_DOMAIN, URI.create(couponsEndpoint));
 		String cookieHeader = buildCookieHeader(sessionCookies);
+		var cached = catalogueCache.get(accountKey, couponsEndpoint);
 
 		try {
 			log.debug("Fetching available coupons from API");
+			long startNanos = System.nanoTime();
 
-			CouponsResponse apiResponse = this.apiClient.get()
-				.uri(configuration.urls().couponsEndpoint())
+			List<CouponInfo> coupons = this.apiClient.get()
+				.uri(couponsEndpoint)
 				.accept(APPLICATION_JSON)
 				.header(HttpHeaders.USER_AGENT, userAgent)
 				.header(HttpHeaders.ACCEPT_LANGUAGE, language)
 				.header(COOKIE, cookieHeader)
 				.header(REFERER, this.configuration.urls().couponsReferer())
 				.header(CSRF_TOKEN_HEADER, extractCsrfToken(sessionCookies))
-				.retrieve()
-				.body(CouponsResponse.class);
-
-			if (apiResponse == null) {
-				return List.of();
-			}
-
-			return Stream.of(apiResponse.available(), apiResponse.activated())
-				.filter(Objects::nonNull)
-				.flatMap(List::stream)
-				.filter(Objects::nonNull)
-				.map(this::mapToCouponInfo)
-				.toList();
+				.attribute(CatalogueCache.Validators.ATTRIBUTE,
+						cached.map(CatalogueCache.Entry::validators).orElse(CatalogueCache.Validators.NONE))
+				.attribute(LiveCookies.ATTRIBUTE, liveCookies)
+				.exchange((request, response) -> {
+					if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+						log.info("Coupon list unchanged since the last fetch; using the cached one");
+						return cached.map(CatalogueCache.Entry::catalogue)
+							.orElseThrow(() -> new CouponBoosterException(
+									"Coupon list reported unchanged, but none is cached"));
+					}
+					if (response.getStatusCode().isError()) {
+						// Same exceptions as retrieve(), so a rejected session is still
+						// recognised.
+						new DefaultResponseErrorHandler().handleError(request.getURI(), request.getMethod(), response);
+					}
+					MediaType contentType = response.getHeaders().getContentType();
+					if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
+						throw new SessionRejectedException("Coupons endpoint returned HTML instead of JSON");
+					}
+					var couponList = couponListReader.read(response.getBody());
+					catalogueCache.put(accountKey, couponsEndpoint, response.getHeaders(), couponList);
+					return couponList;
+				});
+			metrics.recordCatalogueFetch(AccountRegistry.MIGROS, accountKey,
+					Duration.ofNanos(System.nanoTime() - startNanos), coupons.size());
+			return coupons;
 		}
 		catch (Exception exception) {
 			log.error("Failed to fetch coupons from API: {}", exception.getMessage(), exception);
@@ -144,16 +392,27 @@ public final class CumulusCouponService extends AbstractCouponService {
 		}
 	}
 
-	private CouponInfo mapToCouponInfo(RawCoupon rawCoupon) {
-		String description = rawCoupon.subtitle != null ? rawCoupon.subtitle : rawCoupon.disclaimer;
-		boolean isActivated = "ACTIVATED".equalsIgnoreCase(rawCoupon.status);
-		return new CouponInfo(rawCoupon.id, rawCoupon.name, description, rawCoupon.validTo, isActivated);
+	private static List<CouponInfo> withActivated(List<CouponInfo> coupons, List<String> activatedIds) {
+		var activated = Set.copyOf(activatedIds);
+		return coupons.stream()
+			.map(coupon -> !coupon.activated() && activated.contains(coupon.id())
+					? new CouponInfo(coupon.id(), coupon.name(), coupon.description(), coupon.validUntil(), true)
+					: coupon)
+			.toList();
 	}
 
-	private CouponActivationResult processCouponActivations(final List<CouponInfo> allCoupons,
-			final List<SessionCookie> sessionCookies, String userAgent, String language) {
+	private static CouponSnapshot snapshotOf(List<CouponInfo> coupons) {
+		Map<String, String> statuses = new HashMap<>();
+		coupons.forEach(coupon -> statuses.put(coupon.id(), coupon.activated() ? ACTIVATED : AVAILABLE));
+		return CouponSnapshot.of(statuses);
+	}
+
+	private CouponActivationResult processCouponActivations(final RunCheckpoint run, final Account account,
+			final List<CouponInfo> allCoupons, final LiveCookies liveCookies, String userAgent, String language,
+			final SessionRecovery sessionRecovery) {
 
 		var inactiveCoupons = allCoupons.stream().filter(coupon -> !coupon.activated()).toList();
+		run.record(RunStage.PLAN, inactiveCoupons.stream().map(CouponInfo::id).toList());
 
 		int alreadyActivatedCount = allCoupons.size() - inactiveCoupons.size();
 
@@ -167,106 +426,260 @@ public final class CumulusCouponService extends AbstractCouponService {
 			return new CouponActivationResult(0, 0, List.of());
 		}
 
-		String cookieHeader = buildCookieHeader(sessionCookies);
-		String csrfToken = extractCsrfToken(sessionCookies);
-
-		var activationResults = inactiveCoupons.stream().map(coupon -> {
-			CouponDetail result = activateSingleCoupon(coupon.id(), cookieHeader, csrfToken, userAgent, language);
-			applyInterRequestDelay();
-			return result;
-		}).toList();
+		String accountKey = accountKey(account);
+		var session = new ActivationSession(liveCookies, userAgent, language);
+		var attempts = new ArrayList<>(activateConcurrently(run, accountKey, inactiveCoupons, session));
+
+		var interrupted = indicesOfRejected(attempts);
+		if (!interrupted.isEmpty()) {
+			var recoveredSession = recoverSession(sessionRecovery);
+			if (recoveredSession.isPresent()) {
+				// The new login is stored by the authentication service; the cookies of
+				// the rejected session are not worth keeping.
+				liveCookies.supersede();
+				log.info("Resuming with the {} coupons not yet activated", interrupted.size());
+				var resumed = activateConcurrently(run, accountKey,
+						interrupted.stream().map(inactiveCoupons::get).toList(), recoveredSession.get());
+				for (int i = 0; i < interrupted.size(); i++) {
+					attempts.set(interrupted.get(i), resumed.get(i));
+				}
+			}
+		}
 
+		var activationResults = attempts.stream().map(Attempt::detail).toList();
 		int successfulActivations = (int) activationResults.stream().filter(CouponDetail::success).count();
 		int failedActivations = activationResults.size() - successfulActivations;
+		int rejectedActivations = (int) attempts.stream().filter(Attempt::sessionRejected).count();
 
 		logActivationSummary(successfulActivations, failedActivations, activationResults.size());
+		metrics.recordCoupons(AccountRegistry.MIGROS, accountKey, CouponMetrics.SUCCESS, successfulActivations);
+		metrics.recordCoupons(AccountRegistry.MIGROS, accountKey, CouponMetrics.FAILURE,
+				failedActivations - rejectedActivations);
+		metrics.recordCoupons(AccountRegistry.MIGROS, accountKey, CouponMetrics.REJECTED, rejectedActivations);
 
-		return new CouponActivationResult(successfulActivations, failedActivations, activationResults);
+		return new CouponActivationResult(successfulActivations, failedActivations, activationResults,
+				attempts.stream().anyMatch(Attempt::sessionRejected));
 	}
 
-	private CouponDetail activateSingleCoupon(final String couponId, final String cookieHeader, final String csrfToken,
-			String userAgent, String language) {
+	private static List<Integer> indicesOfRejected(final List<Attempt> attempts) {
+		var indices = new ArrayList<Integer>();
+		for (int i = 0; i < attempts.size(); i++) {
+			if (attempts.get(i).sessionRejected()) {
+				indices.add(i);
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Logs in again after the session was rejected mid-batch.
+	 * @return the new session, or empty if the login failed
+	 */
+	private Optional<ActivationSession> recoverSession(final SessionRecovery sessionRecovery) {
+		log.warn("Session rejected during coupon activation; logging in again once");
+		try {
+			var authenticationResult = sessionRecovery.recover();
+			if (!authenticationResult.isSuccessful()) {
+				log.error("Re-authentication failed: {}", authenticationResult.statusMessage());
+				return Optional.empty();
+			}
+			return Optional.of(new ActivationSession(new LiveCookies(authenticationResult.sessionCookies()),
+					authenticationResult.userAgent(), authenticationResult.browserLanguage()));
+		}
+		catch (RuntimeException ex) {
+			log.error("Re-authentication failed: {}", ex.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Logs in again directly, for callers that do not supply a {@link SessionRecovery}. A
+	 * remembered session is discarded first, so the login goes through the sidecar
+	 * instead of handing back the session that was just rejected.
+	 */
+	private AuthenticationResult loginAgain(final Account account) {
+		var authentication = authenticationService.getIfAvailable();
+		if (authentication == null) {
+			return AuthenticationResult.failed("No authentication service to recover the session with", 0);
+		}
+		if (account == null) {
+			authentication.invalidateSession();
+			return authentication.performAuthentication();
+		}
+		authentication.invalidateSession(account);
+		return authentication.performAuthentication(account);
+	}
+
+	private Attempt activateSingleCoupon(final String couponId, final ActivationSession session) {
 		try {
 			if (couponId == null || couponId.isBlank()) {
 				log.warn("Skipping activation - coupon ID is null or empty");
-				return new CouponDetail("Coupon", couponId, false, "Invalid coupon ID");
+				return Attempt.of(new CouponDetail("Coupon", couponId, false, "Invalid coupon ID"));
 			}
 
 			log.debug("Attempting to activate coupon: {}", couponId);
 
+			var sessionCookies = session.cookies()
+				.forRequest(AUTHENTICATION_DOMAIN, URI.create(configuration.urls().activationEndpoint()));
 			var activationRequest = this.apiClient.post()
 				.uri(configuration.urls().activationEndpoint())
-				.header(HttpHeaders.USER_AGENT, userAgent)
-				.header(HttpHeaders.ACCEPT_LANGUAGE, language)
+				.header(HttpHeaders.USER_AGENT, session.userAgent())
+				.header(HttpHeaders.ACCEPT_LANGUAGE, session.language())
 				.header(ACCEPT, APPLICATION_JSON_VALUE)
 				.header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
-				.header(COOKIE, cookieHeader)
+				.header(COOKIE, buildCookieHeader(sessionCookies))
 				.header(REFERER, this.configuration.urls().couponsEndpoint())
-				.header(MigrosConstants.HttpHeaders.CSRF_TOKEN_HEADER, csrfToken);
+				.header(MigrosConstants.HttpHeaders.CSRF_TOKEN_HEADER, extractCsrfToken(sessionCookies))
+				.attribute(LiveCookies.ATTRIBUTE, session.cookies());
 
 			var apiResponse = activationRequest.body(Map.of("id", couponId)).retrieve().toEntity(String.class);
 
+			MediaType contentType = apiResponse.getHeaders().getContentType();
+			if (contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)) {
+				log.warn("Activation of coupon {} answered with an HTML page instead of JSON", couponId);
+				return Attempt.rejected(couponId, "Session challenged: received HTML instead of JSON");
+			}
 			if (apiResponse.getStatusCode().is2xxSuccessful()) {
 				log.debug("Coupon activation successful: {}", couponId);
-				return new CouponDetail("Coupon", couponId, true, "Activation completed successfully");
+				return Attempt.of(new CouponDetail("Coupon", couponId, true, "Activation completed successfully"));
 			}
 			else {
 				log.warn("Coupon activation failed for {}: HTTP status {}", couponId,
 						apiResponse.getStatusCode().value());
-				return new CouponDetail("Coupon", couponId, false, "HTTP " + apiResponse.getStatusCode().value());
+				return Attempt
+					.of(new CouponDetail("Coupon", couponId, false, "HTTP " + apiResponse.getStatusCode().value()));
 			}
 		}
 		catch (HttpClientErrorException exception) {
 			log.warn("Failed to activate coupon {}: HTTP {} - {}", couponId, exception.getStatusCode().value(),
 					exception.getMessage());
-			return new CouponDetail("Coupon", couponId, false, exception.getMessage());
+			return isSessionRejection(exception) ? Attempt.rejected(couponId, exception.getMessage())
+					: Attempt.of(new CouponDetail("Coupon", couponId, false, exception.getMessage()));
 		}
 		catch (RestClientException exception) {
 			// Catch transport, server-side and unknown content-type errors so a single
 			// bad coupon never aborts the rest of the batch.
 			log.warn("Activation request failed for coupon {}: {}", couponId, exception.getMessage());
-			return new CouponDetail("Coupon", couponId, false, exception.getMessage());
+			return Attempt.of(new CouponDetail("Coupon", couponId, false, exception.getMessage()));
 		}
 		catch (RuntimeException exception) {
 			log.warn("Unexpected error activating coupon {}: {}", couponId, exception.getMessage());
-			return new CouponDetail("Coupon", couponId, false, exception.getMessage());
+			return Attempt.of(new CouponDetail("Coupon", couponId, false, exception.getMessage()));
 		}
 	}
 
-	private void applyInterRequestDelay() {
-		Duration delay = configuration.api().requestDelay();
-		if (delay.isZero() || delay.isNegative()) {
-			return;
+	/**
+	 * Activates the coupons on virtual threads, at most {@code maxConcurrentActivations}
+	 * at a time. The requests are paced by the adaptive rate control of the Cumulus host
+	 * and, if configured, by the shared token bucket as a ceiling. The results keep the
+	 * order of the given coupons.
+	 * <p>
+	 * Once the session is rejected, activations that have not started yet are not sent;
+	 * they are reported as rejected, so the caller can resume them with a new session.
+	 * Every successful activation is journalled as soon as it is confirmed.
+	 */
+	private List<Attempt> activateConcurrently(final RunCheckpoint run, final String accountKey,
+			final List<CouponInfo> coupons, final ActivationSession session) {
+		var rateLimiter = activationRateLimiter();
+		var bulkhead = new Bulkhead(configuration.api().maxConcurrentActivations());
+		var sessionRejected = new AtomicBoolean();
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Attempt>> activations = coupons.stream()
+				.map(coupon -> executor.submit(() -> bulkhead.call(() -> {
+					if (sessionRejected.get()) {
+						return Attempt.rejected(coupon.id(), "Not attempted: session rejected");
+					}
+					rateLimiter.acquire();
+					long startNanos = System.nanoTime();
+					var attempt = activateSingleCoupon(coupon.id(), session);
+					metrics.recordActivationRequest(AccountRegistry.MIGROS, accountKey, attempt.outcome(),
+							Duration.ofNanos(System.nanoTime() - startNanos));
+					if (attempt.sessionRejected()) {
+						sessionRejected.set(true);
+					}
+					else if (attempt.detail().success()) {
+						run.record(RunStage.ACTIVATE, List.of(coupon.id()));
+					}
+					return attempt;
+				})))
+				.toList();
+
+			var results = new ArrayList<Attempt>(activations.size());
+			for (int i = 0; i < activations.size(); i++) {
+				results.add(awaitActivation(activations.get(i), coupons.get(i).id()));
+			}
+			return results;
 		}
+	}
+
+	private static Attempt awaitActivation(final Future<Attempt> activation, final String couponId) {
 		try {
-			Thread.sleep(delay.toMillis());
+			return activation.get();
+		}
+		catch (ExecutionException ex) {
+			log.warn("Activation of coupon {} did not run: {}", couponId, ex.getCause().getMessage());
+			return Attempt.of(new CouponDetail("Coupon", couponId, false, ex.getCause().getMessage()));
 		}
-		catch (InterruptedException ie) {
+		catch (InterruptedException ex) {
 			Thread.currentThread().interrupt();
-			log.debug("Inter-request delay interrupted");
+			throw new CouponBoosterException("Interrupted while waiting for coupon activations", ex);
 		}
 	}
 
-	private String extractCsrfToken(final List<SessionCookie> sessionCookies) {
-		return sessionCookies.stream()
-			.filter(cookie -> CSRF_COOKIE_NAME.equals(cookie.name()))
-			.map(SessionCookie::value)
-			.filter(value -> value != null && !value.isBlank())
-			.findFirst()
+	private TokenBucket activationRateLimiter() {
+		var rateLimiter = this.rateLimiter;
+		if (rateLimiter == null) {
+			synchronized (this) {
+				rateLimiter = this.rateLimiter;
+				if (rateLimiter == null) {
+					var api = configuration.api();
+					rateLimiter = api.requestsPerSecond() > 0 ? new TokenBucket(api.requestsPerSecond(), api.burst())
+							: TokenBucket.UNLIMITED;
+					this.rateLimiter = rateLimiter;
+				}
+			}
+		}
+		return rateLimiter;
+	}
+
+	private String extractCsrfToken(final CookieJar sessionCookies) {
+		return sessionCookies.value(CSRF_COOKIE_NAME)
 			.orElseThrow(() -> new CouponBoosterException(
 					"CSRF token '%s' not found or empty in session cookies".formatted(CSRF_COOKIE_NAME)));
 	}
 
-	@JsonIgnoreProperties(ignoreUnknown = true)
-	private record RawCoupon(@JsonProperty("id") String id, @JsonProperty("name") String name,
-			@JsonProperty("subtitle") String subtitle, @JsonProperty("disclaimer") String disclaimer,
-			@JsonProperty("validTo") String validTo, @JsonProperty("status") String status) {
+	/**
+	 * The credentials every activation request of a batch is sent with; replaced when the
+	 * session is recovered mid-batch. Each request reads the cookie header and CSRF token
+	 * from the live cookies, so a token the retailer rotated is picked up by the next
+	 * one.
+	 */
+	private record ActivationSession(LiveCookies cookies, String userAgent, String language) {
 	}
 
-	@JsonIgnoreProperties(ignoreUnknown = true)
-	private record CouponsResponse(@JsonProperty("available") List<RawCoupon> available,
-			@JsonProperty("activated") List<RawCoupon> activated, @JsonProperty("preview") List<RawCoupon> preview,
-			@JsonProperty("redeemed") List<RawCoupon> redeemed, @JsonProperty("partner") List<RawCoupon> partner) {
+	/**
+	 * The outcome of one activation; {@code sessionRejected} marks a coupon whose
+	 * activation failed, or was never sent, because the retailer no longer accepted the
+	 * session.
+	 */
+	private record Attempt(CouponDetail detail, boolean sessionRejected) {
+
+		static Attempt of(CouponDetail detail) {
+			return new Attempt(detail, false);
+		}
+
+		static Attempt rejected(String couponId, String message) {
+			return new Attempt(new CouponDetail("Coupon", couponId, false, message), true);
+		}
+
+		String outcome() {
+			if (sessionRejected) {
+				return CouponMetrics.REJECTED;
+			}
+			return detail.success() ? CouponMetrics.SUCCESS : CouponMetrics.FAILURE;
+		}
+
 	}
 
 }
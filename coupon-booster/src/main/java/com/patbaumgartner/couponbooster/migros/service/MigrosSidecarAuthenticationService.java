@@ -2,8 +2,11 @@ package com.patbaumgartner.couponbooster.migros.service;
 
 import com.patbaumgartner.couponbooster.migros.properties.MigrosPatchrightProperties;
 import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.service.AbstractSidecarAuthenticationService;
 import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.session.SessionStore;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
@@ -27,18 +30,24 @@ public class MigrosSidecarAuthenticationService extends AbstractSidecarAuthentic
 	/**
 	 * Constructs a new {@code MigrosSidecarAuthenticationService}.
 	 * @param userCredentials Migros account credentials
-	 * @param patchrightProperties configuration for the sidecar endpoint
+	 * @param patchrightProperties configuration for the sidecar endpoints
 	 * @param restClientBuilder Spring REST client builder
+	 * @param httpClientProfiles provides the sidecar HTTP client profile
 	 * @param objectMapper Jackson object mapper
+	 * @param sessionStore remembers successful logins between runs
+	 * @param sessionProbe checks whether a remembered session is still accepted
+	 * @param metrics records the login latency
 	 */
 	public MigrosSidecarAuthenticationService(MigrosUserProperties userCredentials,
 			MigrosPatchrightProperties patchrightProperties, RestClient.Builder restClientBuilder,
-			ObjectMapper objectMapper) {
+			HttpClientProfiles httpClientProfiles, ObjectMapper objectMapper, SessionStore sessionStore,
+			CumulusCouponService sessionProbe, CouponMetrics metrics) {
 		super(Objects.requireNonNull(userCredentials, "User credentials cannot be null")::email,
 				userCredentials::password,
-				"Migros credentials missing. Configure MIGROS_USER_EMAIL and MIGROS_USER_PASSWORD.", "/login/migros",
-				Objects.requireNonNull(patchrightProperties, "Patchright properties cannot be null").url(),
-				restClientBuilder, objectMapper);
+				"Migros credentials missing. Configure MIGROS_USER_EMAIL and MIGROS_USER_PASSWORD.", "migros",
+				"/login/migros",
+				Objects.requireNonNull(patchrightProperties, "Patchright properties cannot be null").urls(),
+				restClientBuilder, httpClientProfiles, objectMapper, sessionStore, sessionProbe, metrics);
 	}
 
 }
@@ -0,0 +1,52 @@
+package com.patbaumgartner.couponbooster.model;
+
+import java.util.Objects;
+
+/**
+ * A retailer account whose coupons are activated.
+ * <p>
+ * Credentials never appear in {@link #toString()}; logs and run summaries identify an
+ * account by its {@link #label() masked e-mail address}.
+ *
+ * @param provider provider key the account belongs to (e.g. {@code coop}), never
+ * {@code null}
+ * @param email the e-mail address the account logs in with, normalised to {@code ""} when
+ * absent
+ * @param password the account password, normalised to {@code ""} when absent
+ */
+public record Account(String provider, String email, String password) {
+
+	public Account {
+		Objects.requireNonNull(provider, "provider cannot be null");
+		email = (email == null) ? "" : email;
+		password = (password == null) ? "" : password;
+	}
+
+	/**
+	 * Tells whether both credentials are present.
+	 * @return {@code true} if neither e-mail nor password is blank
+	 */
+	public boolean hasCredentials() {
+		return !email.isBlank() && !password.isBlank();
+	}
+
+	/**
+	 * Returns the e-mail address with the local part masked, e.g.
+	 * {@code j***@example.com}, so outcomes can be told apart without exposing the
+	 * address.
+	 * @return the masked e-mail address, or {@code "<unconfigured>"} without one
+	 */
+	public String label() {
+		if (email.isBlank()) {
+			return "<unconfigured>";
+		}
+		int at = email.indexOf('@');
+		return (at <= 0) ? email.charAt(0) + "***" : email.charAt(0) + "***" + email.substring(at);
+	}
+
+	@Override
+	public String toString() {
+		return "Account[provider=%s, email=%s]".formatted(provider, label());
+	}
+
+}
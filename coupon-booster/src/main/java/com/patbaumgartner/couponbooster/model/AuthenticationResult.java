@@ -2,18 +2,28 @@ package com.patbaumgartner.couponbooster.model;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Immutable value object that carries the outcome of an authentication attempt.
  * <p>
- * Use the static factory methods {@link #successful} and {@link #failed} rather than
- * calling the canonical constructor directly.
+ * Use the static factory methods {@link #successful}, {@link #restored} and
+ * {@link #failed} rather than calling the canonical constructor directly.
+ * <p>
+ * {@code restored} marks a session that was read back from the
+ * {@link com.patbaumgartner.couponbooster.session.SessionStore} instead of being obtained
+ * from a fresh sidecar login. The retailer may have revoked it since, so callers that see
+ * the session rejected should invalidate it and log in again.
+ * <p>
+ * The cookies are held in a {@link CookieJar}, built once per login or restore and shared
+ * by every request of the run.
  */
-public record AuthenticationResult(boolean isSuccessful, String statusMessage, List<SessionCookie> sessionCookies,
-		Instant completionTimestamp, long executionDurationMs, String userAgent, String browserLanguage) {
+public record AuthenticationResult(boolean isSuccessful, String statusMessage, CookieJar sessionCookies,
+		Instant completionTimestamp, long executionDurationMs, String userAgent, String browserLanguage,
+		boolean restored) {
 
 	public AuthenticationResult {
-		sessionCookies = sessionCookies == null ? List.of() : List.copyOf(sessionCookies);
+		sessionCookies = CookieJar.of(sessionCookies);
 	}
 
 	/**
@@ -26,8 +36,48 @@ public record AuthenticationResult(boolean isSuccessful, String statusMessage, L
 	 */
 	public static AuthenticationResult successful(List<SessionCookie> retrievedCookies, long executionTimeMs,
 			String userAgent, String browserLanguage) {
-		return new AuthenticationResult(true, "Authentication completed successfully", retrievedCookies, Instant.now(),
-				executionTimeMs, userAgent, browserLanguage);
+		return new AuthenticationResult(true, "Authentication completed successfully", CookieJar.of(retrievedCookies),
+				Instant.now(), executionTimeMs, userAgent, browserLanguage, false);
+	}
+
+	/**
+	 * Creates a successful result for a session restored from the session store.
+	 * @param storedCookies the session cookies persisted after the original login
+	 * @param authenticatedAt when the original sidecar login completed
+	 * @param lookupTimeMs time spent restoring the session, in milliseconds
+	 * @param userAgent the browser user-agent string the session was created with
+	 * @param browserLanguage the browser language the session was created with
+	 * @return a new successful {@code AuthenticationResult} flagged as restored
+	 */
+	public static AuthenticationResult restored(List<SessionCookie> storedCookies, Instant authenticatedAt,
+			long lookupTimeMs, String userAgent, String browserLanguage) {
+		return new AuthenticationResult(true, "Session restored from session store", CookieJar.of(storedCookies),
+				authenticatedAt, lookupTimeMs, userAgent, browserLanguage, true);
+	}
+
+	/**
+	 * Returns a copy of this result with the cookies the retailer renewed during a run.
+	 * The session counts as authenticated at the time of the renewal, since the retailer
+	 * has just accepted it.
+	 * @param renewedCookies the session cookies after the renewal
+	 * @param renewedAt when the run that received them ended
+	 * @return the renewed copy
+	 */
+	public AuthenticationResult withRenewedCookies(CookieJar renewedCookies, Instant renewedAt) {
+		return new AuthenticationResult(isSuccessful, statusMessage, renewedCookies, renewedAt, executionDurationMs,
+				userAgent, browserLanguage, restored);
+	}
+
+	/**
+	 * Returns when the first of the cookies sent to a host expires. Until then the
+	 * session's cookies are complete; a cache holding the session should not keep it
+	 * longer.
+	 * @param host the host the session is used with, e.g. {@code account.migros.ch}
+	 * @return the earliest expiry of the host's cookies; empty if they all last as long
+	 * as the browser session
+	 */
+	public Optional<Instant> earliestExpiry(String host) {
+		return sessionCookies.forHost(host).earliestExpiry();
 	}
 
 	/**
@@ -37,7 +87,8 @@ public record AuthenticationResult(boolean isSuccessful, String statusMessage, L
 	 * @return a new failed {@code AuthenticationResult} with an empty cookie list
 	 */
 	public static AuthenticationResult failed(String errorMessage, long executionTimeMs) {
-		return new AuthenticationResult(false, errorMessage, List.of(), Instant.now(), executionTimeMs, null, null);
+		return new AuthenticationResult(false, errorMessage, CookieJar.EMPTY, Instant.now(), executionTimeMs, null,
+				null, false);
 	}
 
 }
@@ -0,0 +1,287 @@
+package com.patbaumgartner.couponbooster.model;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable, indexed list of {@link SessionCookie}s.
+ * <p>
+ * The sidecar returns one flat list of cookies for both retailers, and every request used
+ * to scan it again: domain-match each cookie against the target host, join the
+ * {@code Cookie} header, look up the CSRF token. A jar does that work once, when it is
+ * built:
+ * <ul>
+ * <li>cookies are indexed by their normalised domain, so the cookies of a host are found
+ * by looking up the host's label suffixes ({@code www.supercard.ch},
+ * {@code supercard.ch}, {@code ch}) rather than by testing every cookie;</li>
+ * <li>the {@code Cookie} header of the jar is joined once;</li>
+ * <li>values are indexed by cookie name.</li>
+ * </ul>
+ * {@link #forHost(String)} returns the cookies of a host as a jar of their own, built on
+ * first use and kept, so repeated requests to the same host reuse its header.
+ * {@link #forRequest(String, URI, Instant)} narrows that jar further by path,
+ * {@code Secure} flag and expiry; as long as no cookie is restricted to a path, secure or
+ * expired, that is the host jar itself.
+ * <p>
+ * Host matching is {@link SessionCookie#matchesHost(String)}; cookies keep the order they
+ * were added in. A jar is a read-only {@link List}, so it can be passed wherever a list
+ * of cookies is expected, and {@link #of(Collection)} returns a jar unchanged.
+ */
+public final class CookieJar extends AbstractList<SessionCookie> implements RandomAccess {
+
+	/** A jar without cookies. */
+	public static final CookieJar EMPTY = new CookieJar(List.of());
+
+	private final List<SessionCookie> cookies;
+
+	private final Map<String, int[]> indicesByDomain;
+
+	private final Map<String, String> valuesByName;
+
+	private final String header;
+
+	private final Instant earliestExpiry;
+
+	private final boolean pathRestricted;
+
+	private final boolean secureOnly;
+
+	private final Map<String, CookieJar> hostJars = new ConcurrentHashMap<>();
+
+	private CookieJar(List<SessionCookie> cookies) {
+		this.cookies = cookies;
+		this.indicesByDomain = indexByDomain(cookies);
+		Map<String, String> values = new HashMap<>();
+		for (SessionCookie cookie : cookies) {
+			if (!cookie.value().isBlank()) {
+				values.putIfAbsent(cookie.name(), cookie.value());
+			}
+		}
+		this.valuesByName = Map.copyOf(values);
+		this.header = cookies.stream()
+			.map(cookie -> cookie.name() + "=" + cookie.value())
+			.collect(Collectors.joining("; "));
+		Instant earliest = null;
+		boolean anyPath = false;
+		boolean anySecure = false;
+		for (SessionCookie cookie : cookies) {
+			if (cookie.expires() != null && (earliest == null || cookie.expires().isBefore(earliest))) {
+				earliest = cookie.expires();
+			}
+			anyPath |= !cookie.matchesPath("/");
+			anySecure |= cookie.secure();
+		}
+		this.earliestExpiry = earliest;
+		this.pathRestricted = anyPath;
+		this.secureOnly = anySecure;
+	}
+
+	/**
+	 * Returns a jar of the given cookies.
+	 * @param cookies the cookies, in the order they should be sent; may be {@code null}
+	 * @return {@code cookies} itself if it is a jar, {@link #EMPTY} for {@code null} or
+	 * no cookies, otherwise a new jar
+	 */
+	public static CookieJar of(Collection<SessionCookie> cookies) {
+		if (cookies instanceof CookieJar jar) {
+			return jar;
+		}
+		if (cookies == null || cookies.isEmpty()) {
+			return EMPTY;
+		}
+		return new CookieJar(List.copyOf(cookies));
+	}
+
+	/**
+	 * Returns the cookies that may be sent to {@code host}.
+	 * @param host the target host, e.g. {@code www.supercard.ch}
+	 * @return a jar of the cookies for {@code host}, in the order of this jar
+	 * @see SessionCookie#matchesHost(String)
+	 */
+	public CookieJar forHost(String host) {
+		if (host == null || host.isBlank() || cookies.isEmpty()) {
+			return EMPTY;
+		}
+		return hostJars.computeIfAbsent(host, this::collectForHost);
+	}
+
+	/**
+	 * Returns the cookies that may be sent with a request: those of the host whose path
+	 * matches the request path, that are not {@code Secure} unless the request is sent
+	 * over HTTPS, and that have not expired. Cookies restricted to a longer path come
+	 * first.
+	 * @param host the host whose cookies are sent, e.g. {@code account.migros.ch}
+	 * @param requestUri the URI of the request, for its path and scheme
+	 * @param now the current time
+	 * @return a jar of the cookies for the request
+	 * @see SessionCookie#matchesPath(String)
+	 * @see SessionCookie#isExpiredAt(Instant)
+	 */
+	public CookieJar forRequest(String host, URI requestUri, Instant now) {
+		var hostJar = forHost(host);
+		String scheme = requestUri.getScheme();
+		boolean secureChannel = scheme != null && "https".equals(SessionCookie.toAsciiLowerCase(scheme));
+		if (!hostJar.pathRestricted && (secureChannel || !hostJar.secureOnly)
+				&& (hostJar.earliestExpiry == null || hostJar.earliestExpiry.isAfter(now))) {
+			return hostJar;
+		}
+		String path = requestUri.getRawPath();
+		List<SessionCookie> requestCookies = new ArrayList<>(hostJar.size());
+		for (SessionCookie cookie : hostJar.cookies) {
+			if (cookie.matchesPath(path) && (secureChannel || !cookie.secure()) && !cookie.isExpiredAt(now)) {
+				requestCookies.add(cookie);
+			}
+		}
+		if (requestCookies.size() == hostJar.size() && !hostJar.pathRestricted) {
+			return hostJar;
+		}
+		// Cookies with longer paths are sent first (RFC 6265, section 5.4), so value()
+		// finds the most specific one.
+		requestCookies
+			.sort(Comparator.comparingInt((SessionCookie cookie) -> identityPath(cookie).length()).reversed());
+		return requestCookies.isEmpty() ? EMPTY : new CookieJar(List.copyOf(requestCookies));
+	}
+
+	/**
+	 * Returns when the first cookie of this jar expires.
+	 * @return the earliest expiry; empty if every cookie lasts as long as the browser
+	 * session
+	 */
+	public Optional<Instant> earliestExpiry() {
+		return Optional.ofNullable(earliestExpiry);
+	}
+
+	/**
+	 * Returns the {@code Cookie} request header for the cookies of this jar.
+	 * @return the {@code name=value} pairs separated by {@code "; "}; empty for an empty
+	 * jar
+	 */
+	public String header() {
+		return header;
+	}
+
+	/**
+	 * Returns the value of a cookie.
+	 * @param name the cookie name
+	 * @return the value of the first cookie with that name and a non-blank value
+	 */
+	public Optional<String> value(String name) {
+		return Optional.ofNullable(valuesByName.get(name));
+	}
+
+	/**
+	 * Returns a jar with cookies set or removed by the retailer.
+	 * <p>
+	 * A cookie is identified by its name, its domain, compared without a leading dot and
+	 * case-insensitively, and its path, where an empty path is {@code /}. An update
+	 * replaces the cookie with the same identity in place, or is appended; a removal
+	 * drops every cookie with its identity.
+	 * @param updates cookies set by the retailer
+	 * @param removals cookies the retailer deleted; only name, domain and path are
+	 * compared
+	 * @return this jar if nothing changed, otherwise a new jar
+	 */
+	public CookieJar merge(Collection<SessionCookie> updates, Collection<SessionCookie> removals) {
+		List<SessionCookie> merged = new ArrayList<>(cookies);
+		for (SessionCookie removal : removals) {
+			merged.removeIf(cookie -> sameIdentity(cookie, removal));
+		}
+		for (SessionCookie update : updates) {
+			int position = indexOfIdentity(merged, update);
+			if (position < 0) {
+				merged.add(update);
+			}
+			else {
+				merged.set(position, update);
+			}
+		}
+		return merged.equals(cookies) ? this : of(merged);
+	}
+
+	@Override
+	public SessionCookie get(int index) {
+		return cookies.get(index);
+	}
+
+	@Override
+	public int size() {
+		return cookies.size();
+	}
+
+	private CookieJar collectForHost(String host) {
+		String normalisedHost = SessionCookie.toAsciiLowerCase(host);
+		int[] matches = new int[0];
+		int from = 0;
+		while (from >= 0) {
+			int[] indices = indicesByDomain.get(normalisedHost.substring(from));
+			if (indices != null) {
+				matches = concat(matches, indices);
+			}
+			int dot = normalisedHost.indexOf('.', from);
+			from = (dot < 0) ? -1 : dot + 1;
+		}
+		if (matches.length == cookies.size()) {
+			return this;
+		}
+		Arrays.sort(matches);
+		List<SessionCookie> hostCookies = new ArrayList<>(matches.length);
+		for (int index : matches) {
+			hostCookies.add(cookies.get(index));
+		}
+		return hostCookies.isEmpty() ? EMPTY : new CookieJar(List.copyOf(hostCookies));
+	}
+
+	private static Map<String, int[]> indexByDomain(List<SessionCookie> cookies) {
+		Map<String, int[]> index = new HashMap<>();
+		for (int position = 0; position < cookies.size(); position++) {
+			String cookieDomain = withoutLeadingDot(cookies.get(position).domain());
+			if (cookieDomain.isBlank()) {
+				continue;
+			}
+			index.merge(SessionCookie.toAsciiLowerCase(cookieDomain), new int[] { position }, CookieJar::concat);
+		}
+		return Map.copyOf(index);
+	}
+
+	private static int indexOfIdentity(List<SessionCookie> cookies, SessionCookie cookie) {
+		for (int position = 0; position < cookies.size(); position++) {
+			if (sameIdentity(cookies.get(position), cookie)) {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean sameIdentity(SessionCookie first, SessionCookie second) {
+		return first.name().equals(second.name()) && identityPath(first).equals(identityPath(second))
+				&& SessionCookie.toAsciiLowerCase(withoutLeadingDot(first.domain()))
+					.equals(SessionCookie.toAsciiLowerCase(withoutLeadingDot(second.domain())));
+	}
+
+	private static String identityPath(SessionCookie cookie) {
+		return cookie.path().isEmpty() ? "/" : cookie.path();
+	}
+
+	private static String withoutLeadingDot(String domain) {
+		return domain.startsWith(".") ? domain.substring(1) : domain;
+	}
+
+	private static int[] concat(int[] first, int[] second) {
+		int[] joined = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, joined, first.length, second.length);
+		return joined;
+	}
+
+}
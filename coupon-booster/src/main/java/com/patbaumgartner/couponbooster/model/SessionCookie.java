@@ -1,27 +1,43 @@
 package com.patbaumgartner.couponbooster.model;
 
+import java.time.Instant;
 import java.util.Objects;
 
 /**
  * An immutable session cookie captured by the Patchright login sidecar.
  * <p>
- * Only the three attributes the application actually consumes are modelled: {@code name}
- * and {@code value} build the {@code Cookie} request header, and {@code domain} decides
- * which retailer's API a cookie may be sent to. Attributes such as {@code path},
- * {@code secure}, {@code httpOnly} and {@code expires} are deliberately not mirrored —
- * nothing reads them, and a value object that carries unused state invites the assumption
- * that it is enforced.
+ * {@code name} and {@code value} build the {@code Cookie} request header; {@code domain},
+ * {@code path} and {@code secure} decide which requests a cookie may be sent with, and
+ * {@code expires} when it stops being sent at all. {@code httpOnly} and {@code sameSite}
+ * are not mirrored: they restrict scripts and cross-site navigation, neither of which
+ * applies to the application's own API requests.
  *
  * @param name the cookie name, never {@code null}
  * @param value the cookie value, never {@code null}
  * @param domain the cookie domain, normalised to {@code ""} when absent
+ * @param path the cookie path, normalised to {@code ""} when absent; an empty path
+ * matches every request path
+ * @param expires when the cookie expires, or {@code null} for a cookie that lasts as long
+ * as the browser session
+ * @param secure whether the cookie may only be sent over HTTPS
  */
-public record SessionCookie(String name, String value, String domain) {
+public record SessionCookie(String name, String value, String domain, String path, Instant expires, boolean secure) {
 
 	public SessionCookie {
 		Objects.requireNonNull(name, "Cookie name cannot be null");
 		Objects.requireNonNull(value, "Cookie value cannot be null");
 		domain = (domain == null) ? "" : domain;
+		path = (path == null) ? "" : path;
+	}
+
+	/**
+	 * Creates a session cookie without path restriction, expiry or {@code Secure} flag.
+	 * @param name the cookie name, never {@code null}
+	 * @param value the cookie value, never {@code null}
+	 * @param domain the cookie domain; {@code null} if absent
+	 */
+	public SessionCookie(String name, String value, String domain) {
+		this(name, value, domain, "", null, false);
 	}
 
 	/**
@@ -42,13 +58,68 @@ public record SessionCookie(String name, String value, String domain) {
 		if (host == null || host.isBlank() || domain.isBlank()) {
 			return false;
 		}
-		String cookieDomain = domain.startsWith(".") ? domain.substring(1) : domain;
-		if (cookieDomain.isBlank()) {
+		int domainStart = domain.startsWith(".") ? 1 : 0;
+		int domainLength = domain.length() - domainStart;
+		if (isBlankFrom(domain, domainStart)) {
+			return false;
+		}
+		int hostOffset = host.length() - domainLength;
+		if (hostOffset < 0 || (hostOffset > 0 && host.charAt(hostOffset - 1) != '.')) {
+			return false;
+		}
+		return asciiRegionEqualsIgnoreCase(host, hostOffset, domain, domainStart, domainLength);
+	}
+
+	/**
+	 * Tests whether this cookie may be sent with a request for the given path, using RFC
+	 * 6265 path matching: the cookie path must equal the request path or be a prefix of
+	 * it that ends at a {@code /}.
+	 * @param requestPath the path of the request URI; {@code null} or empty for {@code /}
+	 * @return {@code true} if the cookie belongs to {@code requestPath}
+	 */
+	public boolean matchesPath(String requestPath) {
+		if (path.isEmpty() || "/".equals(path)) {
+			return true;
+		}
+		String normalisedPath = (requestPath == null || requestPath.isEmpty()) ? "/" : requestPath;
+		if (!normalisedPath.startsWith(path)) {
 			return false;
 		}
-		String normalisedHost = toAsciiLowerCase(host);
-		String normalisedDomain = toAsciiLowerCase(cookieDomain);
-		return normalisedHost.equals(normalisedDomain) || normalisedHost.endsWith("." + normalisedDomain);
+		return normalisedPath.length() == path.length() || path.endsWith("/")
+				|| normalisedPath.charAt(path.length()) == '/';
+	}
+
+	/**
+	 * Tests whether this cookie has expired.
+	 * @param now the current time
+	 * @return {@code true} if the cookie has an expiry that is not after {@code now}
+	 */
+	public boolean isExpiredAt(Instant now) {
+		return expires != null && !expires.isAfter(now);
+	}
+
+	private static boolean isBlankFrom(String value, int from) {
+		for (int index = from; index < value.length(); index++) {
+			if (!Character.isWhitespace(value.charAt(index))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compares two regions with {@link #toAsciiLowerCase(String)} folding, without
+	 * allocating.
+	 */
+	private static boolean asciiRegionEqualsIgnoreCase(String first, int firstOffset, String second, int secondOffset,
+			int length) {
+		for (int index = 0; index < length; index++) {
+			if (toAsciiLowerCase(first.charAt(firstOffset + index)) != toAsciiLowerCase(
+					second.charAt(secondOffset + index))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -58,13 +129,16 @@ public record SessionCookie(String name, String value, String domain) {
 	 * @param value the host or cookie domain to normalise
 	 * @return {@code value} with {@code A}-{@code Z} replaced by {@code a}-{@code z}
 	 */
-	private static String toAsciiLowerCase(String value) {
+	static String toAsciiLowerCase(String value) {
 		StringBuilder normalised = new StringBuilder(value.length());
 		for (int index = 0; index < value.length(); index++) {
-			char character = value.charAt(index);
-			normalised.append((character >= 'A' && character <= 'Z') ? (char) (character + ('a' - 'A')) : character);
+			normalised.append(toAsciiLowerCase(value.charAt(index)));
 		}
 		return normalised.toString();
 	}
 
+	private static char toAsciiLowerCase(char character) {
+		return (character >= 'A' && character <= 'Z') ? (char) (character + ('a' - 'A')) : character;
+	}
+
 }
@@ -0,0 +1,26 @@
+package com.patbaumgartner.couponbooster.model;
+
+import java.util.Objects;
+
+/**
+ * Outcome of a single session-validity probe.
+ *
+ * @param validity the verdict on the probed session, never {@code null}
+ * @param statusMessage a short human-readable explanation of the verdict
+ * @param executionDurationMs round-trip time of the probe request in milliseconds
+ */
+public record SessionProbeResult(SessionValidity validity, String statusMessage, long executionDurationMs) {
+
+	public SessionProbeResult {
+		Objects.requireNonNull(validity, "validity cannot be null");
+	}
+
+	/**
+	 * Tells whether the session can be used without a new login.
+	 * @return {@code true} if the verdict is {@link SessionValidity#VALID}
+	 */
+	public boolean isValid() {
+		return validity == SessionValidity.VALID;
+	}
+
+}
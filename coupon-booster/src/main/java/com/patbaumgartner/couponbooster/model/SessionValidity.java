@@ -0,0 +1,33 @@
+package com.patbaumgartner.couponbooster.model;
+
+/**
+ * Verdict of a {@link com.patbaumgartner.couponbooster.service.SessionProbe} on a
+ * previously obtained session.
+ */
+public enum SessionValidity {
+
+	/**
+	 * The retailer accepted the session; it can be used without a new login.
+	 */
+	VALID,
+
+	/**
+	 * The retailer refused the session (HTTP 401/403) or it lacks the cookies a request
+	 * needs; only a new login helps.
+	 */
+	EXPIRED,
+
+	/**
+	 * The bot protection answered with an HTML challenge page instead of the API
+	 * response, including DataDome's challenge served with {@code 200 OK}. A browser
+	 * login is needed to solve it.
+	 */
+	CHALLENGED,
+
+	/**
+	 * The probe could not reach a verdict, e.g. because of a network error or a server
+	 * error. The session is not known to be valid.
+	 */
+	INCONCLUSIVE
+
+}
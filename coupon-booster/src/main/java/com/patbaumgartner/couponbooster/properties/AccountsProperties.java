@@ -0,0 +1,64 @@
+package com.patbaumgartner.couponbooster.properties;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.List;
+
+/**
+ * Configuration properties for additional retailer accounts and for how many of them run
+ * at the same time.
+ * <p>
+ * The accounts configured under {@code coop.user} and {@code migros.user} are always the
+ * first account of their provider; the lists here add further accounts, so one process
+ * can serve a whole household. Both limits apply across all accounts: logins share the
+ * Patchright sidecar, which runs one login per provider at a time, and coupon requests
+ * share the retailer's API.
+ *
+ * @param coop additional Coop accounts
+ * @param migros additional Migros accounts
+ * @param concurrency limits on concurrent logins and activations
+ */
+@ConfigurationProperties(prefix = "couponbooster.accounts")
+@Validated
+public record AccountsProperties(@Valid List<Credentials> coop, @Valid List<Credentials> migros,
+		@Valid @NotNull(message = "Account concurrency settings are required") Concurrency concurrency) {
+
+	public AccountsProperties {
+		coop = (coop == null) ? List.of() : List.copyOf(coop);
+		migros = (migros == null) ? List.of() : List.copyOf(migros);
+	}
+
+	/**
+	 * Credentials of one additional account.
+	 *
+	 * @param email the e-mail address the account logs in with
+	 * @param password the account password
+	 */
+	public record Credentials(@Email(message = "Email must be valid") String email, String password) {
+
+		@Override
+		public String toString() {
+			return "Credentials[email=%s, password=****]".formatted(email);
+		}
+
+	}
+
+	/**
+	 * Limits on how many accounts are in a given stage at the same time.
+	 *
+	 * @param loginsPerSidecar concurrent authentications per sidecar and provider
+	 * @param activationsPerRetailerHost concurrent coupon activations per retailer API
+	 * host
+	 */
+	public record Concurrency(
+			@Min(value = 1, message = "At least one login per sidecar is required") int loginsPerSidecar,
+			@Min(value = 1,
+					message = "At least one activation per retailer host is required") int activationsPerRetailerHost) {
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.patbaumgartner.couponbooster.properties;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration properties for the coupon snapshot store.
+ * <p>
+ * After each run the coupon set an account was offered (codes and statuses) is kept on
+ * disk. The next run compares its catalogue with it to report new and expired coupons.
+ * With the catalogue cache enabled, the last catalogue is kept in the same directory. The
+ * files hold no credentials or session data.
+ *
+ * @param enabled whether snapshots, and stored catalogues, are kept at all
+ * @param directory directory holding one snapshot file per provider and account
+ */
+@ConfigurationProperties(prefix = "couponbooster.coupon-snapshot")
+@Validated
+public record CouponSnapshotProperties(boolean enabled,
+		@NotNull(message = "Coupon snapshot directory is required") Path directory) {
+
+}
@@ -0,0 +1,62 @@
+package com.patbaumgartner.couponbooster.properties;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the HTTP client profiles.
+ * <p>
+ * The Patchright sidecar and the two retailer APIs behave very differently: a sidecar
+ * login can legitimately take minutes, while a Supercard or Cumulus request that has not
+ * answered after half a minute is better given up and retried. Each of them therefore
+ * gets its own connection pool, timeouts and retry policy.
+ *
+ * @param sidecar client profile for the Patchright sidecar logins
+ * @param sidecarHealth client profile for the health polls of the Patchright sidecars
+ * @param supercard client profile for the Coop Supercard API
+ * @param cumulus client profile for the Migros Cumulus API
+ */
+@ConfigurationProperties(prefix = "couponbooster.http")
+@Validated
+public record HttpClientProperties(@Valid @NotNull(message = "Sidecar HTTP client profile is required") Profile sidecar,
+		@Valid @NotNull(message = "Sidecar health HTTP client profile is required") Profile sidecarHealth,
+		@Valid @NotNull(message = "Supercard HTTP client profile is required") Profile supercard,
+		@Valid @NotNull(message = "Cumulus HTTP client profile is required") Profile cumulus) {
+
+	/**
+	 * Connection, timeout and retry settings of one HTTP client.
+	 *
+	 * @param connectTimeout how long establishing a connection may take
+	 * @param readTimeout longest silence between two packets of a response
+	 * @param responseTimeout how long the server may take to start its response
+	 * @param maxConnections connections the pool holds across all hosts
+	 * @param maxConnectionsPerRoute connections the pool holds per host
+	 * @param keepAlive how long a pooled connection is reused before it is closed
+	 * @param maxRetries how often an idempotent request that failed on the network is
+	 * retried; {@code 0} disables retries
+	 * @param retryInterval pause before each such retry
+	 */
+	public record Profile(@NotNull(message = "Connect timeout is required") Duration connectTimeout,
+
+			@NotNull(message = "Read timeout is required") Duration readTimeout,
+
+			@NotNull(message = "Response timeout is required") Duration responseTimeout,
+
+			@Min(value = 1, message = "At least one connection is required") int maxConnections,
+
+			@Min(value = 1, message = "At least one connection per route is required") int maxConnectionsPerRoute,
+
+			@NotNull(message = "Keep-alive is required") Duration keepAlive,
+
+			@Min(value = 0, message = "Max retries cannot be negative") int maxRetries,
+
+			@NotNull(message = "Retry interval is required") Duration retryInterval) {
+
+	}
+
+}
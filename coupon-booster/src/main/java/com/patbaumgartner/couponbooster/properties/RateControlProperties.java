@@ -0,0 +1,61 @@
+package com.patbaumgartner.couponbooster.properties;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the adaptive per-host rate control of the retailer APIs.
+ * <p>
+ * Each retailer host starts at the initial rate. Every run of consecutive successful
+ * responses raises the rate by a fixed step; every {@code 429 Too Many Requests} or
+ * {@code 503 Service Unavailable} cuts it by a factor and pauses the host for the
+ * {@code Retry-After} period (or an exponential backoff when the header is missing)
+ * before the request is retried.
+ *
+ * @param enabled whether retailer requests are paced and retried at all
+ * @param initialRequestsPerSecond rate a host starts at
+ * @param minRequestsPerSecond floor the rate never drops below
+ * @param maxRequestsPerSecond ceiling the rate never rises above
+ * @param additiveIncrease requests per second added after a run of successes
+ * @param successesBeforeIncrease consecutive successes that earn one increase
+ * @param multiplicativeDecrease factor the rate is multiplied with on throttling
+ * @param maxRetries how often one throttled request is retried before the throttled
+ * response is handed to the caller
+ * @param initialBackoff pause before the first retry when the server sends no
+ * {@code Retry-After}; doubled for every further retry
+ * @param maxRetryAfter longest pause the client waits for; a longer {@code Retry-After}
+ * gives up on the request instead
+ */
+@ConfigurationProperties(prefix = "couponbooster.rate-control")
+@Validated
+public record RateControlProperties(boolean enabled,
+
+		@Positive(message = "Initial requests per second must be greater than 0") double initialRequestsPerSecond,
+
+		@Positive(message = "Minimum requests per second must be greater than 0") double minRequestsPerSecond,
+
+		@Positive(message = "Maximum requests per second must be greater than 0") double maxRequestsPerSecond,
+
+		@Positive(message = "Additive increase must be greater than 0") double additiveIncrease,
+
+		@Min(value = 1, message = "At least one success is required before an increase") int successesBeforeIncrease,
+
+		@DecimalMin(value = "0.0", inclusive = false,
+				message = "Multiplicative decrease must be greater than 0") @DecimalMax(value = "1.0",
+						inclusive = false,
+						message = "Multiplicative decrease must be less than 1") double multiplicativeDecrease,
+
+		@Min(value = 0, message = "Max retries cannot be negative") int maxRetries,
+
+		@NotNull(message = "Initial backoff is required") Duration initialBackoff,
+
+		@NotNull(message = "Max Retry-After is required") Duration maxRetryAfter) {
+
+}
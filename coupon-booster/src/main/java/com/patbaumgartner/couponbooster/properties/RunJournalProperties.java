@@ -0,0 +1,29 @@
+package com.patbaumgartner.couponbooster.properties;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration properties for the run journal.
+ * <p>
+ * Every activation run records its completed stages per account. A run that is
+ * interrupted (process killed, sidecar timed out) is resumed by the next run of the same
+ * account within the resume window, which reuses its plan instead of starting over. The
+ * files hold coupon codes only, no credentials or session data.
+ *
+ * @param enabled whether runs are journalled at all
+ * @param directory directory holding one journal file per provider and account
+ * @param resumeWindow how long after its last completed stage an interrupted run is
+ * resumed
+ */
+@ConfigurationProperties(prefix = "couponbooster.run-journal")
+@Validated
+public record RunJournalProperties(boolean enabled,
+		@NotNull(message = "Run journal directory is required") Path directory,
+		@NotNull(message = "Run journal resume window is required") Duration resumeWindow) {
+
+}
@@ -0,0 +1,29 @@
+package com.patbaumgartner.couponbooster.properties;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for pre-warming sessions ahead of the scheduled runs of the
+ * server profile.
+ * <p>
+ * The sidecar login takes minutes; started at the cron time, it delays every activation
+ * by as much. With pre-warming, each provider's accounts are logged in {@code lead}
+ * before its cron time and the sessions held in memory, so the scheduled run only fetches
+ * and activates coupons.
+ *
+ * @param enabled whether the schedulers pre-warm sessions
+ * @param lead how long before each cron time the accounts are logged in
+ * @param freshness how long after its login a pre-warmed session is still used; a run
+ * later than that logs in again
+ */
+@ConfigurationProperties(prefix = "couponbooster.scheduler.prewarm")
+@Validated
+public record SessionPrewarmProperties(boolean enabled,
+		@NotNull(message = "Session pre-warm lead is required") Duration lead,
+		@NotNull(message = "Session pre-warm freshness is required") Duration freshness) {
+
+}
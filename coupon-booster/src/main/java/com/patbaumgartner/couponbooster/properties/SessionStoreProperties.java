@@ -0,0 +1,40 @@
+package com.patbaumgartner.couponbooster.properties;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration properties for the persistent session store.
+ * <p>
+ * Sessions are only persisted when a secret is configured: the files hold live retailer
+ * session cookies and are never written unencrypted. Leaving the secret empty disables
+ * the store, and every run logs in through the sidecar as before.
+ *
+ * @param directory directory holding one encrypted file per provider and account
+ * @param secret passphrase the AES key is derived from; blank disables the store
+ * @param maxAge stored sessions older than this are discarded without being tried
+ */
+@ConfigurationProperties(prefix = "couponbooster.session-store")
+@Validated
+public record SessionStoreProperties(@NotNull(message = "Session store directory is required") Path directory,
+		String secret, @NotNull(message = "Session store max age is required") Duration maxAge) {
+
+	/**
+	 * Tells whether sessions should be persisted at all.
+	 * @return {@code true} when a non-blank secret is configured
+	 */
+	public boolean enabled() {
+		return secret != null && !secret.isBlank();
+	}
+
+	@Override
+	public String toString() {
+		return "SessionStoreProperties[directory=%s, secret=%s, maxAge=%s]".formatted(directory,
+				enabled() ? "****" : "", maxAge);
+	}
+
+}
@@ -1,20 +1,24 @@
 package com.patbaumgartner.couponbooster.runner;
 
-import com.patbaumgartner.couponbooster.service.AuthenticationService;
-import com.patbaumgartner.couponbooster.service.CouponService;
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.scheduler.ActivationOutcome;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * Abstract base class for coupon booster application runners.
  * <p>
  * Encapsulates the shared startup activation flow: authenticate, then activate all
- * available coupons. Subclasses supply the provider-specific
- * {@link AuthenticationService} and {@link CouponService} via the constructor.
+ * available coupons. Subclasses hand over the {@link AccountActivationEngine}, which runs
+ * every configured account of the provider.
  *
  * @see com.patbaumgartner.couponbooster.coop.runner.CoopCouponBoosterRunner
  * @see com.patbaumgartner.couponbooster.migros.runner.MigrosCouponBoosterRunner
@@ -23,61 +27,76 @@ public abstract class AbstractCouponBoosterRunner implements ApplicationRunner {
 
 	private static final Logger log = LoggerFactory.getLogger(AbstractCouponBoosterRunner.class);
 
-	private final AuthenticationService authenticationService;
-
-	private final CouponService couponService;
+	private final Supplier<List<ActivationOutcome>> activation;
 
 	private final String providerName;
 
 	private final ActivationExitCode exitCode;
 
+	private final AtomicBoolean started = new AtomicBoolean(false);
+
 	/**
-	 * Constructs a new coupon booster runner.
-	 * @param authenticationService the authentication service for this provider
-	 * @param couponService the coupon activation service for this provider
-	 * @param providerName human-readable provider label used in log messages (e.g.
-	 * {@code "Coop"} or {@code "Migros"})
+	 * Constructs a new coupon booster runner for every account of a provider.
+	 * @param activationEngine runs the activation flow for all accounts
+	 * @param provider the provider key, e.g.
+	 * {@link com.patbaumgartner.couponbooster.account.AccountRegistry#COOP}
+	 * @param providerName human-readable provider label used in log messages
 	 * @param exitCode collects run outcomes so the process exit code reflects them
 	 */
-	protected AbstractCouponBoosterRunner(AuthenticationService authenticationService, CouponService couponService,
+	protected AbstractCouponBoosterRunner(AccountActivationEngine activationEngine, String provider,
 			String providerName, ActivationExitCode exitCode) {
-		this.authenticationService = Objects.requireNonNull(authenticationService,
-				"AuthenticationService cannot be null");
-		this.couponService = Objects.requireNonNull(couponService, "CouponService cannot be null");
-		this.providerName = Objects.requireNonNull(providerName, "providerName cannot be null");
+		Objects.requireNonNull(activationEngine, "AccountActivationEngine cannot be null");
+		this.activation = () -> activationEngine.activate(provider);
+		this.providerName = providerName;
 		this.exitCode = Objects.requireNonNull(exitCode, "ActivationExitCode cannot be null");
 	}
 
 	/**
-	 * Executes the coupon activation process for the provider.
+	 * Executes the coupon activation process for the provider, unless it already ran.
 	 * @param applicationArgs the application arguments
 	 * @throws Exception if an error occurs during the process
 	 */
 	@Override
 	public void run(ApplicationArguments applicationArgs) throws Exception {
-		log.info("Starting {} coupon booster runner", providerName);
+		runOnce();
+	}
 
-		var authenticationResult = authenticationService.performAuthentication();
+	/**
+	 * Executes the coupon activation process for the provider if it has not run yet in
+	 * this process.
+	 * <p>
+	 * The {@link ParallelStartupRunner} starts every provider's run ahead of Spring's
+	 * sequential runner invocation; the guard turns the later {@link #run} call into a
+	 * no-op instead of a second activation.
+	 * @return the provider's report, or {@link Optional#empty()} if it already ran
+	 */
+	public Optional<StartupRunReport> runOnce() {
+		if (!started.compareAndSet(false, true)) {
+			log.debug("{} coupon booster runner already ran; skipping", providerName);
+			return Optional.empty();
+		}
 
-		if (authenticationResult.isSuccessful()) {
-			if (log.isInfoEnabled()) {
-				log.info("Authentication successful - {} cookies in {}ms", authenticationResult.sessionCookies().size(),
-						authenticationResult.executionDurationMs());
-			}
+		log.info("Starting {} coupon booster runner", providerName);
+		var startTime = System.currentTimeMillis();
 
-			var activationResult = couponService.activateAllAvailableCoupons(authenticationResult.sessionCookies(),
-					authenticationResult.userAgent(), authenticationResult.browserLanguage());
+		var outcomes = activation.get();
 
-			if (log.isInfoEnabled()) {
-				log.info("Completed - {} activated, {} failed", activationResult.successCount(),
-						activationResult.failureCount());
-			}
-		}
-		else {
-			log.error("Authentication failed: {} ({}ms)", authenticationResult.statusMessage(),
-					authenticationResult.executionDurationMs());
+		if (outcomes.stream().anyMatch(outcome -> !outcome.authenticated())) {
 			exitCode.recordAuthenticationFailure();
 		}
+		var report = new StartupRunReport(providerName, outcomes, System.currentTimeMillis() - startTime);
+		if (log.isInfoEnabled()) {
+			log.info("{} coupon booster runner finished in {}ms", providerName, report.durationMs());
+		}
+		return Optional.of(report);
+	}
+
+	/**
+	 * Returns the provider label this runner reports under.
+	 * @return the human-readable provider label, e.g. {@code "Coop"}
+	 */
+	public String providerName() {
+		return providerName;
 	}
 
 }
@@ -0,0 +1,108 @@
+package com.patbaumgartner.couponbooster.runner;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.scheduler.ActivationOutcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the startup runs of all enabled providers at the same time instead of one after
+ * the other.
+ * <p>
+ * Spring invokes {@link ApplicationRunner}s sequentially, so the one-shot container lived
+ * for the sum of both providers' logins and activations. This runner is ordered first,
+ * starts every {@link AbstractCouponBoosterRunner} on its own virtual thread and waits
+ * for all of them, which brings the wall-clock time down to the slower provider. The
+ * provider runners' own invocations afterwards are no-ops.
+ * <p>
+ * Exit-code semantics are unchanged: each provider run records its authentication
+ * failures in {@link ActivationExitCode} as before. If a provider run throws, the other
+ * one still completes before the failure is rethrown, as it would have been in sequential
+ * mode.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(value = "couponbooster.startup-run.parallel", havingValue = "true", matchIfMissing = true)
+public class ParallelStartupRunner implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(ParallelStartupRunner.class);
+
+	private final ObjectProvider<AbstractCouponBoosterRunner> providerRunners;
+
+	/**
+	 * Constructs the runner.
+	 * @param providerRunners the enabled provider runners; none in the server profile
+	 */
+	public ParallelStartupRunner(ObjectProvider<AbstractCouponBoosterRunner> providerRunners) {
+		this.providerRunners = providerRunners;
+	}
+
+	@Override
+	public void run(ApplicationArguments applicationArgs) {
+		var runners = providerRunners.orderedStream().toList();
+		if (runners.size() < 2) {
+			// Nothing to overlap; the provider runner runs on its own.
+			return;
+		}
+
+		log.info("Starting {} provider runs in parallel", runners.size());
+		var startTime = System.currentTimeMillis();
+
+		var reports = new ArrayList<StartupRunReport>();
+		CouponBoosterException failure = null;
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Optional<StartupRunReport>>> runs = runners.stream()
+				.map(runner -> executor.submit(runner::runOnce))
+				.toList();
+			for (var run : runs) {
+				try {
+					run.get().ifPresent(reports::add);
+				}
+				catch (ExecutionException ex) {
+					if (failure == null) {
+						failure = (ex.getCause() instanceof CouponBoosterException couponBoosterException)
+								? couponBoosterException
+								: new CouponBoosterException("Provider run failed", ex.getCause());
+					}
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new CouponBoosterException("Interrupted while waiting for provider runs", ex);
+				}
+			}
+		}
+
+		logTimings(reports, System.currentTimeMillis() - startTime);
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private static void logTimings(List<StartupRunReport> reports, long wallClockMs) {
+		if (!log.isInfoEnabled()) {
+			return;
+		}
+		for (var report : reports) {
+			log.info("{}: {} account(s), {} activated, {} failed in {}ms", report.provider(), report.outcomes().size(),
+					report.outcomes().stream().mapToInt(ActivationOutcome::activated).sum(),
+					report.outcomes().stream().mapToInt(ActivationOutcome::failed).sum(), report.durationMs());
+		}
+		log.info("Parallel startup run finished in {}ms (sequential total {}ms)", wallClockMs,
+				reports.stream().mapToLong(StartupRunReport::durationMs).sum());
+	}
+
+}
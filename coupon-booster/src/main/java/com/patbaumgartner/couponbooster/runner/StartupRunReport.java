@@ -0,0 +1,20 @@
+package com.patbaumgartner.couponbooster.runner;
+
+import com.patbaumgartner.couponbooster.scheduler.ActivationOutcome;
+
+import java.util.List;
+
+/**
+ * Result of one provider's startup run.
+ *
+ * @param provider human-readable provider label (e.g. {@code "Coop"})
+ * @param outcomes one outcome per account of the provider
+ * @param durationMs wall-clock time of the provider's run in milliseconds
+ */
+public record StartupRunReport(String provider, List<ActivationOutcome> outcomes, long durationMs) {
+
+	public StartupRunReport {
+		outcomes = List.copyOf(outcomes);
+	}
+
+}
@@ -1,21 +1,37 @@
 package com.patbaumgartner.couponbooster.scheduler;
 
-import com.patbaumgartner.couponbooster.service.AuthenticationService;
-import com.patbaumgartner.couponbooster.service.CouponService;
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
+import com.patbaumgartner.couponbooster.properties.SessionPrewarmProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * Abstract base class for coupon booster scheduled activation tasks.
  * <p>
  * Encapsulates the shared daily activation flow: authenticate, then activate all
- * available coupons. Subclasses supply the provider-specific
- * {@link AuthenticationService} and {@link CouponService} via the constructor, and
- * declare a {@code @Scheduled} method that calls {@link #runActivation()}.
+ * available coupons. Subclasses hand over the {@link AccountActivationEngine}, which runs
+ * every configured account of the provider, and declare a {@code @Scheduled} method that
+ * calls {@link #runScheduledActivation()}, which also records how long after its cron
+ * time the run finished, logins included.
+ * <p>
+ * The scheduler can also pre-warm the sessions of the provider: once the application is
+ * ready, it logs every account in {@link SessionPrewarmProperties#lead()} before each
+ * cron time, so the scheduled run finds the sessions in memory and skips the login. Each
+ * pre-warm schedules the next one.
  *
  * @see com.patbaumgartner.couponbooster.coop.scheduler.CoopCouponBoosterScheduler
  * @see com.patbaumgartner.couponbooster.migros.scheduler.MigrosCouponBoosterScheduler
@@ -24,30 +40,127 @@ public abstract class AbstractCouponBoosterScheduler {
 
 	private static final Logger log = LoggerFactory.getLogger(AbstractCouponBoosterScheduler.class);
 
-	private final AuthenticationService authenticationService;
-
-	private final CouponService couponService;
+	private final Supplier<List<ActivationOutcome>> activation;
 
 	private final String providerName;
 
+	private final String provider;
+
+	private final CouponMetrics metrics;
+
+	private final ZoneId zone;
+
+	/**
+	 * The cron times the scheduled runs were due at.
+	 */
+	private final CronTimes cronTimes;
+
+	/**
+	 * Logs the provider's accounts in ahead of a run; {@code null} when sessions are not
+	 * pre-warmed.
+	 */
+	private final Runnable prewarm;
+
+	private final PrewarmSchedule prewarmSchedule;
+
+	private final TaskScheduler taskScheduler;
+
 	/**
 	 * Guards against overlapping runs (e.g. a manual trigger during a scheduled run).
 	 */
 	private final AtomicBoolean activationInProgress = new AtomicBoolean(false);
 
 	/**
-	 * Constructs a new coupon booster scheduler.
-	 * @param authenticationService the authentication service for this provider
-	 * @param couponService the coupon activation service for this provider
-	 * @param providerName human-readable provider label used in log messages (e.g.
-	 * {@code "Coop"} or {@code "Migros"})
+	 * Constructs a new coupon booster scheduler for every account of a provider.
+	 * @param activationEngine runs the activation flow for all accounts
+	 * @param provider the provider key, e.g.
+	 * {@link com.patbaumgartner.couponbooster.account.AccountRegistry#COOP}
+	 * @param providerName human-readable provider label used in log messages
+	 * @param cron the cron expression the subclass is scheduled with
+	 * @param zone the time zone of the cron expression
+	 * @param metrics records how long after their cron time the scheduled runs finish
+	 * @param sessionPrewarm whether, how early and for how long sessions are pre-warmed
+	 * @param taskScheduler runs the pre-warms
+	 */
+	protected AbstractCouponBoosterScheduler(AccountActivationEngine activationEngine, String provider,
+			String providerName, String cron, ZoneId zone, CouponMetrics metrics,
+			SessionPrewarmProperties sessionPrewarm, TaskScheduler taskScheduler) {
+		Objects.requireNonNull(activationEngine, "AccountActivationEngine cannot be null");
+		this.activation = () -> activationEngine.activate(provider);
+		this.providerName = providerName;
+		this.provider = provider;
+		this.metrics = Objects.requireNonNull(metrics, "CouponMetrics cannot be null");
+		this.zone = Objects.requireNonNull(zone, "zone cannot be null");
+		this.cronTimes = new CronTimes(cron, ZonedDateTime.now(Clock.system(zone)));
+		Objects.requireNonNull(sessionPrewarm, "SessionPrewarmProperties cannot be null");
+		if (sessionPrewarm.enabled() && sessionPrewarm.lead().isPositive() && sessionPrewarm.freshness().isPositive()) {
+			var freshness = sessionPrewarm.freshness();
+			this.prewarm = () -> {
+				int prewarmed = activationEngine.prewarm(provider, freshness);
+				log.info("Pre-warmed {} {} session(s), fresh for {}", prewarmed, providerName, freshness);
+			};
+			this.prewarmSchedule = new PrewarmSchedule(cron, sessionPrewarm.lead());
+			this.taskScheduler = Objects.requireNonNull(taskScheduler, "TaskScheduler cannot be null");
+		}
+		else {
+			this.prewarm = null;
+			this.prewarmSchedule = null;
+			this.taskScheduler = null;
+		}
+	}
+
+	/**
+	 * Schedules the first pre-warm once the application is ready; does nothing when
+	 * sessions are not pre-warmed.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void schedulePrewarm() {
+		if (prewarm != null) {
+			scheduleNextPrewarm();
+		}
+	}
+
+	private void scheduleNextPrewarm() {
+		var next = prewarmSchedule.next(ZonedDateTime.now(Clock.system(zone)));
+		if (next == null) {
+			log.warn("The {} schedule has no further run to pre-warm sessions for", providerName);
+			return;
+		}
+		log.info("Pre-warming {} sessions at {}", providerName, next);
+		taskScheduler.schedule(this::runPrewarm, next.toInstant());
+	}
+
+	private void runPrewarm() {
+		try {
+			prewarm.run();
+		}
+		catch (RuntimeException ex) {
+			// The run logs in itself when no session was pre-warmed.
+			log.error("Pre-warming {} sessions failed: {}", providerName, ex.getMessage(), ex);
+		}
+		finally {
+			scheduleNextPrewarm();
+		}
+	}
+
+	/**
+	 * Executes a scheduled run, and records how long after its cron time the run
+	 * finished. That covers the delay of the scheduler as well as the logins, which a
+	 * pre-warm takes out of the run.
+	 * @return the {@link ActivationOutcome} of the run, or {@link Optional#empty()} if a
+	 * run was already in progress
+	 * @see #runActivation()
 	 */
-	protected AbstractCouponBoosterScheduler(AuthenticationService authenticationService, CouponService couponService,
-			String providerName) {
-		this.authenticationService = Objects.requireNonNull(authenticationService,
-				"AuthenticationService cannot be null");
-		this.couponService = Objects.requireNonNull(couponService, "CouponService cannot be null");
-		this.providerName = Objects.requireNonNull(providerName, "providerName cannot be null");
+	protected Optional<ActivationOutcome> runScheduledActivation() {
+		var clock = Clock.system(zone);
+		var cronTime = cronTimes.started(ZonedDateTime.now(clock));
+		var outcome = runActivation();
+		if (outcome.isPresent()) {
+			var latency = Duration.between(cronTime, ZonedDateTime.now(clock));
+			log.debug("Scheduled {} activation finished {}ms after its cron time", providerName, latency.toMillis());
+			metrics.recordScheduledRunLatency(provider, latency);
+		}
+		return outcome;
 	}
 
 	/**
@@ -56,6 +169,10 @@ public abstract class AbstractCouponBoosterScheduler {
 	 * <p>
 	 * Runs are mutually exclusive: if an activation is already in progress for this
 	 * provider, the call is ignored and an empty {@link Optional} is returned.
+	 * <p>
+	 * With several accounts the outcomes are
+	 * {@link ActivationOutcome#summarize(String, List) summarised}; each account's own
+	 * outcome is logged by the engine.
 	 * @return the {@link ActivationOutcome} of the run, or {@link Optional#empty()} if a
 	 * run was already in progress
 	 */
@@ -74,31 +191,7 @@ public abstract class AbstractCouponBoosterScheduler {
 
 	private ActivationOutcome executeActivation() {
 		log.info("Starting {} coupon activation", providerName);
-
-		var authenticationResult = authenticationService.performAuthentication();
-
-		if (!authenticationResult.isSuccessful()) {
-			log.error("Authentication failed: {} ({}ms)", authenticationResult.statusMessage(),
-					authenticationResult.executionDurationMs());
-			return new ActivationOutcome(providerName, false, 0, 0, authenticationResult.executionDurationMs(),
-					authenticationResult.statusMessage());
-		}
-
-		if (log.isInfoEnabled()) {
-			log.info("Authentication successful - {} cookies in {}ms", authenticationResult.sessionCookies().size(),
-					authenticationResult.executionDurationMs());
-		}
-
-		var activationResult = couponService.activateAllAvailableCoupons(authenticationResult.sessionCookies(),
-				authenticationResult.userAgent(), authenticationResult.browserLanguage());
-
-		if (log.isInfoEnabled()) {
-			log.info("Completed - {} activated, {} failed", activationResult.successCount(),
-					activationResult.failureCount());
-		}
-
-		return new ActivationOutcome(providerName, true, activationResult.successCount(),
-				activationResult.failureCount(), authenticationResult.executionDurationMs(), "Activation completed");
+		return ActivationOutcome.summarize(providerName, activation.get());
 	}
 
 }
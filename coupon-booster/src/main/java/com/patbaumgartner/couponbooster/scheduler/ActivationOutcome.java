@@ -1,5 +1,9 @@
 package com.patbaumgartner.couponbooster.scheduler;
 
+import com.patbaumgartner.couponbooster.service.ActivationRun;
+
+import java.util.List;
+
 /**
  * Immutable summary of a single coupon-activation run, returned by
  * {@link AbstractCouponBoosterScheduler#runActivation()} so callers (the scheduler and
@@ -11,7 +15,62 @@ package com.patbaumgartner.couponbooster.scheduler;
  * @param failed number of coupons that failed to activate
  * @param authDurationMs authentication duration in milliseconds
  * @param message human-readable status message
+ * @param account masked label of the account the run belongs to, or {@code null} for the
+ * single configured account and for summaries over several accounts
  */
 public record ActivationOutcome(String provider, boolean authenticated, int activated, int failed, long authDurationMs,
-		String message) {
+		String message, String account) {
+
+	/**
+	 * Creates an outcome that is not tied to a particular account.
+	 * @param provider human-readable provider label
+	 * @param authenticated whether authentication succeeded
+	 * @param activated number of coupons successfully activated
+	 * @param failed number of coupons that failed to activate
+	 * @param authDurationMs authentication duration in milliseconds
+	 * @param message human-readable status message
+	 */
+	public ActivationOutcome(String provider, boolean authenticated, int activated, int failed, long authDurationMs,
+			String message) {
+		this(provider, authenticated, activated, failed, authDurationMs, message, null);
+	}
+
+	/**
+	 * Summarises a completed run of the activation flow.
+	 * @param provider human-readable provider label
+	 * @param account masked account label, or {@code null}
+	 * @param run the authentication and activation outcome of the run
+	 * @return the outcome of the run
+	 */
+	public static ActivationOutcome of(String provider, String account, ActivationRun run) {
+		var authenticationResult = run.authentication();
+		if (!run.authenticated()) {
+			return new ActivationOutcome(provider, false, 0, 0, authenticationResult.executionDurationMs(),
+					authenticationResult.statusMessage(), account);
+		}
+		var activationResult = run.activation();
+		return new ActivationOutcome(provider, true, activationResult.successCount(), activationResult.failureCount(),
+				authenticationResult.executionDurationMs(), "Activation completed", account);
+	}
+
+	/**
+	 * Combines the outcomes of several accounts of one provider. A single outcome is
+	 * returned unchanged.
+	 * @param provider human-readable provider label
+	 * @param outcomes the per-account outcomes, at least one
+	 * @return an outcome that is authenticated only if every account authenticated, with
+	 * summed coupon counts and the longest authentication duration
+	 */
+	public static ActivationOutcome summarize(String provider, List<ActivationOutcome> outcomes) {
+		if (outcomes.size() == 1) {
+			return outcomes.getFirst();
+		}
+		var authenticatedAccounts = (int) outcomes.stream().filter(ActivationOutcome::authenticated).count();
+		return new ActivationOutcome(provider, authenticatedAccounts == outcomes.size(),
+				outcomes.stream().mapToInt(ActivationOutcome::activated).sum(),
+				outcomes.stream().mapToInt(ActivationOutcome::failed).sum(),
+				outcomes.stream().mapToLong(ActivationOutcome::authDurationMs).max().orElse(0L),
+				"Activation completed for %d of %d accounts".formatted(authenticatedAccounts, outcomes.size()));
+	}
+
 }
@@ -0,0 +1,42 @@
+package com.patbaumgartner.couponbooster.scheduler;
+
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Tracks the cron time each run of a schedule was due at, so the latency of a scheduled
+ * run can be measured from it rather than from the moment the scheduler got to it.
+ * <p>
+ * Remembers the next cron time after every run; the following run is attributed to it. A
+ * run that starts before its cron time (clock adjustments) is due when it starts.
+ */
+final class CronTimes {
+
+	private final CronExpression cron;
+
+	private ZonedDateTime nextCronTime;
+
+	/**
+	 * Creates a tracker whose first expected run is the first cron time after
+	 * {@code start}.
+	 * @param cron the Spring cron expression of the schedule
+	 * @param start the time the schedule starts, in the schedule's zone
+	 */
+	CronTimes(String cron, ZonedDateTime start) {
+		this.cron = CronExpression.parse(cron);
+		this.nextCronTime = this.cron.next(start);
+	}
+
+	/**
+	 * Records that a run starts now.
+	 * @param now the start of the run, in the schedule's zone
+	 * @return the cron time the run was due at; {@code now} if that is still ahead
+	 */
+	synchronized ZonedDateTime started(ZonedDateTime now) {
+		var cronTime = nextCronTime;
+		nextCronTime = cron.next(now);
+		return (cronTime == null || cronTime.isAfter(now)) ? now : cronTime;
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.patbaumgartner.couponbooster.scheduler;
+
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * The times sessions are pre-warmed at: a fixed lead before each time of a cron schedule.
+ * <p>
+ * The next pre-warm belongs to the first cron time that is more than the lead away, so a
+ * pre-warm is never scheduled in the past and a cron time too close to still pre-warm for
+ * is skipped.
+ */
+final class PrewarmSchedule {
+
+	private final CronExpression cron;
+
+	private final Duration lead;
+
+	/**
+	 * Creates a pre-warm schedule.
+	 * @param cron the Spring cron expression of the runs
+	 * @param lead how long before each run its sessions are pre-warmed
+	 */
+	PrewarmSchedule(String cron, Duration lead) {
+		this.cron = CronExpression.parse(cron);
+		this.lead = lead;
+	}
+
+	/**
+	 * Returns the time of the next pre-warm.
+	 * @param now the current time, in the schedule's zone
+	 * @return the lead before the first cron time after {@code now} plus the lead;
+	 * {@code null} if the cron expression has no further time
+	 */
+	ZonedDateTime next(ZonedDateTime now) {
+		var cronTime = cron.next(now.plus(lead));
+		return (cronTime != null) ? cronTime.minus(lead) : null;
+	}
+
+}
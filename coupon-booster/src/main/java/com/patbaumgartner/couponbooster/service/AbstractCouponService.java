@@ -1,11 +1,21 @@
 package com.patbaumgartner.couponbooster.service;
 
+import com.patbaumgartner.couponbooster.exception.SessionRejectedException;
+import com.patbaumgartner.couponbooster.model.CookieJar;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.model.SessionProbeResult;
+import com.patbaumgartner.couponbooster.model.SessionValidity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.UnknownContentTypeException;
 
+import java.net.URI;
+import java.time.Instant;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Abstract base class for coupon services.
@@ -18,13 +28,13 @@ public abstract class AbstractCouponService implements CouponService {
 
 	/**
 	 * Builds a semicolon-separated cookie header string from a list of cookies.
+	 * <p>
+	 * For a {@link CookieJar} this is the header joined when the jar was built.
 	 * @param sessionCookies the list of cookies
 	 * @return the cookie header string
 	 */
 	protected String buildCookieHeader(final List<SessionCookie> sessionCookies) {
-		return sessionCookies.stream()
-			.map(cookie -> cookie.name() + "=" + cookie.value())
-			.collect(Collectors.joining("; "));
+		return CookieJar.of(sessionCookies).header();
 	}
 
 	/**
@@ -33,14 +43,106 @@ public abstract class AbstractCouponService implements CouponService {
 	 * Both providers are authenticated in the same sidecar, so a single response can
 	 * carry cookies for either retailer. Matching on the host keeps one retailer's
 	 * session out of the other retailer's API requests.
+	 * <p>
+	 * The cookies of an authentication result are already a {@link CookieJar}, so the
+	 * lookup uses its domain index and returns the jar it keeps for the host.
 	 * @param allCookies every cookie returned by the sidecar
 	 * @param targetHost the host the request will be sent to, e.g.
 	 * {@code www.supercard.ch}
 	 * @return the cookies belonging to {@code targetHost}
 	 */
-	protected List<SessionCookie> filterDomainSpecificCookies(final List<SessionCookie> allCookies,
-			final String targetHost) {
-		return allCookies.stream().filter(cookie -> cookie.matchesHost(targetHost)).toList();
+	protected CookieJar filterDomainSpecificCookies(final List<SessionCookie> allCookies, final String targetHost) {
+		return CookieJar.of(allCookies).forHost(targetHost);
+	}
+
+	/**
+	 * Retains only the cookies that may be sent with a request to {@code requestUrl}: the
+	 * cookies of {@code targetHost} whose path matches, that are not {@code Secure}
+	 * unless the URL is HTTPS, and that have not expired.
+	 * @param allCookies every cookie returned by the sidecar
+	 * @param targetHost the retailer host whose cookies are sent, e.g.
+	 * {@code account.migros.ch}
+	 * @param requestUrl the URL the request will be sent to
+	 * @return the cookies for the request
+	 * @see CookieJar#forRequest(String, URI, Instant)
+	 */
+	protected CookieJar filterRequestCookies(final List<SessionCookie> allCookies, final String targetHost,
+			final String requestUrl) {
+		return CookieJar.of(allCookies).forRequest(targetHost, URI.create(requestUrl), Instant.now());
+	}
+
+	/**
+	 * Tells whether a failure means the retailer refused the session as a whole rather
+	 * than a single request: an explicit {@link SessionRejectedException}, HTTP 401/403,
+	 * or an HTML challenge page where JSON was expected.
+	 * @param failure the exception that aborted the run
+	 * @return {@code true} if a fresh login might succeed where this session did not
+	 */
+	protected static boolean isSessionRejection(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SessionRejectedException) {
+				return true;
+			}
+			if (cause instanceof HttpClientErrorException clientError
+					&& (clientError.getStatusCode().isSameCodeAs(HttpStatus.UNAUTHORIZED)
+							|| clientError.getStatusCode().isSameCodeAs(HttpStatus.FORBIDDEN))) {
+				return true;
+			}
+			if (cause instanceof UnknownContentTypeException unknownContent && unknownContent.getContentType() != null
+					&& unknownContent.getContentType().isCompatibleWith(MediaType.TEXT_HTML)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Times a session probe request and classifies its outcome. A request that completes
+	 * normally means the session is {@link SessionValidity#VALID}; an exception is mapped
+	 * by {@link #classifyProbeFailure(Throwable)}.
+	 * @param probeRequest issues the probe request and throws if the session is not
+	 * accepted
+	 * @return the verdict together with the probe latency
+	 */
+	protected SessionProbeResult runSessionProbe(Runnable probeRequest) {
+		var startTime = System.currentTimeMillis();
+		try {
+			probeRequest.run();
+			return new SessionProbeResult(SessionValidity.VALID, "Session accepted",
+					System.currentTimeMillis() - startTime);
+		}
+		catch (RuntimeException ex) {
+			return new SessionProbeResult(classifyProbeFailure(ex), ex.getMessage(),
+					System.currentTimeMillis() - startTime);
+		}
+	}
+
+	/**
+	 * Maps a failed probe request to a {@link SessionValidity}: an HTML answer (whatever
+	 * the status) is a bot challenge, HTTP 401/403 with any other body is an expired
+	 * session, and everything else is inconclusive.
+	 * @param failure the exception raised by the probe request
+	 * @return the verdict on the probed session
+	 */
+	protected static SessionValidity classifyProbeFailure(Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SessionRejectedException) {
+				return SessionValidity.CHALLENGED;
+			}
+			if (cause instanceof UnknownContentTypeException unknownContent && unknownContent.getContentType() != null
+					&& unknownContent.getContentType().isCompatibleWith(MediaType.TEXT_HTML)) {
+				return SessionValidity.CHALLENGED;
+			}
+			if (cause instanceof HttpClientErrorException clientError
+					&& (clientError.getStatusCode().isSameCodeAs(HttpStatus.UNAUTHORIZED)
+							|| clientError.getStatusCode().isSameCodeAs(HttpStatus.FORBIDDEN))) {
+				HttpHeaders headers = clientError.getResponseHeaders();
+				MediaType contentType = headers != null ? headers.getContentType() : null;
+				return contentType != null && contentType.isCompatibleWith(MediaType.TEXT_HTML)
+						? SessionValidity.CHALLENGED : SessionValidity.EXPIRED;
+			}
+		}
+		return SessionValidity.INCONCLUSIVE;
 	}
 
 	/**
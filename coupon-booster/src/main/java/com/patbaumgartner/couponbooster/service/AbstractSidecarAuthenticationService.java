@@ -1,16 +1,24 @@
 package com.patbaumgartner.couponbooster.service;
 
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.model.CookieJar;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.session.SessionStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -23,6 +31,16 @@ import java.util.function.Supplier;
  * credential validation, HTTP request to the sidecar, cookie parsing, and error handling.
  * Subclasses supply the provider-specific login URI and the missing-credentials message
  * via constructor arguments.
+ * <p>
+ * A session remembered by the {@link SessionStore} is first checked with the provider's
+ * {@link SessionProbe}; if the retailer still accepts it, it is returned without
+ * contacting the sidecar. Every successful sidecar login replaces the remembered session,
+ * and so do the cookies a run renewed.
+ * <p>
+ * The sidecar can be a pool of several: a sidecar runs one login per provider at a time,
+ * so more sidecars log more accounts in at once. Each login goes to the least busy
+ * sidecar, preferably the one the account used before; a sidecar that is busy or cannot
+ * be connected to passes the login on to the next one.
  *
  * @see com.patbaumgartner.couponbooster.coop.service.CoopSidecarAuthenticationService
  * @see com.patbaumgartner.couponbooster.migros.service.MigrosSidecarAuthenticationService
@@ -37,84 +55,228 @@ public abstract class AbstractSidecarAuthenticationService implements Authentica
 
 	private final String credentialsMissingMessage;
 
+	private final String provider;
+
 	private final String loginUri;
 
-	private final RestClient restClient;
+	private final SidecarPool sidecarPool;
 
 	private final ObjectMapper objectMapper;
 
+	private final SessionStore sessionStore;
+
+	private final SessionProbe sessionProbe;
+
+	private final CouponMetrics metrics;
+
 	/**
 	 * Constructs a new stealth authentication service.
 	 * @param emailSupplier supplies the user e-mail address at authentication time
 	 * @param passwordSupplier supplies the user password at authentication time
 	 * @param credentialsMissingMessage error message returned when credentials are absent
+	 * @param provider provider key the session store files entries under (e.g.
+	 * {@code coop})
 	 * @param loginUri sidecar endpoint path (e.g. {@code /login/coop})
-	 * @param sidecarUrl base URL of the stealth sidecar (used to build the REST client)
+	 * @param sidecarUrls base URLs of the stealth sidecars (used to build the REST
+	 * clients); at least one
 	 * @param restClientBuilder Spring REST client builder
+	 * @param httpClientProfiles provides the sidecar HTTP client profile
 	 * @param objectMapper Jackson object mapper
+	 * @param sessionStore remembers successful logins between runs
+	 * @param sessionProbe checks whether a remembered session is still accepted
+	 * @param metrics records the login latency
 	 */
 	protected AbstractSidecarAuthenticationService(Supplier<String> emailSupplier, Supplier<String> passwordSupplier,
-			String credentialsMissingMessage, String loginUri, String sidecarUrl, RestClient.Builder restClientBuilder,
-			ObjectMapper objectMapper) {
+			String credentialsMissingMessage, String provider, String loginUri, List<String> sidecarUrls,
+			RestClient.Builder restClientBuilder, HttpClientProfiles httpClientProfiles, ObjectMapper objectMapper,
+			SessionStore sessionStore, SessionProbe sessionProbe, CouponMetrics metrics) {
 		this.emailSupplier = Objects.requireNonNull(emailSupplier, "emailSupplier cannot be null");
 		this.passwordSupplier = Objects.requireNonNull(passwordSupplier, "passwordSupplier cannot be null");
 		this.credentialsMissingMessage = Objects.requireNonNull(credentialsMissingMessage,
 				"credentialsMissingMessage cannot be null");
+		this.provider = Objects.requireNonNull(provider, "provider cannot be null");
 		this.loginUri = Objects.requireNonNull(loginUri, "loginUri cannot be null");
 		this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper cannot be null");
-		this.restClient = Objects.requireNonNull(restClientBuilder, "restClientBuilder cannot be null")
-			.baseUrl(sidecarUrl)
-			.build();
+		this.sessionStore = Objects.requireNonNull(sessionStore, "SessionStore cannot be null");
+		this.sessionProbe = Objects.requireNonNull(sessionProbe, "SessionProbe cannot be null");
+		this.metrics = Objects.requireNonNull(metrics, "CouponMetrics cannot be null");
+		Objects.requireNonNull(httpClientProfiles, "httpClientProfiles cannot be null");
+		var healthClientBuilder = Objects.requireNonNull(restClientBuilder, "restClientBuilder cannot be null").clone();
+		httpClientProfiles.apply(HttpClientProfiles.Profile.SIDECAR_HEALTH, healthClientBuilder);
+		httpClientProfiles.apply(HttpClientProfiles.Profile.SIDECAR, restClientBuilder);
+		this.sidecarPool = new SidecarPool(provider, sidecarUrls, restClientBuilder, healthClientBuilder, objectMapper,
+				Clock.systemUTC());
 	}
 
 	/**
-	 * Calls the stealth sidecar login endpoint and maps the response to an
+	 * Returns the stored session for the configured account if the retailer still accepts
+	 * it, otherwise calls the stealth sidecar login endpoint and maps the response to an
 	 * {@link AuthenticationResult}.
 	 * @return a successful result containing session cookies, or a failed result if
 	 * credentials are missing or the sidecar returns an error
 	 */
 	@Override
 	public AuthenticationResult performAuthentication() {
+		return authenticate(emailSupplier.get(), passwordSupplier.get());
+	}
+
+	/**
+	 * Authenticates the given account the same way as the configured one.
+	 * @param account an account of this service's provider
+	 * @return a successful result containing session cookies, or a failed result if
+	 * credentials are missing or the sidecar returns an error
+	 * @throws IllegalArgumentException if the account belongs to another provider
+	 */
+	@Override
+	public AuthenticationResult performAuthentication(Account account) {
+		return authenticate(requireOwnAccount(account).email(), account.password());
+	}
+
+	/**
+	 * Evicts the stored session of the configured account.
+	 */
+	@Override
+	public void invalidateSession() {
+		evict(emailSupplier.get());
+	}
+
+	/**
+	 * Evicts the stored session of the given account.
+	 * @param account an account of this service's provider
+	 */
+	@Override
+	public void invalidateSession(Account account) {
+		evict(requireOwnAccount(account).email());
+	}
+
+	/**
+	 * Stores the configured account's session with the cookies the retailer renewed.
+	 * @param session the session with the renewed cookies
+	 */
+	@Override
+	public void renewSession(AuthenticationResult session) {
+		renew(emailSupplier.get(), session);
+	}
+
+	/**
+	 * Stores the given account's session with the cookies the retailer renewed.
+	 * @param account an account of this service's provider
+	 * @param session the session with the renewed cookies
+	 */
+	@Override
+	public void renewSession(Account account, AuthenticationResult session) {
+		renew(requireOwnAccount(account).email(), session);
+	}
+
+	private AuthenticationResult authenticate(String email, String password) {
 		var startTime = System.currentTimeMillis();
-		String email = emailSupplier.get();
-		String password = passwordSupplier.get();
 
 		if (email == null || email.isBlank() || password == null || password.isBlank()) {
 			var duration = System.currentTimeMillis() - startTime;
 			return AuthenticationResult.failed(credentialsMissingMessage, duration);
 		}
 
-		log.info("Requesting stealth login from sidecar via {}", loginUri);
+		var storedSession = sessionStore.load(provider, email);
+		if (storedSession.isPresent()) {
+			var stored = storedSession.get();
+			var probe = sessionProbe.probeSession(stored.sessionCookies(), stored.userAgent(),
+					stored.browserLanguage());
+			if (probe.isValid()) {
+				log.info("Reusing stored {} session from {} (probe {}ms); skipping sidecar login", provider,
+						stored.completionTimestamp(), probe.executionDurationMs());
+				metrics.recordLogin(provider, email, CouponMetrics.REUSED,
+						Duration.ofMillis(System.currentTimeMillis() - startTime));
+				return stored;
+			}
+			log.info("Stored {} session is {} (probe {}ms: {}); logging in via the sidecar", provider, probe.validity(),
+					probe.executionDurationMs(), probe.statusMessage());
+		}
 
-		try {
-			var requestBody = objectMapper.createObjectNode().put("email", email).put("password", password).toString();
+		var result = loginViaSidecar(email, password, startTime);
+		metrics.recordLogin(provider, email, result.isSuccessful() ? CouponMetrics.SUCCESS : CouponMetrics.FAILURE,
+				Duration.ofMillis(System.currentTimeMillis() - startTime));
+		if (result.isSuccessful()) {
+			sessionStore.save(provider, email, result);
+		}
+		return result;
+	}
+
+	private void renew(String email, AuthenticationResult session) {
+		if (email != null && !email.isBlank() && session != null && session.isSuccessful()) {
+			sessionStore.save(provider, email, session);
+			log.debug("Stored {} session with {} renewed cookies", provider, session.sessionCookies().size());
+		}
+	}
+
+	private void evict(String email) {
+		if (email != null && !email.isBlank()) {
+			sessionStore.evict(provider, email);
+		}
+	}
+
+	private Account requireOwnAccount(Account account) {
+		Objects.requireNonNull(account, "Account cannot be null");
+		if (!provider.equals(account.provider())) {
+			throw new IllegalArgumentException(
+					"Account of provider '%s' cannot log in via %s".formatted(account.provider(), loginUri));
+		}
+		return account;
+	}
 
-			var responseEntity = restClient.post()
+	private AuthenticationResult loginViaSidecar(String email, String password, long startTime) {
+		var route = sidecarPool.route(email).iterator();
+		var sidecar = route.next();
+		while (true) {
+			try {
+				return loginViaSidecar(sidecar, email, password, startTime);
+			}
+			catch (RestClientException ex) {
+				if (!sidecar.rejected(ex) || !route.hasNext()) {
+					var duration = System.currentTimeMillis() - startTime;
+					log.error("Sidecar HTTP request failed: {}", ex.getMessage(), ex);
+					return AuthenticationResult.failed("Sidecar request failed: " + ex.getMessage(), duration);
+				}
+				var next = route.next();
+				log.warn("Sidecar {} did not take the {} login ({}); trying {}", sidecar.url(), provider,
+						ex.getMessage(), next.url());
+				sidecar = next;
+			}
+			catch (Exception ex) {
+				var duration = System.currentTimeMillis() - startTime;
+				log.error("Unexpected error calling stealth sidecar: {}", ex.getMessage(), ex);
+				return AuthenticationResult.failed("Unexpected sidecar error: " + ex.getMessage(), duration);
+			}
+		}
+	}
+
+	private AuthenticationResult loginViaSidecar(SidecarPool.Sidecar sidecar, String email, String password,
+			long startTime) {
+		log.info("Requesting stealth login from sidecar {} via {}", sidecar.url(), loginUri);
+
+		var requestBody = objectMapper.createObjectNode().put("email", email).put("password", password).toString();
+		ResponseEntity<String> responseEntity;
+		sidecar.begin();
+		try {
+			responseEntity = sidecar.restClient()
+				.post()
 				.uri(loginUri)
 				.contentType(MediaType.APPLICATION_JSON)
 				.body(requestBody)
 				.retrieve()
 				.toEntity(String.class);
-
-			if (responseEntity.getStatusCode() != HttpStatus.OK || responseEntity.getBody() == null) {
-				var duration = System.currentTimeMillis() - startTime;
-				var msg = "Sidecar returned unexpected status: " + responseEntity.getStatusCode();
-				log.error(msg);
-				return AuthenticationResult.failed(msg, duration);
-			}
-
-			return parseSidecarResponse(responseEntity.getBody(), startTime);
 		}
-		catch (RestClientException ex) {
-			var duration = System.currentTimeMillis() - startTime;
-			log.error("Sidecar HTTP request failed: {}", ex.getMessage(), ex);
-			return AuthenticationResult.failed("Sidecar request failed: " + ex.getMessage(), duration);
+		finally {
+			sidecar.end();
 		}
-		catch (Exception ex) {
+
+		if (responseEntity.getStatusCode() != HttpStatus.OK || responseEntity.getBody() == null) {
 			var duration = System.currentTimeMillis() - startTime;
-			log.error("Unexpected error calling stealth sidecar: {}", ex.getMessage(), ex);
-			return AuthenticationResult.failed("Unexpected sidecar error: " + ex.getMessage(), duration);
+			var msg = "Sidecar returned unexpected status: " + responseEntity.getStatusCode();
+			log.error(msg);
+			return AuthenticationResult.failed(msg, duration);
 		}
+
+		return parseSidecarResponse(responseEntity.getBody(), startTime);
 	}
 
 	private AuthenticationResult parseSidecarResponse(String body, long startTime) {
@@ -128,13 +290,15 @@ public abstract class AbstractSidecarAuthenticationService implements Authentica
 			if (cookieArray.isArray()) {
 				for (JsonNode node : cookieArray) {
 					cookies.add(new SessionCookie(node.path("name").asString(""), node.path("value").asString(""),
-							node.path("domain").asString("")));
+							node.path("domain").asString(""), node.path("path").asString(""),
+							expiresOf(node.path("expires")), node.path("secure").asBoolean(false)));
 				}
 			}
 
+			var cookieJar = CookieJar.of(cookies);
 			var duration = System.currentTimeMillis() - startTime;
-			log.info("Sidecar login successful: {} cookies received in {}ms", cookies.size(), duration);
-			return AuthenticationResult.successful(cookies, duration, userAgent, language);
+			log.info("Sidecar login successful: {} cookies received in {}ms", cookieJar.size(), duration);
+			return AuthenticationResult.successful(cookieJar, duration, userAgent, language);
 		}
 		catch (RuntimeException ex) {
 			var duration = System.currentTimeMillis() - startTime;
@@ -143,4 +307,13 @@ public abstract class AbstractSidecarAuthenticationService implements Authentica
 		}
 	}
 
+	/**
+	 * Playwright reports the expiry in fractional seconds since the epoch, and {@code -1}
+	 * for a cookie that lasts as long as the browser session.
+	 */
+	private static Instant expiresOf(JsonNode expires) {
+		double epochSeconds = expires.asDouble(-1);
+		return (epochSeconds > 0) ? Instant.ofEpochMilli((long) (epochSeconds * 1000)) : null;
+	}
+
 }
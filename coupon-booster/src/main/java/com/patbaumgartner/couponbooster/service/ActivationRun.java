@@ -0,0 +1,23 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+
+/**
+ * Outcome of one {@link CouponActivationFlow} execution.
+ *
+ * @param authentication the authentication the run ended with; after a rejected stored
+ * session this is the fresh sidecar login
+ * @param activation the activation result, or {@code null} if authentication failed
+ */
+public record ActivationRun(AuthenticationResult authentication, CouponActivationResult activation) {
+
+	/**
+	 * Tells whether the run got past authentication.
+	 * @return {@code true} if the run authenticated and attempted activation
+	 */
+	public boolean authenticated() {
+		return authentication.isSuccessful();
+	}
+
+}
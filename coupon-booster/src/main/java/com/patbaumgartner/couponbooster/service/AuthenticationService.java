@@ -1,9 +1,56 @@
 package com.patbaumgartner.couponbooster.service;
 
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.AuthenticationResult;
 
 public interface AuthenticationService {
 
 	AuthenticationResult performAuthentication();
 
+	/**
+	 * Discards any remembered session so the next {@link #performAuthentication()} logs
+	 * in from scratch. Called when the retailer rejected a restored session.
+	 */
+	default void invalidateSession() {
+		// Stateless implementations have nothing to discard.
+	}
+
+	/**
+	 * Authenticates the given account instead of the configured one.
+	 * @param account the account to log in
+	 * @return the authentication outcome
+	 * @throws CouponBoosterException if this service is bound to a single account
+	 */
+	default AuthenticationResult performAuthentication(Account account) {
+		throw new CouponBoosterException(getClass().getSimpleName() + " cannot authenticate other accounts");
+	}
+
+	/**
+	 * Remembers the configured account's session with the cookies the retailer renewed
+	 * during a run, so the next run starts from them.
+	 * @param session the session with the renewed cookies
+	 */
+	default void renewSession(AuthenticationResult session) {
+		// Stateless implementations remember nothing.
+	}
+
+	/**
+	 * Remembers the given account's session with the cookies the retailer renewed during
+	 * a run.
+	 * @param account the account the session belongs to
+	 * @param session the session with the renewed cookies
+	 */
+	default void renewSession(Account account, AuthenticationResult session) {
+		// Stateless implementations remember nothing.
+	}
+
+	/**
+	 * Discards any remembered session of the given account.
+	 * @param account the account whose session the retailer rejected
+	 */
+	default void invalidateSession(Account account) {
+		// Stateless implementations have nothing to discard.
+	}
+
 }
@@ -0,0 +1,71 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many callers may run a stage of the activation flow at the same time.
+ * <p>
+ * Callers beyond the cap wait in arrival order. Waiting parks the calling thread, which
+ * is cheap for the virtual threads the account engine runs on.
+ */
+public final class Bulkhead {
+
+	private final Semaphore permits;
+
+	/**
+	 * Creates a bulkhead.
+	 * @param maxConcurrentCalls how many calls may run at the same time, at least 1
+	 */
+	public Bulkhead(int maxConcurrentCalls) {
+		if (maxConcurrentCalls < 1) {
+			throw new IllegalArgumentException("maxConcurrentCalls must be at least 1");
+		}
+		this.permits = new Semaphore(maxConcurrentCalls, true);
+	}
+
+	/**
+	 * Runs the task once a permit is free.
+	 * @param task the stage to run
+	 * @param <T> the result type of the task
+	 * @return the task's result
+	 * @throws CouponBoosterException if the thread is interrupted while waiting
+	 */
+	public <T> T call(Supplier<T> task) {
+		try {
+			permits.acquire();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new CouponBoosterException("Interrupted while waiting for a concurrency permit", ex);
+		}
+		try {
+			return task.get();
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Runs a task from within {@link #call(Supplier)} without holding the caller's
+	 * permit: the permit is handed back while the task runs, e.g. while the caller waits
+	 * for another bulkhead, and taken again afterwards.
+	 * @param task the work to run outside this bulkhead
+	 * @param <T> the result type of the task
+	 * @return the task's result
+	 */
+	public <T> T outside(Supplier<T> task) {
+		permits.release();
+		try {
+			return task.get();
+		}
+		finally {
+			// Uninterruptibly: call(...) releases the permit again in any case.
+			permits.acquireUninterruptibly();
+		}
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.snapshot.CatalogueStore;
+import com.patbaumgartner.couponbooster.snapshot.StoredCatalogue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the last parsed coupon catalogue per account and URL together with the
+ * validators ({@code ETag}, {@code Last-Modified}) it was served with.
+ * <p>
+ * A service hands the validators of its cached catalogue to the next catalogue request as
+ * the {@link Validators#ATTRIBUTE} request attribute; the shared REST client turns them
+ * into {@code If-None-Match} / {@code If-Modified-Since}. A {@code 304 Not Modified} then
+ * means the cached catalogue is still current and can be used without downloading or
+ * parsing it again. Catalogue and validators are stored together, so a download that
+ * fails to parse never leaves validators behind that vouch for an older catalogue.
+ * <p>
+ * Each entry is also written to the {@link CatalogueStore}, so a run in a new process
+ * starts from the catalogue of the previous run instead of an unconditional download.
+ * Entries of the configured account ({@code ""}) are only kept in memory.
+ *
+ * @param <T> the parsed catalogue type
+ */
+public final class CatalogueCache<T> {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogueCache.class);
+
+	private final CatalogueStore catalogueStore;
+
+	private final String provider;
+
+	private final ObjectMapper objectMapper;
+
+	private final TypeReference<T> catalogueType;
+
+	private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an empty cache.
+	 * @param catalogueStore keeps the catalogues between runs
+	 * @param provider provider key the catalogues are stored under, e.g. {@code coop}
+	 * @param objectMapper Jackson object mapper the catalogues are stored with
+	 * @param catalogueType the parsed catalogue type, to read stored catalogues back
+	 */
+	public CatalogueCache(CatalogueStore catalogueStore, String provider, ObjectMapper objectMapper,
+			TypeReference<T> catalogueType) {
+		this.catalogueStore = catalogueStore;
+		this.provider = provider;
+		this.objectMapper = objectMapper;
+		this.catalogueType = catalogueType;
+	}
+
+	/**
+	 * Returns the cached catalogue of an account and URL. A catalogue not cached in
+	 * memory yet is looked up in the catalogue store.
+	 * @param account the account the catalogue belongs to
+	 * @param url the catalogue URL
+	 * @return the cached entry, if any
+	 */
+	public Optional<Entry<T>> get(String account, String url) {
+		var entry = entries.get(key(account, url));
+		return (entry != null) ? Optional.of(entry) : restore(account, url);
+	}
+
+	/**
+	 * Returns the validators to send with the next request for a catalogue.
+	 * @param account the account the catalogue belongs to
+	 * @param url the catalogue URL
+	 * @return the cached catalogue's validators, or {@link Validators#NONE}
+	 */
+	public Validators validators(String account, String url) {
+		return get(account, url).map(Entry::validators).orElse(Validators.NONE);
+	}
+
+	/**
+	 * Caches a freshly downloaded catalogue. A response without validators cannot be
+	 * revalidated, so it replaces any earlier entry without being cached itself.
+	 * @param account the account the catalogue belongs to
+	 * @param url the catalogue URL
+	 * @param responseHeaders headers of the response the catalogue was parsed from
+	 * @param catalogue the parsed catalogue
+	 */
+	public void put(String account, String url, HttpHeaders responseHeaders, T catalogue) {
+		var validators = Validators.of(responseHeaders);
+		if (validators.isEmpty()) {
+			entries.remove(key(account, url));
+			if (!account.isBlank()) {
+				catalogueStore.evict(provider, account, url);
+			}
+		}
+		else {
+			entries.put(key(account, url), new Entry<>(validators, catalogue));
+			if (!account.isBlank()) {
+				catalogueStore.save(provider, account, url, new StoredCatalogue(validators.etag(),
+						validators.lastModified(), objectMapper.valueToTree(catalogue)));
+			}
+		}
+	}
+
+	private Optional<Entry<T>> restore(String account, String url) {
+		if (account.isBlank()) {
+			return Optional.empty();
+		}
+		var stored = catalogueStore.load(provider, account, url);
+		if (stored.isEmpty()) {
+			return Optional.empty();
+		}
+		var validators = new Validators(stored.get().etag(), stored.get().lastModified());
+		if (validators.isEmpty()) {
+			return Optional.empty();
+		}
+		try {
+			T catalogue = objectMapper.convertValue(stored.get().catalogue(), catalogueType);
+			var restored = new Entry<>(validators, catalogue);
+			var cached = entries.putIfAbsent(key(account, url), restored);
+			return Optional.of((cached != null) ? cached : restored);
+		}
+		catch (RuntimeException ex) {
+			// A catalogue stored by an older version may no longer fit the type.
+			log.debug("Stored {} catalogue cannot be read back: {}", provider, ex.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private static String key(String account, String url) {
+		return account + ' ' + url;
+	}
+
+	/**
+	 * A cached catalogue and the validators it was served with.
+	 *
+	 * @param validators the response validators
+	 * @param catalogue the parsed catalogue
+	 * @param <T> the parsed catalogue type
+	 */
+	public record Entry<T>(Validators validators, T catalogue) {
+	}
+
+	/**
+	 * The validators of a cached response, sent back to make the next request
+	 * conditional.
+	 *
+	 * @param etag the {@code ETag} header, or {@code null}
+	 * @param lastModified the {@code Last-Modified} header, or {@code null}
+	 */
+	public record Validators(String etag, String lastModified) {
+
+		/**
+		 * Request attribute carrying the {@link Validators} of a catalogue request. Its
+		 * presence, even as {@link #NONE}, marks the request as a catalogue fetch.
+		 */
+		public static final String ATTRIBUTE = Validators.class.getName();
+
+		/**
+		 * No cached catalogue; the request stays unconditional.
+		 */
+		public static final Validators NONE = new Validators(null, null);
+
+		static Validators of(HttpHeaders headers) {
+			return new Validators(headers.getETag(), headers.getFirst(HttpHeaders.LAST_MODIFIED));
+		}
+
+		/**
+		 * Tells whether there is nothing to revalidate with.
+		 * @return {@code true} if neither validator is present
+		 */
+		public boolean isEmpty() {
+			return etag == null && lastModified == null;
+		}
+
+	}
+
+}
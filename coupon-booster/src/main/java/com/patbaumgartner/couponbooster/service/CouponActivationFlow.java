@@ -0,0 +1,216 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The provider-independent activation flow shared by the one-shot runners and the
+ * schedulers: authenticate, then activate all available coupons.
+ * <p>
+ * A session restored from the session store may have been revoked by the retailer since
+ * it was stored. When the coupon service reports such a session as rejected, the flow
+ * invalidates it and repeats the run once with a fresh sidecar login.
+ * <p>
+ * When many accounts run at once, each authentication and activation attempt runs inside
+ * a caller-supplied {@link Bulkhead}, so the sidecar and the retailer APIs see a bounded
+ * number of concurrent requests. A coupon service that logs in again mid-batch does so
+ * through the {@link SessionRecovery} the flow passes it: the activation permit is handed
+ * back and the login waits for the authentication bulkhead like any other.
+ * <p>
+ * The slow part of a run is the sidecar login.
+ * {@link #prewarm(Account, Bulkhead, Duration)} logs an account in ahead of a scheduled
+ * run and keeps the session in memory; the next run of the account takes it instead of
+ * logging in, as long as it is still fresh. A pre-warmed session is used once, and is
+ * logged in again like a restored one if the retailer rejects it.
+ *
+ * @see com.patbaumgartner.couponbooster.runner.AbstractCouponBoosterRunner
+ * @see com.patbaumgartner.couponbooster.scheduler.AbstractCouponBoosterScheduler
+ */
+public final class CouponActivationFlow {
+
+	private static final Logger log = LoggerFactory.getLogger(CouponActivationFlow.class);
+
+	private final AuthenticationService authenticationService;
+
+	private final CouponService couponService;
+
+	private final String providerName;
+
+	private final Map<String, PrewarmedSession> prewarmedSessions = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new activation flow.
+	 * @param authenticationService the authentication service for this provider
+	 * @param couponService the coupon activation service for this provider
+	 * @param providerName human-readable provider label used in log messages
+	 */
+	public CouponActivationFlow(AuthenticationService authenticationService, CouponService couponService,
+			String providerName) {
+		this.authenticationService = Objects.requireNonNull(authenticationService,
+				"AuthenticationService cannot be null");
+		this.couponService = Objects.requireNonNull(couponService, "CouponService cannot be null");
+		this.providerName = Objects.requireNonNull(providerName, "providerName cannot be null");
+	}
+
+	/**
+	 * Runs the flow once for the given account, retrying with a fresh login if a restored
+	 * session is rejected.
+	 * @param account the account to authenticate and activate coupons for
+	 * @param authenticationBulkhead bulkhead every authentication attempt runs in
+	 * @param activationBulkhead bulkhead every activation attempt runs in
+	 * @return the authentication and activation outcome of the run
+	 */
+	public ActivationRun execute(Account account, Bulkhead authenticationBulkhead, Bulkhead activationBulkhead) {
+		Objects.requireNonNull(account, "Account cannot be null");
+		return execute(account, () -> authenticationService.performAuthentication(account),
+				() -> authenticationService.invalidateSession(account),
+				session -> authenticationService.renewSession(account, session), authenticationBulkhead,
+				activationBulkhead);
+	}
+
+	/**
+	 * Logs the given account in ahead of its next run and keeps the session for it.
+	 * <p>
+	 * The session is kept until {@code freshness} has passed or the first of its cookies
+	 * for the coupon service's {@link CouponService#sessionHost() session host} expires,
+	 * whichever comes first; a later pre-warm replaces it.
+	 * @param account the account to log in
+	 * @param authenticationBulkhead bulkhead the login runs in
+	 * @param freshness how long the session may be used after the login
+	 * @return the outcome of the login; a failed login is not kept
+	 */
+	public AuthenticationResult prewarm(Account account, Bulkhead authenticationBulkhead, Duration freshness) {
+		Objects.requireNonNull(account, "Account cannot be null");
+		var authenticationResult = authenticationBulkhead
+			.call(() -> authenticate(() -> authenticationService.performAuthentication(account)));
+		if (authenticationResult.isSuccessful()) {
+			var freshUntil = Instant.now().plus(freshness);
+			var sessionHost = couponService.sessionHost();
+			if (sessionHost != null) {
+				freshUntil = authenticationResult.earliestExpiry(sessionHost)
+					.filter(freshUntil::isAfter)
+					.orElse(freshUntil);
+			}
+			prewarmedSessions.put(accountKey(account), new PrewarmedSession(authenticationResult, freshUntil));
+		}
+		return authenticationResult;
+	}
+
+	private ActivationRun execute(Account account, Supplier<AuthenticationResult> login, Runnable invalidateSession,
+			Consumer<AuthenticationResult> renewSession, Bulkhead authenticationBulkhead, Bulkhead activationBulkhead) {
+		var prewarmed = takePrewarmedSession(account);
+		var authenticationResult = prewarmed.orElseGet(() -> authenticationBulkhead.call(() -> authenticate(login)));
+		if (!authenticationResult.isSuccessful()) {
+			return new ActivationRun(authenticationResult, null);
+		}
+
+		SessionRecovery sessionRecovery = () -> activationBulkhead.outside(() -> authenticationBulkhead.call(() -> {
+			invalidateSession.run();
+			return authenticate(login);
+		}));
+		var activationResult = activationBulkhead.call(() -> activate(account, authenticationResult, sessionRecovery));
+		keepRenewedCookies(authenticationResult, activationResult, renewSession);
+		if (!activationResult.sessionRejected() || !(authenticationResult.restored() || prewarmed.isPresent())) {
+			return new ActivationRun(authenticationResult, activationResult);
+		}
+
+		log.warn("{} rejected the {} session; logging in again via the sidecar", providerName,
+				prewarmed.isPresent() ? "pre-warmed" : "stored");
+		invalidateSession.run();
+		var freshAuthenticationResult = authenticationBulkhead.call(() -> authenticate(login));
+		if (!freshAuthenticationResult.isSuccessful()) {
+			return new ActivationRun(freshAuthenticationResult, null);
+		}
+		var freshActivationResult = activationBulkhead
+			.call(() -> activate(account, freshAuthenticationResult, sessionRecovery));
+		keepRenewedCookies(freshAuthenticationResult, freshActivationResult, renewSession);
+		return new ActivationRun(freshAuthenticationResult, freshActivationResult);
+	}
+
+	/**
+	 * Takes the account's pre-warmed session, if it is still fresh; either way it is not
+	 * handed out again.
+	 */
+	private Optional<AuthenticationResult> takePrewarmedSession(Account account) {
+		var prewarmed = prewarmedSessions.remove(accountKey(account));
+		if (prewarmed == null) {
+			return Optional.empty();
+		}
+		if (!prewarmed.freshUntil().isAfter(Instant.now())) {
+			log.info("{} session pre-warmed at {} went stale at {}; logging in again", providerName,
+					prewarmed.session().completionTimestamp(), prewarmed.freshUntil());
+			return Optional.empty();
+		}
+		log.info("Using the {} session pre-warmed at {}; skipping the login", providerName,
+				prewarmed.session().completionTimestamp());
+		return Optional.of(prewarmed.session());
+	}
+
+	private static String accountKey(Account account) {
+		return account.email().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Remembers the cookies the retailer renewed during the run, unless it rejected the
+	 * session anyway.
+	 */
+	private void keepRenewedCookies(AuthenticationResult authenticationResult, CouponActivationResult activationResult,
+			Consumer<AuthenticationResult> renewSession) {
+		if (activationResult.renewedCookies() == null || activationResult.sessionRejected()) {
+			return;
+		}
+		log.debug("{} renewed session cookies during the run; remembering them", providerName);
+		renewSession.accept(authenticationResult.withRenewedCookies(activationResult.renewedCookies(), Instant.now()));
+	}
+
+	private AuthenticationResult authenticate(Supplier<AuthenticationResult> login) {
+		var authenticationResult = login.get();
+
+		if (!authenticationResult.isSuccessful()) {
+			log.error("Authentication failed: {} ({}ms)", authenticationResult.statusMessage(),
+					authenticationResult.executionDurationMs());
+		}
+		else if (log.isInfoEnabled()) {
+			log.info("Authentication successful - {} cookies in {}ms", authenticationResult.sessionCookies().size(),
+					authenticationResult.executionDurationMs());
+		}
+		return authenticationResult;
+	}
+
+	private CouponActivationResult activate(Account account, AuthenticationResult authenticationResult,
+			SessionRecovery sessionRecovery) {
+		var activationResult = couponService.activateAllAvailableCoupons(account, authenticationResult.sessionCookies(),
+				authenticationResult.userAgent(), authenticationResult.browserLanguage(), sessionRecovery);
+
+		if (log.isInfoEnabled()) {
+			log.info("Completed - {} activated, {} failed", activationResult.successCount(),
+					activationResult.failureCount());
+			var diff = activationResult.couponSetDiff();
+			if (!diff.isEmpty()) {
+				log.info("Coupon set changed since the last run - {} new, {} expired, {} changed status",
+						diff.added().size(), diff.removed().size(), diff.statusChanged().size());
+			}
+		}
+		return activationResult;
+	}
+
+	/**
+	 * A session logged in ahead of a run, usable until {@code freshUntil}.
+	 */
+	private record PrewarmedSession(AuthenticationResult session, Instant freshUntil) {
+	}
+
+}
@@ -1,6 +1,7 @@
 package com.patbaumgartner.couponbooster.service;
 
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
 
 import java.util.List;
@@ -10,4 +11,47 @@ public interface CouponService {
 	CouponActivationResult activateAllAvailableCoupons(List<SessionCookie> sessionCookies, String userAgent,
 			String language);
 
+	/**
+	 * Activates coupons for a known account, so per-account state such as API tokens can
+	 * be reused across runs. Services without such state ignore the account.
+	 * @param account the account the session belongs to
+	 * @param sessionCookies authentication cookies from browser session
+	 * @param userAgent the user agent of the browser
+	 * @param language the language of the browser
+	 * @return activation statistics and coupon details
+	 */
+	default CouponActivationResult activateAllAvailableCoupons(Account account, List<SessionCookie> sessionCookies,
+			String userAgent, String language) {
+		return activateAllAvailableCoupons(sessionCookies, userAgent, language);
+	}
+
+	/**
+	 * Activates coupons for an account, logging in again through {@code sessionRecovery}
+	 * if the retailer rejects the session part-way through. Services that do not recover
+	 * mid-run ignore it.
+	 * @param account the account the session belongs to; {@code null} for the configured
+	 * account
+	 * @param sessionCookies authentication cookies from browser session
+	 * @param userAgent the user agent of the browser
+	 * @param language the language of the browser
+	 * @param sessionRecovery logs the account in again
+	 * @return activation statistics and coupon details
+	 */
+	default CouponActivationResult activateAllAvailableCoupons(Account account, List<SessionCookie> sessionCookies,
+			String userAgent, String language, SessionRecovery sessionRecovery) {
+		return (account == null) ? activateAllAvailableCoupons(sessionCookies, userAgent, language)
+				: activateAllAvailableCoupons(account, sessionCookies, userAgent, language);
+	}
+
+	/**
+	 * Returns the host the session cookies are sent to, whose cookies decide how long a
+	 * session stays usable.
+	 * @return the host, e.g. {@code account.migros.ch}; {@code null} if the service does
+	 * not send cookies to a single host
+	 * @see com.patbaumgartner.couponbooster.model.AuthenticationResult#earliestExpiry(String)
+	 */
+	default String sessionHost() {
+		return null;
+	}
+
 }
@@ -0,0 +1,49 @@
+package com.patbaumgartner.couponbooster.service;
+
+import org.springframework.web.client.RestClient;
+
+/**
+ * Hands each service the HTTP client of its named profile, so that the sidecar and the
+ * retailer APIs do not share one connection pool, timeout and retry policy.
+ *
+ * @see com.patbaumgartner.couponbooster.properties.HttpClientProperties
+ */
+@FunctionalInterface
+public interface HttpClientProfiles {
+
+	/**
+	 * The named HTTP client profiles.
+	 */
+	enum Profile {
+
+		/**
+		 * The Patchright sidecar: few, very slow requests.
+		 */
+		SIDECAR,
+
+		/**
+		 * The {@code GET /health} polls of the sidecar pool: a sidecar that does not
+		 * answer within seconds is not worth waiting for.
+		 */
+		SIDECAR_HEALTH,
+
+		/**
+		 * The Coop Supercard API.
+		 */
+		SUPERCARD,
+
+		/**
+		 * The Migros Cumulus API.
+		 */
+		CUMULUS
+
+	}
+
+	/**
+	 * Makes the builder create clients that use the given profile's request factory.
+	 * @param profile the profile to apply
+	 * @param restClientBuilder the builder of the service's REST client
+	 */
+	void apply(Profile profile, RestClient.Builder restClientBuilder);
+
+}
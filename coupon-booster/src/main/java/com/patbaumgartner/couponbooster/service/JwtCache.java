@@ -0,0 +1,149 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.session.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers bearer JWTs per account until shortly before they expire.
+ * <p>
+ * The expiry is read from the token's {@code exp} claim without verifying the signature:
+ * the token is only ever sent back to the server that issued it, which does the
+ * verification, so the claim merely tells the client when asking again becomes
+ * worthwhile. Tokens without a readable {@code exp} are not cached at all.
+ * <p>
+ * Each token is also kept with the account's entry in the {@link SessionStore}, so a run
+ * in a new process picks it up instead of asking for a new one. The in-memory copy saves
+ * later runs of the same process from decrypting the entry again.
+ */
+public final class JwtCache {
+
+	private static final Logger log = LoggerFactory.getLogger(JwtCache.class);
+
+	private final ObjectMapper objectMapper;
+
+	private final Clock clock;
+
+	private final SessionStore sessionStore;
+
+	private final String provider;
+
+	private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an empty cache.
+	 * @param objectMapper Jackson object mapper used to read the token payload
+	 * @param clock clock the expiry is judged against
+	 * @param sessionStore keeps the tokens with the accounts' sessions between runs
+	 * @param provider provider key the tokens are stored under, e.g. {@code coop}
+	 */
+	public JwtCache(ObjectMapper objectMapper, Clock clock, SessionStore sessionStore, String provider) {
+		this.objectMapper = objectMapper;
+		this.clock = clock;
+		this.sessionStore = sessionStore;
+		this.provider = provider;
+	}
+
+	/**
+	 * Returns the cached token of an account if it stays valid for at least the safety
+	 * margin. A token not cached in memory yet is looked up in the session store.
+	 * @param key the account the token belongs to, as the session store knows it; blank
+	 * for a token that is only kept in memory
+	 * @param safetyMargin how long before its expiry a token is no longer handed out
+	 * @return the cached token, if still usable
+	 */
+	public Optional<String> get(String key, Duration safetyMargin) {
+		var cached = tokens.get(key);
+		if (cached == null) {
+			cached = restore(key);
+			if (cached == null) {
+				return Optional.empty();
+			}
+		}
+		if (cached.expiresAt().minus(safetyMargin).isAfter(clock.instant())) {
+			return Optional.of(cached.token());
+		}
+		tokens.remove(key, cached);
+		log.debug("Cached token expires at {}; a fresh one is needed", cached.expiresAt());
+		return Optional.empty();
+	}
+
+	/**
+	 * Caches a token for an account, replacing any earlier one, and keeps it with the
+	 * account's stored session.
+	 * @param key the account the token belongs to, as the session store knows it; blank
+	 * for a token that is only kept in memory
+	 * @param token the encoded JWT
+	 */
+	public void put(String key, String token) {
+		expiryOf(token).ifPresentOrElse(expiresAt -> {
+			tokens.put(key, new CachedToken(token, expiresAt));
+			if (!key.isBlank()) {
+				sessionStore.saveBearerToken(provider, key, token, expiresAt);
+			}
+		}, () -> {
+			invalidate(key);
+			log.debug("Token carries no readable exp claim; not caching it");
+		});
+	}
+
+	/**
+	 * Forgets the token of an account, e.g. after the server rejected it.
+	 * @param key the account the token belongs to
+	 */
+	public void invalidate(String key) {
+		tokens.remove(key);
+		if (!key.isBlank()) {
+			sessionStore.evictBearerToken(provider, key);
+		}
+	}
+
+	private CachedToken restore(String key) {
+		if (key.isBlank()) {
+			return null;
+		}
+		var restored = sessionStore.loadBearerToken(provider, key)
+			.flatMap(token -> expiryOf(token).map(expiresAt -> new CachedToken(token, expiresAt)));
+		if (restored.isEmpty()) {
+			return null;
+		}
+		log.debug("Restored stored token valid until {}", restored.get().expiresAt());
+		var cached = tokens.putIfAbsent(key, restored.get());
+		return (cached != null) ? cached : restored.get();
+	}
+
+	private Optional<Instant> expiryOf(String token) {
+		String[] parts = token.split("\\.", -1);
+		if (parts.length != 3) {
+			return Optional.empty();
+		}
+		try {
+			var payload = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+			var exp = payload.path("exp");
+			return exp.isNumber() ? Optional.of(Instant.ofEpochSecond(exp.asLong())) : Optional.empty();
+		}
+		catch (IllegalArgumentException | JacksonException ex) {
+			return Optional.empty();
+		}
+	}
+
+	private record CachedToken(String token, Instant expiresAt) {
+
+		@Override
+		public String toString() {
+			return "CachedToken[expiresAt=%s]".formatted(expiresAt);
+		}
+
+	}
+
+}
@@ -0,0 +1,288 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.model.CookieJar;
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The cookies of one account's session during a run, kept current with the
+ * {@code Set-Cookie} headers the retailer answers with.
+ * <p>
+ * The cookies from the login are frozen, but Cumulus and Supercard rotate some of them
+ * (CSRF token, DataDome) on later responses. A request carrying this object as its
+ * {@link #ATTRIBUTE} has the {@code Set-Cookie} headers of its response merged in by the
+ * shared REST client, so the next request of the run is sent with the rotated cookies.
+ * After the run, {@link #renewed()} hands them to the session store, and the next run
+ * starts from them instead of from the login.
+ * <p>
+ * A {@code Set-Cookie} without a {@code Domain} attribute is filed under the request
+ * host, and one without {@code Path} under the directory of the request path; one whose
+ * domain the request host does not belong to, or which names a top-level domain, is
+ * ignored, as a browser would. A cookie that is expired or has {@code Max-Age=0} is
+ * removed.
+ * <p>
+ * The retailers rotate cookies without repeating the {@code Domain} and {@code Path} the
+ * sidecar's browser got them with. So a {@code Set-Cookie} lacking either attribute takes
+ * it from the cookie of the same name that was sent with the request, and replaces that
+ * cookie instead of being kept next to it with the stale value.
+ */
+public final class LiveCookies {
+
+	/**
+	 * The request attribute under which a request carries the live cookies its response
+	 * updates.
+	 */
+	public static final String ATTRIBUTE = LiveCookies.class.getName();
+
+	private static final Logger log = LoggerFactory.getLogger(LiveCookies.class);
+
+	/** Upper bound for {@code Max-Age}, as browsers cap cookie lifetimes at 400 days. */
+	private static final long MAX_AGE_LIMIT_SECONDS = Duration.ofDays(400).toSeconds();
+
+	private final Clock clock;
+
+	private final CookieJar initial;
+
+	private final AtomicReference<CookieJar> current;
+
+	private volatile boolean superseded;
+
+	/**
+	 * Starts from the cookies of a login.
+	 * @param cookies the cookies the session was authenticated with
+	 */
+	public LiveCookies(Collection<SessionCookie> cookies) {
+		this(cookies, Clock.systemUTC());
+	}
+
+	LiveCookies(Collection<SessionCookie> cookies, Clock clock) {
+		this.clock = clock;
+		this.initial = CookieJar.of(cookies);
+		this.current = new AtomicReference<>(initial);
+	}
+
+	/**
+	 * Returns the current cookies.
+	 * @return the cookies of the login with every update received so far
+	 */
+	public CookieJar current() {
+		return current.get();
+	}
+
+	/**
+	 * Returns the current cookies that may be sent to a host.
+	 * @param host the target host
+	 * @return the host's cookies
+	 * @see CookieJar#forHost(String)
+	 */
+	public CookieJar forHost(String host) {
+		return current.get().forHost(host);
+	}
+
+	/**
+	 * Returns the current cookies that may be sent with a request.
+	 * @param host the host whose cookies are sent
+	 * @param requestUri the URI of the request
+	 * @return the request's cookies
+	 * @see CookieJar#forRequest(String, URI, Instant)
+	 */
+	public CookieJar forRequest(String host, URI requestUri) {
+		return current.get().forRequest(host, requestUri, clock.instant());
+	}
+
+	/**
+	 * Merges the {@code Set-Cookie} headers of a response.
+	 * @param requestUri the URI the request was sent to
+	 * @param setCookieHeaders the values of the response's {@code Set-Cookie} headers
+	 */
+	public void receive(URI requestUri, List<String> setCookieHeaders) {
+		String requestHost = requestUri.getHost();
+		if (requestHost == null || requestHost.isBlank() || setCookieHeaders == null || setCookieHeaders.isEmpty()) {
+			return;
+		}
+		Instant now = clock.instant();
+		List<ParsedCookie> parsedCookies = new ArrayList<>();
+		for (String header : setCookieHeaders) {
+			parse(header, requestUri, now).ifPresent(parsedCookies::add);
+		}
+		if (parsedCookies.isEmpty()) {
+			return;
+		}
+		CookieJar before = current.getAndUpdate(jar -> merge(jar, parsedCookies, requestHost, requestUri, now));
+		if (log.isDebugEnabled() && before != current.get()) {
+			long removed = parsedCookies.stream().filter(ParsedCookie::expired).count();
+			log.debug("{} responded with {} updated and {} removed cookies", requestHost,
+					parsedCookies.size() - removed, removed);
+		}
+	}
+
+	private static CookieJar merge(CookieJar jar, List<ParsedCookie> parsedCookies, String requestHost, URI requestUri,
+			Instant now) {
+		CookieJar sent = jar.forRequest(requestHost, requestUri, now);
+		List<SessionCookie> updates = new ArrayList<>();
+		List<SessionCookie> removals = new ArrayList<>();
+		for (ParsedCookie parsed : parsedCookies) {
+			var cookie = parsed.replacing(sent);
+			if (parsed.expired()) {
+				removals.add(cookie);
+			}
+			else {
+				updates.add(cookie);
+			}
+		}
+		return jar.merge(updates, removals);
+	}
+
+	/**
+	 * Marks these cookies as replaced by a new login within the run, which the
+	 * authentication service has stored itself; they are then no longer reported as
+	 * renewed.
+	 */
+	public void supersede() {
+		superseded = true;
+	}
+
+	/**
+	 * Returns the cookies to remember for the next run.
+	 * @return the current cookies if the retailer changed any of them and no new login
+	 * superseded them
+	 */
+	public Optional<CookieJar> renewed() {
+		CookieJar cookies = current.get();
+		return (superseded || cookies == initial) ? Optional.empty() : Optional.of(cookies);
+	}
+
+	/**
+	 * Parses one {@code Set-Cookie} header value; {@code HttpOnly}, {@code SameSite} and
+	 * unknown attributes are not modelled and are skipped.
+	 */
+	static Optional<ParsedCookie> parse(String header, URI requestUri, Instant now) {
+		if (header == null) {
+			return Optional.empty();
+		}
+		String[] parts = header.split(";");
+		int separator = parts[0].indexOf('=');
+		if (separator <= 0) {
+			return Optional.empty();
+		}
+		String name = parts[0].substring(0, separator).trim();
+		String value = parts[0].substring(separator + 1).trim();
+		if (name.isEmpty()) {
+			return Optional.empty();
+		}
+
+		String requestHost = requestUri.getHost();
+		String domain = null;
+		String path = null;
+		boolean secure = false;
+		Optional<Instant> expires = Optional.empty();
+		OptionalLong maxAge = OptionalLong.empty();
+		for (int index = 1; index < parts.length; index++) {
+			String attribute = parts[index];
+			int equals = attribute.indexOf('=');
+			String attributeName = (equals < 0 ? attribute : attribute.substring(0, equals)).trim()
+				.toLowerCase(Locale.ROOT);
+			String attributeValue = (equals < 0) ? "" : attribute.substring(equals + 1).trim();
+			switch (attributeName) {
+				case "domain" -> domain = attributeValue.isEmpty() ? null : attributeValue;
+				case "path" -> path = attributeValue.startsWith("/") ? attributeValue : null;
+				case "secure" -> secure = true;
+				case "max-age" -> maxAge = parseMaxAge(attributeValue);
+				case "expires" -> expires = parseExpires(attributeValue);
+				default -> {
+					// HttpOnly, SameSite: not modelled.
+				}
+			}
+		}
+		// Max-Age takes precedence over Expires (RFC 6265, section 5.3).
+		Instant expiry = maxAge.isPresent() ? now.plusSeconds(Math.clamp(maxAge.getAsLong(), 0, MAX_AGE_LIMIT_SECONDS))
+				: expires.orElse(null);
+		boolean expired = expiry != null && !expiry.isAfter(now);
+
+		var cookie = new SessionCookie(name, value, (domain == null) ? requestHost : domain,
+				(path == null) ? defaultPath(requestUri.getRawPath()) : path, expiry, secure);
+		String bareDomain = cookie.domain().startsWith(".") ? cookie.domain().substring(1) : cookie.domain();
+		if (!bareDomain.contains(".") || !cookie.matchesHost(requestHost)) {
+			log.debug("Ignoring cookie '{}' for domain {} set by {}", name, cookie.domain(), requestHost);
+			return Optional.empty();
+		}
+		return Optional.of(new ParsedCookie(cookie, expired, domain == null, path == null));
+	}
+
+	/**
+	 * The directory of the request path, the path of a cookie set without {@code Path}
+	 * (RFC 6265, section 5.1.4).
+	 */
+	private static String defaultPath(String requestPath) {
+		if (requestPath == null || !requestPath.startsWith("/")) {
+			return "/";
+		}
+		int lastSlash = requestPath.lastIndexOf('/');
+		return (lastSlash == 0) ? "/" : requestPath.substring(0, lastSlash);
+	}
+
+	private static OptionalLong parseMaxAge(String value) {
+		try {
+			return OptionalLong.of(Long.parseLong(value));
+		}
+		catch (NumberFormatException ex) {
+			return OptionalLong.empty();
+		}
+	}
+
+	private static Optional<Instant> parseExpires(String value) {
+		try {
+			return Optional
+				.of(ZonedDateTime.parse(value.replace('-', ' '), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+		}
+		catch (DateTimeParseException ex) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * A cookie from a {@code Set-Cookie} header; {@code expired} marks a deletion,
+	 * {@code hostOnly} and {@code defaultPath} a header without {@code Domain} or
+	 * {@code Path}.
+	 */
+	record ParsedCookie(SessionCookie cookie, boolean expired, boolean hostOnly, boolean defaultPath) {
+
+		/**
+		 * Returns the cookie with the domain and path it did not set taken from the first
+		 * cookie of the same name in {@code sent}, so it replaces that one.
+		 * @param sent the cookies sent with the request
+		 * @return the cookie, unchanged if it set both or no cookie of its name was sent
+		 */
+		SessionCookie replacing(CookieJar sent) {
+			if (!hostOnly && !defaultPath) {
+				return cookie;
+			}
+			for (SessionCookie rotated : sent) {
+				if (rotated.name().equals(cookie.name())) {
+					return new SessionCookie(cookie.name(), cookie.value(),
+							hostOnly ? rotated.domain() : cookie.domain(), defaultPath ? rotated.path() : cookie.path(),
+							cookie.expires(), cookie.secure());
+				}
+			}
+			return cookie;
+		}
+
+	}
+
+}
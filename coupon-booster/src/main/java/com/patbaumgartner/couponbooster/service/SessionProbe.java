@@ -0,0 +1,17 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.model.SessionProbeResult;
+
+import java.util.List;
+
+/**
+ * Checks with a single lightweight request whether the retailer still accepts a session,
+ * so that a remembered session can be reused without a browser login.
+ */
+@FunctionalInterface
+public interface SessionProbe {
+
+	SessionProbeResult probeSession(List<SessionCookie> sessionCookies, String userAgent, String language);
+
+}
@@ -0,0 +1,23 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+
+/**
+ * Logs an account in again after the retailer rejected its session in the middle of a
+ * run.
+ * <p>
+ * The {@link CouponActivationFlow} supplies one that discards the remembered session and
+ * logs in through the same bulkheads as every other login of the run, so a recovery
+ * neither races another account's login on the sidecar nor holds an activation permit
+ * while it waits.
+ */
+@FunctionalInterface
+public interface SessionRecovery {
+
+	/**
+	 * Discards the rejected session and logs in again.
+	 * @return the outcome of the new login
+	 */
+	AuthenticationResult recover();
+
+}
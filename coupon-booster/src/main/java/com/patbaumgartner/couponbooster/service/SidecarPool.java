@@ -0,0 +1,233 @@
+package com.patbaumgartner.couponbooster.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.net.ConnectException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The sidecars one provider logs in through, and the order to try them in for an account.
+ * <p>
+ * A sidecar runs one login per provider at a time and answers {@code 409} to a second
+ * one, so a single sidecar caps the login throughput. With several, each login is routed
+ * to the least busy reachable sidecar: busy counts the logins this pool has in flight
+ * there and whether its {@code GET /health} last reported a login of the provider, which
+ * also covers logins of other clients. Health is polled at most every {@link #HEALTH_TTL}
+ * per sidecar, and not at all for a single sidecar, where there is nothing to choose. The
+ * polls run on a client of their own with short timeouts, so a hanging sidecar delays a
+ * login by seconds rather than by the minutes a login may take.
+ * <p>
+ * Among equally busy sidecars an account always prefers the same one (rendezvous
+ * hashing), so the persistent browser profile of that sidecar already knows the account;
+ * adding or removing a sidecar only moves the accounts that preferred it.
+ */
+final class SidecarPool {
+
+	/** How long a polled health status is trusted. */
+	static final Duration HEALTH_TTL = Duration.ofSeconds(10);
+
+	private static final Logger log = LoggerFactory.getLogger(SidecarPool.class);
+
+	private final String provider;
+
+	private final List<Sidecar> sidecars;
+
+	private final ObjectMapper objectMapper;
+
+	private final Clock clock;
+
+	/**
+	 * Creates the pool of a provider.
+	 * @param provider the provider key the sidecars report their logins under, e.g.
+	 * {@code coop}
+	 * @param urls base URLs of the sidecars; at least one
+	 * @param restClientBuilder builder with the sidecar HTTP client profile; each sidecar
+	 * gets a copy with its base URL
+	 * @param healthClientBuilder builder with the sidecar health HTTP client profile, for
+	 * the {@code GET /health} polls
+	 * @param objectMapper parses the health responses
+	 * @param clock the clock the health status ages on
+	 */
+	SidecarPool(String provider, List<String> urls, RestClient.Builder restClientBuilder,
+			RestClient.Builder healthClientBuilder, ObjectMapper objectMapper, Clock clock) {
+		if (urls == null || urls.isEmpty()) {
+			throw new IllegalArgumentException("At least one sidecar URL is required for " + provider);
+		}
+		this.provider = provider;
+		this.sidecars = urls.stream()
+			.distinct()
+			.map(url -> new Sidecar(url, restClientBuilder.clone().baseUrl(url).build(),
+					healthClientBuilder.clone().baseUrl(url).build()))
+			.toList();
+		this.objectMapper = objectMapper;
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the sidecars to try for a login, best first: reachable before unreachable,
+	 * then least busy, then the account's preferred one.
+	 * @param accountKey identifies the account, e.g. its e-mail address
+	 * @return every sidecar of the pool
+	 */
+	List<Sidecar> route(String accountKey) {
+		if (sidecars.size() == 1) {
+			return sidecars;
+		}
+		var now = clock.instant();
+		List<Candidate> candidates = new ArrayList<>(sidecars.size());
+		for (Sidecar sidecar : sidecars) {
+			var health = sidecar.health(now);
+			candidates.add(new Candidate(sidecar, health.reachable(),
+					Math.max(sidecar.inFlight.get(), health.busy() ? 1 : 0), affinity(accountKey, sidecar.url)));
+		}
+		candidates.sort(Comparator.comparing((Candidate candidate) -> !candidate.reachable())
+			.thenComparingInt(Candidate::load)
+			.thenComparing(Comparator.comparingInt(Candidate::affinity).reversed()));
+		if (log.isDebugEnabled()) {
+			log.debug("Routing {} login via {}", provider, candidates);
+		}
+		return candidates.stream().map(Candidate::sidecar).toList();
+	}
+
+	/**
+	 * The account's weight for a sidecar; the sidecar with the highest weight is the
+	 * account's preferred one.
+	 */
+	private static int affinity(String accountKey, String url) {
+		int hash = (accountKey + '\n' + url).hashCode();
+		// MurmurHash3 finaliser: spreads similar keys over the whole int range.
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	/**
+	 * One sidecar of the pool.
+	 */
+	final class Sidecar {
+
+		private final String url;
+
+		private final RestClient restClient;
+
+		private final RestClient healthClient;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		/** The last health status; {@code null} until polled. */
+		private volatile Health health;
+
+		private Sidecar(String url, RestClient restClient, RestClient healthClient) {
+			this.url = url;
+			this.restClient = restClient;
+			this.healthClient = healthClient;
+		}
+
+		/**
+		 * Returns the base URL of the sidecar.
+		 * @return the URL as configured
+		 */
+		String url() {
+			return url;
+		}
+
+		/**
+		 * Returns the REST client for the sidecar; requests on it should be wrapped in
+		 * {@link #begin()} and {@link #end()}.
+		 * @return a client with the sidecar's base URL
+		 */
+		RestClient restClient() {
+			return restClient;
+		}
+
+		/** Counts a login sent to this sidecar. */
+		void begin() {
+			inFlight.incrementAndGet();
+		}
+
+		/**
+		 * Counts a login of this sidecar as finished. Once none is left, the polled
+		 * status is dropped: it may have seen those logins.
+		 */
+		void end() {
+			if (inFlight.decrementAndGet() == 0) {
+				health = null;
+			}
+		}
+
+		/**
+		 * Records a failed login request.
+		 * @param ex the failure
+		 * @return {@code true} if the sidecar did not start the login, because it was
+		 * busy ({@code 409}) or could not be connected to, so it may be sent to another
+		 * sidecar
+		 */
+		boolean rejected(RestClientException ex) {
+			if (ex instanceof HttpClientErrorException clientError
+					&& clientError.getStatusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+				health = new Health(true, true, clock.instant());
+				return true;
+			}
+			if (ex instanceof ResourceAccessException && ex.getCause() instanceof ConnectException) {
+				health = new Health(false, false, clock.instant());
+				return true;
+			}
+			return false;
+		}
+
+		private Health health(Instant now) {
+			var current = health;
+			if (current == null || !current.checkedAt().plus(HEALTH_TTL).isAfter(now)) {
+				current = poll(now);
+				health = current;
+			}
+			return current;
+		}
+
+		private Health poll(Instant now) {
+			try {
+				var body = healthClient.get().uri("/health").retrieve().body(String.class);
+				var root = objectMapper.readTree((body != null) ? body : "{}");
+				return new Health("ok".equals(root.path("status").asString(null)),
+						root.path("busy").path(provider).asBoolean(false), now);
+			}
+			catch (RuntimeException ex) {
+				log.warn("Sidecar {} is not healthy: {}", url, ex.getMessage());
+				return new Health(false, false, now);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return url;
+		}
+
+	}
+
+	/**
+	 * The health status of a sidecar as polled at {@code checkedAt}; {@code busy} if it
+	 * is running a login of this pool's provider.
+	 */
+	private record Health(boolean reachable, boolean busy, Instant checkedAt) {
+	}
+
+	private record Candidate(Sidecar sidecar, boolean reachable, int load, int affinity) {
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiter that spaces requests to a retailer API.
+ * <p>
+ * The bucket refills at a steady rate up to its burst size. A caller that finds it empty
+ * reserves the next token and sleeps until that token is due. The reservation is made
+ * under the lock and the sleep happens outside it, so concurrent callers queue up one
+ * refill interval apart instead of racing for the same token. An idle bucket lets up to
+ * {@code burst} requests through immediately.
+ */
+public final class TokenBucket {
+
+	/**
+	 * A bucket that never makes a caller wait.
+	 */
+	public static final TokenBucket UNLIMITED = new TokenBucket(Double.POSITIVE_INFINITY, 1, System::nanoTime,
+			TimeUnit.NANOSECONDS::sleep);
+
+	private final double nanosPerToken;
+
+	private final int burst;
+
+	private final LongSupplier nanoClock;
+
+	private final Sleeper sleeper;
+
+	private double availableTokens;
+
+	private long lastRefillNanos;
+
+	/**
+	 * Creates a token bucket that starts full.
+	 * @param tokensPerSecond steady-state rate, greater than 0
+	 * @param burst how many tokens an idle bucket holds, at least 1
+	 */
+	public TokenBucket(double tokensPerSecond, int burst) {
+		this(tokensPerSecond, burst, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+	}
+
+	TokenBucket(double tokensPerSecond, int burst, LongSupplier nanoClock, Sleeper sleeper) {
+		if (!(tokensPerSecond > 0)) {
+			throw new IllegalArgumentException("tokensPerSecond must be greater than 0");
+		}
+		if (burst < 1) {
+			throw new IllegalArgumentException("burst must be at least 1");
+		}
+		this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / tokensPerSecond;
+		this.burst = burst;
+		this.nanoClock = nanoClock;
+		this.sleeper = sleeper;
+		this.availableTokens = burst;
+		this.lastRefillNanos = nanoClock.getAsLong();
+	}
+
+	/**
+	 * Takes one token, waiting until it is due if the bucket is empty.
+	 * @throws CouponBoosterException if the thread is interrupted while waiting
+	 */
+	public void acquire() {
+		long waitNanos = reserve();
+		if (waitNanos <= 0) {
+			return;
+		}
+		try {
+			sleeper.sleep(waitNanos);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new CouponBoosterException("Interrupted while waiting for a rate-limit token", ex);
+		}
+	}
+
+	private synchronized long reserve() {
+		if (nanosPerToken == 0) {
+			return 0;
+		}
+		long now = nanoClock.getAsLong();
+		availableTokens = Math.min(burst, availableTokens + (now - lastRefillNanos) / nanosPerToken);
+		lastRefillNanos = now;
+
+		// Going negative records a reservation that later callers have to wait behind.
+		availableTokens -= 1;
+		return availableTokens >= 0 ? 0 : (long) Math.ceil(-availableTokens * nanosPerToken);
+	}
+
+	/**
+	 * Parks the calling thread; replaced in tests to avoid real waiting.
+	 */
+	@FunctionalInterface
+	interface Sleeper {
+
+		void sleep(long nanos) throws InterruptedException;
+
+	}
+
+}
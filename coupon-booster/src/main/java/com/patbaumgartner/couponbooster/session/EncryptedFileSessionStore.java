@@ -0,0 +1,333 @@
+package com.patbaumgartner.couponbooster.session;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link SessionStore} that keeps one AES-GCM encrypted file per provider and account on
+ * local disk.
+ * <p>
+ * File layout: one format-version byte, a random 12-byte IV, then the GCM ciphertext of
+ * the JSON-serialised session and the bearer token kept with it, if any. The provider and
+ * account are bound to the ciphertext as associated data, so a file copied or renamed
+ * onto another account fails authentication instead of being replayed. File names are a
+ * SHA-256 of provider and account, so the directory listing does not reveal e-mail
+ * addresses.
+ * <p>
+ * The key is derived once from the configured secret with PBKDF2. An entry that cannot be
+ * decrypted (secret rotated, file truncated) is deleted and reported as absent.
+ */
+public final class EncryptedFileSessionStore implements SessionStore {
+
+	private static final Logger log = LoggerFactory.getLogger(EncryptedFileSessionStore.class);
+
+	private static final byte FORMAT_VERSION = 1;
+
+	private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+
+	private static final int IV_LENGTH_BYTES = 12;
+
+	private static final int TAG_LENGTH_BITS = 128;
+
+	private static final String KEY_DERIVATION_ALGORITHM = "PBKDF2WithHmacSHA256";
+
+	private static final byte[] KEY_DERIVATION_SALT = "swiss-coupon-booster/session-store/v1".getBytes(UTF_8);
+
+	private static final int KEY_DERIVATION_ITERATIONS = 210_000;
+
+	private static final int KEY_LENGTH_BITS = 256;
+
+	private static final String FILE_SUFFIX = ".session";
+
+	private final Path directory;
+
+	private final Duration maxAge;
+
+	private final ObjectMapper objectMapper;
+
+	private final Clock clock;
+
+	private final SecretKey key;
+
+	private final SecureRandom secureRandom = new SecureRandom();
+
+	/**
+	 * Creates a new encrypted file session store.
+	 * @param directory directory holding the session files; created on first save
+	 * @param secret passphrase the AES key is derived from
+	 * @param maxAge sessions older than this are discarded on load
+	 * @param objectMapper Jackson object mapper used to serialise the session
+	 * @param clock clock used to judge the age of stored sessions
+	 */
+	public EncryptedFileSessionStore(Path directory, String secret, Duration maxAge, ObjectMapper objectMapper,
+			Clock clock) {
+		this.directory = Objects.requireNonNull(directory, "directory cannot be null");
+		this.maxAge = Objects.requireNonNull(maxAge, "maxAge cannot be null");
+		this.objectMapper = Objects.requireNonNull(objectMapper, "ObjectMapper cannot be null");
+		this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+		this.key = deriveKey(Objects.requireNonNull(secret, "secret cannot be null"));
+	}
+
+	@Override
+	public Optional<AuthenticationResult> load(String provider, String account) {
+		var startTime = System.currentTimeMillis();
+		Path file = fileFor(provider, account);
+		if (!Files.isRegularFile(file)) {
+			log.debug("No stored {} session found", provider);
+			return Optional.empty();
+		}
+
+		try {
+			StoredSession stored = read(file, provider, account);
+			Instant authenticatedAt = Instant.ofEpochMilli(stored.authenticatedAtEpochMs());
+
+			if (authenticatedAt.plus(maxAge).isBefore(clock.instant())) {
+				log.info("Stored {} session from {} exceeds the maximum age of {}; discarding it", provider,
+						authenticatedAt, maxAge);
+				deleteQuietly(file);
+				return Optional.empty();
+			}
+
+			var duration = System.currentTimeMillis() - startTime;
+			log.debug("Restored {} session with {} cookies in {}ms", provider, stored.cookies().size(), duration);
+			return Optional.of(AuthenticationResult.restored(stored.cookies(), authenticatedAt, duration,
+					stored.userAgent(), stored.browserLanguage()));
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException ex) {
+			log.warn("Stored {} session is unreadable and will be discarded: {}", provider, ex.getMessage());
+			deleteQuietly(file);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Stores a successful login. A bearer token stored with the account's previous
+	 * session is kept: it stays valid until its own expiry, whichever session it was
+	 * issued for.
+	 */
+	@Override
+	public void save(String provider, String account, AuthenticationResult session) {
+		if (session == null || !session.isSuccessful() || session.sessionCookies().isEmpty()) {
+			return;
+		}
+
+		var previous = readQuietly(provider, account);
+		var stored = new StoredSession(session.sessionCookies(), session.userAgent(), session.browserLanguage(),
+				session.completionTimestamp().toEpochMilli(), previous.map(StoredSession::bearerToken).orElse(null),
+				previous.map(StoredSession::bearerTokenExpiresAtEpochMs).orElse(null));
+		try {
+			write(stored, provider, account);
+			log.debug("Stored {} session with {} cookies", provider, stored.cookies().size());
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException ex) {
+			// Losing the cached session only costs the next run a sidecar login.
+			log.warn("Failed to store {} session: {}", provider, ex.getMessage());
+		}
+	}
+
+	@Override
+	public void evict(String provider, String account) {
+		deleteQuietly(fileFor(provider, account));
+		log.debug("Evicted stored {} session", provider);
+	}
+
+	@Override
+	public Optional<String> loadBearerToken(String provider, String account) {
+		return readQuietly(provider, account)
+			.filter(stored -> stored.bearerToken() != null && stored.bearerTokenExpiresAtEpochMs() != null)
+			.filter(stored -> Instant.ofEpochMilli(stored.bearerTokenExpiresAtEpochMs()).isAfter(clock.instant()))
+			.map(StoredSession::bearerToken);
+	}
+
+	@Override
+	public void saveBearerToken(String provider, String account, String token, Instant expiresAt) {
+		var previous = readQuietly(provider, account);
+		if (previous.isEmpty()) {
+			log.debug("No stored {} session to keep the bearer token with", provider);
+			return;
+		}
+		try {
+			write(previous.get().withBearerToken(token, expiresAt.toEpochMilli()), provider, account);
+			log.debug("Stored {} bearer token valid until {}", provider, expiresAt);
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException ex) {
+			// Losing the token only costs the next run a token request.
+			log.warn("Failed to store {} bearer token: {}", provider, ex.getMessage());
+		}
+	}
+
+	@Override
+	public void evictBearerToken(String provider, String account) {
+		var previous = readQuietly(provider, account).filter(stored -> stored.bearerToken() != null);
+		if (previous.isEmpty()) {
+			return;
+		}
+		try {
+			write(previous.get().withBearerToken(null, null), provider, account);
+			log.debug("Evicted stored {} bearer token", provider);
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException ex) {
+			// The expired or rejected token is refused again and replaced by the next
+			// run.
+			log.warn("Failed to evict {} bearer token: {}", provider, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the stored entry of an account without judging its age; an unreadable entry
+	 * is left for {@link #load(String, String)} to discard.
+	 */
+	private Optional<StoredSession> readQuietly(String provider, String account) {
+		Path file = fileFor(provider, account);
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(read(file, provider, account));
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException ex) {
+			return Optional.empty();
+		}
+	}
+
+	private StoredSession read(Path file, String provider, String account)
+			throws IOException, GeneralSecurityException {
+		byte[] plaintext = decrypt(Files.readAllBytes(file), associatedData(provider, account));
+		return objectMapper.readValue(plaintext, StoredSession.class);
+	}
+
+	private void write(StoredSession stored, String provider, String account)
+			throws IOException, GeneralSecurityException {
+		Files.createDirectories(directory);
+		byte[] ciphertext = encrypt(objectMapper.writeValueAsBytes(stored), associatedData(provider, account));
+
+		// Write to a sibling first so a crash mid-write never leaves a torn file.
+		Path temporary = Files.createTempFile(directory, "session-", ".tmp");
+		restrictToOwner(temporary);
+		Files.write(temporary, ciphertext);
+		Files.move(temporary, fileFor(provider, account), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Path fileFor(String provider, String account) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(associatedData(provider, account));
+			return directory.resolve(HexFormat.of().formatHex(digest) + FILE_SUFFIX);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new CouponBoosterException("SHA-256 is not available", ex);
+		}
+	}
+
+	private static byte[] associatedData(String provider, String account) {
+		return (provider + '\n' + account).getBytes(UTF_8);
+	}
+
+	private byte[] encrypt(byte[] plaintext, byte[] associatedData) throws GeneralSecurityException {
+		byte[] iv = new byte[IV_LENGTH_BYTES];
+		secureRandom.nextBytes(iv);
+
+		Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+		cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+		cipher.updateAAD(associatedData);
+		byte[] ciphertext = cipher.doFinal(plaintext);
+
+		return ByteBuffer.allocate(1 + iv.length + ciphertext.length)
+			.put(FORMAT_VERSION)
+			.put(iv)
+			.put(ciphertext)
+			.array();
+	}
+
+	private byte[] decrypt(byte[] content, byte[] associatedData) throws GeneralSecurityException {
+		if (content.length <= 1 + IV_LENGTH_BYTES || content[0] != FORMAT_VERSION) {
+			throw new GeneralSecurityException("unsupported session file format");
+		}
+
+		Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+		cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, content, 1, IV_LENGTH_BYTES));
+		cipher.updateAAD(associatedData);
+		return cipher.doFinal(content, 1 + IV_LENGTH_BYTES, content.length - 1 - IV_LENGTH_BYTES);
+	}
+
+	private static SecretKey deriveKey(String secret) {
+		var keySpec = new PBEKeySpec(secret.toCharArray(), KEY_DERIVATION_SALT, KEY_DERIVATION_ITERATIONS,
+				KEY_LENGTH_BITS);
+		try {
+			byte[] keyBytes = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGORITHM)
+				.generateSecret(keySpec)
+				.getEncoded();
+			return new SecretKeySpec(keyBytes, "AES");
+		}
+		catch (GeneralSecurityException ex) {
+			throw new CouponBoosterException("Failed to derive the session store key", ex);
+		}
+		finally {
+			keySpec.clearPassword();
+		}
+	}
+
+	private static void restrictToOwner(Path file) throws IOException {
+		try {
+			Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+		}
+		catch (UnsupportedOperationException ex) {
+			// Non-POSIX file system (Windows); the content is encrypted regardless.
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ex) {
+			log.warn("Failed to delete session file {}: {}", file.getFileName(), ex.getMessage());
+		}
+	}
+
+	/**
+	 * On-disk representation of a stored session. The bearer token fields are
+	 * {@code null} when no token is stored, including in files written before tokens were
+	 * kept.
+	 */
+	private record StoredSession(List<SessionCookie> cookies, String userAgent, String browserLanguage,
+			long authenticatedAtEpochMs, String bearerToken, Long bearerTokenExpiresAtEpochMs) {
+
+		StoredSession withBearerToken(String token, Long expiresAtEpochMs) {
+			return new StoredSession(cookies, userAgent, browserLanguage, authenticatedAtEpochMs, token,
+					expiresAtEpochMs);
+		}
+
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.patbaumgartner.couponbooster.session;
+
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Persists the last successful login per provider and account so a run can skip the
+ * sidecar login when the retailer still accepts the session.
+ * <p>
+ * Implementations must never throw for a missing, expired or unreadable entry: the
+ * sidecar login is always available as a fallback, so a broken store degrades to the
+ * behaviour without one.
+ * <p>
+ * A bearer token the retailer's web API issued for a session can be kept with the
+ * account's entry, so the next run skips asking for a new one while it is still valid.
+ *
+ * @see EncryptedFileSessionStore
+ */
+public interface SessionStore {
+
+	/**
+	 * A store that remembers nothing. Used when no encryption secret is configured.
+	 */
+	SessionStore DISABLED = new SessionStore() {
+
+		@Override
+		public Optional<AuthenticationResult> load(String provider, String account) {
+			return Optional.empty();
+		}
+
+		@Override
+		public void save(String provider, String account, AuthenticationResult session) {
+			// Nothing is persisted without an encryption secret.
+		}
+
+		@Override
+		public void evict(String provider, String account) {
+			// Nothing to evict.
+		}
+
+	};
+
+	/**
+	 * Loads the stored session for an account.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 * @return the restored session, or {@link Optional#empty()} if none is usable
+	 */
+	Optional<AuthenticationResult> load(String provider, String account);
+
+	/**
+	 * Stores a successful login, replacing any previous entry for the account.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 * @param session the successful authentication result to persist
+	 */
+	void save(String provider, String account, AuthenticationResult session);
+
+	/**
+	 * Removes the stored session for an account, e.g. after the retailer rejected it.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 */
+	void evict(String provider, String account);
+
+	/**
+	 * Loads the bearer token stored with an account's session.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 * @return the token, or {@link Optional#empty()} if none is stored or it has expired
+	 */
+	default Optional<String> loadBearerToken(String provider, String account) {
+		return Optional.empty();
+	}
+
+	/**
+	 * Stores a bearer token with an account's session, replacing any previous one.
+	 * Without a stored session there is nothing to keep the token with, and it is not
+	 * stored.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 * @param token the encoded token
+	 * @param expiresAt when the token expires
+	 */
+	default void saveBearerToken(String provider, String account, String token, Instant expiresAt) {
+		// Stores without sessions keep no tokens either.
+	}
+
+	/**
+	 * Removes the bearer token stored with an account's session, e.g. after the retailer
+	 * rejected it; the session itself is kept.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 */
+	default void evictBearerToken(String provider, String account) {
+		// Stores without sessions keep no tokens either.
+	}
+
+}
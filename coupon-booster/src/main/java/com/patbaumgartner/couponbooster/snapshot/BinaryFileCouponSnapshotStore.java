@@ -0,0 +1,172 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link CouponSnapshotStore} that keeps one compact binary file per provider and account
+ * on local disk.
+ * <p>
+ * File layout: one format-version byte, the number of distinct statuses followed by each
+ * status, then the number of coupons followed by each code and the index of its status.
+ * Strings are written in modified UTF-8 as by {@link DataOutputStream#writeUTF}. A
+ * catalogue only knows a handful of statuses, so each coupon costs its code plus two
+ * bytes. File names are a SHA-256 of provider and account, as for the session store.
+ * <p>
+ * An unreadable file is deleted and reported as absent.
+ */
+public final class BinaryFileCouponSnapshotStore implements CouponSnapshotStore {
+
+	private static final Logger log = LoggerFactory.getLogger(BinaryFileCouponSnapshotStore.class);
+
+	private static final byte FORMAT_VERSION = 1;
+
+	private static final String FILE_SUFFIX = ".snapshot";
+
+	private final Path directory;
+
+	/**
+	 * Creates a new snapshot store.
+	 * @param directory directory holding the snapshot files; created on first save
+	 */
+	public BinaryFileCouponSnapshotStore(Path directory) {
+		this.directory = Objects.requireNonNull(directory, "directory cannot be null");
+	}
+
+	@Override
+	public Optional<CouponSnapshot> load(String provider, String account) {
+		Path file = fileFor(provider, account);
+		if (!Files.isRegularFile(file)) {
+			log.debug("No {} coupon snapshot found", provider);
+			return Optional.empty();
+		}
+
+		try {
+			var snapshot = read(Files.readAllBytes(file));
+			log.debug("Loaded {} coupon snapshot with {} coupons", provider, snapshot.statuses().size());
+			return Optional.of(snapshot);
+		}
+		catch (IOException | RuntimeException ex) {
+			log.warn("{} coupon snapshot is unreadable and will be discarded: {}", provider, ex.getMessage());
+			deleteQuietly(file);
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public void save(String provider, String account, CouponSnapshot snapshot) {
+		Path file = fileFor(provider, account);
+		try {
+			Files.createDirectories(directory);
+			// Write to a sibling first so a crash mid-write never leaves a torn file.
+			Path temporary = Files.createTempFile(directory, "snapshot-", ".tmp");
+			Files.write(temporary, write(snapshot));
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			log.debug("Stored {} coupon snapshot with {} coupons", provider, snapshot.statuses().size());
+		}
+		catch (IOException | RuntimeException ex) {
+			// Losing the snapshot only costs the next run its change report.
+			log.warn("Failed to store {} coupon snapshot: {}", provider, ex.getMessage());
+		}
+	}
+
+	static byte[] write(CouponSnapshot snapshot) throws IOException {
+		List<String> statusTable = new ArrayList<>();
+		Map<String, Integer> statusIndex = new HashMap<>();
+		for (String status : snapshot.statuses().values()) {
+			statusIndex.computeIfAbsent(status, added -> {
+				statusTable.add(added);
+				return statusTable.size() - 1;
+			});
+		}
+		if (statusTable.size() > 0xFFFF) {
+			throw new IOException("too many distinct coupon statuses");
+		}
+
+		var bytes = new ByteArrayOutputStream();
+		try (var out = new DataOutputStream(bytes)) {
+			out.writeByte(FORMAT_VERSION);
+			out.writeShort(statusTable.size());
+			for (String status : statusTable) {
+				out.writeUTF(status);
+			}
+			out.writeInt(snapshot.statuses().size());
+			for (var coupon : snapshot.statuses().entrySet()) {
+				out.writeUTF(coupon.getKey());
+				out.writeShort(statusIndex.get(coupon.getValue()));
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	static CouponSnapshot read(byte[] content) throws IOException {
+		try (var in = new DataInputStream(new ByteArrayInputStream(content))) {
+			if (in.readByte() != FORMAT_VERSION) {
+				throw new IOException("unsupported snapshot file format");
+			}
+			String[] statusTable = new String[in.readUnsignedShort()];
+			for (int i = 0; i < statusTable.length; i++) {
+				statusTable[i] = in.readUTF();
+			}
+			int count = in.readInt();
+			if (count < 0) {
+				throw new IOException("negative coupon count");
+			}
+			var statuses = new TreeMap<String, String>();
+			for (int i = 0; i < count; i++) {
+				String code = in.readUTF();
+				int index = in.readUnsignedShort();
+				if (index >= statusTable.length) {
+					throw new IOException("status index out of range");
+				}
+				statuses.put(code, statusTable[index]);
+			}
+			if (in.available() > 0) {
+				throw new IOException("trailing bytes after the last coupon");
+			}
+			return new CouponSnapshot(statuses);
+		}
+	}
+
+	private Path fileFor(String provider, String account) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest((provider + '\n' + account).getBytes(UTF_8));
+			return directory.resolve(HexFormat.of().formatHex(digest) + FILE_SUFFIX);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new CouponBoosterException("SHA-256 is not available", ex);
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ex) {
+			log.debug("Could not delete coupon snapshot {}: {}", file, ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import java.util.Optional;
+
+/**
+ * Persists the coupon catalogue last downloaded per provider, account and URL together
+ * with the validators it was served with, so a run in a new process can still request the
+ * catalogue conditionally and reuse it on {@code 304 Not Modified}.
+ * <p>
+ * Like the snapshot store, implementations must never throw for a missing or unreadable
+ * entry: without a stored catalogue the next request is merely unconditional.
+ *
+ * @see JsonFileCatalogueStore
+ */
+public interface CatalogueStore {
+
+	/**
+	 * A store that remembers nothing.
+	 */
+	CatalogueStore DISABLED = new CatalogueStore() {
+
+		@Override
+		public Optional<StoredCatalogue> load(String provider, String account, String url) {
+			return Optional.empty();
+		}
+
+		@Override
+		public void save(String provider, String account, String url, StoredCatalogue catalogue) {
+			// Nothing is persisted while catalogues are not kept.
+		}
+
+		@Override
+		public void evict(String provider, String account, String url) {
+			// Nothing to evict.
+		}
+
+	};
+
+	/**
+	 * Loads the stored catalogue of an account.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, as for the snapshot store
+	 * @param url the catalogue URL
+	 * @return the stored catalogue, or {@link Optional#empty()} if none is usable
+	 */
+	Optional<StoredCatalogue> load(String provider, String account, String url);
+
+	/**
+	 * Stores the catalogue of an account, replacing any previous one.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, as for the snapshot store
+	 * @param url the catalogue URL
+	 * @param catalogue the catalogue and its validators
+	 */
+	void save(String provider, String account, String url, StoredCatalogue catalogue);
+
+	/**
+	 * Removes the stored catalogue of an account, e.g. after a download that cannot be
+	 * revalidated replaced it.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, as for the snapshot store
+	 * @param url the catalogue URL
+	 */
+	void evict(String provider, String account, String url);
+
+}
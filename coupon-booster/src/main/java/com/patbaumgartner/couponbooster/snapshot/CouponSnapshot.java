@@ -0,0 +1,79 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import com.patbaumgartner.couponbooster.migros.model.CouponSetDiff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The coupon set an account was offered, reduced to each coupon's code and status.
+ *
+ * @param statuses coupon status by code, sorted by code
+ */
+public record CouponSnapshot(SortedMap<String, String> statuses) {
+
+	/**
+	 * An account without any coupon.
+	 */
+	public static final CouponSnapshot EMPTY = new CouponSnapshot(new TreeMap<>());
+
+	public CouponSnapshot {
+		statuses = Collections.unmodifiableSortedMap(new TreeMap<>(statuses));
+	}
+
+	/**
+	 * Creates a snapshot, skipping coupons without a code.
+	 * @param statuses coupon status by code
+	 * @return the snapshot
+	 */
+	public static CouponSnapshot of(Map<String, String> statuses) {
+		var sorted = new TreeMap<String, String>();
+		statuses.forEach((code, status) -> {
+			if (code != null && !code.isBlank()) {
+				sorted.put(code, status == null ? "" : status);
+			}
+		});
+		return new CouponSnapshot(sorted);
+	}
+
+	/**
+	 * Returns a copy with the given coupons' status replaced; codes not in this snapshot
+	 * are ignored.
+	 * @param codes the coupons whose status changed
+	 * @param status their new status
+	 * @return the copy
+	 */
+	public CouponSnapshot withStatus(List<String> codes, String status) {
+		var updated = new TreeMap<>(statuses);
+		for (String code : codes) {
+			updated.computeIfPresent(code, (ignored, previous) -> status);
+		}
+		return new CouponSnapshot(updated);
+	}
+
+	/**
+	 * Compares this, the previous snapshot, with the current one.
+	 * @param current the snapshot of the coupons offered now
+	 * @return the coupons added, removed and changed since this snapshot, sorted by code
+	 */
+	public CouponSetDiff diff(CouponSnapshot current) {
+		List<String> added = new ArrayList<>();
+		List<String> statusChanged = new ArrayList<>();
+		current.statuses.forEach((code, status) -> {
+			String previous = statuses.get(code);
+			if (previous == null) {
+				added.add(code);
+			}
+			else if (!previous.equals(status)) {
+				statusChanged.add(code);
+			}
+		});
+		List<String> removed = statuses.keySet().stream().filter(code -> !current.statuses.containsKey(code)).toList();
+		return new CouponSetDiff(added, removed, statusChanged);
+	}
+
+}
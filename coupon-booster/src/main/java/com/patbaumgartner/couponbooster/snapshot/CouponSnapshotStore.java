@@ -0,0 +1,49 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import java.util.Optional;
+
+/**
+ * Persists the coupon set last seen per provider and account, so a run can tell which
+ * coupons are new or expired and whether anything changed at all.
+ * <p>
+ * Like the session store, implementations must never throw for a missing or unreadable
+ * entry: without a snapshot a run merely reports every coupon as new.
+ *
+ * @see BinaryFileCouponSnapshotStore
+ */
+public interface CouponSnapshotStore {
+
+	/**
+	 * A store that remembers nothing.
+	 */
+	CouponSnapshotStore DISABLED = new CouponSnapshotStore() {
+
+		@Override
+		public Optional<CouponSnapshot> load(String provider, String account) {
+			return Optional.empty();
+		}
+
+		@Override
+		public void save(String provider, String account, CouponSnapshot snapshot) {
+			// Nothing is persisted while snapshots are disabled.
+		}
+
+	};
+
+	/**
+	 * Loads the last snapshot of an account.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 * @return the snapshot, or {@link Optional#empty()} if none is usable
+	 */
+	Optional<CouponSnapshot> load(String provider, String account);
+
+	/**
+	 * Stores the snapshot of an account, replacing any previous one.
+	 * @param provider provider key, e.g. {@code coop}
+	 * @param account account identifier, typically the login e-mail address
+	 * @param snapshot the coupon set to remember
+	 */
+	void save(String provider, String account, CouponSnapshot snapshot);
+
+}
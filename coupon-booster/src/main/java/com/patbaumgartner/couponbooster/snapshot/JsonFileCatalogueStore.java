@@ -0,0 +1,110 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link CatalogueStore} that keeps one JSON file per provider, account and catalogue URL
+ * on local disk, next to the coupon snapshots.
+ * <p>
+ * File names are a SHA-256 of provider, account and URL, as for the session store. The
+ * files hold the coupons an account was offered, never credentials or session cookies. An
+ * unreadable file is deleted and reported as absent.
+ */
+public final class JsonFileCatalogueStore implements CatalogueStore {
+
+	private static final Logger log = LoggerFactory.getLogger(JsonFileCatalogueStore.class);
+
+	private static final String FILE_SUFFIX = ".catalogue";
+
+	private final Path directory;
+
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * Creates a new catalogue store.
+	 * @param directory directory holding the catalogue files; created on first save
+	 * @param objectMapper Jackson object mapper the catalogues are written with
+	 */
+	public JsonFileCatalogueStore(Path directory, ObjectMapper objectMapper) {
+		this.directory = Objects.requireNonNull(directory, "directory cannot be null");
+		this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper cannot be null");
+	}
+
+	@Override
+	public Optional<StoredCatalogue> load(String provider, String account, String url) {
+		Path file = fileFor(provider, account, url);
+		if (!Files.isRegularFile(file)) {
+			log.debug("No stored {} catalogue found", provider);
+			return Optional.empty();
+		}
+
+		try {
+			var catalogue = objectMapper.readValue(Files.readAllBytes(file), StoredCatalogue.class);
+			log.debug("Loaded stored {} catalogue", provider);
+			return Optional.of(catalogue);
+		}
+		catch (IOException | RuntimeException ex) {
+			log.warn("Stored {} catalogue is unreadable and will be discarded: {}", provider, ex.getMessage());
+			deleteQuietly(file);
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public void save(String provider, String account, String url, StoredCatalogue catalogue) {
+		Path file = fileFor(provider, account, url);
+		try {
+			Files.createDirectories(directory);
+			// Write to a sibling first so a crash mid-write never leaves a torn file.
+			Path temporary = Files.createTempFile(directory, "catalogue-", ".tmp");
+			Files.write(temporary, objectMapper.writeValueAsBytes(catalogue));
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			log.debug("Stored {} catalogue", provider);
+		}
+		catch (IOException | RuntimeException ex) {
+			// Losing the catalogue only makes the next request unconditional.
+			log.warn("Failed to store {} catalogue: {}", provider, ex.getMessage());
+		}
+	}
+
+	@Override
+	public void evict(String provider, String account, String url) {
+		deleteQuietly(fileFor(provider, account, url));
+	}
+
+	private Path fileFor(String provider, String account, String url) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256")
+				.digest((provider + '\n' + account + '\n' + url).getBytes(UTF_8));
+			return directory.resolve(HexFormat.of().formatHex(digest) + FILE_SUFFIX);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new CouponBoosterException("SHA-256 is not available", ex);
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ex) {
+			log.debug("Could not delete stored catalogue {}: {}", file, ex.getMessage());
+		}
+	}
+
+}
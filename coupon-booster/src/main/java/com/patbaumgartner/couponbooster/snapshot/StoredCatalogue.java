@@ -0,0 +1,15 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import tools.jackson.databind.JsonNode;
+
+/**
+ * A parsed coupon catalogue as kept by the {@link CatalogueStore}, with the validators of
+ * the response it was parsed from.
+ *
+ * @param etag the {@code ETag} header, or {@code null}
+ * @param lastModified the {@code Last-Modified} header, or {@code null}
+ * @param catalogue the parsed catalogue as a JSON tree
+ */
+public record StoredCatalogue(String etag, String lastModified, JsonNode catalogue) {
+
+}
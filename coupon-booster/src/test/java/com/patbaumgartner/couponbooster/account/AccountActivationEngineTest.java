@@ -0,0 +1,313 @@
+package com.patbaumgartner.couponbooster.account;
+
+import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
+import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties.Credentials;
+import com.patbaumgartner.couponbooster.scheduler.ActivationOutcome;
+import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.CouponService;
+import com.patbaumgartner.couponbooster.service.SessionRecovery;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class AccountActivationEngineTest {
+
+	private static AccountRegistry coopAccounts(int count) {
+		var additional = IntStream.range(1, count)
+			.mapToObj(i -> new Credentials("user" + i + "@example.com", "secret"))
+			.toList();
+		return new AccountRegistry(new CoopUserProperties("user0@example.com", "secret"),
+				new MigrosUserProperties(null, null),
+				new AccountsProperties(additional, null, new AccountsProperties.Concurrency(1, 1)));
+	}
+
+	private static AuthenticationService loginAs(AtomicInteger concurrent, AtomicInteger maxConcurrent) {
+		return new AuthenticationService() {
+
+			@Override
+			public AuthenticationResult performAuthentication() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public AuthenticationResult performAuthentication(Account account) {
+				if (account.email().startsWith("locked")) {
+					return AuthenticationResult.failed("Login rejected", 3L);
+				}
+				track(concurrent, maxConcurrent);
+				return AuthenticationResult.successful(List.of(new SessionCookie("s", account.email(), ".x.ch")), 1L,
+						"ua", "de-CH");
+			}
+
+		};
+	}
+
+	private static AuthenticationService countingLogins(AtomicInteger logins, AtomicInteger maxConcurrent) {
+		var delegate = loginAs(new AtomicInteger(), maxConcurrent);
+		return new AuthenticationService() {
+
+			@Override
+			public AuthenticationResult performAuthentication() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public AuthenticationResult performAuthentication(Account account) {
+				logins.incrementAndGet();
+				return delegate.performAuthentication(account);
+			}
+
+		};
+	}
+
+	private static CouponService activateFor(AtomicInteger concurrent, AtomicInteger maxConcurrent) {
+		return (cookies, userAgent, language) -> {
+			track(concurrent, maxConcurrent);
+			return new CouponActivationResult(cookies.getFirst().value().length(), 0, List.of());
+		};
+	}
+
+	private static void track(AtomicInteger concurrent, AtomicInteger maxConcurrent) {
+		maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+		try {
+			Thread.sleep(20);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			concurrent.decrementAndGet();
+		}
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	@Test
+	void returnsOneOutcomePerAccountInRegistryOrder() {
+		var inFlight = new AtomicInteger();
+		var peak = new AtomicInteger();
+		var engine = new AccountActivationEngine(coopAccounts(3),
+				List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Coop", loginAs(inFlight, peak),
+						activateFor(inFlight, peak), List.of("http://patchright:8000"), "webapi.supercard.ch")),
+				1, 1);
+
+		List<ActivationOutcome> outcomes = engine.activate(AccountRegistry.COOP);
+
+		assertThat(outcomes).extracting(ActivationOutcome::account)
+			.containsExactly("u***@example.com", "u***@example.com", "u***@example.com");
+		assertThat(outcomes).allMatch(ActivationOutcome::authenticated);
+		assertThat(outcomes).extracting(ActivationOutcome::activated).containsOnly("user0@example.com".length());
+	}
+
+	@Test
+	void concurrencyStaysWithinTheConfiguredLimits() {
+		var logins = new AtomicInteger();
+		var peakLogins = new AtomicInteger();
+		var activations = new AtomicInteger();
+		var peakActivations = new AtomicInteger();
+		var engine = new AccountActivationEngine(coopAccounts(12),
+				List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Coop", loginAs(logins, peakLogins),
+						activateFor(activations, peakActivations), List.of("http://patchright:8000"),
+						"webapi.supercard.ch")),
+				2, 3);
+
+		var outcomes = engine.activate(AccountRegistry.COOP);
+
+		assertThat(outcomes).hasSize(12);
+		assertThat(peakLogins.get()).isBetween(1, 2);
+		assertThat(peakActivations.get()).isBetween(1, 3);
+	}
+
+	@Test
+	void oneFailingAccountDoesNotAffectTheOthers() {
+		var registry = new AccountRegistry(new CoopUserProperties("locked@example.com", "secret"),
+				new MigrosUserProperties(null, null),
+				new AccountsProperties(List.of(new Credentials("fine@example.com", "secret")), null,
+						new AccountsProperties.Concurrency(1, 1)));
+		var counter = new AtomicInteger();
+		var engine = new AccountActivationEngine(registry, List.of(AccountActivationEngine.Provider
+			.of(AccountRegistry.COOP, "Coop", loginAs(counter, new AtomicInteger()), (cookies, userAgent, language) -> {
+				throw new IllegalStateException("boom");
+			}, List.of("http://patchright:8000"), "webapi.supercard.ch")), 1, 1);
+
+		var outcomes = engine.activate(AccountRegistry.COOP);
+
+		assertThat(outcomes).hasSize(2);
+		assertThat(outcomes.get(0).authenticated()).isFalse();
+		assertThat(outcomes.get(0).message()).isEqualTo("Login rejected");
+		assertThat(outcomes.get(1).authenticated()).isFalse();
+		assertThat(outcomes.get(1).message()).contains("boom");
+	}
+
+	@Test
+	void aScheduledRunUsesThePreWarmedSessionsInsteadOfLoggingIn() {
+		var logins = new AtomicInteger();
+		var activations = new AtomicInteger();
+		var engine = new AccountActivationEngine(coopAccounts(3),
+				List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Coop",
+						countingLogins(logins, new AtomicInteger()), activateFor(activations, new AtomicInteger()),
+						List.of("http://patchright:8000"), "webapi.supercard.ch")),
+				1, 1);
+
+		assertThat(engine.prewarm(AccountRegistry.COOP, Duration.ofMinutes(15))).isEqualTo(3);
+		var outcomes = engine.activate(AccountRegistry.COOP);
+
+		assertThat(logins.get()).isEqualTo(3);
+		assertThat(outcomes).allMatch(ActivationOutcome::authenticated);
+
+		// A pre-warmed session is used only once.
+		engine.activate(AccountRegistry.COOP);
+		assertThat(logins.get()).isEqualTo(6);
+	}
+
+	@Test
+	void aStalePreWarmedSessionIsReplacedByALogin() throws InterruptedException {
+		var logins = new AtomicInteger();
+		var engine = new AccountActivationEngine(coopAccounts(1),
+				List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Coop",
+						countingLogins(logins, new AtomicInteger()),
+						activateFor(new AtomicInteger(), new AtomicInteger()), List.of("http://patchright:8000"),
+						"webapi.supercard.ch")),
+				1, 1);
+
+		engine.prewarm(AccountRegistry.COOP, Duration.ofMillis(1));
+		Thread.sleep(5);
+		var outcomes = engine.activate(AccountRegistry.COOP);
+
+		assertThat(logins.get()).isEqualTo(2);
+		assertThat(outcomes).allMatch(ActivationOutcome::authenticated);
+	}
+
+	@Test
+	void aSessionRejectedMidBatchIsRecoveredThroughTheLoginBulkheadWithoutHoldingAnActivationPermit() {
+		var logins = new AtomicInteger();
+		var peakLogins = new AtomicInteger();
+		var firstLogins = new AtomicInteger();
+		var loginsPerAccount = new ConcurrentHashMap<String, AtomicInteger>();
+		var recovered = new AtomicReference<String>();
+		var otherLoggingIn = new CountDownLatch(1);
+		var recovering = new CountDownLatch(1);
+		var otherActivated = new CountDownLatch(1);
+		var authentication = new AuthenticationService() {
+
+			@Override
+			public AuthenticationResult performAuthentication() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public AuthenticationResult performAuthentication(Account account) {
+				peakLogins.accumulateAndGet(logins.incrementAndGet(), Math::max);
+				try {
+					boolean proceed;
+					if (loginsPerAccount.computeIfAbsent(account.email(), email -> new AtomicInteger())
+						.incrementAndGet() > 1) {
+						// Gets through only if the recovering account handed its
+						// activation permit to the other one.
+						proceed = await(otherActivated);
+					}
+					else if (firstLogins.incrementAndGet() > 1) {
+						// Still logging in while the first account is recovered.
+						otherLoggingIn.countDown();
+						proceed = await(recovering);
+						Thread.sleep(50);
+					}
+					else {
+						proceed = true;
+					}
+					return proceed ? AuthenticationResult
+						.successful(List.of(new SessionCookie("s", account.email(), ".x.ch")), 1L, "ua", "de-CH")
+							: AuthenticationResult.failed("Timed out", 1L);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return AuthenticationResult.failed("Interrupted", 1L);
+				}
+				finally {
+					logins.decrementAndGet();
+				}
+			}
+
+		};
+		var couponService = new CouponService() {
+
+			@Override
+			public CouponActivationResult activateAllAvailableCoupons(List<SessionCookie> sessionCookies,
+					String userAgent, String language) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public CouponActivationResult activateAllAvailableCoupons(Account account,
+					List<SessionCookie> sessionCookies, String userAgent, String language,
+					SessionRecovery sessionRecovery) {
+				if (recovered.compareAndSet(null, account.email())) {
+					await(otherLoggingIn);
+					recovering.countDown();
+					int activated = sessionRecovery.recover().isSuccessful() ? 1 : 0;
+					return new CouponActivationResult(activated, 1 - activated, List.of());
+				}
+				otherActivated.countDown();
+				return new CouponActivationResult(1, 0, List.of());
+			}
+
+		};
+		var engine = new AccountActivationEngine(
+				coopAccounts(2), List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Coop",
+						authentication, couponService, List.of("http://patchright:8000"), "webapi.supercard.ch")),
+				1, 1);
+
+		var outcomes = engine.activate(AccountRegistry.COOP);
+
+		assertThat(outcomes).allMatch(ActivationOutcome::authenticated);
+		assertThat(outcomes).extracting(ActivationOutcome::activated).containsOnly(1);
+		assertThat(loginsPerAccount.get(recovered.get())).hasValue(2);
+		assertThat(peakLogins.get()).isEqualTo(1);
+	}
+
+	@Test
+	void anUnknownProviderIsRejected() {
+		var engine = new AccountActivationEngine(coopAccounts(1), List.of(), 1, 1);
+
+		assertThatExceptionOfType(RuntimeException.class).isThrownBy(() -> engine.activate("lidl"))
+			.withMessageContaining("lidl");
+	}
+
+	@Test
+	void outcomesOfSeveralAccountsAreSummarisedForTheProvider() {
+		var summary = ActivationOutcome.summarize("Coop",
+				List.of(new ActivationOutcome("Coop", true, 4, 1, 100L, "Activation completed", "a***@x.ch"),
+						new ActivationOutcome("Coop", false, 0, 0, 300L, "Login rejected", "b***@x.ch")));
+
+		assertThat(summary.authenticated()).isFalse();
+		assertThat(summary.activated()).isEqualTo(4);
+		assertThat(summary.failed()).isEqualTo(1);
+		assertThat(summary.authDurationMs()).isEqualTo(300L);
+		assertThat(summary.message()).isEqualTo("Activation completed for 1 of 2 accounts");
+	}
+
+}
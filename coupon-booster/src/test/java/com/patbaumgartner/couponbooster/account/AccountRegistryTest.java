@@ -0,0 +1,65 @@
+package com.patbaumgartner.couponbooster.account;
+
+import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties.Credentials;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountRegistryTest {
+
+	private static final AccountsProperties.Concurrency LIMITS = new AccountsProperties.Concurrency(1, 4);
+
+	@Test
+	void thePrimaryAccountComesFirstFollowedByTheAdditionalOnes() {
+		var registry = new AccountRegistry(new CoopUserProperties("me@example.com", "a"),
+				new MigrosUserProperties(null, null),
+				new AccountsProperties(
+						List.of(new Credentials("partner@example.com", "b"), new Credentials("kid@example.com", "c")),
+						null, LIMITS));
+
+		assertThat(registry.accounts(AccountRegistry.COOP)).extracting(Account::email)
+			.containsExactly("me@example.com", "partner@example.com", "kid@example.com");
+	}
+
+	@Test
+	void anAddressListedTwiceIsKeptOnce() {
+		var registry = new AccountRegistry(new CoopUserProperties(null, null),
+				new MigrosUserProperties("me@example.com", "a"),
+				new AccountsProperties(null, List.of(new Credentials("ME@example.com", "other")), LIMITS));
+
+		assertThat(registry.accounts(AccountRegistry.MIGROS)).singleElement()
+			.satisfies(account -> assertThat(account.password()).isEqualTo("a"));
+	}
+
+	@Test
+	void aProviderWithoutAccountsStillGetsOneUnconfiguredAccount() {
+		var registry = new AccountRegistry(new CoopUserProperties("", ""), new MigrosUserProperties(null, null),
+				new AccountsProperties(null, null, LIMITS));
+
+		assertThat(registry.accounts(AccountRegistry.COOP)).singleElement()
+			.satisfies(account -> assertThat(account.hasCredentials()).isFalse());
+	}
+
+	@Test
+	void additionalAccountsReplaceAnUnconfiguredPrimaryAccount() {
+		var registry = new AccountRegistry(new CoopUserProperties("", ""), new MigrosUserProperties(null, null),
+				new AccountsProperties(List.of(new Credentials("partner@example.com", "b")), null, LIMITS));
+
+		assertThat(registry.accounts(AccountRegistry.COOP)).extracting(Account::email)
+			.containsExactly("partner@example.com");
+	}
+
+	@Test
+	void accountsNeverRevealTheirCredentialsWhenPrinted() {
+		var account = new Account("coop", "jane.doe@example.com", "hunter2");
+
+		assertThat(account.toString()).doesNotContain("hunter2", "jane.doe").contains("j***@example.com");
+	}
+
+}
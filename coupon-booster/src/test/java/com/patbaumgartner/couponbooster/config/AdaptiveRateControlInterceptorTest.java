@@ -0,0 +1,146 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.properties.RateControlProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class AdaptiveRateControlInterceptorTest {
+
+	private static final String RETAILER_URL = "https://webapi.supercard.ch/dc";
+
+	private static final String SIDECAR_URL = "http://sidecar:8000/login/coop";
+
+	private static final Instant NOW = Instant.parse("2026-03-01T06:00:00Z");
+
+	private static RateControlProperties settings(int maxRetries, Duration maxRetryAfter) {
+		return new RateControlProperties(true, 1000, 1, 1000, 1, 1, 0.5, maxRetries, Duration.ofMillis(1),
+				maxRetryAfter);
+	}
+
+	private MockRestServiceServer server;
+
+	private RestClient client(RateControlProperties settings) {
+		var builder = RestClient.builder()
+			.requestInterceptor(new AdaptiveRateControlInterceptor(settings, Set.of("webapi.supercard.ch"),
+					Clock.fixed(NOW, ZoneOffset.UTC)));
+		server = MockRestServiceServer.bindTo(builder).build();
+		return builder.build();
+	}
+
+	@Test
+	void aThrottledRequestIsRetriedUntilItSucceeds() {
+		var client = client(settings(3, Duration.ofSeconds(1)));
+		server.expect(ExpectedCount.times(2), requestTo(RETAILER_URL))
+			.andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+		server.expect(requestTo(RETAILER_URL)).andRespond(withSuccess("ok", null));
+
+		var body = client.get().uri(RETAILER_URL).retrieve().body(String.class);
+
+		assertThat(body).isEqualTo("ok");
+		server.verify();
+	}
+
+	@Test
+	void retryAfterInSecondsIsHonoured() {
+		var client = client(settings(1, Duration.ofSeconds(5)));
+		server.expect(requestTo(RETAILER_URL))
+			.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1"));
+		server.expect(requestTo(RETAILER_URL)).andRespond(withSuccess());
+
+		long start = System.nanoTime();
+		client.get().uri(RETAILER_URL).retrieve().toBodilessEntity();
+
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(900));
+		server.verify();
+	}
+
+	@Test
+	void aRetryAfterBeyondTheLimitIsHandedToTheCallerWithoutWaiting() {
+		var client = client(settings(3, Duration.ofSeconds(1)));
+		var retryAt = ZonedDateTime.ofInstant(NOW.plus(Duration.ofHours(1)), ZoneOffset.UTC)
+			.format(DateTimeFormatter.RFC_1123_DATE_TIME);
+		server.expect(requestTo(RETAILER_URL))
+			.andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, retryAt));
+
+		assertThatExceptionOfType(HttpClientErrorException.TooManyRequests.class)
+			.isThrownBy(() -> client.get().uri(RETAILER_URL).retrieve().toBodilessEntity());
+		server.verify();
+	}
+
+	@Test
+	void retriesStopAfterTheConfiguredNumber() {
+		var client = client(settings(2, Duration.ofSeconds(1)));
+		server.expect(ExpectedCount.times(3), requestTo(RETAILER_URL))
+			.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		assertThatExceptionOfType(HttpServerErrorException.ServiceUnavailable.class)
+			.isThrownBy(() -> client.get().uri(RETAILER_URL).retrieve().toBodilessEntity());
+		server.verify();
+	}
+
+	@Test
+	void otherErrorsAreNotRetried() {
+		var client = client(settings(3, Duration.ofSeconds(1)));
+		server.expect(ExpectedCount.once(), requestTo(RETAILER_URL)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+
+		assertThatExceptionOfType(HttpClientErrorException.Unauthorized.class)
+			.isThrownBy(() -> client.get().uri(RETAILER_URL).retrieve().toBodilessEntity());
+		server.verify();
+	}
+
+	@Test
+	void theSidecarIsNeverRetried() {
+		var client = client(settings(3, Duration.ofSeconds(1)));
+		server.expect(ExpectedCount.once(), requestTo(SIDECAR_URL))
+			.andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+		assertThatExceptionOfType(HttpServerErrorException.ServiceUnavailable.class)
+			.isThrownBy(() -> client.post().uri(SIDECAR_URL).retrieve().toBodilessEntity());
+		server.verify();
+	}
+
+	@Test
+	void throttlingSlowsTheHostDownAndSuccessSpeedsItUpAgain() {
+		// 4 req/s after the cut, +1 req/s per success: 250ms, then 200ms spacing.
+		var settings = new RateControlProperties(true, 8, 1, 8, 1, 1, 0.5, 1, Duration.ZERO, Duration.ofSeconds(1));
+		var builder = RestClient.builder()
+			.requestInterceptor(
+					new AdaptiveRateControlInterceptor(settings, Set.of("webapi.supercard.ch"), Clock.systemUTC()));
+		server = MockRestServiceServer.bindTo(builder).build();
+		var client = builder.build();
+		server.expect(requestTo(RETAILER_URL)).andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+		server.expect(ExpectedCount.times(3), requestTo(RETAILER_URL)).andRespond(withSuccess());
+
+		long start = System.nanoTime();
+		client.get().uri(RETAILER_URL).retrieve().toBodilessEntity();
+		long afterRetry = System.nanoTime();
+		client.get().uri(RETAILER_URL).retrieve().toBodilessEntity();
+		client.get().uri(RETAILER_URL).retrieve().toBodilessEntity();
+		long end = System.nanoTime();
+
+		assertThat(Duration.ofNanos(afterRetry - start)).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+		assertThat(Duration.ofNanos(end - afterRetry)).isGreaterThanOrEqualTo(Duration.ofMillis(400));
+		server.verify();
+	}
+
+}
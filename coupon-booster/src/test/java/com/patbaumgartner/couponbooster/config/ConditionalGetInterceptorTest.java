@@ -0,0 +1,97 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.service.CatalogueCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class ConditionalGetInterceptorTest {
+
+	private static final String CATALOGUE_URL = "https://webapi.supercard.ch/dc";
+
+	private final ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor();
+
+	private MockRestServiceServer server;
+
+	private RestClient client() {
+		var builder = RestClient.builder().requestInterceptor(interceptor);
+		server = MockRestServiceServer.bindTo(builder).build();
+		return builder.build();
+	}
+
+	@Test
+	void theCachedValidatorsMakeTheRequestConditional() {
+		var client = client();
+		server.expect(requestTo(CATALOGUE_URL))
+			.andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+			.andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, "Sun, 01 Mar 2026 06:00:00 GMT"))
+			.andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		var response = client.get()
+			.uri(CATALOGUE_URL)
+			.attribute(CatalogueCache.Validators.ATTRIBUTE,
+					new CatalogueCache.Validators("\"v1\"", "Sun, 01 Mar 2026 06:00:00 GMT"))
+			.retrieve()
+			.toBodilessEntity();
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(interceptor.hits()).isEqualTo(1);
+		assertThat(interceptor.misses()).isZero();
+		server.verify();
+	}
+
+	@Test
+	void aFirstFetchIsUnconditionalAndCountsAsAMiss() {
+		var client = client();
+		server.expect(requestTo(CATALOGUE_URL))
+			.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+			.andExpect(headerDoesNotExist(HttpHeaders.IF_MODIFIED_SINCE))
+			.andRespond(withSuccess());
+		server.expect(requestTo(CATALOGUE_URL)).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		client.get()
+			.uri(CATALOGUE_URL)
+			.attribute(CatalogueCache.Validators.ATTRIBUTE, CatalogueCache.Validators.NONE)
+			.retrieve()
+			.toBodilessEntity();
+		client.get()
+			.uri(CATALOGUE_URL)
+			.attribute(CatalogueCache.Validators.ATTRIBUTE, new CatalogueCache.Validators("\"v1\"", null))
+			.retrieve()
+			.toBodilessEntity();
+
+		assertThat(interceptor.misses()).isEqualTo(1);
+		assertThat(interceptor.hitRatio()).isEqualTo(0.5);
+		server.verify();
+	}
+
+	@Test
+	void requestsThatAreNoCatalogueFetchAreNotCounted() {
+		var client = client();
+		server.expect(requestTo(CATALOGUE_URL)).andRespond(withSuccess());
+		server.expect(requestTo(CATALOGUE_URL))
+			.andExpect(headerDoesNotExist(HttpHeaders.IF_NONE_MATCH))
+			.andRespond(withSuccess());
+
+		client.get().uri(CATALOGUE_URL).retrieve().toBodilessEntity();
+		client.put()
+			.uri(CATALOGUE_URL)
+			.attribute(CatalogueCache.Validators.ATTRIBUTE, new CatalogueCache.Validators("\"v1\"", null))
+			.retrieve()
+			.toBodilessEntity();
+
+		assertThat(interceptor.hits() + interceptor.misses()).isZero();
+		assertThat(interceptor.hitRatio()).isZero();
+		server.verify();
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.properties.HttpClientProperties;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles.Profile;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class HttpComponentsClientProfilesTest {
+
+	private static HttpClientProperties.Profile profile(Duration readTimeout, int maxRetries) {
+		return new HttpClientProperties.Profile(Duration.ofSeconds(5), readTimeout, readTimeout, 10, 5,
+				Duration.ofSeconds(30), maxRetries, Duration.ofSeconds(1));
+	}
+
+	@Test
+	void everyProfileGetsItsOwnRequestFactory() {
+		try (var profiles = new HttpComponentsClientProfiles(
+				new HttpClientProperties(profile(Duration.ofSeconds(300), 0), profile(Duration.ofSeconds(3), 0),
+						profile(Duration.ofSeconds(30), 2), profile(Duration.ofSeconds(30), 2)))) {
+			var sidecar = profiles.requestFactory(Profile.SIDECAR);
+			var sidecarHealth = profiles.requestFactory(Profile.SIDECAR_HEALTH);
+			var supercard = profiles.requestFactory(Profile.SUPERCARD);
+			var cumulus = profiles.requestFactory(Profile.CUMULUS);
+
+			assertThat(sidecar).isNotNull().isNotSameAs(sidecarHealth).isNotSameAs(supercard).isNotSameAs(cumulus);
+			assertThat(sidecarHealth).isNotNull().isNotSameAs(supercard).isNotSameAs(cumulus);
+			assertThat(supercard).isNotNull().isNotSameAs(cumulus);
+		}
+	}
+
+	@Test
+	void applyingAProfileSetsItsRequestFactoryOnTheBuilder() {
+		try (var profiles = new HttpComponentsClientProfiles(
+				new HttpClientProperties(profile(Duration.ofSeconds(300), 0), profile(Duration.ofSeconds(3), 0),
+						profile(Duration.ofSeconds(30), 2), profile(Duration.ofSeconds(30), 2)))) {
+			var builder = mock(RestClient.Builder.class);
+
+			profiles.apply(Profile.CUMULUS, builder);
+
+			verify(builder).requestFactory(profiles.requestFactory(Profile.CUMULUS));
+		}
+	}
+
+}
@@ -37,8 +37,6 @@ class NativeHintsTest {
 	@Test
 	void jacksonBoundApiPayloadsAreRegistered() throws ClassNotFoundException {
 		for (String type : new String[] {
-				"com.patbaumgartner.couponbooster.migros.service.CumulusCouponService$CouponsResponse",
-				"com.patbaumgartner.couponbooster.migros.service.CumulusCouponService$RawCoupon",
 				"com.patbaumgartner.couponbooster.coop.service.SupercardCouponService$DigitalCouponCollection" }) {
 			assertThat(RuntimeHintsPredicates.reflection().onType(Class.forName(type)))
 				.as("Jackson binding hint for %s", type)
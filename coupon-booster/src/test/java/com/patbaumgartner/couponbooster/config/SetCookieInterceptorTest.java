@@ -0,0 +1,81 @@
+package com.patbaumgartner.couponbooster.config;
+
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.service.LiveCookies;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class SetCookieInterceptorTest {
+
+	private static final String COUPONS_URL = "https://account.migros.ch/ma/api/user/cumulus/coupon";
+
+	private final LiveCookies liveCookies = new LiveCookies(List.of(new SessionCookie("CSRF", "old", ".migros.ch")));
+
+	private MockRestServiceServer server;
+
+	private RestClient client() {
+		var builder = RestClient.builder().requestInterceptor(new SetCookieInterceptor());
+		server = MockRestServiceServer.bindTo(builder).build();
+		return builder.build();
+	}
+
+	private static HttpHeaders setCookie(String... values) {
+		var headers = new HttpHeaders();
+		for (String value : values) {
+			headers.add(HttpHeaders.SET_COOKIE, value);
+		}
+		return headers;
+	}
+
+	@Test
+	void theSetCookieHeadersOfAResponseAreMergedIntoTheLiveCookies() {
+		var client = client();
+		server.expect(requestTo(COUPONS_URL))
+			.andRespond(withSuccess().headers(setCookie("CSRF=new; Domain=.migros.ch; Path=/", "dd=1")));
+
+		client.get().uri(COUPONS_URL).attribute(LiveCookies.ATTRIBUTE, liveCookies).retrieve().toBodilessEntity();
+
+		assertThat(liveCookies.forHost("account.migros.ch").header()).isEqualTo("CSRF=new; dd=1");
+		server.verify();
+	}
+
+	@Test
+	void cookiesRotatedOnAnErrorResponseAreMergedToo() {
+		var client = client();
+		server.expect(requestTo(COUPONS_URL))
+			.andRespond(withStatus(HttpStatus.FORBIDDEN).headers(setCookie("CSRF=new; Domain=.migros.ch; Path=/")));
+
+		assertThatExceptionOfType(HttpClientErrorException.Forbidden.class).isThrownBy(() -> client.get()
+			.uri(COUPONS_URL)
+			.attribute(LiveCookies.ATTRIBUTE, liveCookies)
+			.retrieve()
+			.toBodilessEntity());
+
+		assertThat(liveCookies.current().value("CSRF")).contains("new");
+		server.verify();
+	}
+
+	@Test
+	void requestsWithoutLiveCookiesAreLeftAlone() {
+		var client = client();
+		server.expect(requestTo(COUPONS_URL)).andRespond(withSuccess().headers(setCookie("CSRF=new")));
+
+		client.get().uri(COUPONS_URL).retrieve().toBodilessEntity();
+
+		assertThat(liveCookies.renewed()).isEmpty();
+		server.verify();
+	}
+
+}
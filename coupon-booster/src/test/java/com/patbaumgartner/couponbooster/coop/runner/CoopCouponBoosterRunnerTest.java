@@ -1,10 +1,17 @@
 package com.patbaumgartner.couponbooster.coop.runner;
 
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
+import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
 import com.patbaumgartner.couponbooster.coop.service.SupercardCouponService;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
 import com.patbaumgartner.couponbooster.runner.ActivationExitCode;
 import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.SessionRecovery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +23,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,6 +31,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class CoopCouponBoosterRunnerTest {
 
+	private static final Account ACCOUNT = new Account("coop", "user@example.com", "secret");
+
 	@Mock
 	private AuthenticationService coopAuthenticationService;
 
@@ -39,26 +49,34 @@ class CoopCouponBoosterRunnerTest {
 	@BeforeEach
 	void setUp() {
 		exitCode = new ActivationExitCode();
-		runner = new CoopCouponBoosterRunner(coopAuthenticationService, supercardCouponService, exitCode);
+		var accountRegistry = new AccountRegistry(new CoopUserProperties("user@example.com", "secret"),
+				new MigrosUserProperties(null, null),
+				new AccountsProperties(null, null, new AccountsProperties.Concurrency(1, 1)));
+		var activationEngine = new AccountActivationEngine(accountRegistry,
+				List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Coop", coopAuthenticationService,
+						supercardCouponService, List.of("http://patchright:8000"), "webapi.supercard.ch")),
+				1, 1);
+		runner = new CoopCouponBoosterRunner(activationEngine, exitCode);
 	}
 
 	@Test
 	void successfulAuthentication_activatesCouponsAndExitsZero() throws Exception {
 		var authentication = AuthenticationResult.successful(List.of(), 100L, "userAgent", "en");
-		when(coopAuthenticationService.performAuthentication()).thenReturn(authentication);
-		when(supercardCouponService.activateAllAvailableCoupons(any(), any(), any()))
+		when(coopAuthenticationService.performAuthentication(ACCOUNT)).thenReturn(authentication);
+		when(supercardCouponService.activateAllAvailableCoupons(any(Account.class), any(), any(), any(),
+				any(SessionRecovery.class)))
 			.thenReturn(new CouponActivationResult(10, 0, List.of()));
 
 		runner.run(applicationArguments);
 
-		verify(supercardCouponService).activateAllAvailableCoupons(authentication.sessionCookies(),
-				authentication.userAgent(), authentication.browserLanguage());
+		verify(supercardCouponService).activateAllAvailableCoupons(eq(ACCOUNT), eq(authentication.sessionCookies()),
+				eq(authentication.userAgent()), eq(authentication.browserLanguage()), any(SessionRecovery.class));
 		assertThat(exitCode.getExitCode()).isZero();
 	}
 
 	@Test
 	void failedAuthentication_skipsActivationAndExitsNonZero() throws Exception {
-		when(coopAuthenticationService.performAuthentication())
+		when(coopAuthenticationService.performAuthentication(ACCOUNT))
 			.thenReturn(AuthenticationResult.failed("Credentials missing", 100L));
 
 		runner.run(applicationArguments);
@@ -69,9 +87,10 @@ class CoopCouponBoosterRunnerTest {
 
 	@Test
 	void couponLevelFailuresDoNotFailTheProcess() throws Exception {
-		when(coopAuthenticationService.performAuthentication())
+		when(coopAuthenticationService.performAuthentication(ACCOUNT))
 			.thenReturn(AuthenticationResult.successful(List.of(), 100L, "ua", "en"));
-		when(supercardCouponService.activateAllAvailableCoupons(any(), any(), any()))
+		when(supercardCouponService.activateAllAvailableCoupons(any(Account.class), any(), any(), any(),
+				any(SessionRecovery.class)))
 			.thenReturn(new CouponActivationResult(0, 3, List.of()));
 
 		runner.run(applicationArguments);
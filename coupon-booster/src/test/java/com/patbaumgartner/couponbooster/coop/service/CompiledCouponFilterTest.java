@@ -0,0 +1,112 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import com.patbaumgartner.couponbooster.coop.properties.SupercardProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledCouponFilterTest {
+
+	private static CompiledCouponFilter filter(int maxActive, String marker, String... productTypes) {
+		return filter(maxActive, marker, Map.of(), productTypes);
+	}
+
+	private static CompiledCouponFilter filter(int maxActive, String marker, Map<String, Double> weights,
+			String... productTypes) {
+		return CompiledCouponFilter
+			.compile(new SupercardProperties.CouponFilter(maxActive, "retail", marker, List.of(productTypes), weights));
+	}
+
+	private static DigitalCoupon coupon(String code, String status, String discount, String... productTypes) {
+		return new DigitalCoupon(code, status, "retail", List.of(productTypes), "desc", discount);
+	}
+
+	@Test
+	void everyProductTypeOfACouponMustBePermitted() {
+		var filter = filter(20, "", "01", "39", "41");
+
+		assertThat(filter.hasOnlyPermittedProductTypes(coupon("A", "OPEN", "20%", "01", "41"))).isTrue();
+		assertThat(filter.hasOnlyPermittedProductTypes(coupon("B", "OPEN", "20%", "01", "06"))).isFalse();
+		assertThat(filter.hasOnlyPermittedProductTypes(coupon("C", "OPEN", "20%"))).isTrue();
+	}
+
+	@Test
+	void productTypesOutsideTheTwoDigitRangeFallBackToAnExactMatch() {
+		var filter = filter(20, "", "01", "X7", "123");
+
+		assertThat(filter.hasOnlyPermittedProductTypes(coupon("A", "OPEN", "20%", "X7", "123"))).isTrue();
+		assertThat(filter.hasOnlyPermittedProductTypes(coupon("B", "OPEN", "20%", "1"))).isFalse();
+		assertThat(filter.hasOnlyPermittedProductTypes(coupon("C", "OPEN", "20%", "99"))).isFalse();
+		assertThat(filter.hasOnlyPermittedProductTypes(coupon("D", "OPEN", "20%", "0a"))).isFalse();
+	}
+
+	@Test
+	void markedCouponsComeFirstAndEligibleOnesFillTheRemainingSlots() {
+		var filter = filter(3, "5 Rappen", "01");
+		var eligible1 = coupon("E1", "OPEN", "20%", "01");
+		var expired = coupon("X", "EXPIRED", "20%", "01");
+		var eligible2 = coupon("E2", "ACTIVE", "20%", "01");
+		var marked1 = coupon("M1", "OPEN", "5 Rappen pro Liter", "31");
+		var eligible3 = coupon("E3", "OPEN", "20%", "01");
+		var marked2 = coupon("M2", "OPEN", "5 Rappen", "06");
+
+		assertThat(filter.select(List.of(eligible1, expired, eligible2, marked1, eligible3, marked2)))
+			.containsExactly(marked1, marked2, eligible1);
+	}
+
+	@Test
+	void theMostValuableCouponsFillTheSlotsWhateverTheirCatalogueOrder() {
+		var filter = filter(3, "", "01", "03");
+		var small = coupon("A", "OPEN", "5%", "01");
+		var points = coupon("B", "OPEN", "5-fach Superpunkte", "01");
+		var amount = coupon("C", "OPEN", "3.-", "03");
+		var large = coupon("D", "OPEN", "25%", "03");
+		var unknown = coupon("E", "OPEN", "Gratis", "03");
+
+		assertThat(filter.select(List.of(small, points, amount, unknown, large))).containsExactly(large, amount, small);
+		assertThat(filter.select(List.of(large, unknown, amount, points, small))).containsExactly(large, amount, small);
+	}
+
+	@Test
+	void productTypeWeightsScaleTheValueAndTiesAreOrderedByCode() {
+		var filter = filter(2, "", Map.of("03", 2.0, "X7", 0.5), "01", "03", "X7");
+		var fruit = coupon("Z", "OPEN", "10%", "03");
+		var milk = coupon("B", "OPEN", "15%", "01");
+		var tied = coupon("A", "OPEN", "15%", "01");
+		var other = coupon("C", "OPEN", "40%", "X7");
+
+		assertThat(filter.weightOf(coupon("M", "OPEN", "1%", "01", "03"))).isEqualTo(2.0);
+		assertThat(filter.select(List.of(milk, fruit, tied, other))).containsExactly(other, fruit);
+		assertThat(filter.select(List.of(milk, tied))).containsExactly(tied, milk);
+	}
+
+	@Test
+	void aCodeOfferedTwiceIsSelectedOnce() {
+		var filter = filter(5, "", "01");
+		var coupon = coupon("A", "OPEN", "20%", "01");
+
+		assertThat(filter.select(List.of(coupon, coupon, coupon("A", "ACTIVE", "20%", "01")))).containsExactly(coupon);
+	}
+
+	@Test
+	void aBlankMarkerExemptsNothing() {
+		var filter = filter(5, " ", "01");
+
+		assertThat(filter.select(List.of(coupon("A", "OPEN", "5 Rappen", "06")))).isEmpty();
+	}
+
+	@Test
+	void theFilterIsRecompiledOnlyForAnotherConfiguration() {
+		var configured = new SupercardProperties.CouponFilter(5, "retail", "", List.of("01"), Map.of());
+		var compiled = CompiledCouponFilter.compile(configured);
+
+		assertThat(compiled.isCompiledFrom(configured)).isTrue();
+		assertThat(
+				compiled.isCompiledFrom(new SupercardProperties.CouponFilter(5, "retail", "", List.of("01"), Map.of())))
+			.isFalse();
+	}
+
+}
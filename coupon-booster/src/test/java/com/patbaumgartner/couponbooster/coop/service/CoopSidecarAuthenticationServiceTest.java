@@ -2,18 +2,37 @@ package com.patbaumgartner.couponbooster.coop.service;
 
 import com.patbaumgartner.couponbooster.coop.properties.CoopPatchrightProperties;
 import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.model.SessionProbeResult;
+import com.patbaumgartner.couponbooster.model.SessionValidity;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.session.SessionStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.restclient.test.autoconfigure.RestClientTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.client.MockRestServiceServer;
 import tools.jackson.databind.ObjectMapper;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
@@ -34,13 +53,21 @@ class CoopSidecarAuthenticationServiceTest {
 	private CoopUserProperties userCredentials;
 
 	@MockitoBean
-	private CoopPatchrightProperties patchrightProperties;
+	private SessionStore sessionStore;
+
+	@MockitoBean
+	private HttpClientProfiles httpClientProfiles;
+
+	@MockitoBean
+	private CouponMetrics metrics;
+
+	@MockitoBean
+	private SupercardCouponService sessionProbe;
 
 	@BeforeEach
 	void setUp() {
 		when(userCredentials.email()).thenReturn("user@example.com");
 		when(userCredentials.password()).thenReturn("secret");
-		when(patchrightProperties.url()).thenReturn("http://patchright:8000");
 	}
 
 	@Test
@@ -74,7 +101,8 @@ class CoopSidecarAuthenticationServiceTest {
 				}
 				""";
 
-		server.expect(requestTo("/login/coop")).andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
+		server.expect(requestTo("http://patchright:8000/login/coop"))
+			.andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
 
@@ -89,7 +117,7 @@ class CoopSidecarAuthenticationServiceTest {
 
 	@Test
 	void performAuthentication_sidecarError_returnsFailedResult() {
-		server.expect(requestTo("/login/coop")).andRespond(withServerError());
+		server.expect(requestTo("http://patchright:8000/login/coop")).andRespond(withServerError());
 
 		AuthenticationResult result = service.performAuthentication();
 
@@ -119,7 +147,8 @@ class CoopSidecarAuthenticationServiceTest {
 				}
 				""";
 
-		server.expect(requestTo("/login/coop")).andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
+		server.expect(requestTo("http://patchright:8000/login/coop"))
+			.andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
 
@@ -153,7 +182,8 @@ class CoopSidecarAuthenticationServiceTest {
 
 	@Test
 	void aMalformedSidecarResponseIsReportedAsAParseFailure() {
-		server.expect(requestTo("/login/coop")).andRespond(withSuccess("not json at all", MediaType.APPLICATION_JSON));
+		server.expect(requestTo("http://patchright:8000/login/coop"))
+			.andRespond(withSuccess("not json at all", MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
 
@@ -163,7 +193,7 @@ class CoopSidecarAuthenticationServiceTest {
 
 	@Test
 	void aResponseWithoutACookieArrayYieldsNoCookies() {
-		server.expect(requestTo("/login/coop"))
+		server.expect(requestTo("http://patchright:8000/login/coop"))
 			.andRespond(withSuccess("{\"userAgent\":\"UA\"}", MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
@@ -173,4 +203,106 @@ class CoopSidecarAuthenticationServiceTest {
 		assertThat(result.browserLanguage()).isNull();
 	}
 
+	@Test
+	void aStoredSessionIsReusedWithoutCallingTheSidecar() {
+		var stored = AuthenticationResult.restored(List.of(new SessionCookie("datadome", "x", ".supercard.ch")),
+				Instant.now(), 1L, "UA", "de-CH");
+		when(sessionStore.load("coop", "user@example.com")).thenReturn(Optional.of(stored));
+		when(sessionProbe.probeSession(stored.sessionCookies(), "UA", "de-CH"))
+			.thenReturn(new SessionProbeResult(SessionValidity.VALID, "Session accepted", 5L));
+
+		AuthenticationResult result = service.performAuthentication();
+
+		assertThat(result).isSameAs(stored);
+		assertThat(result.restored()).isTrue();
+		server.verify(); // No HTTP call should have been made
+	}
+
+	@Test
+	void aStoredSessionTheProbeRejectsFallsBackToTheSidecar() {
+		var stored = AuthenticationResult.restored(List.of(new SessionCookie("datadome", "x", ".supercard.ch")),
+				Instant.now(), 1L, "UA", "de-CH");
+		when(sessionStore.load("coop", "user@example.com")).thenReturn(Optional.of(stored));
+		when(sessionProbe.probeSession(any(), any(), any()))
+			.thenReturn(new SessionProbeResult(SessionValidity.CHALLENGED, "HTML instead of JSON", 5L));
+		server.expect(requestTo("http://patchright:8000/login/coop"))
+			.andRespond(withSuccess("{\"cookies\":[{\"name\":\"s\",\"value\":\"v\",\"domain\":\".supercard.ch\"}]}",
+					MediaType.APPLICATION_JSON));
+
+		AuthenticationResult result = service.performAuthentication();
+
+		assertThat(result.restored()).isFalse();
+		assertThat(result.sessionCookies()).extracting(SessionCookie::name).containsExactly("s");
+		verify(sessionStore).save("coop", "user@example.com", result);
+		server.verify();
+	}
+
+	@Test
+	void noProbeIsSentWhenNothingIsStored() {
+		server.expect(requestTo("http://patchright:8000/login/coop"))
+			.andRespond(withSuccess("{\"cookies\":[]}", MediaType.APPLICATION_JSON));
+
+		service.performAuthentication();
+
+		verify(sessionProbe, never()).probeSession(any(), any(), any());
+	}
+
+	@Test
+	void aSuccessfulSidecarLoginIsStoredForTheNextRun() {
+		server.expect(requestTo("http://patchright:8000/login/coop"))
+			.andRespond(withSuccess("{\"cookies\":[{\"name\":\"s\",\"value\":\"v\",\"domain\":\".supercard.ch\"}]}",
+					MediaType.APPLICATION_JSON));
+
+		AuthenticationResult result = service.performAuthentication();
+
+		assertThat(result.restored()).isFalse();
+		verify(sessionStore).save("coop", "user@example.com", result);
+	}
+
+	@Test
+	void aFailedSidecarLoginIsNotStored() {
+		server.expect(requestTo("http://patchright:8000/login/coop")).andRespond(withServerError());
+
+		service.performAuthentication();
+
+		verify(sessionStore, never()).save(any(), any(), any());
+	}
+
+	@Test
+	void invalidateSessionEvictsTheStoredSessionOfTheConfiguredAccount() {
+		service.invalidateSession();
+
+		verify(sessionStore).evict(eq("coop"), eq("user@example.com"));
+	}
+
+	@Test
+	void anAdditionalAccountLogsInWithItsOwnCredentials() {
+		var partner = new Account("coop", "partner@example.com", "other-secret");
+		server.expect(requestTo("http://patchright:8000/login/coop"))
+			.andExpect(content().json("{\"email\":\"partner@example.com\",\"password\":\"other-secret\"}"))
+			.andRespond(withSuccess("{\"cookies\":[]}", MediaType.APPLICATION_JSON));
+
+		AuthenticationResult result = service.performAuthentication(partner);
+
+		assertThat(result.isSuccessful()).isTrue();
+		verify(sessionStore).load("coop", "partner@example.com");
+		server.verify();
+	}
+
+	@Test
+	void anAccountOfAnotherProviderIsRejected() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> service.performAuthentication(new Account("migros", "user@example.com", "secret")));
+	}
+
+	@TestConfiguration(proxyBeanMethods = false)
+	static class SidecarConfiguration {
+
+		@Bean
+		CoopPatchrightProperties patchrightProperties() {
+			return new CoopPatchrightProperties(List.of("http://patchright:8000"));
+		}
+
+	}
+
 }
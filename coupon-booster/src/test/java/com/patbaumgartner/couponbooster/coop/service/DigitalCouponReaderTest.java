@@ -0,0 +1,76 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class DigitalCouponReaderTest {
+
+	private final DigitalCouponReader reader = new DigitalCouponReader(JsonMapper.builder().build());
+
+	@Test
+	void onlyTheActivationFieldsAreKeptAndEverythingElseIsSkipped() {
+		String body = """
+				{
+				  "meta": {"total": 2, "pages": [1, 2, {"next": null}]},
+				  "dc": [
+				    {
+				      "images": [{"url": "a.png", "sizes": [1, 2]}],
+				      "code": "A1",
+				      "legal": {"text": "...", "links": [{"code": "NOT-A-COUPON"}]},
+				      "status": "OPEN",
+				      "formatIdMain": "retail",
+				      "productTypes": ["01", 39],
+				      "textDescription": "Bio Milch",
+				      "textDiscountAmount": "20%",
+				      "validTo": "2026-03-31"
+				    },
+				    {"code": "B2", "status": "ACTIVE", "formatIdMain": "online", "productTypes": [],
+				     "textDescription": "Brot", "textDiscountAmount": "5 Rappen"}
+				  ],
+				  "trailer": {"dc": [{"code": "IGNORED"}]}
+				}
+				""";
+
+		var coupons = reader.read(new ByteArrayInputStream(body.getBytes(UTF_8)));
+
+		assertThat(coupons).containsExactly(
+				new DigitalCoupon("A1", "OPEN", "retail", List.of("01", "39"), "Bio Milch", "20%"),
+				new DigitalCoupon("B2", "ACTIVE", "online", List.of(), "Brot", "5 Rappen"));
+	}
+
+	@Test
+	void missingAndNullFieldsReadAsEmpty() {
+		var coupons = reader.read("""
+				{"dc": [{"code": "A1", "status": null, "productTypes": "01"}]}
+				""");
+
+		assertThat(coupons).singleElement().satisfies(coupon -> {
+			assertThat(coupon.code()).isEqualTo("A1");
+			assertThat(coupon.status()).isEmpty();
+			assertThat(coupon.shop()).isEmpty();
+			assertThat(coupon.textDiscountAmount()).isEmpty();
+			assertThat(coupon.productTypes()).isEmpty();
+		});
+	}
+
+	@Test
+	void aResponseWithoutCouponListReadsAsNoCoupons() {
+		assertThat(reader.read("{\"dc\": {\"code\": \"A1\"}, \"status\": \"ok\"}")).isEmpty();
+		assertThat(reader.read("[{\"code\": \"A1\"}]")).isEmpty();
+		assertThat(reader.read("{}")).isEmpty();
+	}
+
+	@Test
+	void malformedJsonIsReported() {
+		assertThatExceptionOfType(JacksonException.class).isThrownBy(() -> reader.read("{\"dc\": [{\"code\": "));
+	}
+
+}
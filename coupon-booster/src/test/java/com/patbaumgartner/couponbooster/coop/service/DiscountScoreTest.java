@@ -0,0 +1,32 @@
+package com.patbaumgartner.couponbooster.coop.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DiscountScoreTest {
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', nullValues = "NULL", textBlock = """
+			20%                     | 20
+			12,5 %                  | 12.5
+			ab 2 Stück 30% Rabatt   | 30
+			3-fach Superpunkte      | 2
+			10x Superpunkte         | 9
+			500 Superpunkte         | 25
+			3.-                     | 15
+			CHF 3.50                | 17.5
+			Fr. 2                   | 10
+			5 Rappen                | 2.5
+			5 Rappen/Liter          | 2.5
+			Gratis                  | 0
+			''                      | 0
+			NULL                    | 0
+			""")
+	void scoresTheDiscountAsAPercentageOfAReferencePurchase(String text, double expected) {
+		assertThat(DiscountScore.of(text)).isCloseTo(expected, within(1e-9));
+	}
+
+}
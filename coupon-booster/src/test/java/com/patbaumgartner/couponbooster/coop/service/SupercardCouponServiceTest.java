@@ -1,22 +1,51 @@
 package com.patbaumgartner.couponbooster.coop.service;
 
 import com.patbaumgartner.couponbooster.coop.properties.SupercardProperties;
+import com.patbaumgartner.couponbooster.journal.RunCheckpoint;
+import com.patbaumgartner.couponbooster.journal.RunJournal;
+import com.patbaumgartner.couponbooster.journal.RunStage;
 import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
 import com.patbaumgartner.couponbooster.migros.model.CouponDetail;
+import com.patbaumgartner.couponbooster.migros.model.CouponSetDiff;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.model.SessionValidity;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.session.SessionStore;
+import com.patbaumgartner.couponbooster.snapshot.CatalogueStore;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshot;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshotStore;
+import com.patbaumgartner.couponbooster.snapshot.StoredCatalogue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.restclient.test.autoconfigure.RestClientTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.client.MockRestServiceServer;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
@@ -43,6 +72,24 @@ class SupercardCouponServiceTest {
 	@Autowired
 	private MockRestServiceServer server;
 
+	@MockitoBean
+	private CouponSnapshotStore couponSnapshotStore;
+
+	@MockitoBean
+	private CatalogueStore catalogueStore;
+
+	@MockitoBean
+	private SessionStore sessionStore;
+
+	@MockitoBean
+	private HttpClientProfiles httpClientProfiles;
+
+	@MockitoBean
+	private CouponMetrics metrics;
+
+	@MockitoBean
+	private RunJournal runJournal;
+
 	@MockitoBean
 	private SupercardProperties supercardProperties;
 
@@ -56,11 +103,19 @@ class SupercardCouponServiceTest {
 		when(urls.couponsUrl()).thenReturn(COUPONS_URL);
 		when(urls.couponsActivationUrl()).thenReturn(ACTIVATE_URL);
 		when(urls.couponsDeactivationUrl()).thenReturn(DEACTIVATE_URL);
+		givenCatalogueReuse(true, true);
+		when(supercardProperties.jwt()).thenReturn(new SupercardProperties.Jwt(true, Duration.ofSeconds(60)));
+		when(runJournal.begin(any(), any())).thenReturn(RunCheckpoint.UNTRACKED);
+	}
+
+	private void givenCatalogueReuse(boolean rebuildAfterDeactivation, boolean verifyFromActivationResponse) {
+		when(supercardProperties.catalogue())
+			.thenReturn(new SupercardProperties.Catalogue(rebuildAfterDeactivation, verifyFromActivationResponse));
 	}
 
 	private void givenFilter(int maxActive, String shop, String marker, List<String> productTypes) {
 		when(supercardProperties.couponFilter())
-			.thenReturn(new SupercardProperties.CouponFilter(maxActive, shop, marker, productTypes));
+			.thenReturn(new SupercardProperties.CouponFilter(maxActive, shop, marker, productTypes, Map.of()));
 	}
 
 	private static String coupon(String code, String status, String shop, String discount, String... productTypes) {
@@ -79,6 +134,18 @@ class SupercardCouponServiceTest {
 			.andRespond(withSuccess("{\"jwtToken\":\"test-token\"}", MediaType.APPLICATION_JSON));
 	}
 
+	private static String jwtExpiringIn(Duration lifetime) {
+		var encoder = Base64.getUrlEncoder().withoutPadding();
+		String payload = "{\"sub\":\"user\",\"exp\":%d}".formatted(Instant.now().plus(lifetime).getEpochSecond());
+		return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(UTF_8)) + "."
+				+ encoder.encodeToString(payload.getBytes(UTF_8)) + ".signature";
+	}
+
+	private void expectJwt(String token) {
+		server.expect(requestTo(CONFIG_URL))
+			.andRespond(withSuccess("{\"jwtToken\":\"%s\"}".formatted(token), MediaType.APPLICATION_JSON));
+	}
+
 	private void expectCoupons(String body) {
 		server.expect(requestTo(COUPONS_URL)).andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
 	}
@@ -110,16 +177,9 @@ class SupercardCouponServiceTest {
 		expectCoupons(catalogue(coupon("active1", "ACTIVE", "retail", "10%", "03"),
 				coupon("open1", "OPEN", "retail", "20%", "03")));
 
-		server.expect(requestTo(DEACTIVATE_URL))
-			.andExpect(content().json("{\"codes\":[\"active1\"]}"))
-			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
-
-		expectCoupons(catalogue(coupon("active1", "OPEN", "retail", "10%", "03"),
-				coupon("open1", "OPEN", "retail", "20%", "03")));
-
 		server.expect(requestTo(ACTIVATE_URL))
 			.andExpect(header("X-Client-Id", "WEB_SUPERCARD"))
-			.andExpect(content().json("{\"codes\":[\"active1\",\"open1\"]}"))
+			.andExpect(content().json("{\"codes\":[\"open1\"]}", true))
 			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
 
 		expectCoupons(catalogue(coupon("active1", "ACTIVE", "retail", "10%", "03"),
@@ -133,6 +193,260 @@ class SupercardCouponServiceTest {
 		server.verify();
 	}
 
+	@Test
+	void onlyCouponsThatDroppedOutOfTheSelectionAreDeactivated() {
+		givenFilter(2, "retail", "", List.of("03"));
+		expectJwt();
+		expectCoupons(catalogue(coupon("keep", "ACTIVE", "retail", "10%", "03"),
+				coupon("stale", "ACTIVE", "retail", "5%", "99"), coupon("new", "OPEN", "retail", "20%", "03")));
+
+		server.expect(requestTo(DEACTIVATE_URL))
+			.andExpect(content().json("{\"codes\":[\"stale\"]}", true))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(ACTIVATE_URL))
+			.andExpect(content().json("{\"codes\":[\"new\"]}", true))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		expectCoupons(catalogue(coupon("keep", "ACTIVE", "retail", "10%", "03"),
+				coupon("stale", "OPEN", "retail", "5%", "99"), coupon("new", "ACTIVE", "retail", "20%", "03")));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("keep", "new");
+		server.verify();
+	}
+
+	@Test
+	void theCatalogueIsFetchedAgainAfterADeactivationWhenRebuildingIsDisabled() {
+		givenCatalogueReuse(false, true);
+		givenFilter(2, "retail", "", List.of("03"));
+		expectJwt();
+		expectCoupons(catalogue(coupon("stale", "ACTIVE", "retail", "5%", "99"),
+				coupon("new", "OPEN", "retail", "20%", "03")));
+		server.expect(requestTo(DEACTIVATE_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		expectCoupons(
+				catalogue(coupon("stale", "OPEN", "retail", "5%", "99"), coupon("new", "OPEN", "retail", "20%", "03")));
+		server.expect(requestTo(ACTIVATE_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		expectCoupons(catalogue(coupon("stale", "OPEN", "retail", "5%", "99"),
+				coupon("new", "ACTIVE", "retail", "20%", "03")));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isEqualTo(1);
+		server.verify();
+	}
+
+	@Test
+	void aDeactivationAloneNeedsNoFurtherCatalogueFetch() {
+		givenFilter(2, "retail", "", List.of("03"));
+		expectJwt();
+		expectCoupons(catalogue(coupon("keep", "ACTIVE", "retail", "10%", "03"),
+				coupon("stale", "ACTIVE", "retail", "5%", "99")));
+		server.expect(requestTo(DEACTIVATE_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("keep");
+		server.verify();
+	}
+
+	@Test
+	void anActivationResponseReportingEveryCouponReplacesTheVerificationFetch() {
+		givenFilter(20, "retail", "", List.of("03"));
+		expectJwt();
+		expectCoupons(
+				catalogue(coupon("c1", "OPEN", "retail", "1%", "03"), coupon("c2", "OPEN", "retail", "2%", "03")));
+		server.expect(requestTo(ACTIVATE_URL))
+			.andRespond(withSuccess(
+					"{\"dc\":[{\"code\":\"c1\",\"status\":\"ACTIVE\"}," + "{\"code\":\"c2\",\"status\":\"OPEN\"}]}",
+					MediaType.APPLICATION_JSON));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isEqualTo(1);
+		assertThat(result.failureCount()).isEqualTo(1);
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("c1");
+		server.verify();
+	}
+
+	@Test
+	void anActivationResponseMissingACouponFallsBackToOneVerificationFetch() {
+		givenFilter(20, "retail", "", List.of("03"));
+		expectJwt();
+		expectCoupons(
+				catalogue(coupon("c1", "OPEN", "retail", "1%", "03"), coupon("c2", "OPEN", "retail", "2%", "03")));
+		server.expect(requestTo(ACTIVATE_URL))
+			.andRespond(withSuccess("{\"dc\":[{\"code\":\"c1\",\"status\":\"ACTIVE\"}]}", MediaType.APPLICATION_JSON));
+		expectCoupons(
+				catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03"), coupon("c2", "ACTIVE", "retail", "2%", "03")));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isEqualTo(2);
+		server.verify();
+	}
+
+	@Test
+	void anUnchangedSelectionIsReportedWithoutAnyWrite() {
+		givenFilter(20, "retail", "", List.of("03"));
+		expectJwt();
+		expectCoupons(catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03"),
+				coupon("c2", "ACTIVE", "retail", "2%", "03"), coupon("other", "OPEN", "online", "3%", "03")));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isEqualTo(2);
+		assertThat(result.failureCount()).isZero();
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("c1", "c2");
+		server.verify();
+	}
+
+	@Test
+	void aCatalogueReportedNotModifiedIsServedFromTheCacheOfTheSameAccount() {
+		givenFilter(20, "retail", "", List.of("03"));
+		var account = new Account("coop", "unchanged@example.com", "secret");
+		expectJwt();
+		server.expect(requestTo(COUPONS_URL))
+			.andRespond(withSuccess(catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03")), MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.ETAG, "\"v1\""));
+		expectJwt();
+		server.expect(requestTo(COUPONS_URL)).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua",
+				"de");
+
+		assertThat(result.successCount()).isEqualTo(1);
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("c1");
+		server.verify();
+	}
+
+	@Test
+	void aCatalogueStoredByAnEarlierProcessIsServedOnNotModified() {
+		givenFilter(20, "retail", "", List.of("03"));
+		when(catalogueStore.load("coop", "stored@example.com", COUPONS_URL))
+			.thenReturn(Optional.of(new StoredCatalogue("\"v1\"", null, JsonMapper.builder().build().readTree("""
+					[{"code":"c1","status":"ACTIVE","shop":"retail","productTypes":["03"],\
+					"textDescription":"desc","textDiscountAmount":"1%"}]"""))));
+		expectJwt();
+		server.expect(requestTo(COUPONS_URL)).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		CouponActivationResult result = supercardCouponService
+			.activateAllAvailableCoupons(new Account("coop", "stored@example.com", "secret"), COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isEqualTo(1);
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("c1");
+		server.verify();
+	}
+
+	@Test
+	void aDownloadedCatalogueIsStoredForTheNextProcess() {
+		givenFilter(20, "retail", "", List.of("03"));
+		expectJwt();
+		server.expect(requestTo(COUPONS_URL))
+			.andRespond(withSuccess(catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03")), MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.ETAG, "\"v1\""));
+
+		supercardCouponService.activateAllAvailableCoupons(new Account("coop", "fresh@example.com", "secret"), COOKIES,
+				"ua", "de");
+
+		verify(catalogueStore).save(eq("coop"), eq("fresh@example.com"), eq(COUPONS_URL),
+				argThat(stored -> "\"v1\"".equals(stored.etag()) && stored.catalogue().size() == 1));
+	}
+
+	@Test
+	void aNotModifiedAnswerWithoutCachedCatalogueIsReportedAsAnError() {
+		givenFilter(20, "retail", "", List.of("03"));
+		expectJwt();
+		server.expect(requestTo(COUPONS_URL)).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(
+				new Account("coop", "never-fetched@example.com", "secret"), COOKIES, "ua", "de");
+
+		assertThat(result.failureCount()).isEqualTo(1);
+		server.verify();
+	}
+
+	@Test
+	void newAndExpiredCouponsAreReportedAgainstTheLastSnapshot() {
+		givenFilter(20, "retail", "", List.of("03"));
+		when(couponSnapshotStore.load("coop", ""))
+			.thenReturn(Optional.of(CouponSnapshot.of(Map.of("c1", "ACTIVE", "gone", "ACTIVE"))));
+		expectJwt();
+		expectCoupons(
+				catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03"), coupon("c2", "ACTIVE", "retail", "2%", "03")));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.couponSetDiff()).isEqualTo(new CouponSetDiff(List.of("c2"), List.of("gone"), List.of()));
+		verify(couponSnapshotStore).save("coop", "", CouponSnapshot.of(Map.of("c1", "ACTIVE", "c2", "ACTIVE")));
+		server.verify();
+	}
+
+	@Test
+	void anUnchangedCouponSetIsNeitherWrittenToTheApiNorStoredAgain() {
+		givenFilter(20, "retail", "", List.of("03"));
+		when(couponSnapshotStore.load("coop", ""))
+			.thenReturn(Optional.of(CouponSnapshot.of(Map.of("c1", "ACTIVE", "other", "OPEN"))));
+		expectJwt();
+		expectCoupons(
+				catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03"), coupon("other", "OPEN", "online", "3%", "03")));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isEqualTo(1);
+		assertThat(result.couponSetDiff().isEmpty()).isTrue();
+		verify(couponSnapshotStore, never()).save(any(), any(), any());
+		server.verify();
+	}
+
+	@Test
+	void everyStageIsJournalledAndTheRunClosedWhenItFinishes() {
+		var run = mock(RunCheckpoint.class);
+		when(run.completed(any())).thenReturn(Optional.empty());
+		when(runJournal.begin("coop", "")).thenReturn(run);
+		givenFilter(20, "retail", "", List.of("03"));
+		expectJwt();
+		expectCoupons(catalogue(coupon("open1", "OPEN", "retail", "20%", "03")));
+		server.expect(requestTo(ACTIVATE_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		expectCoupons(catalogue(coupon("open1", "ACTIVE", "retail", "20%", "03")));
+
+		supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		var inOrder = inOrder(run);
+		inOrder.verify(run).record(RunStage.AUTHENTICATE);
+		inOrder.verify(run).record(RunStage.FETCH);
+		inOrder.verify(run).record(RunStage.PLAN, List.of("open1"));
+		inOrder.verify(run).record(RunStage.ACTIVATE, List.of("open1"));
+		inOrder.verify(run).record(RunStage.VERIFY);
+		inOrder.verify(run).complete();
+		server.verify();
+	}
+
+	@Test
+	void aResumedRunFinishesTheSelectionItHadAlreadyMade() {
+		var run = mock(RunCheckpoint.class);
+		when(run.completed(any())).thenReturn(Optional.empty());
+		when(run.completed(RunStage.PLAN)).thenReturn(Optional.of(List.of("chosen", "expired")));
+		when(runJournal.begin("coop", "")).thenReturn(run);
+		givenFilter(20, "retail", "", List.of("03"));
+		expectJwt();
+		// "better" would win a fresh selection, but the interrupted run chose "chosen".
+		expectCoupons(catalogue(coupon("chosen", "OPEN", "retail", "5%", "03"),
+				coupon("better", "OPEN", "retail", "50%", "03")));
+		server.expect(requestTo(ACTIVATE_URL))
+			.andExpect(content().json("{\"codes\":[\"chosen\"]}", true))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		expectCoupons(catalogue(coupon("chosen", "ACTIVE", "retail", "5%", "03"),
+				coupon("better", "OPEN", "retail", "50%", "03")));
+
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("chosen");
+		verify(run, never()).record(eq(RunStage.PLAN), any());
+		verify(run).complete();
+		server.verify();
+	}
+
 	@Test
 	void skipsCouponsFromAnotherShopChannelAndDisallowedProductTypes() {
 		givenFilter(20, "retail", "5 Rappen", List.of("03"));
@@ -140,7 +454,6 @@ class SupercardCouponServiceTest {
 		String catalogue = catalogue(coupon("keep", "OPEN", "retail", "10%", "03"),
 				coupon("wrongShop", "OPEN", "online", "10%", "03"), coupon("wrongType", "OPEN", "retail", "10%", "99"));
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 
 		server.expect(requestTo(ACTIVATE_URL))
 			.andExpect(content().json("{\"codes\":[\"keep\"]}", true))
@@ -162,7 +475,6 @@ class SupercardCouponServiceTest {
 		expectJwt();
 		String catalogue = catalogue(coupon("fuel", "OPEN", "online", "5 Rappen/Liter", "99"));
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 
 		server.expect(requestTo(ACTIVATE_URL))
 			.andExpect(content().json("{\"codes\":[\"fuel\"]}", true))
@@ -177,16 +489,15 @@ class SupercardCouponServiceTest {
 	}
 
 	@Test
-	void neverActivatesMoreThanTheConfiguredMaximum() {
+	void neverActivatesMoreThanTheConfiguredMaximumAndPrefersTheMostValuable() {
 		givenFilter(2, "retail", "", List.of("03"));
 		expectJwt();
 		String catalogue = catalogue(coupon("c1", "OPEN", "retail", "1%", "03"),
 				coupon("c2", "OPEN", "retail", "2%", "03"), coupon("c3", "OPEN", "retail", "3%", "03"));
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 
 		server.expect(requestTo(ACTIVATE_URL))
-			.andExpect(content().json("{\"codes\":[\"c1\",\"c2\"]}", true))
+			.andExpect(content().json("{\"codes\":[\"c3\",\"c2\"]}", true))
 			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
 
 		expectCoupons(catalogue);
@@ -203,7 +514,6 @@ class SupercardCouponServiceTest {
 		String catalogue = catalogue(coupon("c1", "OPEN", "retail", "1%", "03"),
 				coupon("c2", "OPEN", "retail", "2%", "03"));
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 		server.expect(requestTo(ACTIVATE_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
 		expectCoupons(
 				catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03"), coupon("c2", "OPEN", "retail", "2%", "03")));
@@ -223,7 +533,6 @@ class SupercardCouponServiceTest {
 		String catalogue = "{\"dc\":[{\"code\":\"c1\",\"status\":\"OPEN\",\"formatIdMain\":\"retail\","
 				+ "\"textDescription\":\"d\",\"textDiscountAmount\":\"1%\"}]}";
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 		server.expect(requestTo(ACTIVATE_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
 		expectCoupons("{\"dc\":[{\"code\":\"c1\",\"status\":\"ACTIVE\",\"formatIdMain\":\"retail\","
 				+ "\"textDescription\":\"d\",\"textDiscountAmount\":\"1%\"}]}");
@@ -298,13 +607,14 @@ class SupercardCouponServiceTest {
 			.extracting(CouponDetail::message)
 			.asString()
 			.contains("HTML instead of JSON");
+		assertThat(result.sessionRejected()).isTrue();
 	}
 
 	@Test
 	void aFailedDeactivationAbortsTheRunWithAReportedError() {
 		givenFilter(20, "retail", "", List.of("03"));
 		expectJwt();
-		expectCoupons(catalogue(coupon("c1", "ACTIVE", "retail", "1%", "03")));
+		expectCoupons(catalogue(coupon("c1", "ACTIVE", "retail", "1%", "99")));
 		server.expect(requestTo(DEACTIVATE_URL)).andRespond(withStatus(org.springframework.http.HttpStatus.FORBIDDEN));
 
 		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
@@ -320,7 +630,6 @@ class SupercardCouponServiceTest {
 		expectJwt();
 		String catalogue = catalogue(coupon("c1", "OPEN", "retail", "1%", "03"));
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 		server.expect(requestTo(ACTIVATE_URL))
 			.andRespond(withStatus(org.springframework.http.HttpStatus.TOO_MANY_REQUESTS));
 
@@ -328,6 +637,7 @@ class SupercardCouponServiceTest {
 
 		assertThat(result.failureCount()).isEqualTo(1);
 		assertThat(result.details()).singleElement().extracting(CouponDetail::message).asString().contains("429");
+		assertThat(result.sessionRejected()).isFalse();
 		server.verify();
 	}
 
@@ -337,7 +647,6 @@ class SupercardCouponServiceTest {
 		expectJwt();
 		String catalogue = catalogue(coupon("c1", "OPEN", "retail", "1%", "03"));
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 		server.expect(requestTo(ACTIVATE_URL)).andRespond(withSuccess("<html>nope</html>", MediaType.TEXT_HTML));
 
 		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
@@ -355,8 +664,6 @@ class SupercardCouponServiceTest {
 		expectJwt();
 		String catalogue = catalogue(coupon("c1", "OPEN", "online", "1%", "03"));
 		expectCoupons(catalogue);
-		expectCoupons(catalogue);
-		expectCoupons(catalogue);
 
 		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
 
@@ -364,4 +671,133 @@ class SupercardCouponServiceTest {
 		server.verify();
 	}
 
+	@Test
+	void aCachedJwtIsReusedForLaterRunsOfTheSameAccount() {
+		givenFilter(20, "retail", "", List.of("03"));
+		var account = new Account("coop", "cached@example.com", "secret");
+		String token = jwtExpiringIn(Duration.ofHours(1));
+		String nothingEligible = catalogue(coupon("c1", "OPEN", "online", "1%", "03"));
+		expectJwt(token);
+		server.expect(requestTo(COUPONS_URL))
+			.andExpect(header("Authorization", "Bearer " + token))
+			.andRespond(withSuccess(nothingEligible, MediaType.APPLICATION_JSON));
+		server.expect(requestTo(COUPONS_URL))
+			.andExpect(header("Authorization", "Bearer " + token))
+			.andRespond(withSuccess(nothingEligible, MediaType.APPLICATION_JSON));
+
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+
+		server.verify();
+	}
+
+	@Test
+	void aJwtStoredWithTheSessionIsReusedByANewProcess() {
+		givenFilter(20, "retail", "", List.of("03"));
+		var account = new Account("coop", "Stored@example.com", "secret");
+		String token = jwtExpiringIn(Duration.ofHours(1));
+		when(sessionStore.loadBearerToken("coop", "Stored@example.com")).thenReturn(Optional.of(token));
+		server.expect(requestTo(COUPONS_URL))
+			.andExpect(header("Authorization", "Bearer " + token))
+			.andRespond(withSuccess(catalogue(coupon("c1", "OPEN", "online", "1%", "03")), MediaType.APPLICATION_JSON));
+
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+
+		server.verify();
+	}
+
+	@Test
+	void anExtractedJwtIsKeptWithTheStoredSession() {
+		givenFilter(20, "retail", "", List.of("03"));
+		var account = new Account("coop", "Fresh@example.com", "secret");
+		String token = jwtExpiringIn(Duration.ofHours(1));
+		expectJwt(token);
+		expectCoupons(catalogue(coupon("c1", "OPEN", "online", "1%", "03")));
+
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+
+		verify(sessionStore).saveBearerToken(eq("coop"), eq("Fresh@example.com"), eq(token), any(Instant.class));
+	}
+
+	@Test
+	void aJwtExpiringWithinTheMarginIsExtractedAgain() {
+		givenFilter(20, "retail", "", List.of("03"));
+		var account = new Account("coop", "expiring@example.com", "secret");
+		String nothingEligible = catalogue(coupon("c1", "OPEN", "online", "1%", "03"));
+		expectJwt(jwtExpiringIn(Duration.ofSeconds(30)));
+		expectCoupons(nothingEligible);
+		expectJwt(jwtExpiringIn(Duration.ofSeconds(30)));
+		expectCoupons(nothingEligible);
+
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+
+		server.verify();
+	}
+
+	@Test
+	void aCachedJwtRejectedWithUnauthorizedIsReplacedByAFreshOne() {
+		givenFilter(20, "retail", "", List.of("03"));
+		var account = new Account("coop", "revoked@example.com", "secret");
+		String revoked = jwtExpiringIn(Duration.ofHours(1));
+		String fresh = jwtExpiringIn(Duration.ofHours(2));
+		String nothingEligible = catalogue(coupon("c1", "OPEN", "online", "1%", "03"));
+		expectJwt(revoked);
+		expectCoupons(nothingEligible);
+		server.expect(requestTo(COUPONS_URL))
+			.andExpect(header("Authorization", "Bearer " + revoked))
+			.andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		expectJwt(fresh);
+		server.expect(requestTo(COUPONS_URL))
+			.andExpect(header("Authorization", "Bearer " + fresh))
+			.andRespond(withSuccess(nothingEligible, MediaType.APPLICATION_JSON));
+
+		supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+		CouponActivationResult result = supercardCouponService.activateAllAvailableCoupons(account, COOKIES, "ua",
+				"de");
+
+		assertThat(result.failureCount()).isZero();
+		assertThat(result.sessionRejected()).isFalse();
+		server.verify();
+	}
+
+	@Test
+	void aSessionThatYieldsAJwtIsProbedAsValid() {
+		expectJwt();
+
+		var probe = supercardCouponService.probeSession(COOKIES, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.VALID);
+		assertThat(probe.executionDurationMs()).isNotNegative();
+		server.verify();
+	}
+
+	@Test
+	void aDataDomeChallengeServedWithOkIsProbedAsChallenged() {
+		server.expect(requestTo(CONFIG_URL)).andRespond(withSuccess("<html>blocked</html>", MediaType.TEXT_HTML));
+
+		var probe = supercardCouponService.probeSession(COOKIES, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.CHALLENGED);
+	}
+
+	@Test
+	void anUnauthorizedConfigResponseIsProbedAsExpired() {
+		server.expect(requestTo(CONFIG_URL)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+
+		var probe = supercardCouponService.probeSession(COOKIES, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.EXPIRED);
+	}
+
+	@Test
+	void aServerErrorLeavesTheProbeInconclusive() {
+		server.expect(requestTo(CONFIG_URL)).andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+
+		var probe = supercardCouponService.probeSession(COOKIES, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.INCONCLUSIVE);
+		assertThat(probe.isValid()).isFalse();
+	}
+
 }
@@ -0,0 +1,96 @@
+package com.patbaumgartner.couponbooster.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileRunJournalTest {
+
+	private static final Instant NOW = Instant.parse("2026-03-01T06:00:00Z");
+
+	@TempDir
+	Path directory;
+
+	private FileRunJournal journalAt(Instant instant) {
+		return new FileRunJournal(directory, Duration.ofMinutes(30), JsonMapper.builder().build(),
+				Clock.fixed(instant, ZoneOffset.UTC));
+	}
+
+	@Test
+	void anInterruptedRunIsResumedWithItsStagesAndCodes() {
+		var run = journalAt(NOW).begin("coop", "user@example.com");
+		run.record(RunStage.AUTHENTICATE);
+		run.record(RunStage.PLAN, List.of("c1", "c2"));
+		run.record(RunStage.ACTIVATE, List.of("c1"));
+		run.record(RunStage.ACTIVATE, List.of("c2"));
+
+		var resumed = journalAt(NOW.plus(Duration.ofMinutes(10))).begin("coop", "user@example.com");
+
+		assertThat(resumed.resumed()).isTrue();
+		assertThat(resumed.runId()).isEqualTo(run.runId());
+		assertThat(resumed.completed(RunStage.PLAN)).contains(List.of("c1", "c2"));
+		assertThat(resumed.completed(RunStage.ACTIVATE)).contains(List.of("c1", "c2"));
+		assertThat(resumed.completed(RunStage.AUTHENTICATE)).contains(List.of());
+		assertThat(resumed.completed(RunStage.VERIFY)).isEmpty();
+	}
+
+	@Test
+	void aCompletedRunIsNotResumed() {
+		var run = journalAt(NOW).begin("coop", "user@example.com");
+		run.record(RunStage.PLAN, List.of("c1"));
+		run.complete();
+
+		var next = journalAt(NOW).begin("coop", "user@example.com");
+
+		assertThat(next.resumed()).isFalse();
+		assertThat(next.runId()).isNotEqualTo(run.runId());
+		assertThat(next.completed(RunStage.PLAN)).isEmpty();
+	}
+
+	@Test
+	void aRunInterruptedLongerThanTheResumeWindowStartsAfresh() throws IOException {
+		journalAt(NOW).begin("coop", "user@example.com").record(RunStage.PLAN, List.of("c1"));
+
+		var next = journalAt(NOW.plus(Duration.ofMinutes(31))).begin("coop", "user@example.com");
+
+		assertThat(next.resumed()).isFalse();
+		try (var files = Files.list(directory)) {
+			assertThat(files).isEmpty();
+		}
+	}
+
+	@Test
+	void runsAreKeptPerProviderAndAccount() {
+		journalAt(NOW).begin("coop", "user@example.com").record(RunStage.FETCH);
+
+		assertThat(journalAt(NOW).begin("migros", "user@example.com").resumed()).isFalse();
+		assertThat(journalAt(NOW).begin("coop", "other@example.com").resumed()).isFalse();
+		assertThat(journalAt(NOW).begin("coop", "user@example.com").resumed()).isTrue();
+	}
+
+	@Test
+	void anUnreadableJournalIsDiscarded() throws IOException {
+		journalAt(NOW).begin("coop", "user@example.com").record(RunStage.FETCH);
+		Path file;
+		try (var files = Files.list(directory)) {
+			file = files.findFirst().orElseThrow();
+		}
+		Files.writeString(file, "{\"runId\":\"r1\",\"stage\":\"FET", StandardOpenOption.APPEND);
+
+		assertThat(journalAt(NOW).begin("coop", "user@example.com").resumed()).isFalse();
+		assertThat(file).doesNotExist();
+	}
+
+}
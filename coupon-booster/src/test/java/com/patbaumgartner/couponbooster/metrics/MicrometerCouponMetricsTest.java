@@ -0,0 +1,74 @@
+package com.patbaumgartner.couponbooster.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MicrometerCouponMetricsTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final MicrometerCouponMetrics metrics = new MicrometerCouponMetrics(registry);
+
+	@Test
+	void theAccountIsTaggedWithAShortHashInsteadOfTheAddress() {
+		String hash = metrics.accountHash("Jane@Example.ch");
+
+		assertThat(hash).hasSize(8).isHexadecimal().isEqualTo(metrics.accountHash("jane@example.ch"));
+		assertThat(metrics.accountHash("john@example.ch")).isNotEqualTo(hash);
+		assertThat(metrics.accountHash("")).isEqualTo("default");
+		assertThat(metrics.accountHash(null)).isEqualTo("default");
+	}
+
+	@Test
+	void loginsAreTimedByProviderAccountAndOutcome() {
+		metrics.recordLogin("coop", "jane@example.ch", CouponMetrics.SUCCESS, Duration.ofSeconds(40));
+		metrics.recordLogin("coop", "jane@example.ch", CouponMetrics.REUSED, Duration.ofMillis(300));
+		metrics.recordLogin("coop", "jane@example.ch", CouponMetrics.SUCCESS, Duration.ofSeconds(20));
+
+		var timer = registry.get("couponbooster.login")
+			.tags("provider", "coop", "account", metrics.accountHash("jane@example.ch"), "outcome", "success")
+			.timer();
+		assertThat(timer.count()).isEqualTo(2);
+		assertThat(timer.totalTime(TimeUnit.SECONDS)).isEqualTo(60.0);
+		assertThat(registry.get("couponbooster.login").tag("outcome", "reused").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void catalogueFetchesRecordLatencyAndSize() {
+		metrics.recordCatalogueFetch("migros", "", Duration.ofMillis(800), 120);
+		metrics.recordCatalogueFetch("migros", "", Duration.ofMillis(200), 80);
+
+		var tags = new String[] { "provider", "migros", "account", "default" };
+		assertThat(registry.get("couponbooster.catalogue.fetch").tags(tags).timer().count()).isEqualTo(2);
+		var size = registry.get("couponbooster.catalogue.size").tags(tags).summary();
+		assertThat(size.count()).isEqualTo(2);
+		assertThat(size.max()).isEqualTo(120.0);
+	}
+
+	@Test
+	void activationsAreCountedByOutcome() {
+		metrics.recordActivationRequest("migros", "", CouponMetrics.REJECTED, Duration.ofMillis(90));
+		metrics.recordCoupons("migros", "", CouponMetrics.SUCCESS, 7);
+		metrics.recordCoupons("migros", "", CouponMetrics.SUCCESS, 3);
+		metrics.recordCoupons("migros", "", CouponMetrics.FAILURE, 1);
+
+		assertThat(registry.get("couponbooster.activation.request").tag("outcome", "rejected").timer().count())
+			.isEqualTo(1);
+		assertThat(registry.get("couponbooster.coupons").tag("outcome", "success").counter().count()).isEqualTo(10.0);
+		assertThat(registry.get("couponbooster.coupons").tag("outcome", "failure").counter().count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void scheduledRunLatencyIsTimedPerProvider() {
+		metrics.recordScheduledRunLatency("coop", Duration.ofSeconds(2));
+
+		var latency = registry.get("couponbooster.scheduler.latency").tag("provider", "coop").timer();
+		assertThat(latency.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(2000.0);
+	}
+
+}
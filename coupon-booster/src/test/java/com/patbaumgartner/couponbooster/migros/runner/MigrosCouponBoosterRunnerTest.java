@@ -1,10 +1,17 @@
 package com.patbaumgartner.couponbooster.migros.runner;
 
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
+import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
 import com.patbaumgartner.couponbooster.migros.service.CumulusCouponService;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
 import com.patbaumgartner.couponbooster.runner.ActivationExitCode;
 import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.SessionRecovery;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +23,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,6 +31,8 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class MigrosCouponBoosterRunnerTest {
 
+	private static final Account ACCOUNT = new Account("migros", "user@example.com", "secret");
+
 	@Mock
 	private AuthenticationService migrosAuthenticationService;
 
@@ -39,26 +49,35 @@ class MigrosCouponBoosterRunnerTest {
 	@BeforeEach
 	void setUp() {
 		exitCode = new ActivationExitCode();
-		runner = new MigrosCouponBoosterRunner(migrosAuthenticationService, cumulusCouponService, exitCode);
+		var accountRegistry = new AccountRegistry(new CoopUserProperties(null, null),
+				new MigrosUserProperties("user@example.com", "secret"),
+				new AccountsProperties(null, null, new AccountsProperties.Concurrency(1, 1)));
+		var activationEngine = new AccountActivationEngine(accountRegistry,
+				List.of(AccountActivationEngine.Provider.of(AccountRegistry.MIGROS, "Migros",
+						migrosAuthenticationService, cumulusCouponService, List.of("http://patchright:8000"),
+						"account.migros.ch")),
+				1, 1);
+		runner = new MigrosCouponBoosterRunner(activationEngine, exitCode);
 	}
 
 	@Test
 	void successfulAuthentication_activatesCouponsAndExitsZero() throws Exception {
 		var authentication = AuthenticationResult.successful(List.of(), 100L, "userAgent", "en");
-		when(migrosAuthenticationService.performAuthentication()).thenReturn(authentication);
-		when(cumulusCouponService.activateAllAvailableCoupons(any(), any(), any()))
+		when(migrosAuthenticationService.performAuthentication(ACCOUNT)).thenReturn(authentication);
+		when(cumulusCouponService.activateAllAvailableCoupons(any(Account.class), any(), any(), any(),
+				any(SessionRecovery.class)))
 			.thenReturn(new CouponActivationResult(10, 0, List.of()));
 
 		runner.run(applicationArguments);
 
-		verify(cumulusCouponService).activateAllAvailableCoupons(authentication.sessionCookies(),
-				authentication.userAgent(), authentication.browserLanguage());
+		verify(cumulusCouponService).activateAllAvailableCoupons(eq(ACCOUNT), eq(authentication.sessionCookies()),
+				eq(authentication.userAgent()), eq(authentication.browserLanguage()), any(SessionRecovery.class));
 		assertThat(exitCode.getExitCode()).isZero();
 	}
 
 	@Test
 	void failedAuthentication_skipsActivationAndExitsNonZero() throws Exception {
-		when(migrosAuthenticationService.performAuthentication())
+		when(migrosAuthenticationService.performAuthentication(ACCOUNT))
 			.thenReturn(AuthenticationResult.failed("Credentials missing", 100L));
 
 		runner.run(applicationArguments);
@@ -69,9 +88,10 @@ class MigrosCouponBoosterRunnerTest {
 
 	@Test
 	void couponLevelFailuresDoNotFailTheProcess() throws Exception {
-		when(migrosAuthenticationService.performAuthentication())
+		when(migrosAuthenticationService.performAuthentication(ACCOUNT))
 			.thenReturn(AuthenticationResult.successful(List.of(), 100L, "ua", "en"));
-		when(cumulusCouponService.activateAllAvailableCoupons(any(), any(), any()))
+		when(cumulusCouponService.activateAllAvailableCoupons(any(Account.class), any(), any(), any(),
+				any(SessionRecovery.class)))
 			.thenReturn(new CouponActivationResult(0, 3, List.of()));
 
 		runner.run(applicationArguments);
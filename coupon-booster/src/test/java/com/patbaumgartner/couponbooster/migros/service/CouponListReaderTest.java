@@ -0,0 +1,59 @@
+package com.patbaumgartner.couponbooster.migros.service;
+
+import com.patbaumgartner.couponbooster.migros.model.CouponInfo;
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class CouponListReaderTest {
+
+	private final CouponListReader reader = new CouponListReader(JsonMapper.builder().build());
+
+	@Test
+	void availableComeBeforeActivatedAndTheOtherListsAreSkipped() {
+		String body = """
+				{
+				  "redeemed": [{"id": "R1", "name": "Old", "status": "REDEEMED", "images": [{"url": "a.png"}]}],
+				  "activated": [{"id": "C2", "name": "Two", "subtitle": "s2", "validTo": "2026-02-01",
+				                 "status": "ACTIVATED", "legal": {"id": "NOT-A-COUPON"}}],
+				  "preview": [{"id": "P1", "status": "PREVIEW"}],
+				  "available": [{"id": "C1", "name": "One", "disclaimer": "d1", "validTo": "2026-01-01",
+				                 "status": "AVAILABLE"}],
+				  "partner": [{"id": "X1", "status": "AVAILABLE"}]
+				}
+				""";
+
+		var coupons = reader.read(new ByteArrayInputStream(body.getBytes(UTF_8)));
+
+		assertThat(coupons).containsExactly(new CouponInfo("C1", "One", "d1", "2026-01-01", false),
+				new CouponInfo("C2", "Two", "s2", "2026-02-01", true));
+	}
+
+	@Test
+	void missingAndNullFieldsReadAsNull() {
+		var coupons = reader.read("""
+				{"available": [{"id": "C1", "name": null, "subtitle": {"text": "nested"}}, null]}
+				""");
+
+		assertThat(coupons).containsExactly(new CouponInfo("C1", null, null, null, false));
+	}
+
+	@Test
+	void aResponseWithoutCouponListsReadsAsNoCoupons() {
+		assertThat(reader.read("{\"available\": {\"id\": \"C1\"}, \"status\": \"ok\"}")).isEmpty();
+		assertThat(reader.read("[{\"id\": \"C1\"}]")).isEmpty();
+		assertThat(reader.read("{}")).isEmpty();
+	}
+
+	@Test
+	void malformedJsonIsReported() {
+		assertThatExceptionOfType(JacksonException.class).isThrownBy(() -> reader.read("{\"available\": [{\"id\": "));
+	}
+
+}
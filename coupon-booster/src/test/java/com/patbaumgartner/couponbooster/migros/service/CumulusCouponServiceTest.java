@@ -1,22 +1,54 @@
 package com.patbaumgartner.couponbooster.migros.service;
 
+import com.patbaumgartner.couponbooster.config.AdaptiveRateControlInterceptor;
+import com.patbaumgartner.couponbooster.journal.RunCheckpoint;
+import com.patbaumgartner.couponbooster.journal.RunJournal;
+import com.patbaumgartner.couponbooster.journal.RunStage;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
 import com.patbaumgartner.couponbooster.migros.model.CouponDetail;
+import com.patbaumgartner.couponbooster.migros.model.CouponSetDiff;
 import com.patbaumgartner.couponbooster.migros.properties.CumulusProperties;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.model.SessionValidity;
+import com.patbaumgartner.couponbooster.properties.RateControlProperties;
+import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.snapshot.CatalogueStore;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshot;
+import com.patbaumgartner.couponbooster.snapshot.CouponSnapshotStore;
+import com.patbaumgartner.couponbooster.snapshot.StoredCatalogue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.restclient.test.autoconfigure.RestClientTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.client.ExpectedCount;
 import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
@@ -40,6 +72,28 @@ class CumulusCouponServiceTest {
 	@Autowired
 	private MockRestServiceServer server;
 
+	@MockitoBean
+	private CouponSnapshotStore couponSnapshotStore;
+
+	@MockitoBean
+	private CatalogueStore catalogueStore;
+
+	@MockitoBean
+	private HttpClientProfiles httpClientProfiles;
+
+	@MockitoBean
+	private CouponMetrics metrics;
+
+	@MockitoBean
+	private RunJournal runJournal;
+
+	@MockitoBean(name = "migrosAuth")
+	private AuthenticationService authenticationService;
+
+	@Autowired
+	@Qualifier("migrosAuth")
+	private ObjectProvider<AuthenticationService> migrosAuth;
+
 	@MockitoBean
 	private CumulusProperties cumulusProperties;
 
@@ -56,7 +110,11 @@ class CumulusCouponServiceTest {
 		when(urls.couponsReferer()).thenReturn("https://account.migros.ch/cumulus/dashboard");
 		when(urls.activationEndpoint()).thenReturn(ACTIVATION_URL);
 		when(cumulusProperties.api()).thenReturn(api);
-		when(api.requestDelay()).thenReturn(Duration.ZERO);
+		when(api.requestsPerSecond()).thenReturn(1000.0);
+		when(api.burst()).thenReturn(100);
+		// One at a time so the ordered request expectations below stay deterministic.
+		when(api.maxConcurrentActivations()).thenReturn(1);
+		when(runJournal.begin(any(), any())).thenReturn(RunCheckpoint.UNTRACKED);
 	}
 
 	private void expectCoupons(String body) {
@@ -121,6 +179,112 @@ class CumulusCouponServiceTest {
 		server.verify();
 	}
 
+	@Test
+	void anUnchangedCouponListIsServedFromTheCacheOfTheSameAccount() {
+		var account = new Account("migros", "unchanged@example.com", "secret");
+		server.expect(requestTo(COUPONS_URL))
+			.andRespond(withSuccess("""
+					{"activated":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"ACTIVATED"}]}""",
+					MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.LAST_MODIFIED, "Sun, 01 Mar 2026 06:00:00 GMT"));
+		server.expect(requestTo(COUPONS_URL)).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		cumulusCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isZero();
+		assertThat(result.failureCount()).isZero();
+		server.verify();
+	}
+
+	@Test
+	void activationsFollowTheRateOfTheAdaptiveRateControl() {
+		// Held at 50 req/s, the list and 19 activations go out 20ms apart. The former
+		// 2 req/s bucket with a burst of 2 alone would have needed 8.5s.
+		var rateControl = new RateControlProperties(true, 50, 50, 50, 1, 1, 0.5, 0, Duration.ZERO,
+				Duration.ofSeconds(1));
+		var builder = RestClient.builder()
+			.requestInterceptor(
+					new AdaptiveRateControlInterceptor(rateControl, Set.of("account.migros.ch"), Clock.systemUTC()));
+		var pacedServer = MockRestServiceServer.bindTo(builder).build();
+		when(api.requestsPerSecond()).thenReturn(0.0);
+		var pacedService = new CumulusCouponService(builder, httpClientProfiles, JsonMapper.builder().build(),
+				cumulusProperties, couponSnapshotStore, catalogueStore, runJournal, metrics, migrosAuth);
+		var available = IntStream.rangeClosed(1, 19)
+			.mapToObj(
+					"{\"id\":\"c%d\",\"name\":\"Coupon\",\"validTo\":\"2026-01-01\",\"status\":\"AVAILABLE\"}"::formatted)
+			.collect(Collectors.joining(",", "{\"available\":[", "]}"));
+		pacedServer.expect(requestTo(COUPONS_URL)).andRespond(withSuccess(available, MediaType.APPLICATION_JSON));
+		pacedServer.expect(ExpectedCount.times(19), requestTo(ACTIVATION_URL))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		long start = System.nanoTime();
+		CouponActivationResult result = pacedService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+		var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+		assertThat(result.successCount()).isEqualTo(19);
+		assertThat(elapsed).isBetween(Duration.ofMillis(350), Duration.ofSeconds(4));
+		pacedServer.verify();
+	}
+
+	@Test
+	void aCouponListStoredByAnEarlierProcessIsServedOnNotModified() {
+		when(catalogueStore.load("migros", "stored@example.com", COUPONS_URL)).thenReturn(Optional
+			.of(new StoredCatalogue(null, "Sun, 01 Mar 2026 06:00:00 GMT", JsonMapper.builder().build().readTree("""
+					[{"id":"c1","name":"One","description":null,"validUntil":"2026-01-01",\
+					"activated":true}]"""))));
+		server.expect(requestTo(COUPONS_URL)).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		CouponActivationResult result = cumulusCouponService
+			.activateAllAvailableCoupons(new Account("migros", "stored@example.com", "secret"), COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isZero();
+		assertThat(result.failureCount()).isZero();
+		server.verify();
+	}
+
+	@Test
+	void aNotModifiedAnswerWithoutCachedListIsReportedAsAnError() {
+		server.expect(requestTo(COUPONS_URL)).andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(
+				new Account("migros", "never-fetched@example.com", "secret"), COOKIES, "ua", "de");
+
+		assertThat(result.failureCount()).isEqualTo(1);
+		server.verify();
+	}
+
+	@Test
+	void anUnchangedFullyActivatedCouponSetEndsTheRunWithoutStoringIt() {
+		when(couponSnapshotStore.load("migros", ""))
+			.thenReturn(Optional.of(CouponSnapshot.of(Map.of("c1", "ACTIVATED"))));
+		expectCoupons("""
+				{"activated":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"ACTIVATED"}]}""");
+
+		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isZero();
+		assertThat(result.couponSetDiff().isEmpty()).isTrue();
+		verify(couponSnapshotStore, never()).save(any(), any(), any());
+		server.verify();
+	}
+
+	@Test
+	void newCouponsAreReportedAndStoredAsActivated() {
+		when(couponSnapshotStore.load("migros", ""))
+			.thenReturn(Optional.of(CouponSnapshot.of(Map.of("c1", "ACTIVATED", "expired", "ACTIVATED"))));
+		expectCoupons("""
+				{"available":[{"id":"c2","name":"Two","validTo":"2026-01-01","status":"AVAILABLE"}],
+				 "activated":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"ACTIVATED"}]}""");
+		server.expect(requestTo(ACTIVATION_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.couponSetDiff()).isEqualTo(new CouponSetDiff(List.of("c2"), List.of("expired"), List.of()));
+		verify(couponSnapshotStore).save("migros", "", CouponSnapshot.of(Map.of("c1", "ACTIVATED", "c2", "ACTIVATED")));
+		server.verify();
+	}
+
 	@Test
 	void oneFailingCouponDoesNotAbortTheRestOfTheBatch() {
 		expectCoupons("""
@@ -137,6 +301,78 @@ class CumulusCouponServiceTest {
 		server.verify();
 	}
 
+	@Test
+	void aSessionRejectedMidBatchIsRecoveredOnceAndTheRemainingCouponsResumed() {
+		when(authenticationService.performAuthentication())
+			.thenReturn(AuthenticationResult.successful(List.of(new SessionCookie("CSRF", "fresh-token", ".migros.ch"),
+					new SessionCookie("session", "new", "account.migros.ch")), 10, "ua2", "de"));
+		expectCoupons("""
+				{"available":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"AVAILABLE"},
+				              {"id":"c2","name":"Two","validTo":"2026-01-01","status":"AVAILABLE"},
+				              {"id":"c3","name":"Three","validTo":"2026-01-01","status":"AVAILABLE"}]}""");
+		server.expect(requestTo(ACTIVATION_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(ACTIVATION_URL)).andRespond(withStatus(HttpStatus.UNAUTHORIZED));
+		server.expect(requestTo(ACTIVATION_URL))
+			.andExpect(content().json("{\"id\":\"c2\"}"))
+			.andExpect(header("X-CSRF-TOKEN", "fresh-token"))
+			.andExpect(header("Cookie", "CSRF=fresh-token; session=new"))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+		server.expect(requestTo(ACTIVATION_URL))
+			.andExpect(content().json("{\"id\":\"c3\"}"))
+			.andExpect(header("X-CSRF-TOKEN", "fresh-token"))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isEqualTo(3);
+		assertThat(result.sessionRejected()).isFalse();
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("c1", "c2", "c3");
+		verify(authenticationService).invalidateSession();
+		server.verify();
+	}
+
+	@Test
+	void aChallengeMidBatchStopsTheBatchWhenTheNewLoginFails() {
+		var account = new Account("migros", "challenged@example.com", "secret");
+		when(authenticationService.performAuthentication(account))
+			.thenReturn(AuthenticationResult.failed("sidecar busy", 10));
+		expectCoupons("""
+				{"available":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"AVAILABLE"},
+				              {"id":"c2","name":"Two","validTo":"2026-01-01","status":"AVAILABLE"}]}""");
+		server.expect(ExpectedCount.once(), requestTo(ACTIVATION_URL))
+			.andRespond(withSuccess("<html>captcha</html>", MediaType.TEXT_HTML));
+
+		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(account, COOKIES, "ua", "de");
+
+		assertThat(result.successCount()).isZero();
+		assertThat(result.failureCount()).isEqualTo(2);
+		assertThat(result.sessionRejected()).isTrue();
+		verify(authenticationService).invalidateSession(account);
+		server.verify();
+	}
+
+	@Test
+	void aResumedRunDoesNotResendActivationsItAlreadyJournalled() {
+		var run = mock(RunCheckpoint.class);
+		when(run.completed(any())).thenReturn(Optional.empty());
+		when(run.completed(RunStage.ACTIVATE)).thenReturn(Optional.of(List.of("c1")));
+		when(runJournal.begin("migros", "")).thenReturn(run);
+		expectCoupons("""
+				{"available":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"AVAILABLE"},
+				              {"id":"c2","name":"Two","validTo":"2026-01-01","status":"AVAILABLE"}]}""");
+		server.expect(ExpectedCount.once(), requestTo(ACTIVATION_URL))
+			.andExpect(content().json("{\"id\":\"c2\"}"))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
+
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("c2");
+		verify(run).record(RunStage.PLAN, List.of("c2"));
+		verify(run).record(RunStage.ACTIVATE, List.of("c2"));
+		verify(run).complete();
+		server.verify();
+	}
+
 	@Test
 	void missingCsrfCookieIsReportedInsteadOfThrowing() {
 		var noCsrf = List.of(new SessionCookie("session", "abc", ".migros.ch"));
@@ -158,6 +394,7 @@ class CumulusCouponServiceTest {
 
 		assertThat(result.successCount()).isZero();
 		assertThat(result.failureCount()).isEqualTo(1);
+		assertThat(result.sessionRejected()).isTrue();
 		server.verify();
 	}
 
@@ -195,15 +432,20 @@ class CumulusCouponServiceTest {
 	}
 
 	@Test
-	void aConfiguredDelayIsAppliedBetweenActivations() {
-		when(api.requestDelay()).thenReturn(Duration.ofMillis(5));
+	void concurrentActivationsReportTheirResultsInCouponOrder() {
+		when(api.maxConcurrentActivations()).thenReturn(4);
 		expectCoupons("""
-				{"available":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"AVAILABLE"}]}""");
-		server.expect(requestTo(ACTIVATION_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+				{"available":[{"id":"c1","name":"One","validTo":"2026-01-01","status":"AVAILABLE"},
+				              {"id":"c2","name":"Two","validTo":"2026-01-01","status":"AVAILABLE"},
+				              {"id":"c3","name":"Three","validTo":"2026-01-01","status":"AVAILABLE"}]}""");
+		server.expect(ExpectedCount.times(3), requestTo(ACTIVATION_URL))
+			.andExpect(header("X-CSRF-TOKEN", "csrf-token"))
+			.andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
 
 		CouponActivationResult result = cumulusCouponService.activateAllAvailableCoupons(COOKIES, "ua", "de");
 
-		assertThat(result.successCount()).isEqualTo(1);
+		assertThat(result.successCount()).isEqualTo(3);
+		assertThat(result.details()).extracting(CouponDetail::couponId).containsExactly("c1", "c2", "c3");
 		server.verify();
 	}
 
@@ -231,4 +473,43 @@ class CumulusCouponServiceTest {
 		server.verify();
 	}
 
+	@Test
+	void anAcceptedSessionIsProbedAsValidWithTheCsrfHeader() {
+		expectCoupons("{\"available\":[]}");
+
+		var probe = cumulusCouponService.probeSession(COOKIES, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.VALID);
+		server.verify();
+	}
+
+	@Test
+	void anHtmlChallengeServedWithOkIsProbedAsChallenged() {
+		server.expect(requestTo(COUPONS_URL)).andRespond(withSuccess("<html>captcha</html>", MediaType.TEXT_HTML));
+
+		var probe = cumulusCouponService.probeSession(COOKIES, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.CHALLENGED);
+	}
+
+	@Test
+	void aForbiddenJsonResponseIsProbedAsExpired() {
+		server.expect(requestTo(COUPONS_URL))
+			.andRespond(withStatus(HttpStatus.FORBIDDEN).contentType(MediaType.APPLICATION_JSON).body("{}"));
+
+		var probe = cumulusCouponService.probeSession(COOKIES, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.EXPIRED);
+	}
+
+	@Test
+	void aSessionWithoutCsrfCookieIsProbedAsExpiredWithoutARequest() {
+		var noCsrf = List.of(new SessionCookie("session", "abc", ".migros.ch"));
+
+		var probe = cumulusCouponService.probeSession(noCsrf, "ua", "de");
+
+		assertThat(probe.validity()).isEqualTo(SessionValidity.EXPIRED);
+		server.verify();
+	}
+
 }
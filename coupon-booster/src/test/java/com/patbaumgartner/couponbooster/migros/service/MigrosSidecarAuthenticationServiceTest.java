@@ -1,17 +1,25 @@
 package com.patbaumgartner.couponbooster.migros.service;
 
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.migros.properties.MigrosPatchrightProperties;
 import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
 import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.service.HttpClientProfiles;
+import com.patbaumgartner.couponbooster.session.SessionStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.restclient.test.autoconfigure.RestClientTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.client.MockRestServiceServer;
 import tools.jackson.databind.ObjectMapper;
 
+import java.time.Instant;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
@@ -34,13 +42,21 @@ class MigrosSidecarAuthenticationServiceTest {
 	private MigrosUserProperties userCredentials;
 
 	@MockitoBean
-	private MigrosPatchrightProperties patchrightProperties;
+	private SessionStore sessionStore;
+
+	@MockitoBean
+	private HttpClientProfiles httpClientProfiles;
+
+	@MockitoBean
+	private CouponMetrics metrics;
+
+	@MockitoBean
+	private CumulusCouponService sessionProbe;
 
 	@BeforeEach
 	void setUp() {
 		when(userCredentials.email()).thenReturn("user@example.com");
 		when(userCredentials.password()).thenReturn("secret");
-		when(patchrightProperties.url()).thenReturn("http://patchright:8000");
 	}
 
 	@Test
@@ -74,7 +90,8 @@ class MigrosSidecarAuthenticationServiceTest {
 				}
 				""";
 
-		server.expect(requestTo("/login/migros")).andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
+		server.expect(requestTo("http://patchright:8000/login/migros"))
+			.andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
 
@@ -82,6 +99,13 @@ class MigrosSidecarAuthenticationServiceTest {
 		assertThat(result.sessionCookies()).hasSize(2);
 		assertThat(result.sessionCookies().get(0).name()).isEqualTo("m-session");
 		assertThat(result.sessionCookies().get(1).name()).isEqualTo("cumulus-id");
+		assertThat(result.sessionCookies().get(0)).satisfies(cookie -> {
+			assertThat(cookie.path()).isEqualTo("/");
+			assertThat(cookie.expires()).isEqualTo(Instant.ofEpochSecond(9_999_999_999L));
+			assertThat(cookie.secure()).isTrue();
+		});
+		assertThat(result.sessionCookies().get(1).expires()).isNull();
+		assertThat(result.earliestExpiry("account.migros.ch")).contains(Instant.ofEpochSecond(9_999_999_999L));
 		assertThat(result.userAgent()).isEqualTo("Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/120");
 		assertThat(result.browserLanguage()).isEqualTo("de-CH");
 		server.verify();
@@ -89,7 +113,7 @@ class MigrosSidecarAuthenticationServiceTest {
 
 	@Test
 	void performAuthentication_sidecarError_returnsFailedResult() {
-		server.expect(requestTo("/login/migros")).andRespond(withServerError());
+		server.expect(requestTo("http://patchright:8000/login/migros")).andRespond(withServerError());
 
 		AuthenticationResult result = service.performAuthentication();
 
@@ -119,7 +143,8 @@ class MigrosSidecarAuthenticationServiceTest {
 				}
 				""";
 
-		server.expect(requestTo("/login/migros")).andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
+		server.expect(requestTo("http://patchright:8000/login/migros"))
+			.andRespond(withSuccess(responseBody, MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
 
@@ -153,7 +178,7 @@ class MigrosSidecarAuthenticationServiceTest {
 
 	@Test
 	void aMalformedSidecarResponseIsReportedAsAParseFailure() {
-		server.expect(requestTo("/login/migros"))
+		server.expect(requestTo("http://patchright:8000/login/migros"))
 			.andRespond(withSuccess("not json at all", MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
@@ -164,7 +189,7 @@ class MigrosSidecarAuthenticationServiceTest {
 
 	@Test
 	void aResponseWithoutACookieArrayYieldsNoCookies() {
-		server.expect(requestTo("/login/migros"))
+		server.expect(requestTo("http://patchright:8000/login/migros"))
 			.andRespond(withSuccess("{\"userAgent\":\"UA\"}", MediaType.APPLICATION_JSON));
 
 		AuthenticationResult result = service.performAuthentication();
@@ -174,4 +199,14 @@ class MigrosSidecarAuthenticationServiceTest {
 		assertThat(result.browserLanguage()).isNull();
 	}
 
+	@TestConfiguration(proxyBeanMethods = false)
+	static class SidecarConfiguration {
+
+		@Bean
+		MigrosPatchrightProperties patchrightProperties() {
+			return new MigrosPatchrightProperties(List.of("http://patchright:8000"));
+		}
+
+	}
+
 }
@@ -0,0 +1,112 @@
+package com.patbaumgartner.couponbooster.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CookieJarTest {
+
+	private static final List<SessionCookie> SIDECAR_COOKIES = List.of(
+			new SessionCookie("datadome", "d", ".supercard.ch"), new SessionCookie("CSRF", "token", ".migros.ch"),
+			new SessionCookie("hostOnly", "h", "www.supercard.ch"),
+			new SessionCookie("session", "s", "account.migros.ch"),
+			new SessionCookie("api", "a", "webapi.supercard.ch"), new SessionCookie("tracking", "t", ".SuperCard.CH"),
+			new SessionCookie("noDomain", "n", ""));
+
+	private static final Instant NOW = Instant.parse("2026-03-01T06:00:00Z");
+
+	private final CookieJar jar = CookieJar.of(SIDECAR_COOKIES);
+
+	@ParameterizedTest
+	@ValueSource(strings = { "www.supercard.ch", "supercard.ch", "webapi.supercard.ch", "account.migros.ch",
+			"migros.ch", "WWW.SUPERCARD.CH", "www.example.ch", "ch", "supercard.ch.attacker.test" })
+	void forHost_matchesExactlyLikeScanningWithMatchesHost(String host) {
+		var scanned = SIDECAR_COOKIES.stream().filter(cookie -> cookie.matchesHost(host)).toList();
+
+		assertThat(jar.forHost(host)).containsExactlyElementsOf(scanned);
+	}
+
+	@Test
+	void forHost_keepsTheOrderTheCookiesWereAddedIn() {
+		assertThat(jar.forHost("www.supercard.ch")).extracting(SessionCookie::name)
+			.containsExactly("datadome", "hostOnly", "tracking");
+	}
+
+	@Test
+	void forHost_buildsTheJarOfAHostOnce() {
+		assertThat(jar.forHost("www.supercard.ch")).isSameAs(jar.forHost("www.supercard.ch"));
+		assertThat(jar.forHost("www.example.ch")).isSameAs(CookieJar.EMPTY);
+		assertThat(jar.forHost(null)).isEmpty();
+	}
+
+	@Test
+	void header_joinsTheCookiesOfTheJar() {
+		assertThat(jar.forHost("account.migros.ch").header()).isEqualTo("CSRF=token; session=s");
+		assertThat(CookieJar.EMPTY.header()).isEmpty();
+	}
+
+	@Test
+	void value_returnsTheFirstNonBlankValueOfACookie() {
+		var cookies = CookieJar.of(List.of(new SessionCookie("CSRF", " ", ".migros.ch"),
+				new SessionCookie("CSRF", "second", "account.migros.ch"),
+				new SessionCookie("CSRF", "third", ".migros.ch")));
+
+		assertThat(cookies.value("CSRF")).contains("second");
+		assertThat(cookies.value("missing")).isEmpty();
+	}
+
+	@Test
+	void forRequest_returnsTheHostJarWhileNoCookieIsRestricted() {
+		var request = URI.create("https://account.migros.ch/ma/api/user/cumulus/coupon");
+
+		assertThat(jar.forRequest("account.migros.ch", request, NOW)).isSameAs(jar.forHost("account.migros.ch"));
+	}
+
+	@Test
+	void forRequest_dropsCookiesOfOtherPathsSecureCookiesOverHttpAndExpiredCookies() {
+		var cookies = CookieJar.of(List.of(new SessionCookie("root", "r", ".migros.ch", "/", NOW.plusSeconds(60), true),
+				new SessionCookie("login", "l", ".migros.ch", "/login", null, false),
+				new SessionCookie("api", "a", ".migros.ch", "/ma/api", null, false),
+				new SessionCookie("gone", "g", ".migros.ch", "/", NOW, false)));
+
+		assertThat(cookies.forRequest("account.migros.ch", URI.create("https://account.migros.ch/ma/api/coupon"), NOW)
+			.header()).isEqualTo("api=a; root=r");
+		assertThat(cookies.forRequest("account.migros.ch", URI.create("http://account.migros.ch/login"), NOW).header())
+			.isEqualTo("login=l");
+		assertThat(cookies.earliestExpiry()).contains(NOW);
+		assertThat(jar.earliestExpiry()).isEmpty();
+	}
+
+	@Test
+	void merge_replacesCookiesInPlaceAppendsNewOnesAndDropsRemovals() {
+		var merged = jar.merge(
+				List.of(new SessionCookie("datadome", "d2", "SUPERCARD.ch"),
+						new SessionCookie("new", "n", ".migros.ch")),
+				List.of(new SessionCookie("session", "", ".account.migros.ch")));
+
+		assertThat(merged).extracting(SessionCookie::name)
+			.containsExactly("datadome", "CSRF", "hostOnly", "api", "tracking", "noDomain", "new");
+		assertThat(merged.get(0).value()).isEqualTo("d2");
+		assertThat(merged.forHost("account.migros.ch").header()).isEqualTo("CSRF=token; new=n");
+		assertThat(jar.merge(List.of(SIDECAR_COOKIES.get(0)), List.of())).isSameAs(jar);
+	}
+
+	@Test
+	void of_returnsAJarUnchangedAndCopiesAnyOtherCollection() {
+		var cookies = new ArrayList<>(SIDECAR_COOKIES);
+		var copy = CookieJar.of(cookies);
+		cookies.clear();
+
+		assertThat(CookieJar.of(jar)).isSameAs(jar);
+		assertThat(copy).hasSize(SIDECAR_COOKIES.size()).isEqualTo(SIDECAR_COOKIES);
+		assertThat(CookieJar.of(null)).isSameAs(CookieJar.EMPTY);
+	}
+
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Instant;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNullPointerException;
 
@@ -24,6 +26,25 @@ class SessionCookieTest {
 		assertThat(new SessionCookie("session", "value", domain).matchesHost(host)).isEqualTo(expected);
 	}
 
+	@ParameterizedTest
+	@CsvSource({ "'', '/any/path', true", "'/', '/any/path', true", "'/ma', '/ma', true", "'/ma', '/ma/api', true",
+			"'/ma/', '/ma/api', true", "'/ma', '/mapi', false", "'/ma/api', '/ma', false", "'/ma', '', false" })
+	void matchesPath_appliesRfc6265PathMatching(String path, String requestPath, boolean expected) {
+		var cookie = new SessionCookie("session", "value", ".migros.ch", path, null, false);
+
+		assertThat(cookie.matchesPath(requestPath)).isEqualTo(expected);
+	}
+
+	@Test
+	void isExpiredAt_isFalseForASessionCookieAndFromTheExpiryOn() {
+		var expiry = Instant.parse("2026-03-01T06:00:00Z");
+		var persistent = new SessionCookie("session", "value", ".migros.ch", "/", expiry, true);
+
+		assertThat(persistent.isExpiredAt(expiry.minusSeconds(1))).isFalse();
+		assertThat(persistent.isExpiredAt(expiry)).isTrue();
+		assertThat(new SessionCookie("session", "value", ".migros.ch").isExpiredAt(Instant.MAX)).isFalse();
+	}
+
 	@Test
 	void matchesHost_doesNotLeakOneRetailersCookiesToTheOther() {
 		var migrosCookie = new SessionCookie("CSRF", "token", ".migros.ch");
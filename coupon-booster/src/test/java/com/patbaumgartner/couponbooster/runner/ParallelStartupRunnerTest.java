@@ -0,0 +1,185 @@
+package com.patbaumgartner.couponbooster.runner;
+
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
+import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
+import com.patbaumgartner.couponbooster.model.Account;
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
+import com.patbaumgartner.couponbooster.service.AuthenticationService;
+import com.patbaumgartner.couponbooster.service.CouponService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ParallelStartupRunnerTest {
+
+	private static final AuthenticationResult SUCCESS = AuthenticationResult.successful(List.of(), 1L, "ua", "de");
+
+	private final ActivationExitCode exitCode = new ActivationExitCode();
+
+	private ParallelStartupRunner parallelRunner(AbstractCouponBoosterRunner... runners) {
+		var beans = new LinkedHashMap<String, Object>();
+		for (var runner : runners) {
+			beans.put(runner.providerName(), runner);
+		}
+		return new ParallelStartupRunner(
+				new StaticListableBeanFactory(beans).getBeanProvider(AbstractCouponBoosterRunner.class));
+	}
+
+	@Test
+	void bothProvidersRunAtTheSameTime() throws Exception {
+		// Each login waits for the other one: only a parallel run gets past the barrier.
+		var barrier = new CyclicBarrier(2);
+		Supplier<AuthenticationResult> rendezvous = () -> {
+			try {
+				barrier.await(5, TimeUnit.SECONDS);
+				return SUCCESS;
+			}
+			catch (Exception ex) {
+				return AuthenticationResult.failed("not parallel", 0L);
+			}
+		};
+		var coop = new TestRunner(rendezvous, "Coop");
+		var migros = new TestRunner(rendezvous, "Migros");
+
+		parallelRunner(coop, migros).run(null);
+
+		assertThat(coop.activations.get()).isEqualTo(1);
+		assertThat(migros.activations.get()).isEqualTo(1);
+		assertThat(exitCode.getExitCode()).isZero();
+	}
+
+	@Test
+	void theProviderRunnersDoNotRunASecondTime() throws Exception {
+		var coop = new TestRunner(() -> SUCCESS, "Coop");
+		var migros = new TestRunner(() -> SUCCESS, "Migros");
+
+		parallelRunner(coop, migros).run(null);
+		coop.run(null);
+		migros.run(null);
+
+		assertThat(coop.activations.get()).isEqualTo(1);
+		assertThat(migros.activations.get()).isEqualTo(1);
+	}
+
+	@Test
+	void anAuthenticationFailureInOneProviderStillFailsTheProcess() throws Exception {
+		var coop = new TestRunner(() -> AuthenticationResult.failed("Credentials missing", 1L), "Coop");
+		var migros = new TestRunner(() -> SUCCESS, "Migros");
+
+		parallelRunner(coop, migros).run(null);
+
+		assertThat(migros.activations.get()).isEqualTo(1);
+		assertThat(exitCode.getExitCode()).isEqualTo(1);
+	}
+
+	@Test
+	void aCrashedLoginFailsTheProcessWithoutStoppingTheOtherProvider() throws Exception {
+		var coop = new TestRunner(() -> {
+			throw new IllegalStateException("sidecar exploded");
+		}, "Coop");
+		var migros = new TestRunner(() -> SUCCESS, "Migros");
+
+		parallelRunner(coop, migros).run(null);
+
+		assertThat(migros.activations.get()).isEqualTo(1);
+		assertThat(exitCode.getExitCode()).isEqualTo(1);
+	}
+
+	@Test
+	void aCrashingProviderIsRethrownAfterTheOtherOneCompleted() {
+		var activationEngine = mock(AccountActivationEngine.class);
+		when(activationEngine.activate(AccountRegistry.COOP))
+			.thenThrow(new CouponBoosterException("Account run failed", new IllegalStateException("sidecar exploded")));
+		var coop = new TestRunner(activationEngine, "Coop", new AtomicInteger());
+		var migros = new TestRunner(() -> SUCCESS, "Migros");
+
+		assertThatExceptionOfType(CouponBoosterException.class).isThrownBy(() -> parallelRunner(coop, migros).run(null))
+			.havingCause()
+			.withMessage("sidecar exploded");
+		assertThat(migros.activations.get()).isEqualTo(1);
+	}
+
+	@Test
+	void aSingleEnabledProviderIsLeftToItsOwnRunner() throws Exception {
+		var coop = new TestRunner(() -> SUCCESS, "Coop");
+
+		parallelRunner(coop).run(null);
+		assertThat(coop.activations.get()).isZero();
+
+		coop.run(null);
+		assertThat(coop.activations.get()).isEqualTo(1);
+	}
+
+	private final class TestRunner extends AbstractCouponBoosterRunner {
+
+		private final AtomicInteger activations;
+
+		TestRunner(Supplier<AuthenticationResult> login, String providerName) {
+			this(login, providerName, new AtomicInteger());
+		}
+
+		private TestRunner(Supplier<AuthenticationResult> login, String providerName, AtomicInteger activations) {
+			this(singleAccountEngine(login, counting(activations), providerName), providerName, activations);
+		}
+
+		private TestRunner(AccountActivationEngine activationEngine, String providerName, AtomicInteger activations) {
+			super(activationEngine, providerKey(providerName), providerName, exitCode);
+			this.activations = activations;
+		}
+
+		private static String providerKey(String providerName) {
+			return providerName.toLowerCase(Locale.ROOT);
+		}
+
+		private static AccountActivationEngine singleAccountEngine(Supplier<AuthenticationResult> login,
+				CouponService couponService, String providerName) {
+			var accountRegistry = new AccountRegistry(new CoopUserProperties("coop@example.com", "secret"),
+					new MigrosUserProperties("migros@example.com", "secret"),
+					new AccountsProperties(List.of(), List.of(), new AccountsProperties.Concurrency(1, 1)));
+			AuthenticationService authenticationService = new AuthenticationService() {
+
+				@Override
+				public AuthenticationResult performAuthentication() {
+					throw new UnsupportedOperationException();
+				}
+
+				@Override
+				public AuthenticationResult performAuthentication(Account account) {
+					return login.get();
+				}
+
+			};
+			return new AccountActivationEngine(accountRegistry,
+					List.of(AccountActivationEngine.Provider.of(providerKey(providerName), providerName,
+							authenticationService, couponService, List.of("http://sidecar:8000"),
+							"retailer.example.com")),
+					1, 1);
+		}
+
+		private static CouponService counting(AtomicInteger activations) {
+			return (cookies, userAgent, language) -> {
+				activations.incrementAndGet();
+				return new CouponActivationResult(1, 0, List.of());
+			};
+		}
+
+	}
+
+}
@@ -1,21 +1,37 @@
 package com.patbaumgartner.couponbooster.scheduler;
 
+import com.patbaumgartner.couponbooster.account.AccountActivationEngine;
+import com.patbaumgartner.couponbooster.account.AccountRegistry;
+import com.patbaumgartner.couponbooster.coop.properties.CoopUserProperties;
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
 import com.patbaumgartner.couponbooster.migros.model.CouponActivationResult;
+import com.patbaumgartner.couponbooster.migros.properties.MigrosUserProperties;
+import com.patbaumgartner.couponbooster.model.Account;
 import com.patbaumgartner.couponbooster.model.AuthenticationResult;
 import com.patbaumgartner.couponbooster.model.SessionCookie;
+import com.patbaumgartner.couponbooster.properties.AccountsProperties;
+import com.patbaumgartner.couponbooster.properties.SessionPrewarmProperties;
 import com.patbaumgartner.couponbooster.service.AuthenticationService;
 import com.patbaumgartner.couponbooster.service.CouponService;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class AbstractCouponBoosterSchedulerTest {
 
@@ -25,7 +41,8 @@ class AbstractCouponBoosterSchedulerTest {
 	@Test
 	void reportsAuthenticationFailureWithoutActivatingCoupons() {
 		var couponService = new RecordingCouponService();
-		var scheduler = new TestScheduler(() -> AuthenticationResult.failed("Credentials missing", 7L), couponService);
+		var scheduler = new TestScheduler(loggingIn(() -> AuthenticationResult.failed("Credentials missing", 7L)),
+				couponService);
 
 		ActivationOutcome outcome = scheduler.runActivation().orElseThrow();
 
@@ -39,7 +56,7 @@ class AbstractCouponBoosterSchedulerTest {
 	@Test
 	void reportsCountsFromASuccessfulRun() {
 		var couponService = new RecordingCouponService(new CouponActivationResult(5, 2, List.of()));
-		var scheduler = new TestScheduler(() -> SUCCESS, couponService);
+		var scheduler = new TestScheduler(loggingIn(() -> SUCCESS), couponService);
 
 		ActivationOutcome outcome = scheduler.runActivation().orElseThrow();
 
@@ -55,7 +72,7 @@ class AbstractCouponBoosterSchedulerTest {
 		var started = new CountDownLatch(1);
 		var release = new CountDownLatch(1);
 		var couponService = new RecordingCouponService();
-		var scheduler = new TestScheduler(() -> {
+		var scheduler = new TestScheduler(loggingIn(() -> {
 			started.countDown();
 			try {
 				release.await(5, TimeUnit.SECONDS);
@@ -64,7 +81,7 @@ class AbstractCouponBoosterSchedulerTest {
 				Thread.currentThread().interrupt();
 			}
 			return SUCCESS;
-		}, couponService);
+		}), couponService);
 
 		var overlapping = new AtomicReference<Optional<ActivationOutcome>>();
 		var first = Thread.ofVirtual().start(scheduler::runActivation);
@@ -81,28 +98,109 @@ class AbstractCouponBoosterSchedulerTest {
 
 	@Test
 	void releasesTheGuardAfterARunCompletes() {
-		var scheduler = new TestScheduler(() -> SUCCESS, new RecordingCouponService());
+		var scheduler = new TestScheduler(loggingIn(() -> SUCCESS), new RecordingCouponService());
 
 		assertThat(scheduler.runActivation()).isPresent();
 		assertThat(scheduler.runActivation()).isPresent();
 	}
 
 	@Test
-	void releasesTheGuardWhenTheRunThrows() {
+	void reportsACrashedLoginAsAFailedRun() {
 		var attempts = new AtomicInteger();
-		var scheduler = new TestScheduler(() -> {
+		var scheduler = new TestScheduler(loggingIn(() -> {
 			if (attempts.getAndIncrement() == 0) {
 				throw new IllegalStateException("sidecar exploded");
 			}
 			return SUCCESS;
-		}, new RecordingCouponService());
+		}), new RecordingCouponService());
+
+		ActivationOutcome outcome = scheduler.runActivation().orElseThrow();
+
+		assertThat(outcome.authenticated()).isFalse();
+		assertThat(outcome.message()).contains("sidecar exploded");
+		assertThat(scheduler.runActivation().orElseThrow().authenticated()).isTrue();
+	}
 
-		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(scheduler::runActivation);
+	@Test
+	void releasesTheGuardWhenTheRunThrows() {
+		var activationEngine = mock(AccountActivationEngine.class);
+		when(activationEngine.activate(AccountRegistry.COOP))
+			.thenThrow(new CouponBoosterException("Interrupted while waiting for the accounts"))
+			.thenReturn(List.of(new ActivationOutcome("Test", true, 0, 0, 1L, "Activation completed", null)));
+		var scheduler = new TestScheduler(activationEngine);
+
+		assertThatExceptionOfType(CouponBoosterException.class).isThrownBy(scheduler::runActivation);
 
 		// A crashed run must not wedge the provider for the rest of the process life.
 		assertThat(scheduler.runActivation()).isPresent();
 	}
 
+	@Test
+	void aRejectedStoredSessionIsReplacedByAFreshLoginOnce() {
+		var invalidated = new AtomicBoolean();
+		var authenticationService = new AuthenticationService() {
+
+			@Override
+			public AuthenticationResult performAuthentication() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public AuthenticationResult performAuthentication(Account account) {
+				return invalidated.get() ? SUCCESS
+						: AuthenticationResult.restored(SUCCESS.sessionCookies(), Instant.now(), 1L, "ua", "de-CH");
+			}
+
+			@Override
+			public void invalidateSession(Account account) {
+				invalidated.set(true);
+			}
+
+		};
+		var activations = new AtomicInteger();
+		CouponService couponService = (cookies, userAgent, language) -> activations.getAndIncrement() == 0
+				? new CouponActivationResult(0, 1, List.of(), true) : new CouponActivationResult(3, 0, List.of());
+
+		ActivationOutcome outcome = new TestScheduler(authenticationService, couponService).runActivation()
+			.orElseThrow();
+
+		assertThat(invalidated).isTrue();
+		assertThat(activations.get()).isEqualTo(2);
+		assertThat(outcome.activated()).isEqualTo(3);
+		assertThat(outcome.authDurationMs()).isEqualTo(42L);
+	}
+
+	@Test
+	void aRejectedFreshLoginIsNotRetried() {
+		var invalidations = new AtomicInteger();
+		var authenticationService = new AuthenticationService() {
+
+			@Override
+			public AuthenticationResult performAuthentication() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public AuthenticationResult performAuthentication(Account account) {
+				return SUCCESS;
+			}
+
+			@Override
+			public void invalidateSession(Account account) {
+				invalidations.incrementAndGet();
+			}
+
+		};
+		var couponService = new RecordingCouponService(new CouponActivationResult(0, 1, List.of(), true));
+
+		ActivationOutcome outcome = new TestScheduler(authenticationService, couponService).runActivation()
+			.orElseThrow();
+
+		assertThat(invalidations.get()).isZero();
+		assertThat(couponService.invocations.get()).isEqualTo(1);
+		assertThat(outcome.failed()).isEqualTo(1);
+	}
+
 	private static final class RecordingCouponService implements CouponService {
 
 		private final AtomicInteger invocations = new AtomicInteger();
@@ -126,10 +224,42 @@ class AbstractCouponBoosterSchedulerTest {
 
 	}
 
+	private static AuthenticationService loggingIn(Supplier<AuthenticationResult> login) {
+		return new AuthenticationService() {
+
+			@Override
+			public AuthenticationResult performAuthentication() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public AuthenticationResult performAuthentication(Account account) {
+				return login.get();
+			}
+
+		};
+	}
+
+	private static AccountActivationEngine singleAccountEngine(AuthenticationService authenticationService,
+			CouponService couponService) {
+		var accountRegistry = new AccountRegistry(new CoopUserProperties("user@example.com", "secret"),
+				new MigrosUserProperties(null, null),
+				new AccountsProperties(List.of(), null, new AccountsProperties.Concurrency(1, 1)));
+		return new AccountActivationEngine(
+				accountRegistry, List.of(AccountActivationEngine.Provider.of(AccountRegistry.COOP, "Test",
+						authenticationService, couponService, List.of("http://sidecar:8000"), "retailer.example.com")),
+				1, 1);
+	}
+
 	private static final class TestScheduler extends AbstractCouponBoosterScheduler {
 
 		TestScheduler(AuthenticationService authenticationService, CouponService couponService) {
-			super(authenticationService, couponService, "Test");
+			this(singleAccountEngine(authenticationService, couponService));
+		}
+
+		TestScheduler(AccountActivationEngine activationEngine) {
+			super(activationEngine, AccountRegistry.COOP, "Test", "0 0 6 * * *", ZoneId.of("Europe/Zurich"),
+					CouponMetrics.DISABLED, new SessionPrewarmProperties(false, Duration.ZERO, Duration.ZERO), null);
 		}
 
 	}
@@ -0,0 +1,41 @@
+package com.patbaumgartner.couponbooster.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CronTimesTest {
+
+	private static final ZoneId ZURICH = ZoneId.of("Europe/Zurich");
+
+	private static ZonedDateTime at(int day, int hour, int minute, int second) {
+		return ZonedDateTime.of(2026, 3, day, hour, minute, second, 0, ZURICH);
+	}
+
+	@Test
+	void eachRunIsDueAtTheCronTimeBeforeItStarted() {
+		var cronTimes = new CronTimes("0 0 6 * * *", at(1, 12, 0, 0));
+
+		assertThat(cronTimes.started(at(2, 6, 0, 3))).isEqualTo(at(2, 6, 0, 0));
+		assertThat(cronTimes.started(at(3, 6, 1, 0))).isEqualTo(at(3, 6, 0, 0));
+	}
+
+	@Test
+	void aMissedCronTimeCountsFromTheFirstOneThatWasDue() {
+		var cronTimes = new CronTimes("0 0 6 * * *", at(1, 12, 0, 0));
+
+		assertThat(cronTimes.started(at(3, 6, 0, 0))).isEqualTo(at(2, 6, 0, 0));
+	}
+
+	@Test
+	void aRunBeforeItsCronTimeIsDueWhenItStarts() {
+		var cronTimes = new CronTimes("0 0 6 * * *", at(1, 12, 0, 0));
+
+		assertThat(cronTimes.started(at(2, 5, 59, 59))).isEqualTo(at(2, 5, 59, 59));
+		assertThat(cronTimes.started(at(2, 6, 0, 1))).isEqualTo(at(2, 6, 0, 0));
+	}
+
+}
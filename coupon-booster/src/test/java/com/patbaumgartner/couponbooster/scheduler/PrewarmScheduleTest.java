@@ -0,0 +1,35 @@
+package com.patbaumgartner.couponbooster.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrewarmScheduleTest {
+
+	private static final ZoneId ZURICH = ZoneId.of("Europe/Zurich");
+
+	private static ZonedDateTime at(int day, int hour, int minute, int second) {
+		return ZonedDateTime.of(2026, 3, day, hour, minute, second, 0, ZURICH);
+	}
+
+	@Test
+	void preWarmsTheLeadBeforeTheNextCronTime() {
+		var schedule = new PrewarmSchedule("0 0 6 * * *", Duration.ofMinutes(5));
+
+		assertThat(schedule.next(at(1, 12, 0, 0))).isEqualTo(at(2, 5, 55, 0));
+		assertThat(schedule.next(at(2, 5, 0, 0))).isEqualTo(at(2, 5, 55, 0));
+	}
+
+	@Test
+	void aCronTimeWithinTheLeadIsSkipped() {
+		var schedule = new PrewarmSchedule("0 0 6 * * *", Duration.ofMinutes(5));
+
+		assertThat(schedule.next(at(2, 5, 55, 0))).isEqualTo(at(3, 5, 55, 0));
+		assertThat(schedule.next(at(2, 5, 57, 30))).isEqualTo(at(3, 5, 55, 0));
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.snapshot.CatalogueStore;
+import com.patbaumgartner.couponbooster.snapshot.JsonFileCatalogueStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogueCacheTest {
+
+	private static final String URL = "https://webapi.supercard.ch/dc";
+
+	@TempDir
+	Path directory;
+
+	private final CatalogueCache<List<String>> cache = cache(CatalogueStore.DISABLED);
+
+	private static CatalogueCache<List<String>> cache(CatalogueStore catalogueStore) {
+		return new CatalogueCache<>(catalogueStore, "coop", JsonMapper.builder().build(),
+				new TypeReference<List<String>>() {
+				});
+	}
+
+	private static HttpHeaders headers(String etag, String lastModified) {
+		var headers = new HttpHeaders();
+		if (etag != null) {
+			headers.setETag(etag);
+		}
+		if (lastModified != null) {
+			headers.set(HttpHeaders.LAST_MODIFIED, lastModified);
+		}
+		return headers;
+	}
+
+	@Test
+	void aCatalogueIsCachedPerAccountTogetherWithItsValidators() {
+		cache.put("a@example.com", URL, headers("\"v1\"", "Sun, 01 Mar 2026 06:00:00 GMT"), List.of("c1"));
+
+		assertThat(cache.get("a@example.com", URL)).hasValueSatisfying(entry -> {
+			assertThat(entry.catalogue()).containsExactly("c1");
+			assertThat(entry.validators())
+				.isEqualTo(new CatalogueCache.Validators("\"v1\"", "Sun, 01 Mar 2026 06:00:00 GMT"));
+		});
+		assertThat(cache.validators("b@example.com", URL)).isEqualTo(CatalogueCache.Validators.NONE);
+		assertThat(cache.validators("a@example.com", "https://other")).isSameAs(CatalogueCache.Validators.NONE);
+	}
+
+	@Test
+	void aResponseWithoutValidatorsReplacesTheCachedCatalogue() {
+		cache.put("a@example.com", URL, headers("\"v1\"", null), List.of("c1"));
+
+		cache.put("a@example.com", URL, headers(null, null), List.of("c2"));
+
+		assertThat(cache.get("a@example.com", URL)).isEmpty();
+		assertThat(CatalogueCache.Validators.NONE.isEmpty()).isTrue();
+	}
+
+	@Test
+	void aCatalogueIsReadBackFromTheStoreByTheNextProcess() {
+		var catalogueStore = new JsonFileCatalogueStore(directory, JsonMapper.builder().build());
+		cache(catalogueStore).put("a@example.com", URL, headers("\"v1\"", null), List.of("c1", "c2"));
+
+		assertThat(cache(catalogueStore).get("a@example.com", URL)).hasValueSatisfying(entry -> {
+			assertThat(entry.catalogue()).containsExactly("c1", "c2");
+			assertThat(entry.validators()).isEqualTo(new CatalogueCache.Validators("\"v1\"", null));
+		});
+	}
+
+	@Test
+	void aResponseWithoutValidatorsAlsoDropsTheStoredCatalogue() {
+		var catalogueStore = new JsonFileCatalogueStore(directory, JsonMapper.builder().build());
+		cache(catalogueStore).put("a@example.com", URL, headers("\"v1\"", null), List.of("c1"));
+
+		cache(catalogueStore).put("a@example.com", URL, headers(null, null), List.of("c2"));
+
+		assertThat(cache(catalogueStore).get("a@example.com", URL)).isEmpty();
+	}
+
+	@Test
+	void theCatalogueOfTheConfiguredAccountStaysInMemory() {
+		var catalogueStore = new JsonFileCatalogueStore(directory, JsonMapper.builder().build());
+		var configured = cache(catalogueStore);
+
+		configured.put("", URL, headers("\"v1\"", null), List.of("c1"));
+
+		assertThat(configured.get("", URL)).isPresent();
+		assertThat(directory).isEmptyDirectory();
+	}
+
+}
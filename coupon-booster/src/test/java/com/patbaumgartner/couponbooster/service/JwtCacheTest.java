@@ -0,0 +1,156 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.session.SessionStore;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtCacheTest {
+
+	private static final Instant NOW = Instant.parse("2026-03-01T06:00:00Z");
+
+	private static final Duration MARGIN = Duration.ofMinutes(1);
+
+	private final InMemorySessionStore sessionStore = new InMemorySessionStore();
+
+	private final JwtCache cache = cache();
+
+	private JwtCache cache() {
+		return new JwtCache(JsonMapper.builder().build(), Clock.fixed(NOW, ZoneOffset.UTC), sessionStore, "coop");
+	}
+
+	private static String jwt(String payload) {
+		var encoder = Base64.getUrlEncoder().withoutPadding();
+		return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(UTF_8)) + "."
+				+ encoder.encodeToString(payload.getBytes(UTF_8)) + ".c2lnbmF0dXJl";
+	}
+
+	private static String jwtExpiringAt(Instant expiry) {
+		return jwt("{\"exp\":%d}".formatted(expiry.getEpochSecond()));
+	}
+
+	@Test
+	void aTokenIsHandedOutUntilTheMarginBeforeItsExpiry() {
+		String token = jwtExpiringAt(NOW.plus(Duration.ofMinutes(2)));
+
+		cache.put("user@example.com", token);
+
+		assertThat(cache.get("user@example.com", MARGIN)).contains(token);
+		assertThat(cache.get("user@example.com", Duration.ofMinutes(2))).isEmpty();
+	}
+
+	@Test
+	void tokensAreKeptPerAccount() {
+		cache.put("first@example.com", jwtExpiringAt(NOW.plus(Duration.ofHours(1))));
+
+		assertThat(cache.get("second@example.com", MARGIN)).isEmpty();
+	}
+
+	@Test
+	void invalidateForgetsTheToken() {
+		cache.put("user@example.com", jwtExpiringAt(NOW.plus(Duration.ofHours(1))));
+
+		cache.invalidate("user@example.com");
+
+		assertThat(cache.get("user@example.com", MARGIN)).isEmpty();
+	}
+
+	@Test
+	void tokensWithoutAReadableExpiryAreNotCached() {
+		cache.put("opaque", "not-a-jwt");
+		cache.put("no-exp", jwt("{\"sub\":\"user\"}"));
+		cache.put("garbled", "a.%%%.c");
+
+		assertThat(cache.get("opaque", MARGIN)).isEmpty();
+		assertThat(cache.get("no-exp", MARGIN)).isEmpty();
+		assertThat(cache.get("garbled", MARGIN)).isEmpty();
+	}
+
+	@Test
+	void aTokenIsPickedUpFromTheSessionStoreByTheNextProcess() {
+		String token = jwtExpiringAt(NOW.plus(Duration.ofHours(1)));
+		cache.put("user@example.com", token);
+
+		assertThat(sessionStore.tokens).containsEntry("user@example.com", token);
+		assertThat(cache().get("user@example.com", MARGIN)).contains(token);
+	}
+
+	@Test
+	void invalidateAlsoDropsTheStoredToken() {
+		cache.put("user@example.com", jwtExpiringAt(NOW.plus(Duration.ofHours(1))));
+
+		cache.invalidate("user@example.com");
+
+		assertThat(sessionStore.tokens).isEmpty();
+		assertThat(cache().get("user@example.com", MARGIN)).isEmpty();
+	}
+
+	@Test
+	void aStoredTokenWithinTheMarginIsNotHandedOut() {
+		cache.put("user@example.com", jwtExpiringAt(NOW.plus(Duration.ofSeconds(30))));
+
+		assertThat(cache().get("user@example.com", MARGIN)).isEmpty();
+	}
+
+	@Test
+	void theTokenOfTheConfiguredAccountStaysInMemory() {
+		String token = jwtExpiringAt(NOW.plus(Duration.ofHours(1)));
+
+		cache.put("", token);
+
+		assertThat(cache.get("", MARGIN)).contains(token);
+		assertThat(sessionStore.tokens).isEmpty();
+	}
+
+	/**
+	 * Keeps the tokens the way a store with a session for every account would.
+	 */
+	private static final class InMemorySessionStore implements SessionStore {
+
+		private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+		@Override
+		public Optional<AuthenticationResult> load(String provider, String account) {
+			return Optional.empty();
+		}
+
+		@Override
+		public void save(String provider, String account, AuthenticationResult session) {
+			// Only the tokens matter here.
+		}
+
+		@Override
+		public void evict(String provider, String account) {
+			tokens.remove(account);
+		}
+
+		@Override
+		public Optional<String> loadBearerToken(String provider, String account) {
+			return Optional.ofNullable(tokens.get(account));
+		}
+
+		@Override
+		public void saveBearerToken(String provider, String account, String token, Instant expiresAt) {
+			tokens.put(account, token);
+		}
+
+		@Override
+		public void evictBearerToken(String provider, String account) {
+			tokens.remove(account);
+		}
+
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveCookiesTest {
+
+	private static final Instant NOW = Instant.parse("2026-03-01T06:00:00Z");
+
+	private static final URI COUPONS = URI.create("https://account.migros.ch/ma/api/user/cumulus/coupon");
+
+	private static final List<SessionCookie> LOGIN = List.of(new SessionCookie("CSRF", "old", ".migros.ch"),
+			new SessionCookie("session", "abc", "account.migros.ch"),
+			new SessionCookie("datadome", "d", ".supercard.ch"));
+
+	private final LiveCookies liveCookies = new LiveCookies(LOGIN, Clock.fixed(NOW, ZoneOffset.UTC));
+
+	@Test
+	void aRotatedCookieReplacesTheOneFromTheLoginInPlace() {
+		liveCookies.receive(COUPONS, List.of("CSRF=new; Domain=.migros.ch; Path=/; Secure; HttpOnly"));
+
+		assertThat(liveCookies.forHost("account.migros.ch").header()).isEqualTo("CSRF=new; session=abc");
+		assertThat(liveCookies.renewed()).hasValueSatisfying(cookies -> assertThat(cookies).hasSize(3));
+	}
+
+	@Test
+	void aCookieWithoutDomainBelongsToTheRequestHostOnly() {
+		liveCookies.receive(COUPONS, List.of("tracking=\"t 1\""));
+
+		assertThat(liveCookies.forHost("account.migros.ch").value("tracking")).contains("\"t 1\"");
+		assertThat(liveCookies.forHost("www.migros.ch").value("tracking")).isEmpty();
+	}
+
+	@Test
+	void cookiesForAForeignOrTopLevelDomainAreIgnored() {
+		liveCookies.receive(COUPONS,
+				List.of("datadome=x; Domain=.supercard.ch", "wide=x; Domain=.ch", "broken", "=nameless"));
+
+		assertThat(liveCookies.current()).containsExactlyElementsOf(LOGIN);
+		assertThat(liveCookies.renewed()).isEmpty();
+	}
+
+	@Test
+	void anExpiredCookieIsRemoved() {
+		liveCookies.receive(COUPONS, List.of("session=; Max-Age=0; Path=/",
+				"CSRF=gone; Domain=migros.ch; Path=/; Expires=Thu, 01-Jan-1970 00:00:00 GMT"));
+
+		assertThat(liveCookies.forHost("account.migros.ch")).isEmpty();
+	}
+
+	@Test
+	void maxAgeTakesPrecedenceOverExpires() {
+		var parsed = LiveCookies.parse("id=1; Expires=Thu, 01 Jan 1970 00:00:00 GMT; Max-Age=3600; Path=/",
+				URI.create("https://migros.ch/"), NOW);
+
+		assertThat(parsed).hasValueSatisfying(cookie -> {
+			assertThat(cookie.expired()).isFalse();
+			assertThat(cookie.cookie())
+				.isEqualTo(new SessionCookie("id", "1", "migros.ch", "/", NOW.plusSeconds(3600), false));
+		});
+	}
+
+	@Test
+	void aCookieWithoutPathIsScopedToTheDirectoryOfTheRequestPath() {
+		liveCookies.receive(COUPONS, List.of("scoped=1; Domain=.migros.ch; Secure"));
+
+		var scoped = LiveCookies.parse("scoped=1; Secure", COUPONS, NOW).orElseThrow().cookie();
+		assertThat(scoped.path()).isEqualTo("/ma/api/user/cumulus");
+		assertThat(scoped.secure()).isTrue();
+		assertThat(liveCookies.forRequest("account.migros.ch", COUPONS).value("scoped")).contains("1");
+		assertThat(liveCookies.forRequest("account.migros.ch", URI.create("https://account.migros.ch/login"))
+			.value("scoped")).isEmpty();
+	}
+
+	@Test
+	void aRotatedHostOnlyCookieReplacesTheDomainCookieItWasSentAs() {
+		liveCookies.receive(COUPONS, List.of("CSRF=new; Path=/; Secure"));
+
+		assertThat(liveCookies.current()).filteredOn(cookie -> cookie.name().equals("CSRF"))
+			.containsExactly(new SessionCookie("CSRF", "new", ".migros.ch", "/", null, true));
+		assertThat(liveCookies.current().value("CSRF")).contains("new");
+		assertThat(liveCookies.forHost("www.migros.ch").value("CSRF")).contains("new");
+	}
+
+	@Test
+	void aRotatedCookieWithoutPathKeepsThePathOfTheCookieItReplaces() {
+		var rootCsrf = new LiveCookies(List.of(new SessionCookie("CSRF", "old", ".migros.ch", "/", null, false)),
+				Clock.fixed(NOW, ZoneOffset.UTC));
+
+		rootCsrf.receive(COUPONS, List.of("CSRF=new"));
+
+		assertThat(rootCsrf.current())
+			.containsExactly(new SessionCookie("CSRF", "new", ".migros.ch", "/", null, false));
+		assertThat(
+				rootCsrf.forRequest("account.migros.ch", URI.create("https://account.migros.ch/login")).value("CSRF"))
+			.contains("new");
+	}
+
+	@Test
+	void aCookieRemovedWithoutDomainOrPathRemovesTheOneSentWithTheRequest() {
+		liveCookies.receive(COUPONS, List.of("CSRF=; Max-Age=0"));
+
+		assertThat(liveCookies.current().value("CSRF")).isEmpty();
+	}
+
+	@Test
+	void cookiesReplacedByANewLoginAreNotReportedAsRenewed() {
+		liveCookies.receive(COUPONS, List.of("CSRF=new; Domain=.migros.ch; Path=/"));
+
+		liveCookies.supersede();
+
+		assertThat(liveCookies.renewed()).isEmpty();
+		assertThat(liveCookies.forHost("account.migros.ch").value("CSRF")).contains("new");
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.metrics.CouponMetrics;
+import com.patbaumgartner.couponbooster.session.SessionStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.ConnectException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class SidecarPoolTest {
+
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-03-01T06:00:00Z"), ZoneOffset.UTC);
+
+	private static final String IDLE = """
+			{"status": "ok", "busy": {"coop": false, "migros": true}}
+			""";
+
+	private static final String BUSY = """
+			{"status": "ok", "busy": {"coop": true, "migros": false}}
+			""";
+
+	private final RestClient.Builder restClientBuilder = RestClient.builder();
+
+	private final MockRestServiceServer server = MockRestServiceServer.bindTo(restClientBuilder)
+		.ignoreExpectOrder(true)
+		.build();
+
+	private SidecarPool pool(String... urls) {
+		return new SidecarPool("coop", List.of(urls), restClientBuilder, restClientBuilder,
+				JsonMapper.builder().build(), CLOCK);
+	}
+
+	private void health(String url, ExpectedCount count, String body) {
+		server.expect(count, requestTo(url + "/health")).andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
+	}
+
+	private static List<String> urls(List<SidecarPool.Sidecar> route) {
+		return route.stream().map(SidecarPool.Sidecar::url).toList();
+	}
+
+	@Test
+	void aSingleSidecarIsUsedWithoutPollingItsHealth() {
+		var pool = pool("http://a:8000");
+
+		assertThat(urls(pool.route("user@example.com"))).containsExactly("http://a:8000");
+		server.verify();
+	}
+
+	@Test
+	void idleSidecarsComeBeforeBusyOnesAndUnreachableOnesComeLast() {
+		health("http://a:8000", ExpectedCount.once(), IDLE);
+		health("http://b:8000", ExpectedCount.once(), BUSY);
+		server.expect(requestTo("http://c:8000/health")).andRespond(withServerError());
+		var pool = pool("http://c:8000", "http://b:8000", "http://a:8000");
+
+		assertThat(urls(pool.route("user@example.com"))).containsExactly("http://a:8000", "http://b:8000",
+				"http://c:8000");
+	}
+
+	@Test
+	void healthIsPolledOncePerTtl() {
+		health("http://a:8000", ExpectedCount.once(), IDLE);
+		health("http://b:8000", ExpectedCount.once(), IDLE);
+		var pool = pool("http://a:8000", "http://b:8000");
+
+		pool.route("first@example.com");
+		pool.route("second@example.com");
+
+		server.verify();
+	}
+
+	@Test
+	void healthIsPolledOnTheHealthClient() {
+		var healthClientBuilder = RestClient.builder();
+		var healthServer = MockRestServiceServer.bindTo(healthClientBuilder).ignoreExpectOrder(true).build();
+		healthServer.expect(requestTo("http://a:8000/health"))
+			.andRespond(withSuccess(BUSY, MediaType.APPLICATION_JSON));
+		healthServer.expect(requestTo("http://b:8000/health"))
+			.andRespond(withSuccess(IDLE, MediaType.APPLICATION_JSON));
+		var pool = new SidecarPool("coop", List.of("http://a:8000", "http://b:8000"), restClientBuilder,
+				healthClientBuilder, JsonMapper.builder().build(), CLOCK);
+
+		assertThat(urls(pool.route("user@example.com"))).containsExactly("http://b:8000", "http://a:8000");
+		healthServer.verify();
+		server.verify();
+	}
+
+	@Test
+	void anAccountKeepsItsSidecarAndAccountsAreSpreadOverThePool() {
+		health("http://a:8000", ExpectedCount.once(), IDLE);
+		health("http://b:8000", ExpectedCount.once(), IDLE);
+		var pool = pool("http://a:8000", "http://b:8000");
+		var accounts = IntStream.range(0, 20).mapToObj(i -> "user" + i + "@example.com").toList();
+
+		var preferred = accounts.stream().map(account -> pool.route(account).getFirst().url()).toList();
+
+		assertThat(accounts.stream().map(account -> pool.route(account).getFirst().url()))
+			.containsExactlyElementsOf(preferred);
+		assertThat(preferred).contains("http://a:8000", "http://b:8000");
+	}
+
+	@Test
+	void aSidecarWithALoginInFlightIsOnlyUsedOnceTheOthersAreBusyToo() {
+		health("http://a:8000", ExpectedCount.manyTimes(), IDLE);
+		health("http://b:8000", ExpectedCount.manyTimes(), IDLE);
+		var pool = pool("http://a:8000", "http://b:8000");
+		var preferred = pool.route("user@example.com").getFirst();
+
+		preferred.begin();
+		var other = pool.route("user@example.com").getFirst();
+		other.begin();
+		var third = pool.route("user@example.com").getFirst();
+		other.end();
+		preferred.end();
+
+		assertThat(other).isNotSameAs(preferred);
+		assertThat(third).isSameAs(preferred);
+		assertThat(pool.route("user@example.com").getFirst()).isSameAs(preferred);
+	}
+
+	@Test
+	void onlyABusyOrUnreachableSidecarPassesTheLoginOn() {
+		health("http://a:8000", ExpectedCount.manyTimes(), IDLE);
+		health("http://b:8000", ExpectedCount.manyTimes(), IDLE);
+		var pool = pool("http://a:8000", "http://b:8000");
+		var preferred = pool.route("user@example.com").getFirst();
+
+		assertThat(preferred
+			.rejected(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Timed out", null, null, null)))
+			.isFalse();
+		assertThat(preferred
+			.rejected(HttpClientErrorException.create(HttpStatus.CONFLICT, "Login in progress", null, null, null)))
+			.isTrue();
+		assertThat(pool.route("user@example.com").getFirst()).isNotSameAs(preferred);
+		assertThat(preferred.rejected(new ResourceAccessException("I/O error", new ConnectException("refused"))))
+			.isTrue();
+	}
+
+	@Test
+	void aLoginRejectedByABusySidecarIsSentToTheNextOne() {
+		health("http://a:8000", ExpectedCount.once(), IDLE);
+		server.expect(requestTo("http://b:8000/health")).andRespond(withServerError());
+		server.expect(requestTo("http://a:8000/login/coop")).andRespond(withStatus(HttpStatus.CONFLICT));
+		server.expect(requestTo("http://b:8000/login/coop")).andRespond(withSuccess("""
+				{"cookies": [{"name": "s", "value": "v", "domain": ".supercard.ch"}], "userAgent": "ua"}
+				""", MediaType.APPLICATION_JSON));
+		var service = new AbstractSidecarAuthenticationService(() -> "user@example.com", () -> "secret",
+				"Credentials missing", "coop", "/login/coop", List.of("http://a:8000", "http://b:8000"),
+				restClientBuilder, (profile, builder) -> {
+				}, JsonMapper.builder().build(), SessionStore.DISABLED, (cookies, userAgent, language) -> {
+					throw new UnsupportedOperationException();
+				}, CouponMetrics.DISABLED) {
+		};
+
+		var result = service.performAuthentication();
+
+		assertThat(result.isSuccessful()).isTrue();
+		assertThat(result.sessionCookies()).hasSize(1);
+		server.verify();
+	}
+
+}
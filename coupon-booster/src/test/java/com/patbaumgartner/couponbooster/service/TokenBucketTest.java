@@ -0,0 +1,106 @@
+package com.patbaumgartner.couponbooster.service;
+
+import com.patbaumgartner.couponbooster.exception.CouponBoosterException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TokenBucketTest {
+
+	private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private long now = 0;
+
+	private final List<Long> sleeps = new ArrayList<>();
+
+	private TokenBucket bucket(double tokensPerSecond, int burst) {
+		return new TokenBucket(tokensPerSecond, burst, () -> now, nanos -> {
+			sleeps.add(nanos);
+			now += nanos;
+		});
+	}
+
+	@Test
+	void aFullBucketLetsTheBurstThroughWithoutWaiting() {
+		var bucket = bucket(2, 3);
+
+		bucket.acquire();
+		bucket.acquire();
+		bucket.acquire();
+
+		assertThat(sleeps).isEmpty();
+	}
+
+	@Test
+	void anEmptyBucketSpacesCallersAtTheConfiguredRate() {
+		var bucket = bucket(2, 1);
+
+		bucket.acquire();
+		bucket.acquire();
+		bucket.acquire();
+
+		assertThat(sleeps).containsExactly(ONE_SECOND / 2, ONE_SECOND / 2);
+	}
+
+	@Test
+	void waitingCallersQueueBehindEarlierReservations() {
+		// Two callers reserve before either has slept, as concurrent threads would.
+		var bucket = new TokenBucket(1, 1, () -> now, sleeps::add);
+
+		bucket.acquire();
+		bucket.acquire();
+		bucket.acquire();
+
+		assertThat(sleeps).containsExactly(ONE_SECOND, 2 * ONE_SECOND);
+	}
+
+	@Test
+	void anIdleBucketRefillsOnlyUpToItsBurst() {
+		var bucket = bucket(1, 2);
+		bucket.acquire();
+		bucket.acquire();
+
+		now += 10 * ONE_SECOND;
+		bucket.acquire();
+		bucket.acquire();
+		bucket.acquire();
+
+		assertThat(sleeps).containsExactly(ONE_SECOND);
+	}
+
+	@Test
+	void theUnlimitedBucketNeverWaits() {
+		for (int i = 0; i < 1_000; i++) {
+			TokenBucket.UNLIMITED.acquire();
+		}
+	}
+
+	@Test
+	void anInterruptedWaitIsReportedAndKeepsTheInterruptFlag() {
+		var bucket = new TokenBucket(1, 1, () -> now, nanos -> {
+			throw new InterruptedException();
+		});
+		bucket.acquire();
+
+		try {
+			assertThatExceptionOfType(CouponBoosterException.class).isThrownBy(bucket::acquire);
+			assertThat(Thread.currentThread().isInterrupted()).isTrue();
+		}
+		finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	void invalidSettingsAreRejected() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new TokenBucket(0, 1));
+		assertThatIllegalArgumentException().isThrownBy(() -> new TokenBucket(1, 0));
+	}
+
+}
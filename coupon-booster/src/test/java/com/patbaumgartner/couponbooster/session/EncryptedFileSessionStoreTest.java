@@ -0,0 +1,192 @@
+package com.patbaumgartner.couponbooster.session;
+
+import com.patbaumgartner.couponbooster.model.AuthenticationResult;
+import com.patbaumgartner.couponbooster.model.CookieJar;
+import com.patbaumgartner.couponbooster.model.SessionCookie;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncryptedFileSessionStoreTest {
+
+	private static final Instant NOW = Instant.parse("2026-03-01T06:00:00Z");
+
+	private static final AuthenticationResult LOGIN = new AuthenticationResult(true, "ok",
+			CookieJar.of(List.of(new SessionCookie("CSRF", "csrf-token", ".migros.ch"),
+					new SessionCookie("session", "secret-session-value", "account.migros.ch", "/ma",
+							NOW.plus(Duration.ofDays(1)), true))),
+			NOW.minus(Duration.ofHours(1)), 42_000L, "Mozilla/5.0", "de-CH", false);
+
+	@TempDir
+	private Path directory;
+
+	private EncryptedFileSessionStore store(String secret, Instant now) {
+		return new EncryptedFileSessionStore(directory, secret, Duration.ofDays(1), JsonMapper.builder().build(),
+				Clock.fixed(now, ZoneOffset.UTC));
+	}
+
+	@Test
+	void aSavedSessionIsRestoredWithItsCookiesAndBrowserIdentity() {
+		var store = store("correct horse battery staple", NOW);
+
+		store.save("migros", "user@example.com", LOGIN);
+		var restored = store.load("migros", "user@example.com").orElseThrow();
+
+		assertThat(restored.isSuccessful()).isTrue();
+		assertThat(restored.restored()).isTrue();
+		assertThat(restored.sessionCookies()).containsExactlyElementsOf(LOGIN.sessionCookies());
+		assertThat(restored.userAgent()).isEqualTo("Mozilla/5.0");
+		assertThat(restored.browserLanguage()).isEqualTo("de-CH");
+		assertThat(restored.completionTimestamp()).isEqualTo(LOGIN.completionTimestamp());
+	}
+
+	@Test
+	void sessionsAreKeptPerProviderAndAccount() {
+		var store = store("secret", NOW);
+
+		store.save("migros", "user@example.com", LOGIN);
+
+		assertThat(store.load("migros", "other@example.com")).isEmpty();
+		assertThat(store.load("coop", "user@example.com")).isEmpty();
+	}
+
+	@Test
+	void neitherCookieValuesNorTheAccountAppearOnDisk() throws IOException {
+		store("secret", NOW).save("migros", "user@example.com", LOGIN);
+
+		try (var files = Files.list(directory)) {
+			assertThat(files.toList()).singleElement().satisfies(file -> {
+				assertThat(file.getFileName().toString()).doesNotContain("user").endsWith(".session");
+				assertThat(new String(Files.readAllBytes(file), UTF_8)).doesNotContain("secret-session-value",
+						"csrf-token", "CSRF");
+			});
+		}
+	}
+
+	@Test
+	void aSessionOlderThanTheMaximumAgeIsDiscarded() {
+		store("secret", NOW).save("migros", "user@example.com", LOGIN);
+
+		var later = store("secret", NOW.plus(Duration.ofDays(2)));
+
+		assertThat(later.load("migros", "user@example.com")).isEmpty();
+		assertThat(directory).isEmptyDirectory();
+	}
+
+	@Test
+	void aRotatedSecretMakesExistingSessionsUnreadableInsteadOfFailing() {
+		store("old secret", NOW).save("migros", "user@example.com", LOGIN);
+
+		assertThat(store("new secret", NOW).load("migros", "user@example.com")).isEmpty();
+		assertThat(directory).isEmptyDirectory();
+	}
+
+	@Test
+	void aFileCopiedOntoAnotherAccountIsRejected() throws IOException {
+		var store = store("secret", NOW);
+		store.save("migros", "victim@example.com", LOGIN);
+		Path victimFile = onlyFile();
+		Files.move(victimFile, directory.resolve("victim.bak"));
+		store.save("migros", "attacker@example.com", LOGIN);
+		Path attackerFile = onlyFile();
+
+		Files.copy(directory.resolve("victim.bak"), attackerFile, StandardCopyOption.REPLACE_EXISTING);
+
+		assertThat(store.load("migros", "attacker@example.com")).isEmpty();
+	}
+
+	@Test
+	void evictRemovesTheStoredSession() {
+		var store = store("secret", NOW);
+		store.save("migros", "user@example.com", LOGIN);
+
+		store.evict("migros", "user@example.com");
+
+		assertThat(store.load("migros", "user@example.com")).isEmpty();
+	}
+
+	@Test
+	void failedOrEmptyLoginsAreNotStored() {
+		var store = store("secret", NOW);
+
+		store.save("migros", "user@example.com", AuthenticationResult.failed("nope", 1L));
+		store.save("migros", "user@example.com", AuthenticationResult.successful(List.of(), 1L, "ua", "de"));
+
+		assertThat(directory).isEmptyDirectory();
+	}
+
+	@Test
+	void aBearerTokenIsKeptWithTheSessionUntilItExpires() {
+		var store = store("secret", NOW);
+		store.save("coop", "user@example.com", LOGIN);
+
+		store.saveBearerToken("coop", "user@example.com", "header.payload.signature", NOW.plus(Duration.ofHours(1)));
+
+		assertThat(store.loadBearerToken("coop", "user@example.com")).contains("header.payload.signature");
+		assertThat(store("secret", NOW.plus(Duration.ofHours(2))).loadBearerToken("coop", "user@example.com"))
+			.isEmpty();
+	}
+
+	@Test
+	void aBearerTokenSurvivesARenewedSessionButNotAnEvictedOne() {
+		var store = store("secret", NOW);
+		store.save("coop", "user@example.com", LOGIN);
+		store.saveBearerToken("coop", "user@example.com", "header.payload.signature", NOW.plus(Duration.ofHours(1)));
+
+		store.save("coop", "user@example.com", LOGIN);
+		assertThat(store.loadBearerToken("coop", "user@example.com")).contains("header.payload.signature");
+
+		store.evict("coop", "user@example.com");
+		assertThat(store.loadBearerToken("coop", "user@example.com")).isEmpty();
+	}
+
+	@Test
+	void evictingTheBearerTokenKeepsTheSession() {
+		var store = store("secret", NOW);
+		store.save("coop", "user@example.com", LOGIN);
+		store.saveBearerToken("coop", "user@example.com", "header.payload.signature", NOW.plus(Duration.ofHours(1)));
+
+		store.evictBearerToken("coop", "user@example.com");
+
+		assertThat(store.loadBearerToken("coop", "user@example.com")).isEmpty();
+		assertThat(store.load("coop", "user@example.com")).isPresent();
+	}
+
+	@Test
+	void aBearerTokenWithoutAStoredSessionIsNotStored() {
+		var store = store("secret", NOW);
+
+		store.saveBearerToken("coop", "user@example.com", "header.payload.signature", NOW.plus(Duration.ofHours(1)));
+
+		assertThat(directory).isEmptyDirectory();
+	}
+
+	@Test
+	void theDisabledStoreRemembersNothing() {
+		SessionStore.DISABLED.save("migros", "user@example.com", LOGIN);
+
+		assertThat(SessionStore.DISABLED.load("migros", "user@example.com")).isEmpty();
+	}
+
+	private Path onlyFile() throws IOException {
+		try (var files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(".session")).reduce((first, second) -> {
+				throw new AssertionError("more than one session file");
+			}).orElseThrow();
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryFileCouponSnapshotStoreTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void aSnapshotSurvivesTheRoundTripPerProviderAndAccount() {
+		var store = new BinaryFileCouponSnapshotStore(directory);
+		var snapshot = CouponSnapshot.of(Map.of("c1", "ACTIVE", "c2", "OPEN", "c3", "ACTIVE"));
+
+		store.save("coop", "user@example.com", snapshot);
+
+		assertThat(store.load("coop", "user@example.com")).contains(snapshot);
+		assertThat(store.load("migros", "user@example.com")).isEmpty();
+		assertThat(store.load("coop", "other@example.com")).isEmpty();
+	}
+
+	@Test
+	void eachStatusIsWrittenOnlyOnce() throws IOException {
+		byte[] few = BinaryFileCouponSnapshotStore.write(CouponSnapshot.of(Map.of("c1", "ACTIVE")));
+		byte[] many = BinaryFileCouponSnapshotStore.write(CouponSnapshot.of(Map.of("c1", "ACTIVE", "c2", "ACTIVE")));
+
+		// Another coupon adds its code (2-byte length + 2 chars) and a 2-byte status
+		// index.
+		assertThat(many.length - few.length).isEqualTo(6);
+		assertThat(BinaryFileCouponSnapshotStore.read(many).statuses()).containsOnlyKeys("c1", "c2");
+	}
+
+	@Test
+	void fileNamesDoNotRevealTheAccount() throws IOException {
+		new BinaryFileCouponSnapshotStore(directory).save("coop", "user@example.com", CouponSnapshot.EMPTY);
+
+		try (var files = Files.list(directory)) {
+			assertThat(files.map(file -> file.getFileName().toString()).toList()).singleElement()
+				.satisfies(name -> assertThat(name).doesNotContain("user").endsWith(".snapshot"));
+		}
+	}
+
+	@Test
+	void anUnreadableSnapshotIsDiscarded() throws IOException {
+		var store = new BinaryFileCouponSnapshotStore(directory);
+		store.save("coop", "user@example.com", CouponSnapshot.of(Map.of("c1", "ACTIVE")));
+		Path file;
+		try (var files = Files.list(directory)) {
+			file = files.findFirst().orElseThrow();
+		}
+		Files.write(file, new byte[] { 1, 0, 5 });
+
+		assertThat(store.load("coop", "user@example.com")).isEmpty();
+		assertThat(file).doesNotExist();
+	}
+
+	@Test
+	void theDiffListsAddedRemovedAndChangedCodes() {
+		var previous = CouponSnapshot.of(Map.of("kept", "OPEN", "changed", "OPEN", "expired", "ACTIVE"));
+		var current = CouponSnapshot.of(Map.of("kept", "OPEN", "changed", "ACTIVE", "new", "OPEN"));
+
+		var diff = previous.diff(current);
+
+		assertThat(diff.added()).isEqualTo(List.of("new"));
+		assertThat(diff.removed()).isEqualTo(List.of("expired"));
+		assertThat(diff.statusChanged()).isEqualTo(List.of("changed"));
+		assertThat(current.diff(current).isEmpty()).isTrue();
+	}
+
+}
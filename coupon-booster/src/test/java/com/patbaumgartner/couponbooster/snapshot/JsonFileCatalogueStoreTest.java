@@ -0,0 +1,82 @@
+package com.patbaumgartner.couponbooster.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonFileCatalogueStoreTest {
+
+	private static final String URL = "https://webapi.supercard.ch/dc";
+
+	private static final JsonMapper JSON = JsonMapper.builder().build();
+
+	@TempDir
+	Path directory;
+
+	private JsonFileCatalogueStore store() {
+		return new JsonFileCatalogueStore(directory, JSON);
+	}
+
+	private static StoredCatalogue catalogue(String etag, String json) {
+		return new StoredCatalogue(etag, null, JSON.readTree(json));
+	}
+
+	@Test
+	void aCatalogueSurvivesTheRoundTripPerProviderAccountAndUrl() {
+		var catalogue = catalogue("\"v1\"", "[{\"code\":\"c1\",\"status\":\"ACTIVE\"}]");
+
+		store().save("coop", "user@example.com", URL, catalogue);
+
+		assertThat(store().load("coop", "user@example.com", URL)).contains(catalogue);
+		assertThat(store().load("migros", "user@example.com", URL)).isEmpty();
+		assertThat(store().load("coop", "other@example.com", URL)).isEmpty();
+		assertThat(store().load("coop", "user@example.com", "https://other")).isEmpty();
+	}
+
+	@Test
+	void fileNamesDoNotRevealTheAccount() throws IOException {
+		store().save("coop", "user@example.com", URL, catalogue("\"v1\"", "[]"));
+
+		try (var files = Files.list(directory)) {
+			assertThat(files.map(file -> file.getFileName().toString()).toList()).singleElement()
+				.satisfies(name -> assertThat(name).doesNotContain("user").endsWith(".catalogue"));
+		}
+	}
+
+	@Test
+	void evictRemovesTheStoredCatalogue() {
+		store().save("coop", "user@example.com", URL, catalogue("\"v1\"", "[]"));
+
+		store().evict("coop", "user@example.com", URL);
+
+		assertThat(store().load("coop", "user@example.com", URL)).isEmpty();
+	}
+
+	@Test
+	void anUnreadableCatalogueIsDiscarded() throws IOException {
+		store().save("coop", "user@example.com", URL, catalogue("\"v1\"", "[]"));
+		Path file;
+		try (var files = Files.list(directory)) {
+			file = files.findFirst().orElseThrow();
+		}
+		Files.writeString(file, "{\"etag\":", UTF_8);
+
+		assertThat(store().load("coop", "user@example.com", URL)).isEmpty();
+		assertThat(directory).isEmptyDirectory();
+	}
+
+	@Test
+	void theDisabledStoreRemembersNothing() {
+		CatalogueStore.DISABLED.save("coop", "user@example.com", URL, catalogue("\"v1\"", "[]"));
+
+		assertThat(CatalogueStore.DISABLED.load("coop", "user@example.com", URL)).isEmpty();
+	}
+
+}
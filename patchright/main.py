@@ -16,7 +16,9 @@ POST /login/migros
     Same contract as /login/coop.
 
 GET /health
-    Returns 200: {"status": "ok"}
+    Returns 200: {"status": "ok", "busy": {"coop": false, "migros": true}}
+    ``busy`` marks the providers with a login in flight; clients with several
+    sidecars use it to route a login to one that will not answer 409.
 """
 
 from __future__ import annotations
@@ -78,7 +80,8 @@ app = FastAPI(title="Patchright Login Sidecar", lifespan=lifespan)
 
 @app.get("/health")
 async def health() -> JSONResponse:
-    return JSONResponse({"status": "ok"})
+    busy = {provider: lock.locked() for provider, lock in _LOGIN_LOCKS.items()}
+    return JSONResponse({"status": "ok", "busy": busy})
 
 
 def _elapsed(start: float) -> str:
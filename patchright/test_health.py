@@ -4,4 +4,4 @@
 def test_health_returns_ok(client):
     response = client.get("/health")
     assert response.status_code == 200
-    assert response.json() == {"status": "ok"}
+    assert response.json() == {"status": "ok", "busy": {"coop": False, "migros": False}}
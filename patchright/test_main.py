@@ -73,6 +73,30 @@ async def test_providers_do_not_block_each_other() -> None:
             assert (await coop).status_code == 200
 
 
+@pytest.mark.anyio
+async def test_health_reports_the_providers_with_a_login_in_flight() -> None:
+    """Clients with several sidecars route a login away from a busy one."""
+    started = asyncio.Event()
+    release = asyncio.Event()
+
+    async def blocking_login(_email: str, _password: str) -> dict[str, Any]:
+        started.set()
+        await release.wait()
+        return _RESULT
+
+    with patch("main.migros_stealth_login", new=blocking_login):
+        async with _async_client() as client:
+            login = asyncio.create_task(client.post("/login/migros", json=_CREDENTIALS))
+            await asyncio.wait_for(started.wait(), timeout=5)
+
+            health = await client.get("/health")
+            assert health.json()["busy"] == {"coop": False, "migros": True}
+
+            release.set()
+            assert (await login).status_code == 200
+            assert (await client.get("/health")).json()["busy"]["migros"] is False
+
+
 @pytest.mark.anyio
 async def test_lock_is_released_when_the_login_fails() -> None:
     with patch("main.coop_stealth_login", new_callable=AsyncMock, side_effect=RuntimeError("boom")):